@@ -0,0 +1,437 @@
+package khovalink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import khovalink.homology.CalculationBudget;
+import khovalink.homology.CalculationPlan;
+import khovalink.homology.HeadlessHomology;
+import khovalink.homology.KhovanovPolynomial;
+import khovalink.homology.LinkHomology;
+import khovalink.homology.ResultCache;
+import khovalink.persistence.CanonicalLink;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkDAO;
+import maths.homology.BiGradedHomology;
+
+/**
+ * Entry class of KhovaLink batch calculations, without graphical interface.
+ * <p>
+ * The links are read from the database or from files, then calculated by a
+ * pool of workers, the links with the most crossings first. The links with
+ * the same canonical form are calculated once, unless their marked components
+ * of the reduced homology are different components of the canonical form.
+ * Each result is written as soon as its calculation ends, as a JSON line or a
+ * CSV row.
+ * <p>
+ * As in the graphical interface, the calculation of a link which isn't in the
+ * cache is planned first : a link predicted to need more heap than available
+ * (bounded by the heap limit) is refused, its status giving the plan, and a
+ * link fitting only with scratch files writes them in the scratch directory
+ * (the temporary directory if none is given). The calculations running at
+ * once reserve their predicted heap : a link waits until its heap fits beside
+ * theirs.
+ *
+ * @author flo
+ */
+public final class KhovaBatch {
+
+    private static final String USAGE = "Usage : java khovalink.KhovaBatch [options] (-all | link names or .link files...)\n"
+            + "  -all                 Calculates every link of the database.\n"
+            + "  -threads N           Number of links calculated at once (default : number of processors).\n"
+            + "  -coefficients C      INTEGERS (default), MOD_2 or RATIONALS.\n"
+            + "  -reduced             Calculates the reduced homology, marked on the component of the first arc.\n"
+            + "  -marked N            Calculates the reduced homology, marked on the component N (from 0).\n"
+            + "  -rasmussen           Also calculates the Rasmussen invariant of the knots (over Z/2).\n"
+            + "  -time SECONDS        Time limit of each calculation.\n"
+            + "  -heap MB             Heap limit of the whole JVM : the largest calculation is stopped when it is exceeded.\n"
+            + "  -degrade             Calculates it with coefficients in Z/2 instead of stopping it.\n"
+            + "  -scratch DIRECTORY   Writes the large tables in scratch files of this directory.\n"
+            + "  -checkpoints DIR     Base directory of the checkpoints (default : Checkpoints).\n"
+            + "  -nocheckpoint        Never checkpoints the calculations.\n"
+            + "  -nocache             Calculates the links even if their results are in the cache.\n"
+            + "  -format F            json (default, one object per line) or csv.\n"
+            + "  -output FILE         Writes the results in a file instead of the standard output.";
+
+    private static final String CSV_HEADER = "name,crossings,coefficients,status,seconds,homology,polynomial,rasmussen";
+
+    private final List<Link> links = new ArrayList<>();
+    private int threadNbr = Runtime.getRuntime().availableProcessors();
+    private LinkHomology.Coefficients coefficients = LinkHomology.Coefficients.INTEGERS;
+    private boolean reduced = false;
+    private int markedComponent = -1;
+    private boolean rasmussen = false;
+    private Duration time = null;
+    private long heapBytes = Long.MAX_VALUE;
+    private boolean degradable = false;
+    private Path scratchDirectory = null;
+    private Path checkpointDirectory = null;
+    private boolean checkpointed = true;
+    private boolean cached = true;
+    private boolean csv = false;
+    private File output = null;
+
+    private long batchBytes = Long.MAX_VALUE;
+    private long reservedBytes = 0;
+
+    /**
+     * Non instanciable class outside of {@link #main}.
+     */
+    private KhovaBatch() {
+    }
+
+    /**
+     * Reads the options and the links, then calculates all the links.
+     *
+     * @param args The options followed by the links.
+     */
+    public static void main(final String[] args) {
+        final KhovaBatch batch = new KhovaBatch();
+        try {
+            batch.parse(args);
+        } catch (final IllegalArgumentException | IOException | ClassNotFoundException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            batch.run();
+        } catch (final IOException | InterruptedException ex) {
+            KhovaLog.addLog(ex);
+            System.exit(1);
+        } finally {
+            KhovaLog.close();
+        }
+    }
+
+    /**
+     * Reads the options and the links.
+     *
+     * @param args The command line arguments.
+     *
+     * @throws IllegalArgumentException If an option is wrong.
+     * @throws IOException If a link can't be read.
+     * @throws ClassNotFoundException If the class {@code Link} cannot be found.
+     */
+    private void parse(final String[] args) throws IOException, ClassNotFoundException {
+        for (int k = 0; k < args.length; k++) {
+            switch (args[k]) {
+                case "-all":
+                    for (final String name : LinkDAO.getInstance().findAll()) {
+                        links.add(LinkDAO.getInstance().find(name));
+                    }
+                    break;
+                case "-threads":
+                    threadNbr = Integer.parseInt(getValue(args, ++k));
+                    if (threadNbr < 1) {
+                        throw new IllegalArgumentException("At least one thread is needed.");
+                    }
+                    break;
+                case "-coefficients":
+                    coefficients = LinkHomology.Coefficients.valueOf(getValue(args, ++k).toUpperCase());
+                    break;
+                case "-reduced":
+                    reduced = true;
+                    break;
+                case "-marked":
+                    markedComponent = Integer.parseInt(getValue(args, ++k));
+                    reduced = true;
+                    break;
+                case "-rasmussen":
+                    rasmussen = true;
+                    break;
+                case "-time":
+                    time = Duration.ofSeconds(Long.parseLong(getValue(args, ++k)));
+                    break;
+                case "-heap":
+                    heapBytes = Long.parseLong(getValue(args, ++k)) << 20;
+                    break;
+                case "-degrade":
+                    degradable = true;
+                    break;
+                case "-scratch":
+                    scratchDirectory = Paths.get(getValue(args, ++k));
+                    break;
+                case "-checkpoints":
+                    checkpointDirectory = Paths.get(getValue(args, ++k));
+                    break;
+                case "-nocheckpoint":
+                    checkpointed = false;
+                    break;
+                case "-nocache":
+                    cached = false;
+                    break;
+                case "-format":
+                    final String format = getValue(args, ++k);
+                    if (!"json".equalsIgnoreCase(format) && !"csv".equalsIgnoreCase(format)) {
+                        throw new IllegalArgumentException("Unknown format : \"" + format + "\".");
+                    }
+                    csv = "csv".equalsIgnoreCase(format);
+                    break;
+                case "-output":
+                    output = new File(getValue(args, ++k));
+                    break;
+                default:
+                    if (args[k].startsWith("-")) {
+                        throw new IllegalArgumentException("Unknown option : \"" + args[k] + "\".");
+                    }
+                    final File file = new File(args[k]);
+                    links.add(file.isFile() ? LinkDAO.read(file)
+                            : LinkDAO.getInstance().find(args[k].endsWith(".link") ? args[k] : args[k] + ".link"));
+            }
+        }
+
+        if (links.isEmpty()) {
+            throw new IllegalArgumentException("No link to calculate.");
+        }
+    }
+
+    private static String getValue(final String[] args, final int k) {
+        if (k >= args.length) {
+            throw new IllegalArgumentException("Missing value of option \"" + args[k - 1] + "\".");
+        }
+        return args[k];
+    }
+
+    /**
+     * Calculates all the links, the largest first, and writes each result
+     * once it is calculated.
+     *
+     * @throws IOException If the output file can't be created.
+     * @throws InterruptedException If the batch is interrupted.
+     */
+    private void run() throws IOException, InterruptedException {
+        links.sort(Comparator.comparingInt(Link::getNbCross).reversed().thenComparing(Link::getName));
+        final CalculationBudget budget = time == null && heapBytes == Long.MAX_VALUE
+                ? CalculationBudget.UNLIMITED : new CalculationBudget(time, heapBytes, degradable);
+        batchBytes = Math.min(CalculationPlan.getAvailableHeap(), heapBytes);
+
+        try (final PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                output == null ? System.out : new FileOutputStream(output), StandardCharsets.UTF_8))) {
+            if (csv) {
+                writer.println(CSV_HEADER);
+                writer.flush();
+            }
+
+            final Map<CanonicalLink, Map<Integer, List<Link>>> diagrams = new LinkedHashMap<>();
+            for (final Link link : links) {
+                final CanonicalLink canonical = new CanonicalLink(link);
+                final int marked = getMarkedComponent(link);
+                diagrams.computeIfAbsent(canonical, key -> new LinkedHashMap<>())
+                        .computeIfAbsent(marked < 0 || marked >= link.getNbCompo() ? marked : canonical.getComponent(marked), key -> new ArrayList<>())
+                        .add(link);
+            }
+            final List<List<Link>> groups = new ArrayList<>();
+            diagrams.values().forEach(marked -> groups.addAll(marked.values()));
+
+            final ExecutorService workers = Executors.newFixedThreadPool(threadNbr);
+            final AtomicInteger done = new AtomicInteger(0);
+            final Instant start = Instant.now();
+            for (final List<Link> sameLinks : groups) {
+                workers.execute(() -> {
+                    final String[] fields = calculate(sameLinks.get(0), budget);
+                    synchronized (writer) {
+                        for (final Link link : sameLinks) {
+                            fields[0] = link.getName();
+                            writer.println(csv ? toCsv(fields) : toJson(fields));
+                            System.err.println("[" + done.incrementAndGet() + "/" + links.size() + "] " + link.getName());
+                        }
+                        writer.flush();
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+            System.err.println(links.size() + " links (" + groups.size() + " different diagrams) calculated in "
+                    + Duration.between(start, Instant.now()));
+        }
+    }
+
+    /**
+     * Returns the marked component of the reduced homology of a link : the
+     * one given, or the component of the first arc of its link code.
+     *
+     * @param link The link.
+     *
+     * @return The index of the component, or -1 for the unreduced homology.
+     */
+    private int getMarkedComponent(final Link link) {
+        return markedComponent >= 0 ? markedComponent : reduced ? LinkHomology.getDefaultComponent(link) : -1;
+    }
+
+    /**
+     * Waits until the heap predicted for a calculation fits beside the heap
+     * reserved by the calculations running, then reserves it. A calculation
+     * never waits when nothing else is running.
+     *
+     * @param bytes The predicted heap of the calculation.
+     *
+     * @throws InterruptedException If the batch is interrupted.
+     */
+    private synchronized void reserve(final long bytes) throws InterruptedException {
+        while (reservedBytes > 0 && bytes > batchBytes - reservedBytes) {
+            wait();
+        }
+        reservedBytes += bytes;
+    }
+
+    private synchronized void release(final long bytes) {
+        reservedBytes -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Calculates the homology of a link, unless its plan is refused even
+     * running alone. Its predicted heap is reserved while it runs.
+     *
+     * @param link The link.
+     * @param budget The limits of the calculation.
+     *
+     * @return The fields of the result.
+     */
+    private String[] calculate(final Link link, final CalculationBudget budget) {
+        final CalculationPlan plan = isCached(link) ? null : new CalculationPlan(link, coefficients);
+        final CalculationPlan.Admission admission = plan == null ? CalculationPlan.Admission.RUN : plan.getAdmission(batchBytes);
+        if (admission == CalculationPlan.Admission.REFUSE) {
+            return new String[]{link.getName(), String.valueOf(link.getNbCross()), coefficients + (reduced ? " reduced" : ""),
+                "refused : " + plan.toString().replace("\n", ", ") + " (" + (batchBytes >> 20) + " MB available)", "0", "", "", ""};
+        }
+        final long predictedBytes = plan == null ? 0
+                : admission == CalculationPlan.Admission.SPILL ? plan.getSpilledHeapBytes() : plan.getHeapBytes();
+        try {
+            reserve(predictedBytes);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new String[]{link.getName(), String.valueOf(link.getNbCross()), coefficients + (reduced ? " reduced" : ""),
+                "interrupted", "0", "", "", ""};
+        }
+        try {
+            return calculate(link, budget, admission);
+        } finally {
+            release(predictedBytes);
+        }
+    }
+
+    /**
+     * Calculates the homology of an admitted link.
+     *
+     * @param link The link.
+     * @param budget The limits of the calculation.
+     * @param admission How the calculation is run.
+     *
+     * @return The fields of the result.
+     */
+    private String[] calculate(final Link link, final CalculationBudget budget, final CalculationPlan.Admission admission) {
+        final Path scratch = admission == CalculationPlan.Admission.SPILL && scratchDirectory == null
+                ? Paths.get(System.getProperty("java.io.tmpdir")) : scratchDirectory;
+
+        final HeadlessHomology homology = new HeadlessHomology(link, coefficients, scratch, budget);
+        if (!cached) {
+            homology.setCache(null);
+        }
+        if (!checkpointed) {
+            homology.setCheckpointDirectory(null);
+        } else if (checkpointDirectory != null) {
+            homology.setCheckpointDirectory(checkpointDirectory);
+        }
+        homology.setRasmussen(rasmussen);
+        final Instant start = Instant.now();
+        BiGradedHomology result = null;
+        String status;
+        try {
+            if (markedComponent >= 0) {
+                homology.setMarkedComponent(markedComponent);
+            } else {
+                homology.setReduced(reduced);
+            }
+            result = homology.calculate();
+            if (result == null) {
+                status = homology.getLastLine();
+            } else if (rasmussen && link.getNbCompo() == 1 && homology.getRasmussenInvariant() == null) {
+                status = "ok, Rasmussen invariant refused";
+            } else {
+                status = "ok";
+            }
+        } catch (final RuntimeException ex) {
+            KhovaLog.addLog(ex);
+            status = "failed : " + ex.getMessage();
+        }
+        final double seconds = Duration.between(start, Instant.now()).toMillis() / 1000.;
+        final KhovanovPolynomial polynomial = homology.getPolynomial();
+        final Integer invariant = homology.getRasmussenInvariant();
+
+        return new String[]{link.getName(), String.valueOf(link.getNbCross()), homology.getCoefficients() + (reduced ? " reduced" : ""), status,
+            String.valueOf(seconds), result == null ? "" : result.toString(), polynomial == null ? "" : polynomial.toString(),
+            invariant == null ? "" : invariant.toString()};
+    }
+
+    /**
+     * Tells if the unreduced homology of a link is in the cache, and will be
+     * read from it (the Rasmussen invariant isn't stored).
+     *
+     * @param link The link.
+     *
+     * @return {@code true} if the result is stored.
+     */
+    private boolean isCached(final Link link) {
+        try {
+            return cached && !reduced && !rasmussen && ResultCache.getInstance().contains(link, coefficients);
+        } catch (final IOException ex) {
+            KhovaLog.addLog(ex);
+            return false;
+        }
+    }
+
+    private static String toCsv(final String[] fields) {
+        final StringBuilder row = new StringBuilder();
+        for (final String field : fields) {
+            if (row.length() > 0) {
+                row.append(',');
+            }
+            row.append('"').append(field.replace("\"", "\"\"")).append('"');
+        }
+        return row.toString();
+    }
+
+    private static String toJson(final String[] fields) {
+        final String[] names = CSV_HEADER.split(",");
+        final StringBuilder object = new StringBuilder("{");
+        for (int k = 0; k < fields.length; k++) {
+            object.append(k == 0 ? "" : ", ").append('"').append(names[k]).append("\": ");
+            if (k == 1 || k == 4) {
+                object.append(fields[k]);
+            } else {
+                object.append('"');
+                for (final char c : fields[k].toCharArray()) {
+                    if (c == '"' || c == '\\') {
+                        object.append('\\').append(c);
+                    } else if (c < ' ') {
+                        object.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        object.append(c);
+                    }
+                }
+                object.append('"');
+            }
+        }
+        return object.append('}').toString();
+    }
+}
@@ -0,0 +1,333 @@
+package khovalink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import khovalink.homology.CalculationBudget;
+import khovalink.homology.HeadlessHomology;
+import khovalink.homology.LinkHomology;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkDAO;
+import khovalink.persistence.LinkSimplifier;
+import khovalink.persistence.RandomLinkGenerator;
+import maths.homology.BiGradedHomology;
+
+/**
+ * Entry class measuring how the calculations scale with the number of
+ * crossings, on random links drawn from a seed.
+ * <p>
+ * For each number of crossings, a few links are created by a
+ * {@code RandomLinkGenerator} and calculated one after the other : the time
+ * of the creation, the time of the calculation and the peak of the heap
+ * during the calculation are written as one JSON object per line, with the
+ * number of crossings left by the Reidemeister simplification. The
+ * medians of each number of crossings are then fitted by an exponential
+ * curve, whose growth factor per crossing ends the output, and drawn on the
+ * error output with a logarithmic scale.
+ *
+ * @author flo
+ */
+public final class ScalingBenchmark {
+
+    private static final String USAGE = "Usage : java khovalink.ScalingBenchmark [options]\n"
+            + "  -seed S              Seed of the random links (default : 1).\n"
+            + "  -min N               Smallest number of crossings (default : 3).\n"
+            + "  -max N               Largest number of crossings (default : 14).\n"
+            + "  -samples K           Links of each number of crossings (default : 3).\n"
+            + "  -components C        Number of components of the links (default : 1).\n"
+            + "  -diagrams D          alternating, nonalternating or both (default).\n"
+            + "  -coefficients C      INTEGERS (default), MOD_2 or RATIONALS.\n"
+            + "  -time SECONDS        Time limit of each calculation.\n"
+            + "  -dao                 Also measures the saving, reading and deleting of the links in the database.\n"
+            + "  -output FILE         Writes the results in a file instead of the standard output.";
+
+    /**
+     * Width of the bars of the drawing, for the largest median.
+     */
+    private static final int PLOT_WIDTH = 60;
+
+    private long seed = 1;
+    private int minCrossings = 3;
+    private int maxCrossings = 14;
+    private int sampleNbr = 3;
+    private int compoNbr = 1;
+    private boolean[] alternatings = {true, false};
+    private LinkHomology.Coefficients coefficients = LinkHomology.Coefficients.INTEGERS;
+    private Duration time = null;
+    private boolean dao = false;
+    private File output = null;
+
+    /**
+     * Non instanciable class outside of {@link #main}.
+     */
+    private ScalingBenchmark() {
+    }
+
+    /**
+     * Reads the options, then measures the random links.
+     *
+     * @param args The options.
+     */
+    public static void main(final String[] args) {
+        final ScalingBenchmark benchmark = new ScalingBenchmark();
+        try {
+            benchmark.parse(args);
+        } catch (final IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            benchmark.run();
+        } catch (final IOException | ClassNotFoundException ex) {
+            KhovaLog.addLog(ex);
+            System.exit(1);
+        } finally {
+            KhovaLog.close();
+        }
+    }
+
+    /**
+     * Reads the options.
+     *
+     * @param args The command line arguments.
+     *
+     * @throws IllegalArgumentException If an option is wrong.
+     */
+    private void parse(final String[] args) {
+        for (int k = 0; k < args.length; k++) {
+            switch (args[k]) {
+                case "-seed":
+                    seed = Long.parseLong(getValue(args, ++k));
+                    break;
+                case "-min":
+                    minCrossings = Integer.parseInt(getValue(args, ++k));
+                    break;
+                case "-max":
+                    maxCrossings = Integer.parseInt(getValue(args, ++k));
+                    break;
+                case "-samples":
+                    sampleNbr = Integer.parseInt(getValue(args, ++k));
+                    if (sampleNbr < 1) {
+                        throw new IllegalArgumentException("At least one sample is needed.");
+                    }
+                    break;
+                case "-components":
+                    compoNbr = Integer.parseInt(getValue(args, ++k));
+                    break;
+                case "-diagrams":
+                    final String diagrams = getValue(args, ++k).toLowerCase();
+                    if (!diagrams.matches("alternating|nonalternating|both")) {
+                        throw new IllegalArgumentException("Unknown diagrams : \"" + diagrams + "\".");
+                    }
+                    alternatings = "both".equals(diagrams) ? new boolean[]{true, false} : new boolean[]{"alternating".equals(diagrams)};
+                    break;
+                case "-coefficients":
+                    coefficients = LinkHomology.Coefficients.valueOf(getValue(args, ++k).toUpperCase());
+                    break;
+                case "-time":
+                    time = Duration.ofSeconds(Long.parseLong(getValue(args, ++k)));
+                    break;
+                case "-dao":
+                    dao = true;
+                    break;
+                case "-output":
+                    output = new File(getValue(args, ++k));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option : \"" + args[k] + "\".");
+            }
+        }
+    }
+
+    private static String getValue(final String[] args, final int k) {
+        if (k >= args.length) {
+            throw new IllegalArgumentException("Missing value of option \"" + args[k - 1] + "\".");
+        }
+        return args[k];
+    }
+
+    /**
+     * Measures the random links, from the smallest, then fits and draws the
+     * medians.
+     *
+     * @throws IOException If the output file can't be created or if a link
+     * can't be saved.
+     * @throws ClassNotFoundException If the class {@code Link} cannot be found.
+     */
+    private void run() throws IOException, ClassNotFoundException {
+        final RandomLinkGenerator generator = new RandomLinkGenerator(seed);
+        final CalculationBudget budget = time == null ? CalculationBudget.UNLIMITED : new CalculationBudget(time, Long.MAX_VALUE, false);
+        final Map<Integer, List<double[]>> samples = new TreeMap<>();
+
+        try (final PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                output == null ? System.out : new FileOutputStream(output), StandardCharsets.UTF_8))) {
+            for (int crossingNbr = minCrossings; crossingNbr <= maxCrossings; crossingNbr++) {
+                for (final boolean alternating : alternatings) {
+                    for (int k = 0; k < sampleNbr; k++) {
+                        final long creationStart = System.nanoTime();
+                        final Link link;
+                        try {
+                            link = generator.next(crossingNbr, compoNbr, alternating);
+                        } catch (final IllegalArgumentException ex) {
+                            System.err.println(ex.getMessage());
+                            break;
+                        }
+                        final double creationMillis = (System.nanoTime() - creationStart) / 1e6;
+
+                        final double[] measures = calculate(link, budget);
+                        if (measures[2] > 0) {
+                            samples.computeIfAbsent(crossingNbr, n -> new ArrayList<>()).add(measures);
+                        }
+                        writer.println(String.format(Locale.ROOT, "{\"seed\": %d, \"link\": \"%s\", \"crossings\": %d, \"components\": %d, "
+                                + "\"alternating\": %b, \"code\": \"%s\", \"simplifiedCrossings\": %d, \"createMillis\": %.3f, \"calculationMillis\": %.3f, "
+                                + "\"peakHeapBytes\": %d, \"ok\": %b%s}",
+                                seed, link.getName(), crossingNbr, link.getNbCompo(), alternating, Arrays.toString(link.getCode()),
+                                new LinkSimplifier(link).getLink().getNbCross(),
+                                creationMillis, measures[0], (long) measures[1], measures[2] > 0, dao ? getDaoMeasures(link) : ""));
+                        writer.flush();
+                    }
+                }
+                System.err.println(crossingNbr + " crossings measured.");
+            }
+
+            writer.println(getFit(samples, 0, "calculationMillis"));
+            writer.println(getFit(samples, 1, "peakHeapBytes"));
+        }
+        plot(samples);
+    }
+
+    /**
+     * Calculates the homology of a link, the heap being collected before.
+     *
+     * @param link The link.
+     * @param budget The limits of the calculation.
+     *
+     * @return The time in milliseconds, the peak of the heap in bytes, and 1
+     * if the calculation succeeded or 0 otherwise.
+     */
+    private double[] calculate(final Link link, final CalculationBudget budget) {
+        final HeadlessHomology homology = new HeadlessHomology(link, coefficients, null, budget);
+        homology.setCache(null);
+
+        System.gc();
+        final List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                pools.add(pool);
+            }
+        }
+
+        final long start = System.nanoTime();
+        BiGradedHomology result;
+        try {
+            result = homology.calculate();
+        } catch (final RuntimeException ex) {
+            KhovaLog.addLog(ex);
+            result = null;
+        }
+        final double millis = (System.nanoTime() - start) / 1e6;
+
+        //The peaks of the pools aren't simultaneous : their sum is an upper bound of the peak of the heap.
+        final long peak = pools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new double[]{millis, peak, result == null ? 0 : 1};
+    }
+
+    /**
+     * Measures the saving, the reading and the deleting of a link in the
+     * database.
+     *
+     * @param link The link.
+     *
+     * @return The JSON fields of the measures.
+     *
+     * @throws IOException If the link can't be saved, read or deleted.
+     * @throws ClassNotFoundException If the class {@code Link} cannot be found.
+     */
+    private static String getDaoMeasures(final Link link) throws IOException, ClassNotFoundException {
+        final LinkDAO database = LinkDAO.getInstance();
+        final long saveStart = System.nanoTime();
+        database.save(link);
+        final long findStart = System.nanoTime();
+        database.find(link.getName() + ".link");
+        final long deleteStart = System.nanoTime();
+        database.delete(link.getName() + ".link");
+        final long end = System.nanoTime();
+
+        return String.format(Locale.ROOT, ", \"saveMillis\": %.3f, \"findMillis\": %.3f, \"deleteMillis\": %.3f",
+                (findStart - saveStart) / 1e6, (deleteStart - findStart) / 1e6, (end - deleteStart) / 1e6);
+    }
+
+    /**
+     * Fits the medians of a measure by an exponential curve
+     * {@code a * b^crossings} (least squares on their logarithms).
+     *
+     * @param samples The measures of the successful calculations, by number
+     * of crossings.
+     * @param index The index of the measure.
+     * @param name The name of the measure.
+     *
+     * @return The JSON object of the fit.
+     */
+    private static String getFit(final Map<Integer, List<double[]>> samples, final int index, final String name) {
+        double n = 0, sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (final Map.Entry<Integer, List<double[]>> entry : samples.entrySet()) {
+            final double median = getMedian(entry.getValue(), index);
+            if (median > 0) {
+                final double y = Math.log(median);
+                n++;
+                sumX += entry.getKey();
+                sumY += y;
+                sumXX += entry.getKey() * entry.getKey();
+                sumXY += entry.getKey() * y;
+            }
+        }
+
+        final double slope = n < 2 ? Double.NaN : (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+        final double intercept = (sumY - slope * sumX) / n;
+        return String.format(Locale.ROOT, "{\"fit\": \"%s\", \"points\": %d, \"factor\": %.6g, \"growthPerCrossing\": %.4f, \"doublingCrossings\": %.3f}",
+                name, (int) n, Math.exp(intercept), Math.exp(slope), Math.log(2) / slope);
+    }
+
+    private static double getMedian(final List<double[]> measures, final int index) {
+        final double[] values = measures.stream().mapToDouble(measure -> measure[index]).sorted().toArray();
+        return values.length % 2 == 1 ? values[values.length / 2] : (values[values.length / 2 - 1] + values[values.length / 2]) / 2;
+    }
+
+    /**
+     * Draws the median times on the error output, the length of each bar
+     * being proportional to the logarithm of the time : an exponential curve
+     * is a straight line.
+     *
+     * @param samples The measures of the successful calculations, by number
+     * of crossings.
+     */
+    private static void plot(final Map<Integer, List<double[]>> samples) {
+        final Map<Integer, Double> medians = new TreeMap<>();
+        samples.forEach((crossingNbr, measures) -> medians.put(crossingNbr, Math.max(1, getMedian(measures, 0))));
+        final double max = Math.log10(medians.values().stream().mapToDouble(Double::doubleValue).max().orElse(10));
+
+        System.err.println("\nMedian calculation time (logarithmic scale) :");
+        medians.forEach((crossingNbr, median) -> {
+            final int width = max <= 0 ? 0 : (int) Math.round(PLOT_WIDTH * Math.log10(median) / max);
+            final char[] bar = new char[width];
+            Arrays.fill(bar, '#');
+            System.err.println(String.format(Locale.ROOT, "%3d | %s %.1f ms", crossingNbr, new String(bar), median));
+        });
+    }
+}
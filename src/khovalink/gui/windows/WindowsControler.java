@@ -1,6 +1,7 @@
 package khovalink.gui.windows;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -15,7 +16,9 @@ import javafx.scene.control.TextInputDialog;
 import javafx.stage.Stage;
 import khovalink.KhovaLog;
 import khovalink.gui.components.InfoProgressBar;
+import khovalink.homology.CalculationPlan;
 import khovalink.homology.LinkHomology;
+import khovalink.homology.ResultCache;
 import khovalink.persistence.Link;
 import khovalink.persistence.LinkDAO;
 import khovalink.persistence.LinkFactory;
@@ -233,10 +236,31 @@ public class WindowsControler {
     }
 
     /**
-     * Launches the Khovanov homology calculus.
+     * Launches the Khovanov homology calculus, after checking that the
+     * predicted heap is available : if it isn't, the large tables are written
+     * to a scratch file in the temporary directory, or the calculation is
+     * refused. A link whose result is in the cache is always launched.
      */
     public static void launchCalc() {
-        final LinkHomology homology = new LinkHomology(linkProperty.get());
+        final Link link = linkProperty.get();
+        final CalculationPlan plan = isCached(link) ? null : new CalculationPlan(link, LinkHomology.Coefficients.INTEGERS);
+        final LinkHomology homology;
+
+        switch (plan == null ? CalculationPlan.Admission.RUN : plan.getAdmission(CalculationPlan.getAvailableHeap())) {
+            case REFUSE:
+                final Alert alert = new Alert(Alert.AlertType.ERROR, plan.toString()
+                        + "\nAvailable heap : " + (CalculationPlan.getAvailableHeap() >> 20) + " MB");
+                alert.setTitle("Error");
+                alert.setHeaderText("The link is too big for the available memory !");
+                alert.showAndWait();
+                return;
+            case SPILL:
+                homology = new LinkHomology(link, LinkHomology.Coefficients.INTEGERS, Paths.get(System.getProperty("java.io.tmpdir")));
+                break;
+            default:
+                homology = new LinkHomology(link);
+        }
+
         final InfoProgressBar bar = new InfoProgressBar(homology.progressProperty());
         final Thread thread = new Thread(homology);
 
@@ -270,6 +294,22 @@ public class WindowsControler {
         thread.start();
     }
 
+    /**
+     * Tells if the homology of a link is in the cache.
+     *
+     * @param link The link.
+     *
+     * @return {@code true} if the result is stored.
+     */
+    private static boolean isCached(final Link link) {
+        try {
+            return ResultCache.getInstance().contains(link, LinkHomology.Coefficients.INTEGERS);
+        } catch (final IOException ex) {
+            KhovaLog.addLog(ex);
+            return false;
+        }
+    }
+
     /**
      * Display an {@code Alert} with an exception message.
      *
@@ -0,0 +1,218 @@
+package khovalink.homology;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import maths.exceptions.MathsArgumentException;
+import maths.homology.BiGradedHomology;
+import maths.homology.DifferentialBiComplex;
+import maths.homology.SNFCalculator;
+import maths.matrix.IntegerMatrix;
+
+/**
+ * Class representing bigraded abelian groups, each one given by its free rank
+ * and its torsion coefficients.
+ * <p>
+ * The groups are turned into a {@code BiGradedHomology} through a model
+ * complex : in each quantum grading, every torsion coefficient {@code t} at
+ * homological grading {@code i} is the cokernel of a {@code 1x1} matrix
+ * {@code (t)} coming from grading {@code i - 1}.
+ *
+ * @author flo
+ */
+public final class BiGradedGroups implements Serializable {
+
+    private static final long serialVersionUID = 2904712846613309458L;
+
+    private static final int[] NO_TORSION = new int[0];
+
+    private final HashMap<Integer, HashMap<Integer, int[]>> groups = new HashMap<>();
+
+    /**
+     * Creates empty {@code BiGradedGroups}.
+     */
+    public BiGradedGroups() {
+    }
+
+    /**
+     * Sets the group of a bigrading.
+     *
+     * @param iGrad The homological grading.
+     * @param jGrad The quantum grading.
+     * @param freeRank The free rank.
+     * @param torsion The torsion coefficients.
+     */
+    public synchronized void setijGroup(final int iGrad, final int jGrad, final int freeRank, final int[] torsion) {
+        final int[] group = new int[torsion.length + 1];
+        group[0] = freeRank;
+        System.arraycopy(torsion, 0, group, 1, torsion.length);
+
+        if (!groups.containsKey(jGrad)) {
+            groups.put(jGrad, new HashMap<>());
+        }
+        groups.get(jGrad).put(iGrad, group);
+    }
+
+    /**
+     * Sets the groups of a quantum grading from the dimensions of its chain
+     * groups and the ranks of its differentials over Z/2 : each homology group
+     * is {@code (Z/2)^b}, stored as {@code b} torsion coefficients equal to 2.
+     *
+     * @param jGrad The quantum grading.
+     * @param dimRanks For each homological grading, the dimension of the chain
+     * group and the rank of the differential going out of it.
+     */
+    public synchronized void setjMod2Groups(final int jGrad, final Map<Integer, int[]> dimRanks) {
+        for (final int iGrad : dimRanks.keySet()) {
+            final int[] prev = dimRanks.get(iGrad - 1);
+            final int betti = dimRanks.get(iGrad)[0] - dimRanks.get(iGrad)[1] - (prev == null ? 0 : prev[1]);
+            if (betti > 0) {
+                final int[] torsion = new int[betti];
+                Arrays.fill(torsion, 2);
+                setijGroup(iGrad, jGrad, 0, torsion);
+            }
+        }
+    }
+
+    /**
+     * Returns the free rank of a bigrading.
+     *
+     * @param iGrad The homological grading.
+     * @param jGrad The quantum grading.
+     *
+     * @return The free rank (0 if the group isn't set).
+     */
+    public synchronized int getFreeRank(final int iGrad, final int jGrad) {
+        final int[] group = getGroup(iGrad, jGrad);
+        return group == null ? 0 : group[0];
+    }
+
+    /**
+     * Returns the torsion coefficients of a bigrading.
+     *
+     * @param iGrad The homological grading.
+     * @param jGrad The quantum grading.
+     *
+     * @return The torsion coefficients.
+     */
+    public synchronized int[] getTorsion(final int iGrad, final int jGrad) {
+        final int[] group = getGroup(iGrad, jGrad);
+        if (group == null || group.length == 1) {
+            return NO_TORSION;
+        }
+
+        final int[] torsion = new int[group.length - 1];
+        System.arraycopy(group, 1, torsion, 0, torsion.length);
+        return torsion;
+    }
+
+    /**
+     * Returns the quantum gradings.
+     *
+     * @return The set of quantum gradings.
+     */
+    public synchronized Set<Integer> getjGrads() {
+        return groups.keySet();
+    }
+
+    /**
+     * Returns the homological gradings set for a quantum grading.
+     *
+     * @param jGrad The quantum grading.
+     *
+     * @return The set of homological gradings.
+     */
+    public synchronized Set<Integer> getiGrads(final int jGrad) {
+        return groups.get(jGrad).keySet();
+    }
+
+    /**
+     * Sets the model complex of these groups in a {@code DifferentialBiComplex}.
+     *
+     * @param biComplex The complex to fill.
+     *
+     * @throws MathsArgumentException If a matrix can't be created.
+     */
+    public synchronized void fillModel(final DifferentialBiComplex biComplex) throws MathsArgumentException {
+        for (final int jGrad : groups.keySet()) {
+            final HashMap<Integer, int[]> jGroups = groups.get(jGrad);
+
+            for (final int iGrad : jGroups.keySet()) {
+                final int dim = modelDim(jGrad, iGrad);
+                if (dim == 0) {
+                    continue;
+                }
+
+                final int nextDim = modelDim(jGrad, iGrad + 1);
+                if (nextDim == 0) {
+                    biComplex.setijDiff(iGrad, jGrad, IntegerMatrix.getEmpty(1, dim));
+                    continue;
+                }
+
+                final int[] group = jGroups.get(iGrad);
+                final int[] next = jGroups.get(iGrad + 1);
+                final int[][] diff = new int[nextDim][dim];
+                for (int k = 1; next != null && k < next.length; k++) {
+                    diff[next[0] + k - 1][group.length - 1 + group[0] + k - 1] = next[k];
+                }
+                biComplex.setijDiff(iGrad, jGrad, new IntegerMatrix(diff));
+            }
+
+            //Gradings without group but whose torsion comes from them.
+            for (final int iGrad : jGroups.keySet()) {
+                if (!jGroups.containsKey(iGrad - 1) && jGroups.get(iGrad).length > 1) {
+                    final int[] group = jGroups.get(iGrad);
+                    final int[][] diff = new int[modelDim(jGrad, iGrad)][group.length - 1];
+                    for (int k = 1; k < group.length; k++) {
+                        diff[group[0] + k - 1][k - 1] = group[k];
+                    }
+                    biComplex.setijDiff(iGrad - 1, jGrad, new IntegerMatrix(diff));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Khovanov homology represented by these groups.
+     *
+     * @return The {@code BiGradedHomology}.
+     *
+     * @throws MathsArgumentException If the model complex can't be calculated.
+     */
+    public BiGradedHomology getHomology() throws MathsArgumentException {
+        final DifferentialBiComplex biComplex = new DifferentialBiComplex();
+        fillModel(biComplex);
+
+        return biComplex.getHomology(new SNFCalculator());
+    }
+
+    /**
+     * Returns the group of a bigrading.
+     *
+     * @param iGrad The homological grading.
+     * @param jGrad The quantum grading.
+     *
+     * @return The group ({@code null} if not set).
+     */
+    private int[] getGroup(final int iGrad, final int jGrad) {
+        return groups.get(jGrad) == null ? null : groups.get(jGrad).get(iGrad);
+    }
+
+    /**
+     * Returns the dimension of a chain group of the model complex : free part,
+     * torsion generators and sources of the next grading's torsion.
+     *
+     * @param jGrad The quantum grading.
+     * @param iGrad The homological grading.
+     *
+     * @return The dimension.
+     */
+    private int modelDim(final int jGrad, final int iGrad) {
+        final int[] group = groups.get(jGrad).get(iGrad);
+        final int[] next = groups.get(jGrad).get(iGrad + 1);
+
+        return (group == null ? 0 : group[0] + group.length - 1) + (next == null ? 0 : next.length - 1);
+    }
+}
@@ -0,0 +1,115 @@
+package khovalink.homology;
+
+/**
+ * Class representing a matrix with coefficients in Z/2, each row being packed
+ * in a bitset of {@code long} words.
+ * <p>
+ * The rank is calculated by Gaussian elimination where adding a row to
+ * another is a XOR of their words : 64 entries are treated at once and the
+ * matrix is 32 times smaller than an {@code int[][]}.
+ *
+ * @author flo
+ */
+final class BitMatrix {
+
+    private final long[][] rows;
+    private final int colNbr;
+
+    /**
+     * Creates a zero {@code BitMatrix}.
+     *
+     * @param rowNbr The number of rows.
+     * @param colNbr The number of columns.
+     */
+    BitMatrix(final int rowNbr, final int colNbr) {
+        rows = new long[rowNbr][(colNbr + 63) >>> 6];
+        this.colNbr = colNbr;
+    }
+
+    /**
+     * Creates the reduction modulo 2 of an integer matrix.
+     *
+     * @param matrix The integer matrix.
+     *
+     * @return The {@code BitMatrix}.
+     */
+    static BitMatrix reduce(final SparseMatrix matrix) {
+        final BitMatrix bits = new BitMatrix(matrix.getRowNbr(), matrix.getColNbr());
+        for (int r = 0; r < matrix.getRowNbr(); r++) {
+            for (int k = matrix.getRowStart(r); k < matrix.getRowStart(r + 1); k++) {
+                if (matrix.getValue(k) % 2 != 0) {
+                    bits.flip(r, matrix.getColIndex(k));
+                }
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * Adds one to an entry.
+     *
+     * @param row The row.
+     * @param col The column.
+     */
+    void flip(final int row, final int col) {
+        rows[row][col >>> 6] ^= 1L << col;
+    }
+
+    int getRowNbr() {
+        return rows.length;
+    }
+
+    int getColNbr() {
+        return colNbr;
+    }
+
+    /**
+     * Returns the bytes used by the rows.
+     *
+     * @return The storage size in bytes.
+     */
+    long getByteSize() {
+        return 8L * rows.length * ((colNbr + 63) >>> 6);
+    }
+
+    /**
+     * Calculates the rank. Each row is reduced by the pivot rows already found
+     * until its lowest bit isn't the one of a pivot : then it is a new pivot or
+     * it is zero. The rows are modified.
+     *
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The rank.
+     */
+    int getRank(final Cancellation cancellation) {
+        final long[][] pivots = new long[colNbr][];
+        int rank = 0;
+
+        for (final long[] row : rows) {
+            cancellation.check();
+            int word = 0;
+            while (true) {
+                while (word < row.length && row[word] == 0) {
+                    word++;
+                }
+                if (word == row.length) {
+                    break;
+                }
+
+                final int low = (word << 6) + Long.numberOfTrailingZeros(row[word]);
+                final long[] pivot = pivots[low];
+                if (pivot == null) {
+                    pivots[low] = row;
+                    rank++;
+                    break;
+                }
+                for (int w = word; w < row.length; w++) {
+                    row[w] ^= pivot[w];
+                }
+            }
+        }
+
+        return rank;
+    }
+}
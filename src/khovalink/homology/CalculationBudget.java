@@ -0,0 +1,77 @@
+package khovalink.homology;
+
+import java.time.Duration;
+
+/**
+ * Class representing the limits given to a homology calculation : its
+ * duration and the java heap it may use.
+ * <p>
+ * A calculation exceeding its time is stopped. A calculation exceeding its
+ * heap is stopped too, unless it may be degraded : then its integral (or
+ * rational) differentials are dropped and only the homology with coefficients
+ * in Z/2 is calculated, its differentials never being stored.
+ *
+ * @author flo
+ */
+public final class CalculationBudget {
+
+    /**
+     * The budget without limit.
+     */
+    public static final CalculationBudget UNLIMITED = new CalculationBudget(null, Long.MAX_VALUE, false);
+
+    private final Duration time;
+    private final long heapBytes;
+    private final boolean degradable;
+
+    /**
+     * Creates a new {@code CalculationBudget}.
+     *
+     * @param time The maximal duration of the calculation, or {@code null}
+     * for no limit.
+     * @param heapBytes The maximal heap used by the calculation (and
+     * everything else in the JVM), in bytes.
+     * @param degradable {@code true} if the homology may be calculated with
+     * coefficients in Z/2 when the heap is exceeded.
+     */
+    public CalculationBudget(final Duration time, final long heapBytes, final boolean degradable) {
+        this.time = time;
+        this.heapBytes = heapBytes;
+        this.degradable = degradable;
+    }
+
+    /**
+     * Returns the maximal duration of the calculation.
+     *
+     * @return The {@code Duration}, or {@code null} for no limit.
+     */
+    public Duration getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the maximal heap used.
+     *
+     * @return The number of bytes.
+     */
+    public long getHeapBytes() {
+        return heapBytes;
+    }
+
+    /**
+     * Tells if the homology may be calculated with coefficients in Z/2 when
+     * the heap is exceeded.
+     *
+     * @return {@code true} if the calculation may be degraded.
+     */
+    public boolean isDegradable() {
+        return degradable;
+    }
+
+    @Override
+    public String toString() {
+        return "Time : " + (time == null ? "no limit" : time)
+                + ", heap : " + (heapBytes == Long.MAX_VALUE ? "no limit" : (heapBytes >> 20) + " MB")
+                + (degradable ? ", Z/2 if exceeded" : "");
+    }
+}
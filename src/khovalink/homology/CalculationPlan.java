@@ -0,0 +1,298 @@
+package khovalink.homology;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkSimplifier;
+
+/**
+ * Class predicting the size and the cost of a homology calculation before it
+ * starts.
+ * <p>
+ * The resolutions are only counted by number of 1-smoothings and of circles
+ * (a {@code ResolutionCensus}), which gives the exact rank of every chain
+ * group. The numbers of entries of the differentials, the heap used and the
+ * time are then estimated from these ranks, each generator having one entry
+ * per edge of the cube leaving its resolution for a merge and two for a
+ * split. Only the largest quantum grading counts for the heap, the quantum
+ * gradings being reduced one after the other.
+ *
+ * @author flo
+ */
+public final class CalculationPlan {
+
+    /**
+     * Enum specifying how a calculation can be run with the available memory.
+     */
+    public enum Admission {
+        RUN, SPILL, REFUSE
+    }
+
+    /**
+     * Average number of entries of the differential for a generator and an
+     * edge leaving its resolution (measured between 1 and 1.35, two for a
+     * split).
+     */
+    private static final double ENTRIES_PER_EDGE = 1.5;
+
+    /**
+     * Time to create the atlas and the generators of one resolution, in
+     * nanoseconds for one core.
+     */
+    private static final long NANOS_PER_RESOLUTION = 2000;
+
+    /**
+     * Time to build, reduce and calculate an entry of the differentials, in
+     * nanoseconds for one core.
+     */
+    private static final long NANOS_PER_ENTRY = 400;
+
+    /**
+     * Ratio between the heap needed and the data actually stored, the garbage
+     * collector needing free space to place the large arrays.
+     */
+    private static final double HEAP_HEADROOM = 1.5;
+
+    private final LinkHomology.Coefficients coefficients;
+    private final boolean tangle;
+    private final int crossingNbr;
+    private final int processors = Runtime.getRuntime().availableProcessors();
+
+    private final Map<Integer, Map<Integer, Long>> ranks = new TreeMap<>();
+
+    private long generatorNbr = 0;
+    private long entryNbr = 0;
+    private long heapBytes = 0;
+    private long spilledHeapBytes = 0;
+    private long nanos = 0;
+
+    /**
+     * Plans the calculation of the homology of a link, simplified by
+     * Reidemeister moves as the calculation does.
+     *
+     * @param original The link.
+     * @param coefficients The coefficients of the homology.
+     */
+    public CalculationPlan(final Link original, final LinkHomology.Coefficients coefficients) {
+        this(original, coefficients, false);
+    }
+
+    /**
+     * Plans the calculation of the homology of a link, simplified by
+     * Reidemeister moves as the calculation does, with the Rasmussen invariant
+     * of a knot which needs the whole cube of resolutions.
+     *
+     * @param original The link.
+     * @param coefficients The coefficients of the homology.
+     * @param rasmussen {@code true} if the Rasmussen invariant is asked for.
+     */
+    public CalculationPlan(final Link original, final LinkHomology.Coefficients coefficients, final boolean rasmussen) {
+        final Link link = new LinkSimplifier(original).getLink();
+        this.coefficients = coefficients;
+        crossingNbr = link.getNbCross();
+        tangle = !(rasmussen && link.getNbCompo() == 1) && crossingNbr >= LinkHomology.TANGLE_MIN_CROSSINGS && new TangleHomology(link).getMaxBoundary() <= TangleComplex.MAX_BOUNDARY;
+
+        if (!tangle && !isTooLarge()) {
+            plan(new ResolutionCensus(link), link.getSigns());
+        }
+    }
+
+    /**
+     * Returns the available heap : the maximal heap minus the heap already
+     * used.
+     *
+     * @return The number of bytes.
+     */
+    public static long getAvailableHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+    }
+
+    /**
+     * Tells how the calculation can be run : in memory, with its large tables
+     * written to a scratch file (not for the coefficients Z/2 whose matrices
+     * are never stored), or not at all.
+     *
+     * @param availableBytes The heap available for the calculation.
+     *
+     * @return The {@code Admission}.
+     */
+    public Admission getAdmission(final long availableBytes) {
+        if (isTooLarge()) {
+            return Admission.REFUSE;
+        }
+        if (heapBytes <= availableBytes) {
+            return Admission.RUN;
+        }
+        if (coefficients != LinkHomology.Coefficients.MOD_2 && spilledHeapBytes <= availableBytes) {
+            return Admission.SPILL;
+        }
+        return Admission.REFUSE;
+    }
+
+    /**
+     * Tells if the homology will be calculated on a tangle : its memory then
+     * only depends on the simplified complexes and isn't predicted.
+     *
+     * @return {@code true} for the tangle algorithm.
+     */
+    public boolean isTangle() {
+        return tangle;
+    }
+
+    /**
+     * Tells if the whole cube of resolutions would be needed but has too many
+     * crossings to be indexed : the calculation is always refused.
+     *
+     * @return {@code true} if the link is too large.
+     */
+    public boolean isTooLarge() {
+        return !tangle && crossingNbr > ResolutionAtlas.MAX_CROSSINGS;
+    }
+
+    /**
+     * Returns the ranks of the chain groups.
+     *
+     * @return For each quantum grading and homological grading, the rank.
+     */
+    public Map<Integer, Map<Integer, Long>> getRanks() {
+        return Collections.unmodifiableMap(ranks);
+    }
+
+    /**
+     * Returns the total number of generators.
+     *
+     * @return The sum of the ranks of the chain groups.
+     */
+    public long getGeneratorNbr() {
+        return generatorNbr;
+    }
+
+    /**
+     * Returns the predicted number of non zero entries of the differentials.
+     *
+     * @return The number of entries.
+     */
+    public long getEntryNbr() {
+        return entryNbr;
+    }
+
+    /**
+     * Returns the predicted heap used by the calculation.
+     *
+     * @return The number of bytes.
+     */
+    public long getHeapBytes() {
+        return heapBytes;
+    }
+
+    /**
+     * Returns the predicted heap used by the calculation when its large tables
+     * are written to a scratch file.
+     *
+     * @return The number of bytes.
+     */
+    public long getSpilledHeapBytes() {
+        return spilledHeapBytes;
+    }
+
+    /**
+     * Returns the predicted duration of the calculation.
+     *
+     * @return The {@code Duration}.
+     */
+    public Duration getTime() {
+        return Duration.ofNanos(nanos);
+    }
+
+    @Override
+    public String toString() {
+        if (tangle) {
+            return "Calculated on a tangle : no prediction.";
+        }
+        if (isTooLarge()) {
+            return "The tangle of the link has more than " + TangleComplex.MAX_BOUNDARY + " boundary points and its cube of resolutions can't be built above "
+                    + ResolutionAtlas.MAX_CROSSINGS + " crossings.";
+        }
+
+        return new StringBuilder("Chain complex : ").append(generatorNbr).append(" generators, about ")
+                .append(entryNbr).append(" differential entries")
+                .append("\nPredicted heap : ").append(heapBytes >> 20).append(" MB (")
+                .append(spilledHeapBytes >> 20).append(" MB with a scratch file)")
+                .append("\nPredicted time : ").append(getTime()).toString();
+    }
+
+    /**
+     * Calculates the ranks of the chain groups and the predictions.
+     *
+     * @param census The resolutions of the link.
+     * @param signs The signs of the crossings.
+     */
+    private void plan(final ResolutionCensus census, final boolean[] signs) {
+        final int crossingNbr = census.getCrossingNbr();
+        final int maxCircles = census.getMaxCircles();
+
+        int negCross = 0;
+        for (final boolean sgn : signs) {
+            if (!sgn) {
+                negCross++;
+            }
+        }
+        final int posCross = crossingNbr - negCross;
+
+        final Map<Integer, Map<Integer, Long>> entries = new TreeMap<>();
+        long blockNbr = 0;
+        final long[] binomials = new long[maxCircles + 1];
+        for (int height = 0; height <= crossingNbr; height++) {
+            final int iGrad = height - negCross;
+            for (int circleNbr = 0; circleNbr <= maxCircles; circleNbr++) {
+                final long count = census.getCount(height, circleNbr);
+                if (count != 0) {
+                    ResolutionCensus.fillBinomials(binomials, circleNbr);
+                    blockNbr += count * (circleNbr + 1);
+                    for (int weight = 0; weight <= circleNbr; weight++) {
+                        final int jGrad = iGrad - circleNbr - negCross + posCross + 2 * weight;
+                        final long rank = count * binomials[weight];
+                        ranks.computeIfAbsent(jGrad, j -> new TreeMap<>()).merge(iGrad, rank, Long::sum);
+                        entries.computeIfAbsent(jGrad, j -> new TreeMap<>())
+                                .merge(iGrad, (long) (ENTRIES_PER_EDGE * rank * (crossingNbr - height)), Long::sum);
+                    }
+                }
+            }
+        }
+
+        long maxWork = 0, maxMatrices = 0;
+        for (final Map.Entry<Integer, Map<Integer, Long>> jRanks : ranks.entrySet()) {
+            long jWork = 0, jMatrices = 0;
+            for (final Map.Entry<Integer, Long> rank : jRanks.getValue().entrySet()) {
+                final long ijEntries = entries.get(jRanks.getKey()).get(rank.getKey());
+                final long nextRank = jRanks.getValue().getOrDefault(rank.getKey() + 1, 0L);
+                generatorNbr += rank.getValue();
+                entryNbr += ijEntries;
+
+                if (coefficients == LinkHomology.Coefficients.MOD_2) {
+                    maxWork = Math.max(maxWork, 8 * rank.getValue() * ((nextRank + 63) / 64));
+                } else {
+                    jMatrices += 8 * ijEntries + 4 * nextRank;
+                    jWork += 24 * ijEntries + 48 * nextRank;
+                }
+            }
+            maxWork = Math.max(maxWork, jWork);
+            maxMatrices = Math.max(maxMatrices, jMatrices);
+        }
+
+        final long resolNbr = 1L << crossingNbr;
+        final long atlasBytes = resolNbr * (4 * crossingNbr + 1);
+        final long generatorsBytes = 4 * resolNbr + 16 * blockNbr;
+        if (coefficients == LinkHomology.Coefficients.MOD_2) {
+            heapBytes = (long) (HEAP_HEADROOM * (atlasBytes + generatorsBytes + Math.min(processors, ranks.size()) * maxWork));
+            spilledHeapBytes = heapBytes;
+        } else {
+            heapBytes = (long) (HEAP_HEADROOM * (atlasBytes + generatorsBytes + maxMatrices + maxWork));
+            spilledHeapBytes = (long) (HEAP_HEADROOM * (resolNbr + generatorsBytes + maxWork));
+        }
+        nanos = (NANOS_PER_RESOLUTION * resolNbr + NANOS_PER_ENTRY * entryNbr) / processors;
+    }
+}
@@ -0,0 +1,219 @@
+package khovalink.homology;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Class telling the loops of a calculation when to stop : the task is
+ * cancelled, or its {@code CalculationBudget} is exceeded.
+ * <p>
+ * One watcher thread for the whole JVM looks at the tasks, the clock and the
+ * heap every {@code PERIOD} and records the first reason to stop of each
+ * calculation, so that a check from the loops is a single volatile read. Each
+ * worker of a parallel stream stops at its next check by throwing a
+ * {@code Stop}, which is unchecked and goes through the streams.
+ * <p>
+ * The heap used can't be told apart between calculations running together :
+ * the heap budget is a limit of the whole JVM, and when it is exceeded only
+ * the largest calculation is stopped (or degraded), the others going on once
+ * it has released its heap.
+ *
+ * @author flo
+ */
+final class Cancellation implements AutoCloseable {
+
+    /**
+     * Enum specifying why a calculation stops.
+     */
+    enum Reason {
+        CANCELLED, TIME, HEAP
+    }
+
+    /**
+     * A {@code Cancellation} which never stops.
+     */
+    static final Cancellation NONE = new Cancellation();
+
+    /**
+     * Time between two looks of the watcher.
+     */
+    private static final long PERIOD = 50;
+
+    /**
+     * Minimal time between two garbage collections asked by the watcher to
+     * know if the heap really exceeds the budget.
+     */
+    private static final long GC_PERIOD = 1000;
+
+    private static final ScheduledExecutorService WATCHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "KhovaLink calculation watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The calculations watched, guarded by the class.
+     */
+    private static final Set<Cancellation> WATCHED = new HashSet<>();
+
+    private static ScheduledFuture<?> looks = null;
+    private static long lastGc = 0;
+    private static long startNbr = 0;
+
+    private final BooleanSupplier cancelled;
+    private final long deadline;
+    private final long heapBytes;
+    private final long size;
+    private final long startIndex;
+
+    private volatile Reason reason = null;
+
+    private Cancellation() {
+        cancelled = () -> false;
+        deadline = Long.MAX_VALUE;
+        heapBytes = Long.MAX_VALUE;
+        size = 0;
+        startIndex = 0;
+    }
+
+    /**
+     * Creates a new {@code Cancellation} watched until it is closed.
+     *
+     * @param cancelled Tells if the task is cancelled.
+     * @param budget The budget of the calculation.
+     */
+    Cancellation(final BooleanSupplier cancelled, final CalculationBudget budget) {
+        this(cancelled, budget, 0);
+    }
+
+    /**
+     * Creates a new {@code Cancellation} watched until it is closed.
+     *
+     * @param cancelled Tells if the task is cancelled.
+     * @param budget The budget of the calculation.
+     * @param size The size of the calculation (the number of crossings of its
+     * link), choosing the calculation stopped when the heap is exceeded.
+     */
+    Cancellation(final BooleanSupplier cancelled, final CalculationBudget budget, final long size) {
+        this.cancelled = cancelled;
+        final Duration time = budget.getTime();
+        deadline = time == null ? Long.MAX_VALUE : System.currentTimeMillis() + time.toMillis();
+        heapBytes = budget.getHeapBytes();
+        this.size = size;
+
+        synchronized (Cancellation.class) {
+            startIndex = startNbr++;
+            WATCHED.add(this);
+            if (looks == null) {
+                looks = WATCHER.scheduleWithFixedDelay(Cancellation::watch, PERIOD, PERIOD, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stops the calculation if it must.
+     *
+     * @throws Stop If the task is cancelled or its budget is exceeded.
+     */
+    void check() {
+        final Reason stop = reason;
+        if (stop != null) {
+            throw new Stop(stop);
+        }
+    }
+
+    /**
+     * Forgets that the heap was exceeded, the calculation going on with a
+     * cheaper method.
+     */
+    void clearHeap() {
+        if (reason == Reason.HEAP) {
+            reason = null;
+        }
+    }
+
+    /**
+     * Stops watching the calculation, and the watcher when nothing is left to
+     * watch.
+     */
+    @Override
+    public void close() {
+        synchronized (Cancellation.class) {
+            if (WATCHED.remove(this) && WATCHED.isEmpty()) {
+                looks.cancel(false);
+                looks = null;
+            }
+        }
+    }
+
+    /**
+     * Records the first reason to stop of each calculation. The heap used is
+     * only trusted after a garbage collection, and is charged to the largest
+     * calculation whose budget it exceeds (the latest started on a tie). No
+     * other calculation is charged while a stopped one still holds its heap.
+     */
+    private static synchronized void watch() {
+        final long now = System.currentTimeMillis();
+        long minHeapBytes = Long.MAX_VALUE;
+        boolean releasing = false;
+        for (final Cancellation watched : WATCHED) {
+            releasing |= watched.reason == Reason.HEAP;
+            if (watched.reason == null) {
+                if (watched.cancelled.getAsBoolean()) {
+                    watched.reason = Reason.CANCELLED;
+                } else if (now > watched.deadline) {
+                    watched.reason = Reason.TIME;
+                } else {
+                    minHeapBytes = Math.min(minHeapBytes, watched.heapBytes);
+                }
+            }
+        }
+
+        if (!releasing && getUsedHeap() > minHeapBytes && now - lastGc > GC_PERIOD) {
+            System.gc();
+            lastGc = System.currentTimeMillis();
+            final long used = getUsedHeap();
+            Cancellation largest = null;
+            for (final Cancellation watched : WATCHED) {
+                if (watched.reason == null && used > watched.heapBytes && (largest == null || watched.size > largest.size
+                        || watched.size == largest.size && watched.startIndex > largest.startIndex)) {
+                    largest = watched;
+                }
+            }
+            if (largest != null) {
+                largest.reason = Reason.HEAP;
+            }
+        }
+    }
+
+    private static long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Exception thrown by the loops of a stopped calculation.
+     */
+    static final class Stop extends CancellationException {
+
+        private static final long serialVersionUID = 3125716842310617592L;
+
+        private final Reason reason;
+
+        private Stop(final Reason reason) {
+            super("Calculation stopped : " + reason);
+            this.reason = reason;
+        }
+
+        Reason getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package khovalink.homology;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import khovalink.KhovaLog;
+import khovalink.persistence.Link;
+
+/**
+ * Class saving the finished pieces of a calculation, so that a later
+ * calculation of the same link starts from the unfinished ones.
+ * <p>
+ * The pieces of a link are files of a directory named after a hash of its
+ * code, its signs, the coefficients and the marked component of the reduced
+ * homology. Each piece is written to a temporary
+ * file and then moved in place, so that a killed calculation never leaves a
+ * truncated piece. The directory is deleted once the calculation succeeds.
+ * <p>
+ * A checkpoint is used by one calculation at a time : it holds a lock on a
+ * byte of the lock file of its base directory, chosen from its hash, until it
+ * is closed. The lock is taken on the operating system, so that the
+ * calculations of other processes sharing the directory see it too. All the
+ * locks of a base directory go through the same channel : on some systems,
+ * closing a channel releases the locks the other channels hold on the file.
+ *
+ * @author flo
+ */
+final class Checkpoint implements AutoCloseable {
+
+    /**
+     * Default base directory of the checkpoints.
+     */
+    static final File DIRECTORY = new File("Checkpoints");
+
+    /**
+     * Minimal number of crossings of the links whose calculations are
+     * checkpointed.
+     */
+    static final int MIN_CROSSINGS = 10;
+
+    /**
+     * Minimal time between two savings of a piece replaced as the calculation
+     * goes on (the tangle).
+     */
+    static final Duration INTERVAL = Duration.ofSeconds(30);
+
+    private static final String LINK_PIECE = "link";
+
+    private static final String LOCK_FILE = ".lock";
+
+    /**
+     * Channels of the lock files by base directory, opened once and kept
+     * until the end of the program.
+     */
+    private static final Map<Path, FileChannel> CHANNELS = new HashMap<>();
+
+    private final Path directory;
+    private final FileLock lock;
+
+    private Checkpoint(final Path directory, final FileLock lock) {
+        this.directory = directory;
+        this.lock = lock;
+    }
+
+    /**
+     * Opens the checkpoint of a calculation, creating its directory if it
+     * doesn't exist : the pieces of a checkpoint written for another link
+     * with the same hash are deleted.
+     *
+     * @param base The base directory of the checkpoints.
+     * @param link The link.
+     * @param coefficients The coefficients of the homology.
+     * @param markedComponent The marked component of the reduced homology, or
+     * -1 for the unreduced one.
+     *
+     * @return The {@code Checkpoint}, or {@code null} if it is used by another
+     * calculation.
+     *
+     * @throws IOException If the directory or the lock file can't be created.
+     */
+    static Checkpoint open(final Path base, final Link link, final LinkHomology.Coefficients coefficients, final int markedComponent) throws IOException {
+        final String key = getKey(link, coefficients, markedComponent);
+        final FileLock lock = tryLock(base, Long.parseLong(key.substring(0, 15), 16));
+        if (lock == null) {
+            return null;
+        }
+
+        final Checkpoint checkpoint = new Checkpoint(base.resolve(key), lock);
+        try {
+            Files.createDirectories(checkpoint.directory);
+            final Link saved = checkpoint.load(LINK_PIECE, Link.class);
+            if (saved == null || !Arrays.equals(saved.getCode(), link.getCode()) || !Arrays.equals(saved.getSigns(), link.getSigns())) {
+                checkpoint.clear();
+                checkpoint.save(LINK_PIECE, link);
+            }
+        } catch (final IOException | UncheckedIOException ex) {
+            checkpoint.close();
+            throw ex;
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * Locks a byte of the lock file of a base directory.
+     *
+     * @param base The base directory of the checkpoints.
+     * @param position The position of the byte.
+     *
+     * @return The {@code FileLock}, or {@code null} if the byte is locked by
+     * another calculation.
+     *
+     * @throws IOException If the lock file can't be opened.
+     */
+    private static FileLock tryLock(final Path base, final long position) throws IOException {
+        final FileChannel channel;
+        synchronized (CHANNELS) {
+            final Path key = base.toAbsolutePath().normalize();
+            if (!CHANNELS.containsKey(key)) {
+                Files.createDirectories(key);
+                CHANNELS.put(key, FileChannel.open(key.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+            }
+            channel = CHANNELS.get(key);
+        }
+
+        try {
+            return channel.tryLock(position, 1, false);
+        } catch (final OverlappingFileLockException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves a piece, replacing the previous one with the same name.
+     *
+     * @param name The name of the piece.
+     * @param piece The piece.
+     *
+     * @throws UncheckedIOException If the piece can't be written.
+     */
+    void save(final String name, final Serializable piece) {
+        try {
+            final Path tmp = Files.createTempFile(directory, name, ".tmp");
+            try (final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                oos.writeObject(piece);
+            }
+            Files.move(tmp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Loads a piece.
+     *
+     * @param <T> The type of the piece.
+     * @param name The name of the piece.
+     * @param type The class of the piece.
+     *
+     * @return The piece, or {@code null} if it isn't saved or can't be read.
+     */
+    <T> T load(final String name, final Class<T> type) {
+        final Path file = directory.resolve(name);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return type.cast(ois.readObject());
+        } catch (final IOException | ClassNotFoundException | ClassCastException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the checkpoint, the calculation being finished.
+     *
+     * @throws IOException If a file can't be deleted.
+     */
+    void delete() throws IOException {
+        clear();
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Releases the checkpoint for the other calculations. Its pieces are kept
+     * unless it was deleted.
+     */
+    @Override
+    public void close() {
+        try {
+            lock.release();
+        } catch (final IOException ex) {
+            KhovaLog.addLog(ex);
+        }
+    }
+
+    /**
+     * Deletes all the pieces.
+     *
+     * @throws IOException If a file can't be deleted.
+     */
+    private void clear() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Calculates the name of the directory of a calculation.
+     *
+     * @param link The link.
+     * @param coefficients The coefficients of the homology.
+     * @param markedComponent The marked component, or -1.
+     *
+     * @return The hexadecimal SHA-256 hash of the link code, the signs, the
+     * coefficients and the marked component.
+     */
+    private static String getKey(final Link link, final LinkHomology.Coefficients coefficients, final int markedComponent) {
+        final int[] code = link.getCode();
+        final boolean[] signs = link.getSigns();
+        final ByteBuffer bytes = ByteBuffer.allocate(4 * code.length + signs.length + 4);
+        for (final int pos : code) {
+            bytes.putInt(pos);
+        }
+        for (final boolean sgn : signs) {
+            bytes.put((byte) (sgn ? 1 : 0));
+        }
+        bytes.putInt(link.getGauss().length);
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes.array());
+            digest.update(coefficients.name().getBytes(StandardCharsets.US_ASCII));
+            if (markedComponent >= 0) {
+                digest.update(("reduced" + markedComponent).getBytes(StandardCharsets.US_ASCII));
+            }
+
+            final StringBuilder key = new StringBuilder();
+            for (final byte b : Arrays.copyOf(digest.digest(), 16)) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Class representing a finished quantum grading : its reduced
+     * differentials and the sizes of its chain groups.
+     */
+    static final class Slice implements Serializable {
+
+        private static final long serialVersionUID = -2389548921760217745L;
+
+        private final HashMap<Integer, SparseMatrix> differentials;
+        private final HashMap<Integer, int[]> sizes;
+
+        /**
+         * Creates a new {@code Slice}.
+         *
+         * @param differentials The reduced differentials.
+         * @param sizes The sizes of the chain groups before and after the
+         * reduction.
+         */
+        Slice(final Map<Integer, SparseMatrix> differentials, final Map<Integer, int[]> sizes) {
+            this.differentials = new HashMap<>(differentials);
+            this.sizes = new HashMap<>(sizes);
+        }
+
+        Map<Integer, SparseMatrix> getDifferentials() {
+            return differentials;
+        }
+
+        Map<Integer, int[]> getSizes() {
+            return sizes;
+        }
+    }
+}
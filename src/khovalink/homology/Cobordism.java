@@ -0,0 +1,162 @@
+package khovalink.homology;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Class representing a morphism between two crossingless tangles in the
+ * dotted cobordisms category (with the relations of the original Khovanov
+ * theory : a sphere is zero, a dotted sphere is one, two dots are zero and a
+ * neck can be cut).
+ * <p>
+ * Every cobordism between two tangles is a linear combination of disjoint
+ * disks, one for each cycle of the union of the two tangles, each disk having
+ * at most one dot : a term is given by the mask of its dotted cycles.
+ *
+ * @author flo
+ */
+final class Cobordism implements Serializable {
+
+    private static final long serialVersionUID = 1835340977437205812L;
+
+    private long[] dots = new long[2];
+    private int[] coefs = new int[2];
+    private int termNbr = 0;
+
+    /**
+     * Creates a zero {@code Cobordism}.
+     */
+    Cobordism() {
+    }
+
+    /**
+     * Creates a {@code Cobordism} made of a single term.
+     *
+     * @param dots The dotted cycles of the term.
+     * @param coef The coefficient of the term.
+     */
+    Cobordism(final long dots, final int coef) {
+        add(dots, coef);
+    }
+
+    /**
+     * Adds a term.
+     *
+     * @param termDots The dotted cycles of the term.
+     * @param coef The coefficient of the term.
+     */
+    void add(final long termDots, final int coef) {
+        if (coef == 0) {
+            return;
+        }
+
+        for (int k = 0; k < termNbr; k++) {
+            if (dots[k] == termDots) {
+                coefs[k] = Math.addExact(coefs[k], coef);
+                if (coefs[k] == 0) {
+                    termNbr--;
+                    dots[k] = dots[termNbr];
+                    coefs[k] = coefs[termNbr];
+                }
+                return;
+            }
+        }
+
+        if (termNbr == dots.length) {
+            dots = Arrays.copyOf(dots, 2 * termNbr);
+            coefs = Arrays.copyOf(coefs, 2 * termNbr);
+        }
+        dots[termNbr] = termDots;
+        coefs[termNbr++] = coef;
+    }
+
+    /**
+     * Adds a multiple of another cobordism between the same tangles.
+     *
+     * @param other The other cobordism.
+     * @param factor The multiple.
+     */
+    void add(final Cobordism other, final int factor) {
+        for (int k = 0; k < other.termNbr; k++) {
+            add(other.dots[k], Math.multiplyExact(factor, other.coefs[k]));
+        }
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return The number of terms.
+     */
+    int getTermNbr() {
+        return termNbr;
+    }
+
+    /**
+     * Returns the dotted cycles of a term.
+     *
+     * @param term The term.
+     *
+     * @return The mask of the dotted cycles.
+     */
+    long getDots(final int term) {
+        return dots[term];
+    }
+
+    /**
+     * Returns the coefficient of a term.
+     *
+     * @param term The term.
+     *
+     * @return The coefficient.
+     */
+    int getCoef(final int term) {
+        return coefs[term];
+    }
+
+    /**
+     * Tells if this cobordism is zero.
+     *
+     * @return {@code true} if there is no term.
+     */
+    boolean isZero() {
+        return termNbr == 0;
+    }
+
+    /**
+     * Returns the coefficient of the term without dot (for a cobordism between
+     * empty tangles, the value of the cobordism).
+     *
+     * @return The coefficient.
+     */
+    int getUndottedCoef() {
+        for (int k = 0; k < termNbr; k++) {
+            if (dots[k] == 0) {
+                return coefs[k];
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Tells if this cobordism, going from a tangle to itself, is plus or minus
+     * the identity.
+     *
+     * @return The sign of the identity, 0 if this cobordism isn't invertible.
+     */
+    int getIdentitySign() {
+        final int coef = getIdentityCoef();
+        return Math.abs(coef) == 1 ? coef : 0;
+    }
+
+    /**
+     * Returns the multiple of the identity this cobordism is, when it goes
+     * from a tangle to itself.
+     *
+     * @return The multiple, 0 if this cobordism isn't a multiple of the
+     * identity.
+     */
+    int getIdentityCoef() {
+        return termNbr == 1 && dots[0] == 0 ? coefs[0] : 0;
+    }
+}
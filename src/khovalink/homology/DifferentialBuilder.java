@@ -0,0 +1,310 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Class building the differentials of the Khovanov complex edge by edge : for
+ * each generator, only the resolutions obtained by changing one 0-smoothing
+ * into a 1-smoothing are visited, each cube edge being classified as a merge
+ * or a split once for all the generators of its resolution.
+ * <p>
+ * In the reduced complex, the circle through the marked position is labelled
+ * {@code x} : the markers of the generators leave it out. Merging {@code x}
+ * with a circle or splitting it always gives {@code x} on the marked circle,
+ * so the differentials are the ones of the whole complex restricted to these
+ * generators.
+ * <p>
+ * The Bar-Natan deformation over Z/2 uses the algebra {@code Z/2[x]/(x^2 + x)}
+ * : merging two {@code x} gives {@code x} instead of zero, and splitting
+ * {@code 1} also gives {@code 1 (x) 1}. These terms raise the quantum grading
+ * by two, the marked circle still being labelled {@code x}.
+ *
+ * @author flo
+ */
+final class DifferentialBuilder {
+
+    private final ResolutionAtlas atlas;
+    private final int crossingNbr;
+    private final Cancellation cancellation;
+    private final int markedPosition;
+
+    private final int[] aboveMask;
+
+    /**
+     * Creates a new {@code DifferentialBuilder}.
+     *
+     * @param atlas The atlas of the resolutions of the link.
+     * @param crossingNbr The number of crossings of the link.
+     * @param cancellation The checks stopping the calculation.
+     */
+    DifferentialBuilder(final ResolutionAtlas atlas, final int crossingNbr, final Cancellation cancellation) {
+        this(atlas, crossingNbr, cancellation, -1);
+    }
+
+    /**
+     * Creates a new {@code DifferentialBuilder} of the reduced complex.
+     *
+     * @param atlas The atlas of the resolutions of the link.
+     * @param crossingNbr The number of crossings of the link.
+     * @param cancellation The checks stopping the calculation.
+     * @param markedPosition The position of the link code on the marked
+     * circle, or -1 if no circle is marked or if the marked one goes through
+     * no crossing (the last circle of every resolution, which never carries a
+     * marker).
+     */
+    DifferentialBuilder(final ResolutionAtlas atlas, final int crossingNbr, final Cancellation cancellation, final int markedPosition) {
+        this.atlas = atlas;
+        this.crossingNbr = crossingNbr;
+        this.cancellation = cancellation;
+        this.markedPosition = markedPosition;
+
+        aboveMask = new int[crossingNbr];
+        for (int c = 0; c < crossingNbr; c++) {
+            aboveMask[c] = (int) ((1L << crossingNbr) - (1L << (c + 1)));
+        }
+    }
+
+    /**
+     * Calculates the differential between two chain groups of the same quantum
+     * grading.
+     *
+     * @param bases1 The generators of the domain.
+     * @param bases2 The generators of the codomain ({@code null} if empty).
+     *
+     * @return The differential.
+     */
+    SparseMatrix getijDiff(final GeneratorsGroup bases1, final GeneratorsGroup bases2) {
+        final SparseMatrix.EntryList diff = new SparseMatrix.EntryList();
+        if (bases2 == null) {
+            return diff.toMatrix(0, bases1.getSize());
+        }
+
+        addEntries(bases1, bases2::indexOf, false, diff::add);
+        return diff.toMatrix(bases2.getSize(), bases1.getSize());
+    }
+
+    /**
+     * Calculates the transpose of the differential between two chain groups,
+     * modulo 2 : row {@code i} is the bitset of the boundary of the generator
+     * {@code i} of the domain.
+     *
+     * @param bases1 The generators of the domain.
+     * @param bases2 The generators of the codomain ({@code null} if empty).
+     *
+     * @return The transposed differential.
+     */
+    BitMatrix getijMod2Diff(final GeneratorsGroup bases1, final GeneratorsGroup bases2) {
+        if (bases2 == null) {
+            return new BitMatrix(bases1.getSize(), 0);
+        }
+
+        final BitMatrix diff = new BitMatrix(bases1.getSize(), bases2.getSize());
+        addEntries(bases1, bases2::indexOf, false, (row, col, val) -> diff.flip(col, row));
+        return diff;
+    }
+
+    /**
+     * Calculates the boundaries, modulo 2, of the generators of a chain group
+     * in the Bar-Natan deformation of the complex, whose codomain spans
+     * several quantum gradings.
+     *
+     * @param bases1 The generators of the domain.
+     * @param index2 Gives the index in the codomain of a generator from its
+     * resolution and its marker.
+     *
+     * @return The boundary of each generator of the domain, as the sorted
+     * indices of the generators reached.
+     */
+    int[][] getBarNatanBoundaries(final GeneratorsGroup bases1, final IntBinaryOperator index2) {
+        final int[][] boundaries = new int[bases1.getSize()][];
+        final int[] lengths = new int[bases1.getSize()];
+        addEntries(bases1, index2, true, (row, col, val) -> {
+            if (boundaries[col] == null) {
+                boundaries[col] = new int[3 * crossingNbr];
+            }
+            boundaries[col][lengths[col]++] = row;
+        });
+
+        for (int k = 0; k < boundaries.length; k++) {
+            boundaries[k] = boundaries[k] == null ? new int[0] : Arrays.copyOf(boundaries[k], lengths[k]);
+            Arrays.sort(boundaries[k]);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Gives every entry of the differential between two chain groups.
+     *
+     * @param bases1 The generators of the domain.
+     * @param index2 Gives the index in the codomain of a generator from its
+     * resolution and its marker.
+     * @param deformed {@code true} to add the terms of the Bar-Natan
+     * deformation.
+     * @param entries The receiver of the entries.
+     */
+    private void addEntries(final GeneratorsGroup bases1, final IntBinaryOperator index2, final boolean deformed, final EntryConsumer entries) {
+        for (int block = 0; block < bases1.getBlockNbr(); block++) {
+            cancellation.check();
+            final int resol = bases1.getResol(block);
+            final Edge[] edges = getEdges(resol);
+            final int marked = getMarkedCircle(resol);
+
+            final int end = bases1.getOffset(block + 1);
+            int reducedMarker = (1 << bases1.getWeight(block)) - 1;
+            for (int i = bases1.getOffset(block); i < end; i++) {
+                final int marker = marked < 0 ? reducedMarker : insertBit(reducedMarker, marked, 0);
+                for (final Edge edge : edges) {
+                    final int resol2 = resol | 1 << edge.crossing;
+                    if (edge.split) {
+                        final int base = marker & ~(1 << edge.low);
+                        if ((marker >> edge.low & 1) == 1) {
+                            entries.add(index2.applyAsInt(resol2, reduce(insertBit(base | 1 << edge.low, edge.high, 0), edge.marked)), i, edge.sign);
+                            entries.add(index2.applyAsInt(resol2, reduce(insertBit(base, edge.high, 1), edge.marked)), i, edge.sign);
+                            if (deformed) {
+                                entries.add(index2.applyAsInt(resol2, reduce(insertBit(base | 1 << edge.low, edge.high, 1), edge.marked)), i, edge.sign);
+                            }
+                        } else {
+                            entries.add(index2.applyAsInt(resol2, reduce(insertBit(base, edge.high, 0), edge.marked)), i, edge.sign);
+                        }
+                    } else {
+                        final int low = marker >> edge.low & 1, high = marker >> edge.high & 1;
+                        if (low + high > 0) {
+                            final int merged = removeBit(marker & ~(1 << edge.low), edge.high) | (low & high) << edge.low;
+                            entries.add(index2.applyAsInt(resol2, reduce(merged, edge.marked)), i, edge.sign);
+                        } else if (deformed) {
+                            entries.add(index2.applyAsInt(resol2, reduce(removeBit(marker, edge.high), edge.marked)), i, edge.sign);
+                        }
+                    }
+                }
+                if (reducedMarker != 0) {
+                    reducedMarker = GeneratorsGroup.nextMarker(reducedMarker);
+                }
+            }
+        }
+    }
+
+    /**
+     * Classifies the edges of the cube going out of a resolution.
+     *
+     * @param resol The resolution number.
+     *
+     * @return The edges, one for each 0-smoothing.
+     */
+    private Edge[] getEdges(final int resol) {
+        final Edge[] edges = new Edge[crossingNbr - Integer.bitCount(resol)];
+
+        int e = 0;
+        for (int c = 0; c < crossingNbr; c++) {
+            if ((resol >> c & 1) == 0) {
+                final int sign = Integer.bitCount(~resol & aboveMask[c]) % 2 == 0 ? 1 : -1;
+                final int label0 = atlas.getLabel(resol, 4 * c), label1 = atlas.getLabel(resol, 4 * c + 1), label2 = atlas.getLabel(resol, 4 * c + 2);
+                final int lowCircle = Math.min(label0, label2);
+                final int highCircle = Math.max(label0, label2);
+
+                if (label0 == label1 && label0 == label2) {
+                    //The new circle is numbered by the smallest position it goes through.
+                    final int newResol = resol | 1 << c;
+                    final int newCircle = Math.max(Math.max(atlas.getLabel(newResol, 4 * c), atlas.getLabel(newResol, 4 * c + 1)),
+                            Math.max(atlas.getLabel(newResol, 4 * c + 2), atlas.getLabel(newResol, 4 * c + 3)));
+                    edges[e++] = new Edge(c, true, lowCircle, newCircle, sign, getMarkedCircle(newResol));
+                } else {
+                    edges[e++] = new Edge(c, false, lowCircle, highCircle, sign, getMarkedCircle(resol | 1 << c));
+                }
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * Returns the marked circle of a resolution.
+     *
+     * @param resol The resolution number.
+     *
+     * @return The circle through the marked position, or -1 if there is none.
+     */
+    private int getMarkedCircle(final int resol) {
+        return markedPosition < 0 ? -1 : atlas.getLabel(resol, markedPosition);
+    }
+
+    /**
+     * Removes the marked circle of a marker, which is never positive.
+     *
+     * @param marker The marker.
+     * @param marked The marked circle, or -1 if there is none.
+     *
+     * @return The marker of the reduced generator.
+     */
+    private static int reduce(final int marker, final int marked) {
+        return marked < 0 ? marker : removeBit(marker, marked);
+    }
+
+    /**
+     * Removes a bit of a marker, the higher bits going down.
+     *
+     * @param marker The marker.
+     * @param bit The removed bit.
+     *
+     * @return The new marker.
+     */
+    private static int removeBit(final int marker, final int bit) {
+        return marker & (1 << bit) - 1 | marker >>> (bit + 1) << bit;
+    }
+
+    /**
+     * Inserts a bit in a marker, the higher bits going up.
+     *
+     * @param marker The marker.
+     * @param bit The inserted bit.
+     * @param value The value of the inserted bit.
+     *
+     * @return The new marker.
+     */
+    private static int insertBit(final int marker, final int bit, final int value) {
+        return marker & (1 << bit) - 1 | value << bit | marker >>> bit << (bit + 1);
+    }
+
+    /**
+     * Interface receiving the entries of a differential.
+     */
+    @FunctionalInterface
+    private interface EntryConsumer {
+
+        void add(int row, int col, int val);
+    }
+
+    /**
+     * Inner class representing an edge of the cube of resolutions : the
+     * smoothing of a crossing changes and two circles merge, or one circle
+     * splits.
+     */
+    private static final class Edge {
+
+        private final int crossing;
+        private final boolean split;
+        private final int low;
+        private final int high;
+        private final int sign;
+        private final int marked;
+
+        /**
+         * Creates a new {@code Edge}.
+         *
+         * @param crossing The crossing whose smoothing changes.
+         * @param split {@code true} for a split, {@code false} for a merge.
+         * @param low The circle merged into or split (the smaller number).
+         * @param high The circle merged (removed) or created by the split.
+         * @param sign The sign of the edge.
+         * @param marked The marked circle of the resolution reached, or -1.
+         */
+        Edge(final int crossing, final boolean split, final int low, final int high, final int sign, final int marked) {
+            this.crossing = crossing;
+            this.split = split;
+            this.low = low;
+            this.high = high;
+            this.sign = sign;
+            this.marked = marked;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class reducing the chain complex of one quantum grading by Gaussian
+ * elimination before its homology is calculated.
+ * <p>
+ * Each unit entry {@code x -> y} of a differential is contracted : {@code x}
+ * and {@code y} are removed from their chain groups, every path
+ * {@code z -> y <- x -> w} is subtracted from the arrow {@code z -> w}, and
+ * the neighbouring differentials just lose the row of {@code x} and the
+ * column of {@code y}. The homology doesn't change and the groups left are
+ * usually close to the homology itself.
+ *
+ * @author flo
+ */
+final class GaussianReduction {
+
+    private final TreeMap<Integer, SparseMatrix> reduced = new TreeMap<>();
+    private final TreeMap<Integer, int[]> sizes = new TreeMap<>();
+
+    /**
+     * Reduces the complex of a quantum grading.
+     *
+     * @param jComp The differentials, by homological grading of their domain.
+     * @param cancellation The checks stopping the calculation.
+     */
+    GaussianReduction(final Map<Integer, SparseMatrix> jComp, final Cancellation cancellation) {
+        boolean[] keptCols = null;
+        int prevGrad = Integer.MIN_VALUE;
+
+        for (final int iGrad : new TreeMap<>(jComp).keySet()) {
+            final SparseMatrix diff = jComp.get(iGrad);
+            if (iGrad != prevGrad + 1 || keptCols == null) {
+                keptCols = new boolean[diff.getColNbr()];
+                Arrays.fill(keptCols, true);
+            }
+            final boolean[] keptRows = new boolean[diff.getRowNbr()];
+            Arrays.fill(keptRows, true);
+
+            final SparseElimination elim = new SparseElimination(diff.getSubMatrix(keptRows, keptCols), cancellation);
+            elim.eliminateUnits();
+            reduced.put(iGrad, elim.getReducedMatrix());
+
+            //The cancelled columns are rows of the previous differential.
+            final SparseMatrix prev = reduced.get(iGrad - 1);
+            if (prev != null) {
+                final boolean[] prevRows = new boolean[prev.getRowNbr()];
+                for (int c = 0; c < prevRows.length; c++) {
+                    prevRows[c] = !elim.isPivotCol(c);
+                }
+                final boolean[] prevCols = new boolean[prev.getColNbr()];
+                Arrays.fill(prevCols, true);
+                reduced.put(iGrad - 1, prev.getSubMatrix(prevRows, prevCols));
+            }
+
+            //The cancelled rows are columns of the next differential.
+            keptCols = new boolean[diff.getRowNbr()];
+            for (int r = 0; r < keptCols.length; r++) {
+                keptCols[r] = !elim.isPivotRow(r);
+            }
+            prevGrad = iGrad;
+
+            sizes.put(iGrad, new int[]{diff.getColNbr(), 0});
+        }
+
+        reduced.values().removeIf(diff -> diff.getColNbr() == 0);
+        for (final int iGrad : sizes.keySet()) {
+            final SparseMatrix diff = reduced.get(iGrad);
+            sizes.get(iGrad)[1] = diff == null ? 0 : diff.getColNbr();
+        }
+    }
+
+    /**
+     * Returns the reduced differentials (the chain groups which became empty
+     * have no differential).
+     *
+     * @return The differentials, by homological grading of their domain.
+     */
+    Map<Integer, SparseMatrix> getDifferentials() {
+        return reduced;
+    }
+
+    /**
+     * Returns the size of the chain groups before and after the reduction.
+     *
+     * @return For each homological grading, the size before and after.
+     */
+    Map<Integer, int[]> getSizes() {
+        return sizes;
+    }
+}
@@ -1,41 +1,166 @@
 package khovalink.homology;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
+ * Class representing the generators of the Khovanov chain complex, sorted by
+ * bigrading.
+ * <p>
+ * Generators aren't stored : each bigrading is a {@code GeneratorsGroup} made
+ * of blocks of markers, and a flat table gives for each resolution and weight
+ * the index of its first generator, so that the index of any generator is
+ * found in constant time.
+ * <p>
+ * In the reduced complex, the marked circle of each resolution is always
+ * labelled {@code x} : only the other circles get markers. The gradings are
+ * the ones of a resolution with one circle less, which includes the shift
+ * putting the reduced homology of the unknot in bigrading {@code (0, 0)}.
  *
  * @author flo
  */
 public class GeneratorsChainComplex {
 
-    private final HashMap<Integer, HashMap<Integer, ArrayList<int[]>>> complex = new HashMap<>();
+    /**
+     * Number of resolutions of each range filled by a worker.
+     */
+    private static final int RANGE_SIZE = 1 << 12;
+
+    private final HashMap<Integer, HashMap<Integer, GeneratorsGroup>> complex = new HashMap<>();
+
+    private final int[] resolStart;
+    private final boolean reduced;
+    private int[] blockOffsets = new int[0];
 
     private int totChains = 0;
 
-    public GeneratorsChainComplex() {
+    /**
+     * Creates an empty {@code GeneratorsChainComplex}.
+     *
+     * @param resolNbr The number of resolutions of the link.
+     */
+    GeneratorsChainComplex(final int resolNbr) {
+        this(resolNbr, false);
+    }
+
+    /**
+     * Creates an empty {@code GeneratorsChainComplex}, reduced or not.
+     *
+     * @param resolNbr The number of resolutions of the link.
+     * @param reduced {@code true} to leave the marked circles out of the
+     * markers.
+     */
+    GeneratorsChainComplex(final int resolNbr, final boolean reduced) {
+        resolStart = new int[resolNbr];
+        this.reduced = reduced;
     }
 
-    public void addijGenerator(final int[] eks, final int iGrad, final int jGrad) {
-        if (!complex.containsKey(jGrad)) {
-            complex.put(jGrad, new HashMap<>());
+    /**
+     * Adds the generators of all the resolutions : the markers of weight
+     * {@code k} of a resolution with {@code c} circles and {@code h}
+     * 1-smoothings go in bigrading {@code (h - negCross, h - c + 2k - 2negCross
+     * + posCross)}.
+     * <p>
+     * The resolutions are split in ranges filled in parallel, each one in its
+     * own groups, which are then appended in order to the groups of the
+     * complex : the generators are indexed as if the resolutions were added
+     * one by one.
+     *
+     * @param atlas The atlas of the resolutions.
+     * @param negCross The number of negative crossings.
+     * @param posCross The number of positive crossings.
+     * @param progress Receives the number of resolutions of each range once
+     * it is filled.
+     */
+    void addResolutions(final ResolutionAtlas atlas, final int negCross, final int posCross, final IntConsumer progress) {
+        final int rangeNbr = (resolStart.length + RANGE_SIZE - 1) / RANGE_SIZE;
+
+        final int[] rangeStart = new int[rangeNbr + 1];
+        IntStream.range(0, rangeNbr).parallel().forEach(range -> {
+            int blocks = 0;
+            for (int resol = range * RANGE_SIZE; resol < getRangeEnd(range); resol++) {
+                blocks += getFreeNbr(atlas, resol) + 1;
+            }
+            rangeStart[range + 1] = blocks;
+        });
+        for (int range = 0; range < rangeNbr; range++) {
+            rangeStart[range + 1] += rangeStart[range];
         }
+        blockOffsets = new int[rangeStart[rangeNbr]];
+
+        final List<RangeGroups> rangeGroups = IntStream.range(0, rangeNbr).parallel().mapToObj(range -> {
+            final RangeGroups groups = new RangeGroups(negCross, posCross);
+            int block = rangeStart[range];
+            for (int resol = range * RANGE_SIZE; resol < getRangeEnd(range); resol++) {
+                final int circleNbr = getFreeNbr(atlas, resol);
+                final GeneratorsGroup[] stateGroups = groups.getStateGroups(Integer.bitCount(resol), circleNbr);
+                resolStart[resol] = block;
+                for (int weight = 0; weight <= circleNbr; weight++) {
+                    blockOffsets[block++] = stateGroups[weight].addBlock(resol, circleNbr, weight);
+                }
+            }
+            progress.accept(getRangeEnd(range) - range * RANGE_SIZE);
+            return groups;
+        }).collect(Collectors.toList());
 
-        final HashMap<Integer, ArrayList<int[]>> jComplex = complex.get(jGrad);
-        if (!jComplex.containsKey(iGrad)) {
-            jComplex.put(iGrad, new ArrayList<>());
-            totChains++;
+        for (final RangeGroups groups : rangeGroups) {
+            groups.groups.forEach((jGrad, jGroups) -> jGroups.forEach((iGrad, group) -> {
+                final HashMap<Integer, GeneratorsGroup> jComplex = complex.computeIfAbsent(jGrad, j -> new HashMap<>());
+                if (!jComplex.containsKey(iGrad)) {
+                    jComplex.put(iGrad, new GeneratorsGroup(this));
+                    totChains++;
+                }
+                groups.shifts.put(group, jComplex.get(iGrad).append(group));
+            }));
         }
 
-        jComplex.get(iGrad).add(eks);
+        IntStream.range(0, rangeNbr).parallel().forEach(range -> {
+            final RangeGroups groups = rangeGroups.get(range);
+            for (int resol = range * RANGE_SIZE; resol < getRangeEnd(range); resol++) {
+                final int circleNbr = getFreeNbr(atlas, resol);
+                final int[] stateShifts = groups.getStateShifts(Integer.bitCount(resol), circleNbr);
+                for (int weight = 0; weight <= circleNbr; weight++) {
+                    blockOffsets[resolStart[resol] + weight] += stateShifts[weight];
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of circles of a resolution carrying a marker.
+     *
+     * @param atlas The atlas of the resolutions.
+     * @param resol The resolution number.
+     *
+     * @return The number of circles, without the marked one if the complex is
+     * reduced.
+     */
+    private int getFreeNbr(final ResolutionAtlas atlas, final int resol) {
+        return atlas.getCirclesNbr(resol) - (reduced ? 1 : 0);
+    }
+
+    /**
+     * Returns the end (excluded) of a range of resolutions.
+     *
+     * @param range The range.
+     *
+     * @return The first resolution of the next range.
+     */
+    private int getRangeEnd(final int range) {
+        return Math.min(resolStart.length, (range + 1) * RANGE_SIZE);
     }
 
-    public ArrayList<int[]> getijGenerators(final int iGrad, final int jGrad) {
+    public GeneratorsGroup getijGenerators(final int iGrad, final int jGrad) {
         return complex.get(jGrad) == null ? null : complex.get(jGrad).get(iGrad);
     }
 
-    public HashMap<Integer, ArrayList<int[]>> getjComplex(final int jGrad) {
+    public HashMap<Integer, GeneratorsGroup> getjComplex(final int jGrad) {
         return complex.get(jGrad);
     }
 
@@ -46,4 +171,91 @@ public class GeneratorsChainComplex {
     public int getTotChains() {
         return totChains;
     }
+
+    /**
+     * Tells if the marked circles are left out of the markers.
+     *
+     * @return {@code true} if the complex is reduced.
+     */
+    boolean isReduced() {
+        return reduced;
+    }
+
+    /**
+     * Returns the index, in its bigrading, of the first generator of a
+     * resolution having a given weight.
+     *
+     * @param resol The resolution number.
+     * @param weight The number of positive circles.
+     *
+     * @return The index of the block.
+     */
+    int getBlockOffset(final int resol, final int weight) {
+        return blockOffsets[resolStart[resol] + weight];
+    }
+
+    /**
+     * Class representing the groups filled by one range of resolutions. The
+     * groups of a resolution only depend on its number of 1-smoothings and of
+     * circles, so they are also kept by state for a direct access.
+     */
+    private final class RangeGroups {
+
+        private final HashMap<Integer, HashMap<Integer, GeneratorsGroup>> groups = new HashMap<>();
+        private final Map<GeneratorsGroup, Integer> shifts = new IdentityHashMap<>();
+
+        private final GeneratorsGroup[][] stateGroups = new GeneratorsGroup[32 * Byte.MAX_VALUE][];
+        private final int[][] stateShifts = new int[32 * Byte.MAX_VALUE][];
+
+        private final int negCross;
+        private final int posCross;
+
+        private RangeGroups(final int negCross, final int posCross) {
+            this.negCross = negCross;
+            this.posCross = posCross;
+        }
+
+        /**
+         * Returns the groups of the markers of a resolution, by weight.
+         *
+         * @param height The number of 1-smoothings.
+         * @param circleNbr The number of circles.
+         *
+         * @return The groups.
+         */
+        private GeneratorsGroup[] getStateGroups(final int height, final int circleNbr) {
+            final int state = height * Byte.MAX_VALUE + circleNbr;
+            if (stateGroups[state] == null) {
+                final int iGrad = height - negCross;
+                stateGroups[state] = new GeneratorsGroup[circleNbr + 1];
+                for (int weight = 0; weight <= circleNbr; weight++) {
+                    stateGroups[state][weight] = groups.computeIfAbsent(iGrad - circleNbr - negCross + posCross + 2 * weight, j -> new HashMap<>())
+                            .computeIfAbsent(iGrad, i -> new GeneratorsGroup(GeneratorsChainComplex.this));
+                }
+            }
+
+            return stateGroups[state];
+        }
+
+        /**
+         * Returns the indices, in the groups of the complex, of the first
+         * generators of the groups of a resolution, by weight.
+         *
+         * @param height The number of 1-smoothings.
+         * @param circleNbr The number of circles.
+         *
+         * @return The shifts.
+         */
+        private int[] getStateShifts(final int height, final int circleNbr) {
+            final int state = height * Byte.MAX_VALUE + circleNbr;
+            if (stateShifts[state] == null) {
+                stateShifts[state] = new int[circleNbr + 1];
+                for (int weight = 0; weight <= circleNbr; weight++) {
+                    stateShifts[state][weight] = shifts.get(stateGroups[state][weight]);
+                }
+            }
+
+            return stateShifts[state];
+        }
+    }
 }
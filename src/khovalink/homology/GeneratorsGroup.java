@@ -0,0 +1,233 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+
+/**
+ * Class representing the generators of one bigrading of the chain complex
+ * without storing them.
+ * <p>
+ * Generators are ordered by resolution, then by circles marker. All the
+ * markers of a resolution in the same bigrading have the same number of
+ * positive circles (their weight), so a resolution gives a block of
+ * consecutive indices in which a marker's place is its colexicographic rank.
+ *
+ * @author flo
+ */
+public final class GeneratorsGroup {
+
+    private static final int[][] BINOMIALS = new int[33][33];
+
+    static {
+        for (int n = 0; n < BINOMIALS.length; n++) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+    }
+
+    private final GeneratorsChainComplex complex;
+
+    private int[] resols = new int[4];
+    private int[] weights = new int[4];
+    private int[] offsets = new int[5];
+    private int blockNbr = 0;
+
+    /**
+     * Creates an empty {@code GeneratorsGroup}.
+     *
+     * @param complex The complex this group belongs to.
+     */
+    GeneratorsGroup(final GeneratorsChainComplex complex) {
+        this.complex = complex;
+    }
+
+    /**
+     * Adds the generators of a resolution having a given weight.
+     *
+     * @param resol The resolution number (greater than the previous ones).
+     * @param circleNbr The number of circles of the resolution.
+     * @param weight The number of positive circles.
+     *
+     * @return The index of the first added generator.
+     */
+    int addBlock(final int resol, final int circleNbr, final int weight) {
+        if (blockNbr == resols.length) {
+            resols = Arrays.copyOf(resols, 2 * blockNbr);
+            weights = Arrays.copyOf(weights, 2 * blockNbr);
+            offsets = Arrays.copyOf(offsets, 2 * blockNbr + 1);
+        }
+        resols[blockNbr] = resol;
+        weights[blockNbr] = weight;
+        offsets[blockNbr + 1] = offsets[blockNbr] + binomial(circleNbr, weight);
+
+        return offsets[blockNbr++];
+    }
+
+    /**
+     * Appends all the blocks of another group, coming from later resolutions.
+     *
+     * @param other The group to append.
+     *
+     * @return The index of the first appended generator.
+     */
+    int append(final GeneratorsGroup other) {
+        final int shift = getSize();
+        final int newNbr = blockNbr + other.blockNbr;
+        if (newNbr > resols.length) {
+            final int capacity = Math.max(2 * resols.length, newNbr);
+            resols = Arrays.copyOf(resols, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        System.arraycopy(other.resols, 0, resols, blockNbr, other.blockNbr);
+        System.arraycopy(other.weights, 0, weights, blockNbr, other.blockNbr);
+        for (int block = 1; block <= other.blockNbr; block++) {
+            offsets[blockNbr + block] = shift + other.offsets[block];
+        }
+        blockNbr = newNbr;
+
+        return shift;
+    }
+
+    /**
+     * Returns the number of generators.
+     *
+     * @return The number of generators.
+     */
+    public int getSize() {
+        return offsets[blockNbr];
+    }
+
+    /**
+     * Returns the number of resolutions having generators in this group.
+     *
+     * @return The number of blocks.
+     */
+    public int getBlockNbr() {
+        return blockNbr;
+    }
+
+    /**
+     * Returns the resolution of a block.
+     *
+     * @param block The block.
+     *
+     * @return The resolution number.
+     */
+    public int getResol(final int block) {
+        return resols[block];
+    }
+
+    /**
+     * Returns the number of positive circles of the markers of a block.
+     *
+     * @param block The block.
+     *
+     * @return The weight.
+     */
+    public int getWeight(final int block) {
+        return weights[block];
+    }
+
+    /**
+     * Returns the index of the first generator of a block.
+     *
+     * @param block The block.
+     *
+     * @return The index.
+     */
+    public int getOffset(final int block) {
+        return offsets[block];
+    }
+
+    /**
+     * Returns a generator.
+     *
+     * @param index The generator's index.
+     *
+     * @return The generator {@code {resol, circlesMarker}}.
+     */
+    public int[] getGenerator(final int index) {
+        final int found = Arrays.binarySearch(offsets, 0, blockNbr, index);
+        final int block = found < 0 ? -found - 2 : found;
+
+        return new int[]{resols[block], unrankMarker(index - offsets[block], weights[block])};
+    }
+
+    /**
+     * Returns the index of a generator of this group.
+     *
+     * @param resol The resolution number.
+     * @param marker The circles marker.
+     *
+     * @return The generator's index.
+     */
+    public int indexOf(final int resol, final int marker) {
+        final int weight = Integer.bitCount(marker);
+        return complex.getBlockOffset(resol, weight) + rankMarker(marker);
+    }
+
+    /**
+     * Calculates a binomial coefficient.
+     *
+     * @param n The size of the set.
+     * @param k The size of the subsets.
+     *
+     * @return The number of subsets of size {@code k}.
+     */
+    static int binomial(final int n, final int k) {
+        return k < 0 || k > n ? 0 : BINOMIALS[n][k];
+    }
+
+    /**
+     * Calculates the rank of a marker among the markers of the same weight, in
+     * increasing order.
+     *
+     * @param marker The marker.
+     *
+     * @return The rank.
+     */
+    static int rankMarker(final int marker) {
+        int rank = 0, k = 1;
+        for (int bits = marker; bits != 0; bits &= bits - 1) {
+            rank += binomial(Integer.numberOfTrailingZeros(bits), k++);
+        }
+
+        return rank;
+    }
+
+    /**
+     * Calculates the marker of a given rank among the markers of a weight.
+     *
+     * @param rank The rank.
+     * @param weight The number of positive circles.
+     *
+     * @return The marker.
+     */
+    static int unrankMarker(final int rank, final int weight) {
+        int marker = 0, rest = rank;
+        for (int k = weight; k > 0; k--) {
+            int bit = k - 1;
+            while (binomial(bit + 1, k) <= rest) {
+                bit++;
+            }
+            marker |= 1 << bit;
+            rest -= binomial(bit, k);
+        }
+
+        return marker;
+    }
+
+    /**
+     * Returns the next marker of the same weight (Gosper's hack).
+     *
+     * @param marker The marker (not zero).
+     *
+     * @return The next marker in increasing order.
+     */
+    static int nextMarker(final int marker) {
+        final int low = marker & -marker, ripple = marker + low;
+        return (((ripple ^ marker) >>> 2) / low) | ripple;
+    }
+}
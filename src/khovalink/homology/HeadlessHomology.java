@@ -0,0 +1,69 @@
+package khovalink.homology;
+
+import java.nio.file.Path;
+import khovalink.persistence.Link;
+import maths.homology.BiGradedHomology;
+
+/**
+ * Class calculating the homology of a link outside of the JavaFX application :
+ * the messages, the progress and the cancellation of the {@code Task} need the
+ * JavaFX thread, they are kept here instead. It is used by the batch
+ * calculations, the benchmarks and the tests.
+ *
+ * @author flo
+ */
+public final class HeadlessHomology extends LinkHomology {
+
+    private volatile String message = "";
+
+    /**
+     * Creates the calculation of the homology of a link.
+     *
+     * @param link The link.
+     * @param coefficients The coefficients of the homology.
+     * @param scratchDirectory The directory of the scratch file, or
+     * {@code null} to keep everything in memory.
+     * @param budget The limits of the calculation.
+     */
+    public HeadlessHomology(final Link link, final Coefficients coefficients, final Path scratchDirectory, final CalculationBudget budget) {
+        super(link, coefficients, scratchDirectory, budget);
+    }
+
+    /**
+     * Calculates the homology in the calling thread.
+     *
+     * @return The {@code BiGradedHomology}, or {@code null} if the calculation
+     * failed.
+     */
+    public BiGradedHomology calculate() {
+        return call();
+    }
+
+    /**
+     * Returns the last line of the messages.
+     *
+     * @return The line.
+     */
+    public String getLastLine() {
+        final String text = message.trim();
+        return text.substring(text.lastIndexOf('\n') + 1);
+    }
+
+    @Override
+    protected void updateMessage(final String message) {
+        this.message = message;
+    }
+
+    @Override
+    protected void updateProgress(final long workDone, final long max) {
+    }
+
+    @Override
+    protected void updateProgress(final double workDone, final double max) {
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        return true;
+    }
+}
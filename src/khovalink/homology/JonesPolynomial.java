@@ -0,0 +1,146 @@
+package khovalink.homology;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import khovalink.persistence.Link;
+
+/**
+ * Class calculating the Jones polynomial of a link with the state sum of the
+ * Kauffman bracket.
+ * <p>
+ * The resolutions are streamed in parallel and only counted by their number
+ * of 1-smoothings and their number of circles (a {@code ResolutionCensus}) :
+ * nothing is allocated per resolution. The polynomial is written in the
+ * variable {@code q} of the Khovanov homology, so that the unnormalized
+ * polynomial is the graded Euler characteristic of the homology.
+ *
+ * @author flo
+ */
+public final class JonesPolynomial {
+
+    private final TreeMap<Integer, Long> unnormalized = new TreeMap<>();
+    private final TreeMap<Integer, Long> normalized = new TreeMap<>();
+
+    /**
+     * Calculates the Jones polynomial of a link (with at most 30 crossings).
+     *
+     * @param link The link.
+     *
+     * @throws IllegalArgumentException If the link has more than 30
+     * crossings.
+     */
+    public JonesPolynomial(final Link link) {
+        this(new ResolutionCensus(link), link.getSigns());
+    }
+
+    /**
+     * Calculates the Jones polynomial from the resolutions already counted.
+     *
+     * @param census The resolutions of the link.
+     * @param signs The signs of the crossings.
+     */
+    JonesPolynomial(final ResolutionCensus census, final boolean[] signs) {
+        final int crossingNbr = census.getCrossingNbr();
+        final int maxCircles = census.getMaxCircles();
+
+        int negCross = 0;
+        for (final boolean sgn : signs) {
+            if (!sgn) {
+                negCross++;
+            }
+        }
+        final int posCross = crossingNbr - negCross;
+
+        final int minExp = -2 * negCross + posCross - maxCircles;
+        final long[] coefs = new long[crossingNbr + 2 * maxCircles + 1];
+        final long[] binomials = new long[maxCircles + 1];
+        for (int height = 0; height <= crossingNbr; height++) {
+            final long sign = (height - negCross) % 2 == 0 ? 1 : -1;
+            for (int circleNbr = 0; circleNbr <= maxCircles; circleNbr++) {
+                final long count = census.getCount(height, circleNbr);
+                if (count != 0) {
+                    ResolutionCensus.fillBinomials(binomials, circleNbr);
+                    final int exp = height - 2 * negCross + posCross - circleNbr - minExp;
+                    for (int m = 0; m <= circleNbr; m++) {
+                        coefs[exp + 2 * m] += sign * count * binomials[m];
+                    }
+                }
+            }
+        }
+
+        for (int k = 0; k < coefs.length; k++) {
+            if (coefs[k] != 0) {
+                unnormalized.put(k + minExp, coefs[k]);
+            }
+        }
+
+        // Division by q + q^-1 = q^-1 (1 + q^2).
+        for (int k = 2; k < coefs.length; k++) {
+            coefs[k] -= coefs[k - 2];
+        }
+        for (int k = 0; k < coefs.length; k++) {
+            if (coefs[k] != 0) {
+                normalized.put(k + minExp + 1, coefs[k]);
+            }
+        }
+    }
+
+    /**
+     * Returns the unnormalized Jones polynomial, which is the graded Euler
+     * characteristic of the Khovanov homology ({@code q + q^-1} for the
+     * unknot).
+     *
+     * @return For each power of {@code q}, the coefficient.
+     */
+    public Map<Integer, Long> getUnnormalized() {
+        return Collections.unmodifiableMap(unnormalized);
+    }
+
+    /**
+     * Returns the Jones polynomial normalized so that the unknot has
+     * polynomial 1.
+     *
+     * @return For each power of {@code q}, the coefficient.
+     */
+    public Map<Integer, Long> getNormalized() {
+        return Collections.unmodifiableMap(normalized);
+    }
+
+    /**
+     * Checks a Khovanov polynomial against the Jones polynomial : its graded
+     * Euler characteristic must be the unnormalized Jones polynomial.
+     *
+     * @param polynomial The {@code KhovanovPolynomial} of the same link.
+     *
+     * @return {@code true} if the polynomials agree.
+     */
+    public boolean isEulerCharacteristicOf(final KhovanovPolynomial polynomial) {
+        final TreeMap<Integer, Long> euler = new TreeMap<>();
+        polynomial.getEulerCharacteristic().forEach((jGrad, coef) -> euler.put(jGrad, (long) coef));
+
+        return euler.equals(unnormalized);
+    }
+
+    @Override
+    public String toString() {
+        if (normalized.isEmpty()) {
+            return "0";
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        normalized.forEach((exp, coef) -> {
+            if (sb.length() > 0) {
+                sb.append(coef < 0 ? " - " : " + ");
+            } else if (coef < 0) {
+                sb.append('-');
+            }
+            if (Math.abs(coef) != 1) {
+                sb.append(Math.abs(coef)).append(' ');
+            }
+            sb.append("q^").append(exp);
+        });
+
+        return sb.toString();
+    }
+}
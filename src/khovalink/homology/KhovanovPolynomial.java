@@ -0,0 +1,119 @@
+package khovalink.homology;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class representing the Khovanov polynomial of a link : the sum of
+ * {@code dim H^{i,j} t^i q^j} over the bigradings, the homology having
+ * rational coefficients.
+ *
+ * @author flo
+ */
+public final class KhovanovPolynomial implements Serializable {
+
+    private static final long serialVersionUID = 5863124076491258735L;
+
+    private final TreeMap<Integer, TreeMap<Integer, Integer>> terms = new TreeMap<>();
+
+    /**
+     * Creates a zero {@code KhovanovPolynomial}.
+     */
+    public KhovanovPolynomial() {
+    }
+
+    /**
+     * Sets the coefficient of a monomial.
+     *
+     * @param iGrad The power of {@code t} (homological grading).
+     * @param jGrad The power of {@code q} (quantum grading).
+     * @param coef The coefficient (the dimension of the homology group).
+     */
+    synchronized void setCoefficient(final int iGrad, final int jGrad, final int coef) {
+        if (coef == 0) {
+            final TreeMap<Integer, Integer> iTerms = terms.get(iGrad);
+            if (iTerms != null) {
+                iTerms.remove(jGrad);
+                if (iTerms.isEmpty()) {
+                    terms.remove(iGrad);
+                }
+            }
+        } else {
+            terms.computeIfAbsent(iGrad, i -> new TreeMap<>()).put(jGrad, coef);
+        }
+    }
+
+    /**
+     * Returns the coefficient of a monomial.
+     *
+     * @param iGrad The power of {@code t}.
+     * @param jGrad The power of {@code q}.
+     *
+     * @return The coefficient.
+     */
+    public synchronized int getCoefficient(final int iGrad, final int jGrad) {
+        final TreeMap<Integer, Integer> iTerms = terms.get(iGrad);
+        return iTerms == null ? 0 : iTerms.getOrDefault(jGrad, 0);
+    }
+
+    /**
+     * Returns the non zero coefficients.
+     *
+     * @return For each power of {@code t} and each power of {@code q}, the
+     * coefficient.
+     */
+    public synchronized Map<Integer, Map<Integer, Integer>> getTerms() {
+        final TreeMap<Integer, Map<Integer, Integer>> copy = new TreeMap<>();
+        terms.forEach((iGrad, iTerms) -> copy.put(iGrad, Collections.unmodifiableMap(new TreeMap<>(iTerms))));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Returns the total dimension of the homology (the value at
+     * {@code t = q = 1}).
+     *
+     * @return The sum of the coefficients.
+     */
+    public synchronized int getTotalRank() {
+        return terms.values().stream().flatMap(iTerms -> iTerms.values().stream()).mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Returns the graded Euler characteristic (the value at {@code t = -1}),
+     * which is the unnormalized Jones polynomial.
+     *
+     * @return For each power of {@code q}, the coefficient.
+     */
+    public synchronized Map<Integer, Integer> getEulerCharacteristic() {
+        final TreeMap<Integer, Integer> euler = new TreeMap<>();
+        terms.forEach((iGrad, iTerms) -> iTerms.forEach((jGrad, coef) -> euler.merge(jGrad, iGrad % 2 == 0 ? coef : -coef, Integer::sum)));
+        euler.values().removeIf(coef -> coef == 0);
+
+        return euler;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (terms.isEmpty()) {
+            return "0";
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        terms.forEach((iGrad, iTerms) -> iTerms.forEach((jGrad, coef) -> {
+            if (sb.length() > 0) {
+                sb.append(" + ");
+            }
+            if (coef != 1) {
+                sb.append(coef).append(' ');
+            }
+            if (iGrad != 0) {
+                sb.append("t^").append(iGrad).append(' ');
+            }
+            sb.append("q^").append(jGrad);
+        }));
+
+        return sb.toString();
+    }
+}
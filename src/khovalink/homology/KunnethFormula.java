@@ -0,0 +1,244 @@
+package khovalink.homology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class combining the homologies of the pieces of a decomposed link.
+ * <p>
+ * The chain complex of a split link is the tensor product of the complexes of
+ * its pieces, the gradings being added : over the integers, the Kunneth
+ * formula gives the tensor product of the groups at {@code (i + i', j + j')}
+ * and their {@code Tor} at {@code (i + i' - 1, j + j')}. Over a field only the
+ * dimensions are multiplied.
+ * <p>
+ * With coefficients in Z/2, the homology of a link is its reduced homology
+ * tensored with the homology {@code q + q^-1} of the unknot (Shumakovitch),
+ * and the reduced homology of a connected sum is the tensor product of the
+ * reduced homologies : the Poincare polynomial of a connected sum is the
+ * product of the polynomials of its factors divided by {@code q + q^-1}.
+ *
+ * @author flo
+ */
+final class KunnethFormula {
+
+    /**
+     * Non instanciable class.
+     */
+    private KunnethFormula() {
+    }
+
+    /**
+     * Calculates the homology of the disjoint union of two links over the
+     * integers.
+     *
+     * @param first The groups of the first link.
+     * @param second The groups of the second link.
+     *
+     * @return The {@code BiGradedGroups} of the union.
+     */
+    static BiGradedGroups tensor(final BiGradedGroups first, final BiGradedGroups second) {
+        final Map<Integer, Map<Integer, Integer>> free = new TreeMap<>();
+        final Map<Integer, Map<Integer, List<Integer>>> torsion = new TreeMap<>();
+
+        for (final int j1 : first.getjGrads()) {
+            for (final int i1 : first.getiGrads(j1)) {
+                final int free1 = first.getFreeRank(i1, j1);
+                final int[] torsion1 = first.getTorsion(i1, j1);
+
+                for (final int j2 : second.getjGrads()) {
+                    for (final int i2 : second.getiGrads(j2)) {
+                        final int free2 = second.getFreeRank(i2, j2);
+                        final int[] torsion2 = second.getTorsion(i2, j2);
+                        final List<Integer> product = getTorsion(torsion, i1 + i2, j1 + j2);
+
+                        free.computeIfAbsent(i1 + i2, i -> new TreeMap<>()).merge(j1 + j2, free1 * free2, Integer::sum);
+                        for (int k = 0; k < free1; k++) {
+                            Arrays.stream(torsion2).forEach(product::add);
+                        }
+                        for (int k = 0; k < free2; k++) {
+                            Arrays.stream(torsion1).forEach(product::add);
+                        }
+                        for (final int t1 : torsion1) {
+                            for (final int t2 : torsion2) {
+                                final int gcd = gcd(t1, t2);
+                                if (gcd > 1) {
+                                    product.add(gcd);
+                                    getTorsion(torsion, i1 + i2 - 1, j1 + j2).add(gcd);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        //Every bigrading of a product has a torsion list, possibly empty.
+        final BiGradedGroups groups = new BiGradedGroups();
+        torsion.forEach((iGrad, iTorsion) -> iTorsion.forEach((jGrad, coefs) -> {
+            final int rank = free.containsKey(iGrad) ? free.get(iGrad).getOrDefault(jGrad, 0) : 0;
+            if (rank > 0 || !coefs.isEmpty()) {
+                groups.setijGroup(iGrad, jGrad, rank, coefs.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }));
+
+        return groups;
+    }
+
+    /**
+     * Calculates the homology with coefficients in Z/2 of the disjoint union
+     * of two links.
+     *
+     * @param first The groups of the first link, each one being a sum of Z/2.
+     * @param second The groups of the second link, each one being a sum of
+     * Z/2.
+     *
+     * @return The {@code BiGradedGroups} of the union.
+     */
+    static BiGradedGroups tensorMod2(final BiGradedGroups first, final BiGradedGroups second) {
+        return getMod2Groups(multiply(getMod2Dims(first), getMod2Dims(second)));
+    }
+
+    /**
+     * Calculates the homology with coefficients in Z/2 of the connected sum of
+     * two links.
+     *
+     * @param first The groups of the first link, each one being a sum of Z/2.
+     * @param second The groups of the second link, each one being a sum of
+     * Z/2.
+     *
+     * @return The {@code BiGradedGroups} of the connected sum.
+     */
+    static BiGradedGroups connectedSumMod2(final BiGradedGroups first, final BiGradedGroups second) {
+        return getMod2Groups(divideByUnknot(multiply(getMod2Dims(first), getMod2Dims(second))));
+    }
+
+    /**
+     * Calculates the reduced homology with coefficients in Z/2 of a link from
+     * its homology, whatever its marked component.
+     *
+     * @param groups The groups of the link.
+     *
+     * @return The {@code BiGradedGroups} of the reduced homology.
+     */
+    static BiGradedGroups reduceMod2(final BiGradedGroups groups) {
+        final TreeMap<Integer, TreeMap<Integer, Integer>> dims = new TreeMap<>();
+        getMod2Dims(groups).forEach((iGrad, iDims) -> dims.put(iGrad, new TreeMap<>(iDims)));
+
+        return getMod2Groups(divideByUnknot(dims));
+    }
+
+    /**
+     * Calculates the Khovanov polynomial of the disjoint union of two links.
+     *
+     * @param first The polynomial of the first link.
+     * @param second The polynomial of the second link.
+     *
+     * @return The {@code KhovanovPolynomial} of the union.
+     */
+    static KhovanovPolynomial tensor(final KhovanovPolynomial first, final KhovanovPolynomial second) {
+        final KhovanovPolynomial polynomial = new KhovanovPolynomial();
+        multiply(first.getTerms(), second.getTerms()).forEach((iGrad, iTerms) -> iTerms.forEach((jGrad, coef) -> polynomial.setCoefficient(iGrad, jGrad, coef)));
+
+        return polynomial;
+    }
+
+    private static List<Integer> getTorsion(final Map<Integer, Map<Integer, List<Integer>>> torsion, final int iGrad, final int jGrad) {
+        return torsion.computeIfAbsent(iGrad, i -> new TreeMap<>()).computeIfAbsent(jGrad, j -> new ArrayList<>());
+    }
+
+    private static int gcd(final int a, final int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Multiplies two Poincare polynomials.
+     *
+     * @param first The coefficients of the first polynomial, by homological
+     * and quantum grading.
+     * @param second The coefficients of the second polynomial.
+     *
+     * @return The coefficients of the product.
+     */
+    private static TreeMap<Integer, TreeMap<Integer, Integer>> multiply(final Map<Integer, Map<Integer, Integer>> first,
+            final Map<Integer, Map<Integer, Integer>> second) {
+        final TreeMap<Integer, TreeMap<Integer, Integer>> product = new TreeMap<>();
+        first.forEach((i1, iTerms1) -> iTerms1.forEach((j1, coef1) -> second.forEach((i2, iTerms2) -> iTerms2.forEach((j2, coef2)
+                -> product.computeIfAbsent(i1 + i2, i -> new TreeMap<>()).merge(j1 + j2, coef1 * coef2, Integer::sum)))));
+
+        return product;
+    }
+
+    /**
+     * Divides a Poincare polynomial by the one of the unknot
+     * {@code q + q^-1}, from the lowest quantum grading of each homological
+     * grading.
+     *
+     * @param polynomial The coefficients of the polynomial, by homological
+     * and quantum grading.
+     *
+     * @return The coefficients of the quotient.
+     */
+    private static TreeMap<Integer, TreeMap<Integer, Integer>> divideByUnknot(final TreeMap<Integer, TreeMap<Integer, Integer>> polynomial) {
+        final TreeMap<Integer, TreeMap<Integer, Integer>> quotient = new TreeMap<>();
+        polynomial.forEach((iGrad, iTerms) -> {
+            final TreeMap<Integer, Integer> iQuotient = new TreeMap<>();
+            for (int jGrad = iTerms.firstKey(); jGrad < iTerms.lastKey(); jGrad += 2) {
+                final int coef = iTerms.getOrDefault(jGrad, 0) - iQuotient.getOrDefault(jGrad - 1, 0);
+                if (coef != 0) {
+                    iQuotient.put(jGrad + 1, coef);
+                }
+            }
+            if (!iQuotient.isEmpty()) {
+                quotient.put(iGrad, iQuotient);
+            }
+        });
+
+        return quotient;
+    }
+
+    /**
+     * Returns the dimensions of groups which are sums of Z/2.
+     *
+     * @param groups The {@code BiGradedGroups}.
+     *
+     * @return The dimensions, by homological and quantum grading.
+     */
+    private static Map<Integer, Map<Integer, Integer>> getMod2Dims(final BiGradedGroups groups) {
+        final Map<Integer, Map<Integer, Integer>> dims = new TreeMap<>();
+        for (final int jGrad : groups.getjGrads()) {
+            for (final int iGrad : groups.getiGrads(jGrad)) {
+                final int dim = groups.getFreeRank(iGrad, jGrad) + groups.getTorsion(iGrad, jGrad).length;
+                if (dim > 0) {
+                    dims.computeIfAbsent(iGrad, i -> new TreeMap<>()).put(jGrad, dim);
+                }
+            }
+        }
+
+        return dims;
+    }
+
+    /**
+     * Creates groups which are sums of Z/2, stored as torsion coefficients
+     * equal to 2.
+     *
+     * @param dims The dimensions, by homological and quantum grading.
+     *
+     * @return The {@code BiGradedGroups}.
+     */
+    private static BiGradedGroups getMod2Groups(final TreeMap<Integer, TreeMap<Integer, Integer>> dims) {
+        final BiGradedGroups groups = new BiGradedGroups();
+        dims.forEach((iGrad, iDims) -> iDims.forEach((jGrad, dim) -> {
+            if (dim > 0) {
+                final int[] torsion = new int[dim];
+                Arrays.fill(torsion, 2);
+                groups.setijGroup(iGrad, jGrad, 0, torsion);
+            }
+        }));
+
+        return groups;
+    }
+}
@@ -1,18 +1,28 @@
 package khovalink.homology;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javafx.concurrent.Task;
 import khovalink.KhovaLog;
+import khovalink.persistence.CanonicalLink;
 import khovalink.persistence.Link;
+import khovalink.persistence.LinkDecomposition;
+import khovalink.persistence.LinkSimplifier;
 import maths.exceptions.MathsArgumentException;
 import maths.homology.BiGradedHomology;
-import maths.homology.DifferentialBiComplex;
-import maths.homology.SNFCalculator;
-import maths.matrix.IntegerMatrix;
 import maths.numbers.IntegerCalc;
 
 /**
@@ -21,21 +31,123 @@ import maths.numbers.IntegerCalc;
  */
 public class LinkHomology extends Task<BiGradedHomology> {
 
+    /**
+     * Enum specifying the coefficients of the homology : over the rationals
+     * only the ranks are calculated, giving the Khovanov polynomial.
+     */
+    public enum Coefficients {
+        INTEGERS, MOD_2, RATIONALS
+    }
+
+    /**
+     * Number of crossings from which the homology is calculated by adding the
+     * crossings one at a time to a tangle instead of building the whole cube
+     * of resolutions.
+     */
+    static final int TANGLE_MIN_CROSSINGS = 12;
+
+    /**
+     * Maximal number of crossings for which the Khovanov polynomial is checked
+     * against the Jones polynomial (which needs all the resolutions).
+     */
+    private static final int JONES_CHECK_MAX_CROSSINGS = 22;
+
+    /**
+     * Number of generators weighing one permit when the quantum gradings are
+     * calculated in parallel : a quantum grading only starts when the ones in
+     * progress weigh less than the largest one, so that the peak memory is the
+     * one of the largest quantum grading.
+     */
+    private static final int SLICE_WEIGHT_UNIT = 1 << 10;
+
+    /**
+     * Names of the pieces saved in the {@code Checkpoint} : the tangle, and
+     * the reduced differentials or the Z/2 ranks of each quantum grading
+     * (followed by the grading).
+     */
+    private static final String TANGLE_PIECE = "tangle";
+    private static final String SLICE_PIECE = "slice";
+    private static final String RANKS_PIECE = "ranks";
+
+    private final LinkSimplifier simplifier;
     private final Link link;
     private final LinkResolution resolution;
+    private final CalculationBudget budget;
 
     private final int crossingNbr;
 
     private final int negCross;
     private final int posCross;
 
+    private final Path scratchDirectory;
+
+    private volatile Coefficients coefficients;
+    private volatile KhovanovPolynomial polynomial = null;
+    private volatile BiGradedGroups groups = null;
+    private volatile ResultCache cache;
+    private volatile Path checkpointDirectory = Checkpoint.DIRECTORY.toPath();
+    private volatile int markedComponent = -1;
+    private volatile boolean rasmussen = false;
+    private volatile Integer rasmussenInvariant = null;
+    private volatile boolean invariantAsked = false;
+
     public LinkHomology(final Link link) {
-        this.link = link;
-        resolution = new LinkResolution(link);
-        crossingNbr = link.getNbCross();
+        this(link, Coefficients.INTEGERS);
+    }
+
+    /**
+     * Creates the calculation of the homology of a link.
+     *
+     * @param link The link.
+     * @param coefficients The coefficients of the homology.
+     */
+    public LinkHomology(final Link link, final Coefficients coefficients) {
+        this(link, coefficients, null);
+    }
+
+    /**
+     * Creates the calculation of the homology of a link, the large tables
+     * being written to a scratch file instead of being kept on the java heap.
+     * The file is deleted at the end of the calculation.
+     *
+     * @param link The link.
+     * @param coefficients The coefficients of the homology.
+     * @param scratchDirectory The directory of the scratch file, or
+     * {@code null} to keep everything in memory.
+     */
+    public LinkHomology(final Link link, final Coefficients coefficients, final Path scratchDirectory) {
+        this(link, coefficients, scratchDirectory, CalculationBudget.UNLIMITED);
+    }
+
+    /**
+     * Creates the calculation of the homology of a link with a limited time
+     * and heap. The calculation stops when it is cancelled or exceeds its
+     * budget, all the threads working for it leaving their loops at once.
+     * The homology is calculated on the link simplified by Reidemeister moves.
+     *
+     * @param link The link.
+     * @param coefficients The coefficients of the homology.
+     * @param scratchDirectory The directory of the scratch file, or
+     * {@code null} to keep everything in memory.
+     * @param budget The limits of the calculation.
+     */
+    public LinkHomology(final Link link, final Coefficients coefficients, final Path scratchDirectory, final CalculationBudget budget) {
+        simplifier = new LinkSimplifier(link);
+        this.link = simplifier.getLink();
+        this.coefficients = coefficients;
+        this.scratchDirectory = scratchDirectory;
+        this.budget = budget;
+        resolution = new LinkResolution(this.link);
+        try {
+            cache = ResultCache.getInstance();
+        } catch (final IOException ex) {
+            KhovaLog.addLog(ex);
+            cache = null;
+        }
+        crossingNbr = this.link.getNbCross();
 
         int x = 0, y = 0;
-        for (boolean sgn : link.getSigns()) {
+        for (boolean sgn : this.link.getSigns()) {
             if (sgn) {
                 y++;
             } else {
@@ -48,166 +160,827 @@ public class LinkHomology extends Task<BiGradedHomology> {
 
     @Override
     protected BiGradedHomology call() {
-        try {
-            final StringBuilder infos = new StringBuilder("\tLink Informations :\n\n")
-                    .append(link.toString())
-                    .append("\n\n\tLaunching homology calculation :\n\n- Starting timer.");
-            updateMessage(infos.toString());
-            final Instant start = Instant.now();
-
-            updateMessage(infos.append("- Creating chain complex...").toString());
-            final GeneratorsChainComplex generators = getGenerators();
-
-            final Instant chainCplxStep = Instant.now();
-            updateMessage(infos.append("Ok ! ").append(Duration.between(start, chainCplxStep)).append("\n- Creating differential complex...").toString());
+        final StringBuilder infos = new StringBuilder("\tLink Informations :\n\n")
+                .append(simplifier.getOriginal().toString())
+                .append("\n\n\tLaunching homology calculation :\n\n- Starting timer.");
+        if (link != simplifier.getOriginal()) {
+            infos.append("\n- Reidemeister simplification : ").append(simplifier).append(".\n");
+        }
+        final boolean reduced = markedComponent >= 0;
+        if (reduced) {
+            infos.append("\n- Reduced homology, the marked point being on the component ").append(markedComponent).append(".\n");
+        }
+        invariantAsked = rasmussen && link.getNbCompo() == 1;
+        if (rasmussen && link.getNbCompo() > 1) {
+            infos.append("\n- The Rasmussen invariant is only defined for knots.\n");
+        } else if (invariantAsked) {
+            final String refusal = getInvariantRefusal();
+            if (refusal != null) {
+                invariantAsked = false;
+                infos.append("\n- The Rasmussen invariant needs the whole cube of resolutions, ").append(refusal).append(" : it isn't calculated.\n");
+            }
+        }
+        updateMessage(infos.toString());
+        final Instant start = Instant.now();
+        rasmussenInvariant = null;
+        groups = null;
+
+        final ResultCache resultCache = reduced && link.getNbCompo() > 1 ? null : cache;
+        final CanonicalLink canonical = resultCache == null ? null : new CanonicalLink(link);
+        final ResultCache.Result result = resultCache == null || invariantAsked ? null : resultCache.get(canonical, coefficients, reduced);
+        if (result != null) {
+            try {
+                final BiGradedHomology homology = result.getGroups().getHomology();
+                polynomial = result.getPolynomial();
+                groups = result.getGroups();
+                updateMessage(infos.append("\n- Result read from the cache (calculated on ").append(result.getDate())
+                        .append(" in ").append(result.getTime()).append(").\nTotal time elapsed : ")
+                        .append(Duration.between(start, Instant.now())).toString());
+                return homology;
+            } catch (final MathsArgumentException ex) {
+                KhovaLog.addLog(ex);
+            }
+        }
 
-            updateProgress(0, 1);
-            final int tot = generators.getTotChains();
-            final DifferentialBiComplex biComplex = new DifferentialBiComplex();
-            final AtomicInteger i = new AtomicInteger(0);
+        Checkpoint checkpoint = null;
+        try (final Cancellation cancellation = new Cancellation(this::isCancelled, budget, crossingNbr)) {
+            checkpoint = getCheckpoint(infos);
+            final LinkDecomposition decomposition = new LinkDecomposition(link, coefficients == Coefficients.MOD_2);
+            final List<List<TangleHomology>> pieces = getPieces(decomposition);
+            final TangleHomology tangle = pieces == null ? getTangle(checkpoint) : null;
+
+            if (pieces == null && tangle == null && crossingNbr > ResolutionAtlas.MAX_CROSSINGS) {
+                updateMessage(infos.append("- The whole cube of resolutions is needed, but it can't be built above ").append(ResolutionAtlas.MAX_CROSSINGS)
+                        .append(" crossings : calculation refused.").toString());
+                if (checkpoint != null) {
+                    checkpoint.delete();
+                }
+                cancel();
+                return null;
+            }
 
-            generators.getjGrads().parallelStream().forEach(jGrad -> {
-                final HashMap<Integer, ArrayList<int[]>> jComp = generators.getjComplex(jGrad);
-                jComp.keySet().parallelStream().forEach(iGrad -> {
-                    biComplex.setijDiff(iGrad, jGrad, getijDiff(jComp.get(iGrad), jComp.get(iGrad + 1)));
-                    updateProgress(i.incrementAndGet(), tot);
-                });
-            });
+            BiGradedGroups groups;
+            if (pieces != null) {
+                groups = getDecomposedGroups(decomposition, pieces, infos, start, cancellation);
+            } else if (tangle != null) {
+                groups = getTangleGroups(tangle, infos, start, checkpoint, cancellation);
+            } else {
+                try {
+                    groups = getCubeGroups(infos, start, checkpoint, cancellation);
+                } catch (final Cancellation.Stop ex) {
+                    if (ex.getReason() != Cancellation.Reason.HEAP || !budget.isDegradable() || coefficients == Coefficients.MOD_2) {
+                        throw ex;
+                    }
 
-            final Instant diffCplxStep = Instant.now();
-            updateMessage(infos.append("Ok ! ").append(Duration.between(chainCplxStep, diffCplxStep)).append("\n- Calculating homology...").toString());
+                    updateMessage(infos.append("\n- Heap budget exceeded : calculating with coefficients in Z/2 instead.\n").toString());
+                    coefficients = Coefficients.MOD_2;
+                    cancellation.clearHeap();
+                    if (checkpoint != null) {
+                        checkpoint.close();
+                    }
+                    checkpoint = getCheckpoint(infos);
+                    groups = getCubeGroups(infos, start, checkpoint, cancellation);
+                }
+            }
 
-            final BiGradedHomology homology = biComplex.getHomology(new SNFCalculator());
+            final BiGradedHomology homology = groups.getHomology();
 
-            final Instant end = Instant.now();
-            updateMessage(infos.append("Ok ! ").append(Duration.between(diffCplxStep, end))
-                    .append("\nTotal time elapsed : ").append(Duration.between(start, end)).toString());
+            if (checkpoint != null) {
+                checkpoint.delete();
+            }
+            if (resultCache != null) {
+                resultCache.put(canonical, coefficients, reduced, groups, polynomial, Duration.between(start, Instant.now()));
+            }
 
+            this.groups = groups;
             return homology;
-        } catch (final MathsArgumentException ex) {
+        } catch (final Cancellation.Stop ex) {
+            if (ex.getReason() != Cancellation.Reason.CANCELLED) {
+                updateMessage(infos.append("\n- ").append(ex.getReason() == Cancellation.Reason.TIME ? "Time" : "Heap")
+                        .append(" budget exceeded (").append(budget).append(") : calculation stopped after ")
+                        .append(Duration.between(start, Instant.now())).append('.').toString());
+                cancel();
+            }
+        } catch (final MathsArgumentException | IOException ex) {
             KhovaLog.addLog(ex);
             cancel();
+        } catch (final UncheckedIOException ex) {
+            KhovaLog.addLog(ex.getCause());
+            cancel();
+        } finally {
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
         }
 
         return null;
     }
 
-    private GeneratorsChainComplex getGenerators() throws MathsArgumentException {
-        final GeneratorsChainComplex generators = new GeneratorsChainComplex();
-        final int resolNbr = IntegerCalc.pow2(crossingNbr);
+    /**
+     * Opens the checkpoint of the calculation with the current coefficients,
+     * if the link is large enough and checkpoints are wanted. A checkpoint
+     * used by another calculation of the same link isn't shared : the
+     * calculation goes on without it.
+     *
+     * @param infos The messages already displayed.
+     *
+     * @return The {@code Checkpoint}, or {@code null}.
+     *
+     * @throws IOException If the directory of the checkpoint can't be created.
+     */
+    private Checkpoint getCheckpoint(final StringBuilder infos) throws IOException {
+        final Path directory = checkpointDirectory;
+        if (directory == null || crossingNbr < Checkpoint.MIN_CROSSINGS) {
+            return null;
+        }
+
+        final Checkpoint checkpoint = Checkpoint.open(directory, link, coefficients, markedComponent);
+        if (checkpoint == null) {
+            updateMessage(infos.append("\n- The checkpoint of this link is used by another calculation : calculating without it.\n").toString());
+        }
+        return checkpoint;
+    }
 
-        for (int resol = 0; resol < resolNbr; resol++) {
-            final int circleNbr = resolution.calculateCirclesNbr(resol);
-            final int markerNbr = IntegerCalc.pow2(circleNbr);
-            final int iGrad = Integer.bitCount(resol) - negCross;
+    /**
+     * Returns the tangle of the link if its homology is calculated with the
+     * tangle algorithm : the one found in the checkpoint, or a new one. The
+     * Rasmussen invariant is always calculated from the cube of resolutions.
+     *
+     * @param checkpoint The checkpoint of the calculation, or {@code null}.
+     *
+     * @return The {@code TangleHomology}, or {@code null} to calculate from
+     * the whole cube of resolutions.
+     */
+    private TangleHomology getTangle(final Checkpoint checkpoint) {
+        if (crossingNbr < TANGLE_MIN_CROSSINGS || invariantAsked) {
+            return null;
+        }
+
+        final TangleHomology saved = checkpoint == null ? null : checkpoint.load(TANGLE_PIECE, TangleHomology.class);
+        final TangleHomology tangle = saved == null ? new TangleHomology(link, markedComponent) : saved;
 
-            for (int circlesMarker = 0; circlesMarker < markerNbr; circlesMarker++) {
-                final int jGrad = iGrad + 2 * Integer.bitCount(circlesMarker) - circleNbr - negCross + posCross;
-                generators.addijGenerator(new int[]{resol, circlesMarker}, iGrad, jGrad);
+        return tangle.getMaxBoundary() <= TangleComplex.MAX_BOUNDARY ? tangle : null;
+    }
+
+    /**
+     * Returns the tangles of the pieces of the link if it is decomposed and if
+     * all of them can be calculated with the tangle algorithm (not with the
+     * Rasmussen invariant). For the reduced homology, the piece of the marked
+     * component is reduced, except with coefficients in Z/2 whose reduced
+     * homology is deduced from the unreduced one.
+     *
+     * @param decomposition The decomposition of the link.
+     *
+     * @return The {@code TangleHomology} of each factor of each piece, or
+     * {@code null} to calculate the link as a whole.
+     */
+    private List<List<TangleHomology>> getPieces(final LinkDecomposition decomposition) {
+        if (!decomposition.isDecomposed() || invariantAsked) {
+            return null;
+        }
+
+        final int[] marked = markedComponent < 0 || coefficients == Coefficients.MOD_2 ? null : decomposition.getPosition(markedComponent);
+        final List<List<TangleHomology>> pieces = new ArrayList<>();
+        for (final List<Link> factors : decomposition.getPieces()) {
+            final List<TangleHomology> tangles = new ArrayList<>();
+            for (final Link factor : factors) {
+                final boolean reduced = marked != null && marked[0] == pieces.size();
+                final TangleHomology tangle = new TangleHomology(factor, reduced ? marked[1] : -1);
+                if (tangle.getMaxBoundary() > TangleComplex.MAX_BOUNDARY) {
+                    return null;
+                }
+                tangles.add(tangle);
             }
+            pieces.add(tangles);
+        }
+
+        return pieces;
+    }
 
-            updateProgress(resol + 1, resolNbr);
+    /**
+     * Calculates the homology of a decomposed link : the factors are
+     * calculated in parallel with the tangle algorithm, then their homologies
+     * are combined by the Kunneth formula. Nothing is saved in the checkpoint,
+     * the factors being smaller than the link. The reduced homology with
+     * coefficients in Z/2 is the unreduced one divided by the one of the
+     * unknot (Shumakovitch).
+     *
+     * @param decomposition The decomposition of the link.
+     * @param pieces The tangles of the factors of each piece.
+     * @param infos The messages already displayed.
+     * @param start The beginning of the calculation.
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedGroups}.
+     */
+    private BiGradedGroups getDecomposedGroups(final LinkDecomposition decomposition, final List<List<TangleHomology>> pieces,
+            final StringBuilder infos, final Instant start, final Cancellation cancellation) {
+        updateMessage(infos.append("- Link decomposed into ").append(decomposition)
+                .append(", adding the crossings of each factor to its tangle...").toString());
+
+        updateProgress(0, crossingNbr);
+        final AtomicInteger added = new AtomicInteger(0);
+        pieces.stream().flatMap(List::stream).parallel().forEach(tangle -> {
+            while (tangle.hasNextCrossing()) {
+                tangle.addNextCrossing(cancellation);
+                updateProgress(added.incrementAndGet(), crossingNbr);
+            }
+        });
+
+        final Instant tangleStep = Instant.now();
+        updateMessage(infos.append("Ok ! ").append(Duration.between(start, tangleStep))
+                .append("\n- Calculating homology with the Kunneth formula...").toString());
+
+        final BiGradedGroups groups;
+        switch (coefficients) {
+            case MOD_2:
+                final BiGradedGroups unreduced = pieces.parallelStream()
+                        .map(factors -> factors.stream().map(tangle -> tangle.getMod2Groups(cancellation)).reduce(KunnethFormula::connectedSumMod2).get())
+                        .reduce(KunnethFormula::tensorMod2).get();
+                groups = markedComponent < 0 ? unreduced : KunnethFormula.reduceMod2(unreduced);
+                break;
+            case RATIONALS:
+                polynomial = pieces.parallelStream().map(factors -> factors.get(0).getRationalPolynomial(cancellation))
+                        .reduce(KunnethFormula::tensor).get();
+                groups = getFreeGroups(polynomial);
+                break;
+            default:
+                groups = pieces.parallelStream().map(factors -> factors.get(0).getGroups(cancellation))
+                        .reduce(KunnethFormula::tensor).get();
         }
 
-        return generators;
+        final Instant end = Instant.now();
+        updateMessage(infos.append("Ok ! ").append(Duration.between(tangleStep, end))
+                .append(getPolynomialReport(cancellation))
+                .append("\nTotal time elapsed : ").append(Duration.between(start, end)).toString());
+
+        return groups;
     }
 
-    private IntegerMatrix getijDiff(final ArrayList<int[]> bases1, final ArrayList<int[]> bases2) {
-        try {
-            if (bases1 == null) {
-                if (bases2 != null) {
-                    return IntegerMatrix.getEmpty(bases2.size(), 1);
+    /**
+     * Calculates the homology from the whole cube of resolutions, with a
+     * scratch file if a directory is given.
+     *
+     * @param infos The messages already displayed.
+     * @param start The beginning of the calculation.
+     * @param checkpoint The checkpoint of the calculation, or {@code null}.
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedGroups}.
+     *
+     * @throws MathsArgumentException If the Rasmussen invariant can't be
+     * calculated.
+     * @throws IOException If the scratch file can't be created.
+     */
+    private BiGradedGroups getCubeGroups(final StringBuilder infos, final Instant start, final Checkpoint checkpoint,
+            final Cancellation cancellation) throws MathsArgumentException, IOException {
+        if (scratchDirectory == null) {
+            return getCubeGroups(infos, start, null, checkpoint, cancellation);
+        }
+        try (final ScratchStorage storage = new ScratchStorage(scratchDirectory)) {
+            return getCubeGroups(infos, start, storage, checkpoint, cancellation);
+        }
+    }
+
+    /**
+     * Calculates the homology from the whole cube of resolutions. The
+     * differentials of each quantum grading are built and reduced together,
+     * then released : only the reduced complex is kept until the end. The
+     * quantum gradings found in the checkpoint aren't calculated again.
+     *
+     * @param infos The messages already displayed.
+     * @param start The beginning of the calculation.
+     * @param storage The scratch file receiving the large tables, or
+     * {@code null} to keep them in memory.
+     * @param checkpoint The checkpoint of the calculation, or {@code null}.
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedGroups}.
+     *
+     * @throws MathsArgumentException If the Rasmussen invariant can't be
+     * calculated.
+     */
+    private BiGradedGroups getCubeGroups(final StringBuilder infos, final Instant start, final ScratchStorage storage,
+            final Checkpoint checkpoint, final Cancellation cancellation) throws MathsArgumentException {
+        updateMessage(infos.append("- Creating chain complex...").toString());
+        final ResolutionAtlas atlas = new ResolutionAtlas(resolution, crossingNbr, storage);
+        final GeneratorsChainComplex generators = getGenerators(atlas, cancellation);
+
+        final Instant chainCplxStep = Instant.now();
+        if (coefficients == Coefficients.MOD_2) {
+            updateMessage(infos.append("Ok ! ").append(Duration.between(start, chainCplxStep))
+                    .append("\n- Creating Z/2 differentials and calculating their ranks...").toString());
+            return getMod2Groups(atlas, generators, infos, start, chainCplxStep, checkpoint, cancellation);
+        }
+        updateMessage(infos.append("Ok ! ").append(Duration.between(start, chainCplxStep))
+                .append("\n- Creating and reducing the differentials of each quantum grading...").toString());
+
+        updateProgress(0, 1);
+        final int tot = generators.getTotChains();
+        final SparseBiComplex biComplex = new SparseBiComplex(cancellation);
+        final DifferentialBuilder builder = new DifferentialBuilder(atlas, crossingNbr, cancellation, getMarkedPosition(link, markedComponent));
+        final Map<Integer, Map<Integer, int[]>> sizes = new ConcurrentHashMap<>();
+        final AtomicInteger i = new AtomicInteger(0), resumed = new AtomicInteger(0);
+        final AtomicLong bytes = new AtomicLong(0), denseBytes = new AtomicLong(0), maxBytes = new AtomicLong(0), mappedBytes = new AtomicLong(0);
+
+        final Map<Integer, Integer> weights = new HashMap<>();
+        for (final int jGrad : generators.getjGrads()) {
+            final long size = generators.getjComplex(jGrad).values().stream().mapToLong(GeneratorsGroup::getSize).sum();
+            weights.put(jGrad, (int) Math.min(Integer.MAX_VALUE, size / SLICE_WEIGHT_UNIT + 1));
+        }
+        final Semaphore permits = new Semaphore(weights.values().stream().mapToInt(Integer::intValue).max().orElse(1));
+
+        generators.getjGrads().parallelStream().forEach(jGrad -> {
+            final HashMap<Integer, GeneratorsGroup> jGens = generators.getjComplex(jGrad);
+            final Checkpoint.Slice saved = checkpoint == null ? null : checkpoint.load(SLICE_PIECE + jGrad, Checkpoint.Slice.class);
+            if (saved != null) {
+                saved.getDifferentials().forEach((iGrad, diff) -> biComplex.setijDiff(iGrad, jGrad, diff));
+                sizes.put(jGrad, saved.getSizes());
+                resumed.incrementAndGet();
+                updateProgress(i.addAndGet(jGens.size()), tot);
+                return;
+            }
+
+            final Map<Integer, SparseMatrix> jComp = new ConcurrentHashMap<>();
+
+            permits.acquireUninterruptibly(weights.get(jGrad));
+            try {
+                cancellation.check();
+                jGens.keySet().parallelStream().forEach(iGrad -> {
+                    final SparseMatrix diff = builder.getijDiff(jGens.get(iGrad), jGens.get(iGrad + 1));
+                    jComp.put(iGrad, storage == null ? diff : storage.spill(diff));
+                    updateProgress(i.incrementAndGet(), tot);
+                });
+
+                final long jBytes = jComp.values().stream().mapToLong(SparseMatrix::getByteSize).sum();
+                bytes.addAndGet(jBytes);
+                maxBytes.accumulateAndGet(jBytes, Math::max);
+                denseBytes.addAndGet(jComp.values().stream().mapToLong(SparseMatrix::getDenseByteSize).sum());
+                mappedBytes.addAndGet(jComp.values().stream().filter(SparseMatrix::isMapped).mapToLong(SparseMatrix::getByteSize).sum());
+
+                final Map<Integer, int[]> jSizes = biComplex.setjComplex(jGrad, jComp);
+                sizes.put(jGrad, jSizes);
+                if (checkpoint != null) {
+                    checkpoint.save(SLICE_PIECE + jGrad, new Checkpoint.Slice(biComplex.getjComplex(jGrad), jSizes));
                 }
-            } else if (bases2 == null) {
-                return IntegerMatrix.getEmpty(1, bases1.size());
+            } finally {
+                permits.release(weights.get(jGrad));
             }
+        });
+
+        final Instant reductionStep = Instant.now();
+        updateMessage(infos.append("Ok ! ").append(Duration.between(chainCplxStep, reductionStep))
+                .append(" (").append(bytes.get() >> 10).append(" kB instead of ")
+                .append(denseBytes.get() >> 10).append(" kB dense, at most ")
+                .append(maxBytes.get() >> 10).append(" kB for one quantum grading")
+                .append(storage == null ? "" : ", " + (mappedBytes.get() >> 10) + " kB written to " + storage.getFile()).append(")")
+                .append(getSizesReport(sizes))
+                .append(resumed.get() == 0 ? "" : "\n" + resumed.get() + " quantum gradings read from the checkpoint")
+                .append("\n- Calculating homology...").toString());
+
+        final BiGradedGroups groups;
+        if (coefficients == Coefficients.RATIONALS) {
+            polynomial = biComplex.getRationalPolynomial();
+            groups = getFreeGroups(polynomial);
+        } else {
+            groups = biComplex.getGroups();
+        }
+        updateMessage(infos.append("Ok ! ").append(Duration.between(reductionStep, Instant.now()))
+                .append(getPolynomialReport(cancellation)).toString());
+        calculateInvariant(atlas, generators, builder, infos, cancellation);
 
-            final int[][] diff = new int[bases2.size()][bases1.size()];
+        final Instant end = Instant.now();
+        updateMessage(infos.append("\nTotal time elapsed : ").append(Duration.between(start, end)).toString());
 
-            for (int i = 0; i < bases1.size(); i++) {
-                for (int j = 0; j < bases2.size(); j++) {
-                    final int[] eks1 = bases1.get(i), eks2 = bases2.get(j);
+        return groups;
+    }
 
-                    //Check if there is exactly 1 difference between the markers of eks1 and eks2 where the one of eks2 is positive and the one of eks1 is negative.
-                    if (Integer.bitCount(eks2[0] - eks1[0]) != 1) {
-                        continue;
-                    }
+    /**
+     * Calculates the homology with the tangle algorithm.
+     *
+     * @param tangle The tangle of the link, possibly read from the checkpoint
+     * with some crossings already added.
+     * @param infos The messages already displayed.
+     * @param start The beginning of the calculation.
+     * @param checkpoint The checkpoint of the calculation, or {@code null}.
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedGroups}.
+     */
+    private BiGradedGroups getTangleGroups(final TangleHomology tangle, final StringBuilder infos, final Instant start,
+            final Checkpoint checkpoint, final Cancellation cancellation) {
+        updateMessage(infos.append("- Adding crossings to the tangle (at most ").append(tangle.getMaxBoundary())
+                .append(" boundary points")
+                .append(tangle.getAddedNbr() == 0 ? "" : ", " + tangle.getAddedNbr() + " read from the checkpoint")
+                .append(")...").toString());
+
+        updateProgress(tangle.getAddedNbr(), crossingNbr);
+        Instant saving = Instant.now();
+        while (tangle.hasNextCrossing()) {
+            tangle.addNextCrossing(cancellation);
+            updateProgress(tangle.getAddedNbr(), crossingNbr);
+
+            if (checkpoint != null && tangle.hasNextCrossing() && Duration.between(saving, Instant.now()).compareTo(Checkpoint.INTERVAL) >= 0) {
+                checkpoint.save(TANGLE_PIECE, tangle);
+                saving = Instant.now();
+            }
+        }
 
-                    final ArrayList<ArrayList<Integer>> circles1 = resolution.getNonEmptyCircles(eks1[0]);
-                    final ArrayList<ArrayList<Integer>> circles2 = resolution.getNonEmptyCircles(eks2[0]);
+        final Instant tangleStep = Instant.now();
+        updateMessage(infos.append("Ok ! ").append(Duration.between(start, tangleStep))
+                .append(" (").append(tangle.getObjectNbr()).append(" generators left)")
+                .append("\n- Calculating homology...").toString());
+
+        final BiGradedGroups groups;
+        switch (coefficients) {
+            case MOD_2:
+                groups = tangle.getMod2Groups(cancellation);
+                break;
+            case RATIONALS:
+                polynomial = tangle.getRationalPolynomial(cancellation);
+                groups = getFreeGroups(polynomial);
+                break;
+            default:
+                groups = tangle.getGroups(cancellation);
+        }
 
-                    final ArrayList<ArrayList<Integer>> lessCircles, moreCircles;
-                    if (circles1.size() > circles2.size()) {
-                        lessCircles = circles2;
-                        moreCircles = circles1;
-                    } else {
-                        lessCircles = circles1;
-                        moreCircles = circles2;
-                    }
+        final Instant end = Instant.now();
+        updateMessage(infos.append("Ok ! ").append(Duration.between(tangleStep, end))
+                .append(getPolynomialReport(cancellation))
+                .append("\nTotal time elapsed : ").append(Duration.between(start, end)).toString());
 
-                    int lCircDiffIndex = 0, mCircDiffIndex1 = 0, mCircDiffIndex2 = 0;
-                    for (int k = 0; k < lessCircles.size(); k++) {
-                        if (!moreCircles.contains(lessCircles.get(k))) {
-                            lCircDiffIndex = k;
-                            break;
-                        }
-                    }
-                    boolean first = true;
-                    for (int k = 0; k < moreCircles.size(); k++) {
-                        if (!lessCircles.contains(moreCircles.get(k))) {
-                            if (first) {
-                                mCircDiffIndex1 = k;
-                                first = false;
-                            } else {
-                                mCircDiffIndex2 = k;
-                                break;
-                            }
-                        }
-                    }
+        return groups;
+    }
 
-                    final int diffMarkerIndex = IntegerCalc.log2(eks2[0] - eks1[0]);
-
-                    if (circles1.size() > circles2.size()) {
-                        final int sameCircle2Marker = ((eks2[1] >> (lCircDiffIndex + 1)) << lCircDiffIndex) + (eks2[1] % IntegerCalc.pow2(lCircDiffIndex));
-                        int sameCircle1Marker = ((eks1[1] >> (mCircDiffIndex1 + 1)) << mCircDiffIndex1) + (eks1[1] % IntegerCalc.pow2(mCircDiffIndex1));
-                        sameCircle1Marker = ((sameCircle1Marker >> mCircDiffIndex2) << (mCircDiffIndex2 - 1)) + (sameCircle1Marker % (IntegerCalc.pow2(mCircDiffIndex2) / 2));
-
-                        if (sameCircle1Marker != sameCircle2Marker) {
-                            continue;
-                        }
-
-                        final int sign11 = (eks1[1] >> mCircDiffIndex1) & 1;
-                        final int sign12 = (eks1[1] >> mCircDiffIndex2) & 1;
-                        final int sign21 = (eks2[1] >> lCircDiffIndex) & 1;
-
-                        if ((sign11 != sign12 && sign21 == 0) || (sign11 == 1 && sign12 == 1 && sign21 == 1)) {
-                            diff[j][i] = (crossingNbr - diffMarkerIndex - 1 - Integer.bitCount(eks1[0] >> diffMarkerIndex + 1)) % 2 == 0 ? 1 : -1;
-                        }
-                    } else {
-                        final int sameCircle1Marker = ((eks1[1] >> (lCircDiffIndex + 1)) << lCircDiffIndex) + (eks1[1] % IntegerCalc.pow2(lCircDiffIndex));
-                        int sameCircle2Marker = ((eks2[1] >> (mCircDiffIndex1 + 1)) << mCircDiffIndex1) + (eks2[1] % IntegerCalc.pow2(mCircDiffIndex1));
-                        sameCircle2Marker = ((sameCircle2Marker >> mCircDiffIndex2) << (mCircDiffIndex2 - 1)) + (sameCircle2Marker % (IntegerCalc.pow2(mCircDiffIndex2) / 2));
-
-                        if (sameCircle1Marker != sameCircle2Marker) {
-                            continue;
-                        }
-
-                        final int sign11 = (eks1[1] >> lCircDiffIndex) % 2;
-                        final int sign21 = (eks2[1] >> mCircDiffIndex1) % 2;
-                        final int sign22 = (eks2[1] >> mCircDiffIndex2) % 2;
-                        if ((sign21 != sign22 && sign11 == 1) || (sign11 == 0 && sign21 == 0 && sign22 == 0)) {
-                            diff[j][i] = (crossingNbr - diffMarkerIndex - 1 - Integer.bitCount(eks1[0] >> diffMarkerIndex + 1)) % 2 == 0 ? 1 : -1;
-                        }
-                    }
+    /**
+     * Calculates the homology with coefficients in Z/2 : the differentials are
+     * built as bit matrices whose ranks give the dimensions of the homology
+     * groups, each bigrading being calculated in parallel and dropped once its
+     * rank is known. The ranks of the quantum gradings found in the
+     * checkpoint aren't calculated again.
+     *
+     * @param atlas The atlas of the resolutions.
+     * @param generators The generators of the chain complex.
+     * @param infos The messages already displayed.
+     * @param start The beginning of the calculation.
+     * @param chainCplxStep The end of the creation of the chain complex.
+     * @param checkpoint The checkpoint of the calculation, or {@code null}.
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedGroups}, each group being a sum of Z/2.
+     *
+     * @throws MathsArgumentException If the Rasmussen invariant can't be
+     * calculated.
+     */
+    private BiGradedGroups getMod2Groups(final ResolutionAtlas atlas, final GeneratorsChainComplex generators, final StringBuilder infos,
+            final Instant start, final Instant chainCplxStep, final Checkpoint checkpoint, final Cancellation cancellation) throws MathsArgumentException {
+        updateProgress(0, 1);
+        final int tot = generators.getTotChains();
+        final DifferentialBuilder builder = new DifferentialBuilder(atlas, crossingNbr, cancellation, getMarkedPosition(link, markedComponent));
+        final BiGradedGroups groups = new BiGradedGroups();
+        final AtomicInteger i = new AtomicInteger(0);
+        final AtomicInteger resumed = new AtomicInteger(0);
+        final AtomicLong maxBytes = new AtomicLong(0);
+
+        generators.getjGrads().parallelStream().forEach(jGrad -> {
+            final HashMap<Integer, GeneratorsGroup> jComp = generators.getjComplex(jGrad);
+            final Map<Integer, int[]> dimRanks = new ConcurrentHashMap<>();
+            final int[][] saved = checkpoint == null ? null : checkpoint.load(RANKS_PIECE + jGrad, int[][].class);
+            if (saved != null) {
+                for (final int[] dimRank : saved) {
+                    dimRanks.put(dimRank[0], new int[]{dimRank[1], dimRank[2]});
+                }
+                resumed.incrementAndGet();
+                updateProgress(i.addAndGet(jComp.size()), tot);
+            } else {
+                jComp.keySet().parallelStream().forEach(iGrad -> {
+                    final BitMatrix diff = builder.getijMod2Diff(jComp.get(iGrad), jComp.get(iGrad + 1));
+                    maxBytes.accumulateAndGet(diff.getByteSize(), Math::max);
+                    dimRanks.put(iGrad, new int[]{diff.getRowNbr(), diff.getRank(cancellation)});
+                    updateProgress(i.incrementAndGet(), tot);
+                });
+                if (checkpoint != null) {
+                    checkpoint.save(RANKS_PIECE + jGrad, dimRanks.entrySet().stream()
+                            .map(entry -> new int[]{entry.getKey(), entry.getValue()[0], entry.getValue()[1]}).toArray(int[][]::new));
                 }
             }
+            groups.setjMod2Groups(jGrad, dimRanks);
+        });
 
-            return new IntegerMatrix(diff);
-        } catch (final MathsArgumentException ex) {
-            KhovaLog.addLog(ex);
-            this.cancel();
+        updateMessage(infos.append("Ok ! ").append(Duration.between(chainCplxStep, Instant.now()))
+                .append(" (largest differential : ").append(maxBytes.get() >> 10).append(" kB")
+                .append(resumed.get() == 0 ? "" : ", " + resumed.get() + " quantum gradings read from the checkpoint").append(")").toString());
+
+        calculateInvariant(atlas, generators, builder, infos, cancellation);
+
+        final Instant end = Instant.now();
+        updateMessage(infos.append("\nTotal time elapsed : ").append(Duration.between(start, end)).toString());
+
+        return groups;
+    }
+
+    /**
+     * Calculates the Rasmussen invariant, if it is asked for, from the
+     * generators and the resolutions of the Khovanov complex.
+     *
+     * @param atlas The atlas of the resolutions.
+     * @param generators The generators of the chain complex.
+     * @param builder The builder of the differentials.
+     * @param infos The messages already displayed.
+     * @param cancellation The checks stopping the calculation.
+     */
+    private void calculateInvariant(final ResolutionAtlas atlas, final GeneratorsChainComplex generators, final DifferentialBuilder builder,
+            final StringBuilder infos, final Cancellation cancellation) {
+        if (!invariantAsked) {
+            return;
+        }
+
+        final Instant invariantStart = Instant.now();
+        updateMessage(infos.append("\n- Calculating the Rasmussen invariant from the Bar-Natan complex over Z/2...").toString());
+        final RasmussenInvariant invariant = new RasmussenInvariant(atlas, generators, builder, negCross, posCross, cancellation);
+        rasmussenInvariant = invariant.getInvariant();
+        updateMessage(infos.append("Ok ! ").append(Duration.between(invariantStart, Instant.now()))
+                .append("\nRasmussen invariant : s = ").append(rasmussenInvariant)
+                .append(" (filtration degrees ").append(Arrays.toString(invariant.getDegrees())).append(")").toString());
+    }
+
+    /**
+     * Sets the cache consulted before the calculation and storing its result.
+     * The default cache is {@link ResultCache#getInstance()}.
+     *
+     * @param cache The {@code ResultCache}, or {@code null} to always
+     * calculate.
+     */
+    public void setCache(final ResultCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the base directory of the checkpoints of the calculation. The
+     * default one is {@code Checkpoints}, in the working directory.
+     *
+     * @param directory The base directory, or {@code null} to never
+     * checkpoint the calculation.
+     */
+    public void setCheckpointDirectory(final Path directory) {
+        checkpointDirectory = directory;
+    }
+
+    /**
+     * Chooses between the reduced and the unreduced homology. The marked point
+     * of the reduced homology is on the component of the first arc of the
+     * link code (of the link as entered), unless another component is chosen.
+     *
+     * @param reduced {@code true} to calculate the reduced homology.
+     */
+    public void setReduced(final boolean reduced) {
+        if (!reduced) {
+            markedComponent = -1;
+        } else if (markedComponent < 0) {
+            markedComponent = getDefaultComponent(simplifier.getOriginal());
+        }
+    }
+
+    /**
+     * Calculates the reduced homology, the marked point being on a given
+     * component. The reduced homology doesn't depend on the arc of the
+     * component chosen.
+     *
+     * @param component The index of the component in the Gauss code.
+     *
+     * @throws IllegalArgumentException If the link has no such component.
+     */
+    public void setMarkedComponent(final int component) {
+        if (component < 0 || component >= link.getNbCompo()) {
+            throw new IllegalArgumentException("The link has no component " + component + ".");
+        }
+        markedComponent = component;
+    }
+
+    /**
+     * Returns the component of the marked point of the reduced homology.
+     *
+     * @return The index of the component in the Gauss code, or -1 for the
+     * unreduced homology.
+     */
+    public int getMarkedComponent() {
+        return markedComponent;
+    }
+
+    /**
+     * Returns the component of the first arc of the link code, marked by
+     * default in the reduced homology : the arc going into the first crossing
+     * along its over strand if it is positive, along its under strand
+     * otherwise. The simplified link keeps the components in the same order.
+     *
+     * @param link The link.
+     *
+     * @return The index of the component.
+     */
+    public static int getDefaultComponent(final Link link) {
+        final int[][] gauss = link.getGauss();
+        for (int compo = 0; link.getNbCross() > 0 && compo < gauss.length; compo++) {
+            for (final int signed : gauss[compo]) {
+                if (signed == (link.getSigns()[0] ? 1 : -1)) {
+                    return compo;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a position of the link code on the marked component : the arc
+     * going into its first crossing.
+     *
+     * @param link The link.
+     * @param markedComponent The marked component, or -1.
+     *
+     * @return The position, or -1 if no component is marked or if the marked
+     * one goes through no crossing.
+     */
+    static int getMarkedPosition(final Link link, final int markedComponent) {
+        if (markedComponent < 0 || link.getGauss()[markedComponent].length == 0) {
+            return -1;
+        }
+
+        final int first = link.getGauss()[markedComponent][0];
+        final int cross = Math.abs(first);
+        return (first > 0) == link.getSigns()[cross - 1] ? 4 * cross - 4 : 4 * cross - 1;
+    }
+
+    /**
+     * Asks for the Rasmussen invariant of a knot along with its homology. It
+     * is calculated from the cube of resolutions, whose generators are shared
+     * by both calculations : the cache and the tangle algorithm aren't used.
+     * When the cube can't be built (above 24 crossings, or with more heap than
+     * available), only the homology is calculated and the refusal is
+     * reported in the messages.
+     *
+     * @param rasmussen {@code true} to calculate the Rasmussen invariant.
+     */
+    public void setRasmussen(final boolean rasmussen) {
+        this.rasmussen = rasmussen;
+    }
+
+    /**
+     * Returns the Rasmussen invariant over Z/2, available once a calculation
+     * asking for it succeeded on a knot.
+     *
+     * @return The invariant, or {@code null} if it isn't calculated.
+     */
+    public Integer getRasmussenInvariant() {
+        return rasmussenInvariant;
+    }
+
+    /**
+     * Tells why the cube of resolutions needed by the Rasmussen invariant
+     * can't be built, before anything is allocated : the link has too many
+     * crossings, or the heap predicted for the cube exceeds the heap
+     * available (and the heap budget).
+     *
+     * @return The reason, or {@code null} if the cube can be built.
+     */
+    private String getInvariantRefusal() {
+        if (crossingNbr > ResolutionAtlas.MAX_CROSSINGS) {
+            return "which can't be built above " + ResolutionAtlas.MAX_CROSSINGS + " crossings";
         }
 
+        final Runtime runtime = Runtime.getRuntime();
+        final long available = Math.min(CalculationPlan.getAvailableHeap(), budget.getHeapBytes() - runtime.totalMemory() + runtime.freeMemory());
+        final CalculationPlan plan = new CalculationPlan(link, coefficients, true);
+        final CalculationPlan.Admission admission = plan.getAdmission(available);
+        if (admission == CalculationPlan.Admission.REFUSE || admission == CalculationPlan.Admission.SPILL && scratchDirectory == null) {
+            return "predicted to use " + (plan.getHeapBytes() >> 20) + " MB of heap with " + (available >> 20) + " MB available";
+        }
         return null;
     }
+
+    /**
+     * Returns the coefficients of the homology : the ones asked for, or Z/2
+     * if the calculation was degraded to stay within its heap budget.
+     *
+     * @return The {@code Coefficients}.
+     */
+    public Coefficients getCoefficients() {
+        return coefficients;
+    }
+
+    /**
+     * Returns the homology groups, available once a calculation succeeded :
+     * each group of a calculation over Z/2 is a sum of Z/2, stored as torsion
+     * coefficients equal to 2.
+     *
+     * @return The {@code BiGradedGroups}, or {@code null} if they aren't
+     * calculated.
+     */
+    public BiGradedGroups getGroups() {
+        return groups;
+    }
+
+    /**
+     * Returns the Khovanov polynomial, available once a calculation over the
+     * rationals succeeded.
+     *
+     * @return The {@code KhovanovPolynomial}, or {@code null} if it isn't
+     * calculated.
+     */
+    public KhovanovPolynomial getPolynomial() {
+        return polynomial;
+    }
+
+    /**
+     * Builds the free groups whose ranks are the coefficients of a Khovanov
+     * polynomial.
+     *
+     * @param polynomial The {@code KhovanovPolynomial}.
+     *
+     * @return The {@code BiGradedGroups}.
+     */
+    private static BiGradedGroups getFreeGroups(final KhovanovPolynomial polynomial) {
+        final BiGradedGroups groups = new BiGradedGroups();
+        polynomial.getTerms().forEach((iGrad, iTerms) -> iTerms.forEach((jGrad, coef) -> groups.setijGroup(iGrad, jGrad, coef, new int[0])));
+
+        return groups;
+    }
+
+    /**
+     * Describes the Khovanov polynomial if it is calculated, and checks its
+     * Euler characteristic against the Jones polynomial when the link is small
+     * enough.
+     *
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The polynomial, or an empty text.
+     */
+    private String getPolynomialReport(final Cancellation cancellation) {
+        if (polynomial == null) {
+            return "";
+        }
+
+        final StringBuilder report = new StringBuilder("\nKhovanov polynomial : ").append(polynomial);
+        if (crossingNbr <= JONES_CHECK_MAX_CROSSINGS) {
+            //The reduced polynomial times the one of the unknot has the Euler characteristic of the unreduced one.
+            final KhovanovPolynomial unreduced = markedComponent < 0 ? polynomial : KunnethFormula.tensor(polynomial, getUnknotPolynomial());
+            report.append("\nEuler characteristic check against the Jones polynomial : ")
+                    .append(new JonesPolynomial(new ResolutionCensus(link, cancellation), link.getSigns()).isEulerCharacteristicOf(unreduced) ? "Ok" : "Failed");
+        }
+
+        return report.toString();
+    }
+
+    private static KhovanovPolynomial getUnknotPolynomial() {
+        final KhovanovPolynomial unknot = new KhovanovPolynomial();
+        unknot.setCoefficient(0, -1, 1);
+        unknot.setCoefficient(0, 1, 1);
+        return unknot;
+    }
+
+    /**
+     * Describes the sizes of the chain groups before and after the reduction.
+     *
+     * @param sizes The sizes, by quantum and homological grading.
+     *
+     * @return The total sizes followed by one line for each bigrading.
+     */
+    private static String getSizesReport(final Map<Integer, Map<Integer, int[]>> sizes) {
+        final StringBuilder lines = new StringBuilder();
+        long before = 0, after = 0;
+
+        for (final int jGrad : new TreeMap<>(sizes).keySet()) {
+            for (final Map.Entry<Integer, int[]> entry : sizes.get(jGrad).entrySet()) {
+                lines.append("\n\t(").append(entry.getKey()).append(", ").append(jGrad).append(") : ")
+                        .append(entry.getValue()[0]).append(" -> ").append(entry.getValue()[1]);
+                before += entry.getValue()[0];
+                after += entry.getValue()[1];
+            }
+        }
+
+        return " (" + after + " generators left out of " + before + ")" + lines;
+    }
+
+    /**
+     * Enumerates the generators of the chain complex, the resolutions being
+     * split in ranges filled in parallel.
+     *
+     * @param atlas The atlas of the resolutions.
+     * @param cancellation The checks stopping the calculation, made for each
+     * range.
+     *
+     * @return The {@code GeneratorsChainComplex}.
+     *
+     * @throws MathsArgumentException If the link has too many crossings.
+     */
+    private GeneratorsChainComplex getGenerators(final ResolutionAtlas atlas, final Cancellation cancellation) throws MathsArgumentException {
+        final int resolNbr = IntegerCalc.pow2(crossingNbr);
+        final GeneratorsChainComplex generators = new GeneratorsChainComplex(resolNbr, markedComponent >= 0);
+        final AtomicLong done = new AtomicLong(0);
+
+        generators.addResolutions(atlas, negCross, posCross, resols -> {
+            cancellation.check();
+            updateProgress(done.addAndGet(resols), resolNbr);
+        });
+
+        return generators;
+    }
 }
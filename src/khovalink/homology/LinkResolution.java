@@ -1,16 +1,28 @@
 package khovalink.homology;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import khovalink.persistence.Link;
 
 /**
- * Class used to calculate the number of circles resulting in applying a certain
- * resolution to a link.
+ * Class used to calculate the circles resulting in applying a certain resolution
+ * to a link.
+ * <p>
+ * A single resolution is calculated by walking along its circles. Ranges of
+ * resolutions are visited in Gray-code order by a {@code GrayWalk} instead :
+ * two consecutive resolutions differ at one crossing, whose new smoothing
+ * merges two circles or splits one, so only the smaller circle involved is
+ * walked.
  *
  * @author flo
  */
 final class LinkResolution {
 
+    /**
+     * Number of resolutions of the ranges visited by a single
+     * {@code GrayWalk} when the resolutions are split between workers.
+     */
+    static final int GRAY_RANGE_SIZE = 1 << 12;
+
     private final int[] linkCode;
     private final int mask;
 
@@ -42,24 +54,55 @@ final class LinkResolution {
     }
 
     /**
-     * Calculates the number of circles given by this resolution.
+     * Returns the number of circles of the link which don't go through any
+     * crossing.
+     *
+     * @return The number of unlinked circles.
+     */
+    int getUnlinkedNbr() {
+        return unlinkedNbr;
+    }
+
+    /**
+     * Labels every position of the link code with the circle going through it
+     * in this resolution. Non empty circles are numbered in the order they are
+     * found, that is by their smallest position, which is also the order of
+     * their markers.
      *
      * @param resol The resolution number.
      *
-     * @return The number of circles.
+     * @return The circle's number of each position.
      */
-    int calculateCirclesNbr(final int resol) {
+    int[] getCirclesLabels(final int resol) {
+        final int[] labels = new int[linkCode.length];
+        labelCircles(resol, labels);
+
+        return labels;
+    }
+
+    /**
+     * Labels every position of the link code with the circle going through it
+     * in this resolution, in a buffer given by the caller so that nothing is
+     * allocated.
+     *
+     * @param resol The resolution number.
+     * @param labels The buffer receiving the circle's number of each position
+     * (of the size of the link code).
+     *
+     * @return The number of circles going through crossings.
+     */
+    int labelCircles(final int resol, final int[] labels) {
         final int marker = resol ^ mask;
-        final int[] code = linkCode.clone();
+        Arrays.fill(labels, -1);
 
-        int circleNbr = 0, startPos = 0, pos;
+        int circleNbr = 0, pos;
 
-        while (startPos < code.length) {
-            if (code[startPos] != -1) {
+        for (int startPos = 0; startPos < labels.length; startPos++) {
+            if (labels[startPos] == -1) {
                 pos = startPos;
 
-                while (code[pos] != -1) {
-                    code[pos] = -1;
+                while (labels[pos] == -1) {
+                    labels[pos] = circleNbr;
                     if ((marker >> (pos / 4) & 1) == 1) {
                         pos += pos % 2 == 0 ? 1 : -1;
                     } else {
@@ -78,69 +121,186 @@ final class LinkResolution {
                                 break;
                         }
                     }
-                    final int tmpPos = pos;
-                    pos = code[pos];
-                    code[tmpPos] = -1;
+                    labels[pos] = circleNbr;
+                    pos = linkCode[pos];
                 }
                 circleNbr++;
             }
-            startPos++;
         }
 
-        return circleNbr + unlinkedNbr;
+        return circleNbr;
     }
 
     /**
-     * Gives the list of non empty circles given by this resolution (a circle is
-     * made of the positions it goes through).
+     * Returns the resolution visited at some index of the Gray-code order.
      *
-     * @param resol The resolution number.
+     * @param index The index in the Gray-code order.
      *
-     * @return The of circles's list.
+     * @return The resolution number.
      */
-    ArrayList<ArrayList<Integer>> getNonEmptyCircles(final int resol) {
-        final ArrayList<ArrayList<Integer>> circlesList = new ArrayList<>();
-        final int marker = resol ^ mask;
-        final int[] code = linkCode.clone();
+    static int getGrayResol(final int index) {
+        return index ^ index >>> 1;
+    }
 
-        int pos, startPos = 0;
+    /**
+     * Starts a walk through the resolutions in Gray-code order.
+     *
+     * @param index The index in the Gray-code order of the first resolution.
+     *
+     * @return The {@code GrayWalk}, on the resolution {@code getGrayResol(index)}.
+     */
+    GrayWalk startGrayWalk(final int index) {
+        return new GrayWalk(index);
+    }
 
-        while (startPos < code.length) {
-            if (code[startPos] != -1) {
-                final ArrayList<Integer> circle = new ArrayList<>();
-                pos = startPos;
+    /**
+     * Inner class following the circles of the resolutions visited in
+     * Gray-code order. Every position has the number of its circle (not the
+     * label of {@link #labelCircles}, the numbers being reused as the circles
+     * merge and split) and every circle its number of positions.
+     */
+    final class GrayWalk {
 
-                while (code[pos] != -1) {
-                    circle.add(pos);
-                    code[pos] = -1;
-                    if ((marker >> (pos / 4) & 1) == 1) {
-                        pos += pos % 2 == 0 ? 1 : -1;
-                    } else {
-                        switch (pos % 4) {
-                            case 0:
-                                pos += 3;
-                                break;
-                            case 1:
-                                pos++;
-                                break;
-                            case 2:
-                                pos--;
-                                break;
-                            case 3:
-                                pos -= 3;
-                                break;
-                        }
+        private final int[] circleOf = new int[linkCode.length];
+        private final int[] sizes = new int[linkCode.length / 2 + 1];
+        private final int[] freeIds = new int[sizes.length];
+        private int freeNbr = 0;
+
+        private final int[] labelOf = new int[sizes.length];
+        private final int[] stamps = new int[sizes.length];
+        private int stamp = 0;
+
+        private int index;
+        private int resol;
+        private int marker;
+        private int circleNbr;
+
+        private GrayWalk(final int index) {
+            this.index = index;
+            resol = getGrayResol(index);
+            marker = resol ^ mask;
+            circleNbr = labelCircles(resol, circleOf);
+
+            for (final int circle : circleOf) {
+                sizes[circle]++;
+            }
+            for (int id = sizes.length - 1; id >= circleNbr; id--) {
+                freeIds[freeNbr++] = id;
+            }
+        }
+
+        /**
+         * Returns the current resolution.
+         *
+         * @return The resolution number.
+         */
+        int getResol() {
+            return resol;
+        }
+
+        /**
+         * Returns the number of circles of the current resolution.
+         *
+         * @return The number of circles going through crossings.
+         */
+        int getCircleNbr() {
+            return circleNbr;
+        }
+
+        /**
+         * Labels every position with the circle going through it in the
+         * current resolution, as {@link #labelCircles} does.
+         *
+         * @param labels The buffer receiving the circle's number of each
+         * position.
+         */
+        void fillLabels(final int[] labels) {
+            stamp++;
+            int next = 0;
+            for (int pos = 0; pos < circleOf.length; pos++) {
+                final int circle = circleOf[pos];
+                if (stamps[circle] != stamp) {
+                    stamps[circle] = stamp;
+                    labelOf[circle] = next++;
+                }
+                labels[pos] = labelOf[circle];
+            }
+        }
+
+        /**
+         * Moves to the next resolution in Gray-code order, which changes the
+         * smoothing of one crossing.
+         */
+        void next() {
+            final int crossing = Integer.numberOfTrailingZeros(++index);
+            final int pos1 = 4 * crossing, pos2 = pos1 + 2;
+            final int circle1 = circleOf[pos1], circle2 = circleOf[pos2];
+
+            if (circle1 != circle2) {
+                //Merge : the smaller circle is renumbered before the smoothing changes.
+                final int small = sizes[circle1] < sizes[circle2] ? circle1 : circle2;
+                final int large = small == circle1 ? circle2 : circle1;
+                relabel(small == circle1 ? pos1 : pos2, large);
+                sizes[large] += sizes[small];
+                sizes[small] = 0;
+                freeIds[freeNbr++] = small;
+                circleNbr--;
+                flip(crossing);
+            } else {
+                //Split : both new circles are walked together until the smaller one is closed.
+                flip(crossing);
+                int cursor1 = pos1, cursor2 = pos2, length = 0;
+                while (true) {
+                    length += 2;
+                    cursor1 = step(cursor1);
+                    cursor2 = step(cursor2);
+                    if (cursor1 == pos1 || cursor2 == pos2) {
+                        break;
                     }
-                    circle.add(pos);
-                    final int tmpPos = pos;
-                    pos = code[pos];
-                    code[tmpPos] = -1;
                 }
-                circlesList.add(circle);
+                final int id = freeIds[--freeNbr];
+                relabel(cursor1 == pos1 ? pos1 : pos2, id);
+                sizes[id] = length;
+                sizes[circle1] -= length;
+                circleNbr++;
             }
-            startPos++;
         }
 
-        return circlesList;
+        /**
+         * Changes the smoothing of a crossing.
+         *
+         * @param crossing The crossing.
+         */
+        private void flip(final int crossing) {
+            resol ^= 1 << crossing;
+            marker ^= 1 << crossing;
+        }
+
+        /**
+         * Goes from a position to the next one of its circle through the
+         * smoothing of its crossing then the link.
+         *
+         * @param pos The position.
+         *
+         * @return The position reached.
+         */
+        private int step(final int pos) {
+            return linkCode[(marker >> (pos / 4) & 1) == 1 ? pos ^ 1 : pos ^ 3];
+        }
+
+        /**
+         * Renumbers a whole circle.
+         *
+         * @param start A position of the circle.
+         * @param circle The new number.
+         */
+        private void relabel(final int start, final int circle) {
+            int pos = start;
+            do {
+                circleOf[pos] = circle;
+                circleOf[(marker >> (pos / 4) & 1) == 1 ? pos ^ 1 : pos ^ 3] = circle;
+                pos = step(pos);
+            } while (pos != start);
+        }
     }
 }
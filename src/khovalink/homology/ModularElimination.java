@@ -0,0 +1,128 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+
+/**
+ * Class calculating the rank of a {@code SparseMatrix} over the field with
+ * {@code PRIME} elements.
+ * <p>
+ * The rank modulo a prime {@code p} is the number of invariant factors of the
+ * matrix which aren't divisible by {@code p}, so it is the rational rank
+ * unless the Smith normal form has an invariant factor divisible by
+ * {@code p} : with {@code p = 2^31 - 1}, this would need a torsion of order at
+ * least {@code p} in the integral homology.
+ *
+ * @author flo
+ */
+final class ModularElimination {
+
+    /**
+     * The prime used for the calculations ({@code 2^31 - 1}, products fit in a
+     * {@code long}).
+     */
+    static final long PRIME = 2147483647L;
+
+    private final int rank;
+
+    /**
+     * Calculates the rank of a matrix : rows are taken from the shortest and
+     * reduced by the pivot rows already found until their leading column
+     * isn't the one of a pivot, then they become a new pivot or they are zero.
+     *
+     * @param matrix The matrix.
+     * @param cancellation The checks stopping the calculation.
+     */
+    ModularElimination(final SparseMatrix matrix, final Cancellation cancellation) {
+        final int rowNbr = matrix.getRowNbr();
+        final int[][] pivotCols = new int[matrix.getColNbr()][];
+        final long[][] pivotVals = new long[matrix.getColNbr()][];
+
+        final Integer[] order = new Integer[rowNbr];
+        for (int r = 0; r < rowNbr; r++) {
+            order[r] = r;
+        }
+        Arrays.sort(order, (r1, r2) -> Integer.compare(matrix.getRowStart(r1 + 1) - matrix.getRowStart(r1),
+                matrix.getRowStart(r2 + 1) - matrix.getRowStart(r2)));
+
+        int found = 0;
+        for (final int r : order) {
+            cancellation.check();
+            final int from = matrix.getRowStart(r);
+            int[] cols = new int[matrix.getRowStart(r + 1) - from];
+            long[] vals = new long[cols.length];
+            int len = 0;
+            for (int k = 0; k < cols.length; k++) {
+                final long val = Math.floorMod(matrix.getValue(from + k), PRIME);
+                if (val != 0) {
+                    cols[len] = matrix.getColIndex(from + k);
+                    vals[len++] = val;
+                }
+            }
+
+            while (len > 0) {
+                final int lead = cols[0];
+                if (pivotCols[lead] == null) {
+                    final long inverse = inverse(vals[0]);
+                    for (int k = 0; k < len; k++) {
+                        vals[k] = vals[k] * inverse % PRIME;
+                    }
+                    pivotCols[lead] = Arrays.copyOf(cols, len);
+                    pivotVals[lead] = Arrays.copyOf(vals, len);
+                    found++;
+                    break;
+                }
+
+                //Subtracts the pivot (whose leading value is one).
+                final int[] pCols = pivotCols[lead];
+                final long[] pVals = pivotVals[lead];
+                final long factor = vals[0];
+                final int[] nCols = new int[len + pCols.length];
+                final long[] nVals = new long[len + pCols.length];
+                int t = 1, s = 1, n = 0;
+                while (t < len || s < pCols.length) {
+                    if (s == pCols.length || (t < len && cols[t] < pCols[s])) {
+                        nCols[n] = cols[t];
+                        nVals[n++] = vals[t++];
+                    } else {
+                        long val = PRIME - factor * pVals[s] % PRIME;
+                        if (t < len && cols[t] == pCols[s]) {
+                            val += vals[t++];
+                        }
+                        val %= PRIME;
+                        if (val != 0) {
+                            nCols[n] = pCols[s];
+                            nVals[n++] = val;
+                        }
+                        s++;
+                    }
+                }
+                cols = nCols;
+                vals = nVals;
+                len = n;
+            }
+        }
+
+        rank = found;
+    }
+
+    /**
+     * Returns the rank modulo {@code PRIME}.
+     *
+     * @return The rank.
+     */
+    int getRank() {
+        return rank;
+    }
+
+    private static long inverse(final long val) {
+        long result = 1, base = val, exp = PRIME - 2;
+        while (exp > 0) {
+            if ((exp & 1) == 1) {
+                result = result * base % PRIME;
+            }
+            base = base * base % PRIME;
+            exp >>= 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,322 @@
+package khovalink.homology;
+
+import com.sun.management.ThreadMXBean;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import khovalink.KhovaLog;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import maths.exceptions.MathsArgumentException;
+import maths.numbers.IntegerCalc;
+
+/**
+ * Entry class measuring the stages of the calculation of the homology from the
+ * cube of resolutions, without graphical interface : the labelling of the
+ * circles of every resolution, the enumeration of the generators, the
+ * assembly of the differentials and the calculation of the homology.
+ * <p>
+ * The links of a fixed corpus of knots, from 3 to 13 crossings, are each
+ * calculated a few times to warm up the JVM, then measured. Each stage gives
+ * its times, the bytes allocated by all the threads alive at its end and the
+ * work of the garbage collectors, written as one JSON object per line.
+ *
+ * @author flo
+ */
+public final class PipelineBenchmark {
+
+    private static final String USAGE = "Usage : java khovalink.homology.PipelineBenchmark [options]\n"
+            + "  -warmup N            Calculations of each link before the measures (default : 2).\n"
+            + "  -iterations N        Measured calculations of each link (default : 5).\n"
+            + "  -max CROSSINGS       Only measures the links with at most this number of crossings (default : 13).\n"
+            + "  -output FILE         Writes the results in a file instead of the standard output.";
+
+    private static final String[] STAGES = {"circles", "generators", "differentials", "homology"};
+
+    private int warmupNbr = 2;
+    private int iterationNbr = 5;
+    private int maxCrossings = 13;
+    private File output = null;
+
+    /**
+     * Non instanciable class outside of {@link #main}.
+     */
+    private PipelineBenchmark() {
+    }
+
+    /**
+     * Reads the options, then measures every link of the corpus.
+     *
+     * @param args The options.
+     */
+    public static void main(final String[] args) {
+        final PipelineBenchmark benchmark = new PipelineBenchmark();
+        try {
+            benchmark.parse(args);
+        } catch (final IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            benchmark.run();
+        } catch (final LinkException | MathsArgumentException | IOException ex) {
+            KhovaLog.addLog(ex);
+            System.exit(1);
+        } finally {
+            KhovaLog.close();
+        }
+    }
+
+    /**
+     * Reads the options.
+     *
+     * @param args The command line arguments.
+     *
+     * @throws IllegalArgumentException If an option is wrong.
+     */
+    private void parse(final String[] args) {
+        for (int k = 0; k < args.length; k++) {
+            switch (args[k]) {
+                case "-warmup":
+                    warmupNbr = Integer.parseInt(getValue(args, ++k));
+                    break;
+                case "-iterations":
+                    iterationNbr = Integer.parseInt(getValue(args, ++k));
+                    if (iterationNbr < 1) {
+                        throw new IllegalArgumentException("At least one iteration is needed.");
+                    }
+                    break;
+                case "-max":
+                    maxCrossings = Integer.parseInt(getValue(args, ++k));
+                    break;
+                case "-output":
+                    output = new File(getValue(args, ++k));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option : \"" + args[k] + "\".");
+            }
+        }
+    }
+
+    private static String getValue(final String[] args, final int k) {
+        if (k >= args.length) {
+            throw new IllegalArgumentException("Missing value of option \"" + args[k - 1] + "\".");
+        }
+        return args[k];
+    }
+
+    /**
+     * Measures the links of the corpus, from the smallest, and writes the
+     * measures of each link once it is done.
+     *
+     * @throws LinkException If a link of the corpus is wrong.
+     * @throws MathsArgumentException If a homology can't be calculated.
+     * @throws IOException If the output file can't be created.
+     */
+    private void run() throws LinkException, MathsArgumentException, IOException {
+        final String date = Instant.now().toString();
+        try (final PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                output == null ? System.out : new FileOutputStream(output), StandardCharsets.UTF_8))) {
+            for (final Link link : getCorpus()) {
+                if (link.getNbCross() > maxCrossings) {
+                    continue;
+                }
+
+                final Map<String, Measures> measures = new LinkedHashMap<>();
+                for (final String stage : STAGES) {
+                    measures.put(stage, new Measures());
+                }
+                for (int k = 0; k < warmupNbr; k++) {
+                    calculate(link, null);
+                }
+                for (int k = 0; k < iterationNbr; k++) {
+                    calculate(link, measures);
+                }
+
+                measures.forEach((stage, measure) -> writer.println(measure.toJson(date, link, stage)));
+                writer.flush();
+                System.err.println(link.getName() + " measured.");
+            }
+        }
+    }
+
+    /**
+     * Calculates the homology of a link from the cube of resolutions, stage by
+     * stage.
+     *
+     * @param link The link.
+     * @param measures The measures of each stage, or {@code null} for a warmup.
+     *
+     * @throws MathsArgumentException If the homology can't be calculated.
+     */
+    private static void calculate(final Link link, final Map<String, Measures> measures) throws MathsArgumentException {
+        final int crossingNbr = link.getNbCross();
+        int negCross = 0;
+        for (final boolean sign : link.getSigns()) {
+            negCross += sign ? 0 : 1;
+        }
+        final int posCross = crossingNbr - negCross;
+
+        Probe probe = new Probe();
+        final ResolutionAtlas atlas = new ResolutionAtlas(new LinkResolution(link), crossingNbr);
+        probe = probe.record(measures, STAGES[0]);
+
+        final GeneratorsChainComplex generators = new GeneratorsChainComplex(IntegerCalc.pow2(crossingNbr));
+        generators.addResolutions(atlas, negCross, posCross, resols -> {
+        });
+        probe = probe.record(measures, STAGES[1]);
+
+        final DifferentialBuilder builder = new DifferentialBuilder(atlas, crossingNbr, Cancellation.NONE);
+        final Map<Integer, Map<Integer, SparseMatrix>> differentials = new HashMap<>();
+        generators.getjGrads().parallelStream().forEach(jGrad -> {
+            final Map<Integer, SparseMatrix> jComp = new HashMap<>();
+            final HashMap<Integer, GeneratorsGroup> jGens = generators.getjComplex(jGrad);
+            jGens.forEach((iGrad, group) -> jComp.put(iGrad, builder.getijDiff(group, jGens.get(iGrad + 1))));
+            synchronized (differentials) {
+                differentials.put(jGrad, jComp);
+            }
+        });
+        probe = probe.record(measures, STAGES[2]);
+
+        final SparseBiComplex biComplex = new SparseBiComplex(Cancellation.NONE);
+        differentials.forEach(biComplex::setjComplex);
+        biComplex.getHomology();
+        probe.record(measures, STAGES[3]);
+    }
+
+    /**
+     * Returns the corpus : closures of braids giving knots from 3 to 13
+     * crossings, alternating or not.
+     *
+     * @return The links, by increasing number of crossings.
+     *
+     * @throws LinkException If a link is wrong.
+     */
+    private static List<Link> getCorpus() throws LinkException {
+        final List<Link> corpus = new ArrayList<>();
+        corpus.add(RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1));
+        corpus.add(RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2));
+        corpus.add(RandomLinkGenerator.closeBraid("5_1", 2, 1, 1, 1, 1, 1));
+        corpus.add(RandomLinkGenerator.closeBraid("5_2", 3, 1, 1, 1, 2, -1, 2));
+        corpus.add(RandomLinkGenerator.closeBraid("6_2", 3, 1, 1, 1, -2, 1, -2));
+        corpus.add(RandomLinkGenerator.closeBraid("7_1", 2, 1, 1, 1, 1, 1, 1, 1));
+        corpus.add(RandomLinkGenerator.closeBraid("8_19", 3, 1, 2, 1, 2, 1, 2, 1, 2));
+        corpus.add(RandomLinkGenerator.closeBraid("8_20", 3, 1, 1, 1, -2, -1, -1, -1, -2));
+        corpus.add(RandomLinkGenerator.closeBraid("9_1", 2, 1, 1, 1, 1, 1, 1, 1, 1, 1));
+        corpus.add(RandomLinkGenerator.closeBraid("10_124", 3, 1, 2, 1, 2, 1, 2, 1, 2, 1, 2));
+        corpus.add(RandomLinkGenerator.closeBraid("11_braid", 4, 1, -2, 3, 1, -2, 3, 1, -2, 3, 1, 1));
+        corpus.add(RandomLinkGenerator.closeBraid("12_braid", 3, 1, 2, 1, 2, 1, 2, 1, 2, 1, 2, 1, 1));
+        corpus.add(RandomLinkGenerator.closeBraid("13_braid", 4, 1, -2, 3, 1, -2, 3, 1, -2, 3, 1, 1, 3, 3));
+        return corpus;
+    }
+
+    /**
+     * Inner class taking the time, the allocated bytes and the work of the
+     * garbage collectors at the beginning of a stage.
+     */
+    private static final class Probe {
+
+        private final long nanos;
+        private final long allocated;
+        private final long gcCount;
+        private final long gcMillis;
+
+        private Probe() {
+            allocated = getAllocatedBytes();
+            long count = 0, millis = 0;
+            for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, collector.getCollectionCount());
+                millis += Math.max(0, collector.getCollectionTime());
+            }
+            gcCount = count;
+            gcMillis = millis;
+            nanos = System.nanoTime();
+        }
+
+        /**
+         * Ends a stage and starts the next one.
+         *
+         * @param measures The measures of each stage, or {@code null} if
+         * nothing is recorded.
+         * @param stage The stage ending.
+         *
+         * @return The {@code Probe} of the next stage.
+         */
+        private Probe record(final Map<String, Measures> measures, final String stage) {
+            final Probe end = new Probe();
+            if (measures != null) {
+                measures.get(stage).add(end.nanos - nanos, end.allocated - allocated, end.gcCount - gcCount, end.gcMillis - gcMillis);
+            }
+            return new Probe();
+        }
+
+        /**
+         * Returns the bytes allocated by the threads alive : the ones of the
+         * threads ended during a stage aren't counted.
+         *
+         * @return The allocated bytes.
+         */
+        private static long getAllocatedBytes() {
+            final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+            return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds())).filter(bytes -> bytes > 0).sum();
+        }
+    }
+
+    /**
+     * Inner class gathering the measures of a stage.
+     */
+    private static final class Measures {
+
+        private final List<Long> nanos = new ArrayList<>();
+        private long allocated = 0;
+        private long gcCount = 0;
+        private long gcMillis = 0;
+
+        private void add(final long stageNanos, final long stageAllocated, final long stageGcCount, final long stageGcMillis) {
+            nanos.add(stageNanos);
+            allocated += Math.max(0, stageAllocated);
+            gcCount += stageGcCount;
+            gcMillis += stageGcMillis;
+        }
+
+        /**
+         * Writes the measures as a JSON object, the times being in
+         * milliseconds and the allocated bytes and the work of the garbage
+         * collectors being given by iteration.
+         *
+         * @param date The beginning of the benchmark.
+         * @param link The link measured.
+         * @param stage The name of the stage.
+         *
+         * @return The JSON object.
+         */
+        private String toJson(final String date, final Link link, final String stage) {
+            final double mean = nanos.stream().mapToLong(Long::longValue).average().orElse(0) / 1e6;
+            final double min = nanos.stream().mapToLong(Long::longValue).min().orElse(0) / 1e6;
+            final double max = nanos.stream().mapToLong(Long::longValue).max().orElse(0) / 1e6;
+            final int iterations = nanos.size();
+
+            return String.format(Locale.ROOT, "{\"date\": \"%s\", \"java\": \"%s\", \"link\": \"%s\", \"crossings\": %d, \"stage\": \"%s\", "
+                    + "\"iterations\": %d, \"meanMillis\": %.3f, \"minMillis\": %.3f, \"maxMillis\": %.3f, "
+                    + "\"allocatedBytes\": %d, \"gcCount\": %.2f, \"gcMillis\": %.2f}",
+                    date, System.getProperty("java.version"), link.getName(), link.getNbCross(), stage,
+                    iterations, mean, min, max, allocated / iterations, (double) gcCount / iterations, (double) gcMillis / iterations);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Class calculating the Rasmussen invariant of a knot from the Bar-Natan
+ * deformation of its Khovanov complex with coefficients in Z/2.
+ * <p>
+ * The deformed differential doesn't lower the quantum grading, which becomes a
+ * filtration : a homology class has the degree {@code q} if one of its cycles
+ * only has generators of quantum grading at least {@code q}. The homology of a
+ * knot is two copies of Z/2 in homological grading 0, of degrees
+ * {@code s - 1} and {@code s + 1} (one copy of degree {@code s} in the reduced
+ * complex), {@code s} being the Rasmussen invariant over Z/2 (Turner).
+ * <p>
+ * Only the homological gradings -1, 0 and 1 are needed, with the generators
+ * and the resolutions of the Khovanov complex. The generators of each grading
+ * are numbered by increasing quantum grading, and a vector is sorted by its
+ * lowest generator. The boundaries are reduced until their lowest generators
+ * are all different, and the cycles likewise by reducing the boundaries of
+ * the generators from the highest : the degrees of the classes are the ones
+ * of the lowest generators of cycles which aren't lowest generators of
+ * boundaries.
+ *
+ * @author flo
+ */
+final class RasmussenInvariant {
+
+    private final int[] degrees;
+
+    /**
+     * Calculates the filtration degrees of the homology of the Bar-Natan
+     * complex of a knot.
+     *
+     * @param atlas The atlas of the resolutions.
+     * @param generators The generators of the Khovanov complex.
+     * @param builder The builder of the differentials of the complex.
+     * @param negCross The number of negative crossings.
+     * @param posCross The number of positive crossings.
+     * @param cancellation The checks stopping the calculation.
+     */
+    RasmussenInvariant(final ResolutionAtlas atlas, final GeneratorsChainComplex generators, final DifferentialBuilder builder,
+            final int negCross, final int posCross, final Cancellation cancellation) {
+        final FilteredGroup before = new FilteredGroup(atlas, generators, -1, negCross, posCross);
+        final FilteredGroup cycles = new FilteredGroup(atlas, generators, 0, negCross, posCross);
+        final FilteredGroup after = new FilteredGroup(atlas, generators, 1, negCross, posCross);
+
+        //Each boundary reduced to zero gives a cycle whose lowest generator is the one of the boundary, the higher ones being reduced first.
+        final int[][] cycleBoundaries = cycles.getBoundaries(builder, after);
+        final int[][] reversed = new int[cycleBoundaries.length][];
+        for (int k = 0; k < reversed.length; k++) {
+            reversed[k] = cycleBoundaries[reversed.length - 1 - k];
+        }
+        final int[] cycleLows = getLows(reversed, cancellation);
+        final int[] boundaryLows = getLows(before.getBoundaries(builder, cycles), cancellation);
+
+        final boolean[] bounding = new boolean[cycles.getSize()];
+        for (final int low : boundaryLows) {
+            if (low >= 0) {
+                bounding[low] = true;
+            }
+        }
+        degrees = IntStream.range(0, reversed.length).filter(k -> cycleLows[k] < 0).map(k -> reversed.length - 1 - k)
+                .filter(gen -> !bounding[gen]).map(cycles::getjGrad).sorted().toArray();
+    }
+
+    /**
+     * Returns the filtration degrees of the homology classes.
+     *
+     * @return The degrees, in increasing order.
+     */
+    int[] getDegrees() {
+        return degrees.clone();
+    }
+
+    /**
+     * Returns the Rasmussen invariant : the mean of the degrees of the
+     * homology classes.
+     *
+     * @return The invariant.
+     *
+     * @throws IllegalStateException If the homology isn't the one of a knot.
+     */
+    int getInvariant() {
+        if (degrees.length == 0 || degrees.length > 2) {
+            throw new IllegalStateException("The Bar-Natan homology has " + degrees.length + " generators instead of 2 (1 if reduced).");
+        }
+        return (degrees[0] + degrees[degrees.length - 1]) / 2;
+    }
+
+    /**
+     * Reduces vectors of Z/2 one after the other by the ones already reduced,
+     * until their lowest index isn't the one of another vector.
+     *
+     * @param vectors The vectors, as sorted indices. They are replaced by
+     * their reductions.
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The lowest index of each reduced vector, or -1 if it is zero.
+     */
+    private static int[] getLows(final int[][] vectors, final Cancellation cancellation) {
+        final int[] lows = new int[vectors.length];
+        final int[][] pivots = new int[Arrays.stream(vectors).mapToInt(vector -> vector.length == 0 ? 0 : vector[vector.length - 1] + 1).max().orElse(0)][];
+
+        for (int v = 0; v < vectors.length; v++) {
+            cancellation.check();
+            int[] vector = vectors[v];
+            while (vector.length > 0 && pivots[vector[0]] != null) {
+                vector = add(vector, pivots[vector[0]]);
+            }
+            vectors[v] = vector;
+            lows[v] = vector.length == 0 ? -1 : vector[0];
+            if (vector.length > 0) {
+                pivots[vector[0]] = vector;
+            }
+        }
+
+        return lows;
+    }
+
+    /**
+     * Adds two vectors of Z/2.
+     *
+     * @param vector1 The indices of the first vector, sorted.
+     * @param vector2 The indices of the second vector, sorted.
+     *
+     * @return The sorted indices of the sum.
+     */
+    private static int[] add(final int[] vector1, final int[] vector2) {
+        final int[] sum = new int[vector1.length + vector2.length];
+        int k1 = 0, k2 = 0, n = 0;
+        while (k1 < vector1.length || k2 < vector2.length) {
+            if (k2 == vector2.length || k1 < vector1.length && vector1[k1] < vector2[k2]) {
+                sum[n++] = vector1[k1++];
+            } else if (k1 == vector1.length || vector2[k2] < vector1[k1]) {
+                sum[n++] = vector2[k2++];
+            } else {
+                k1++;
+                k2++;
+            }
+        }
+        return Arrays.copyOf(sum, n);
+    }
+
+    /**
+     * Inner class representing the generators of a homological grading, the
+     * groups of its quantum gradings being put one after the other in
+     * increasing order.
+     */
+    private static final class FilteredGroup {
+
+        private final ResolutionAtlas atlas;
+        private final GeneratorsChainComplex generators;
+        private final int shift;
+
+        private final int[] jGrads;
+        private final GeneratorsGroup[] groups;
+        private final int[] offsets;
+
+        /**
+         * Creates a new {@code FilteredGroup}.
+         *
+         * @param atlas The atlas of the resolutions.
+         * @param generators The generators of the Khovanov complex.
+         * @param iGrad The homological grading.
+         * @param negCross The number of negative crossings.
+         * @param posCross The number of positive crossings.
+         */
+        private FilteredGroup(final ResolutionAtlas atlas, final GeneratorsChainComplex generators, final int iGrad,
+                final int negCross, final int posCross) {
+            this.atlas = atlas;
+            this.generators = generators;
+            shift = iGrad - negCross + posCross + (generators.isReduced() ? 1 : 0);
+
+            jGrads = generators.getjGrads().stream().filter(jGrad -> generators.getijGenerators(iGrad, jGrad) != null)
+                    .mapToInt(Integer::intValue).sorted().toArray();
+            groups = new GeneratorsGroup[jGrads.length];
+            offsets = new int[jGrads.length + 1];
+            for (int k = 0; k < jGrads.length; k++) {
+                groups[k] = generators.getijGenerators(iGrad, jGrads[k]);
+                offsets[k + 1] = offsets[k] + groups[k].getSize();
+            }
+        }
+
+        private int getSize() {
+            return offsets[jGrads.length];
+        }
+
+        /**
+         * Returns the quantum grading of a generator.
+         *
+         * @param index The index of the generator.
+         *
+         * @return The quantum grading.
+         */
+        private int getjGrad(final int index) {
+            final int found = Arrays.binarySearch(offsets, index);
+            return jGrads[found < 0 ? -found - 2 : found];
+        }
+
+        /**
+         * Returns the index of a generator, its quantum grading being given by
+         * the number of circles of its resolution and by its weight.
+         *
+         * @param resol The resolution number.
+         * @param marker The circles marker.
+         *
+         * @return The index of the generator.
+         */
+        private int indexOf(final int resol, final int marker) {
+            final int jGrad = shift - atlas.getCirclesNbr(resol) + 2 * Integer.bitCount(marker);
+            return offsets[Arrays.binarySearch(jGrads, jGrad)] + generators.getBlockOffset(resol, Integer.bitCount(marker))
+                    + GeneratorsGroup.rankMarker(marker);
+        }
+
+        /**
+         * Calculates the boundaries of the generators in the Bar-Natan
+         * complex, the groups being built in parallel.
+         *
+         * @param builder The builder of the differentials of the complex.
+         * @param codomain The generators of the next homological grading.
+         *
+         * @return The boundary of each generator, as sorted indices of the
+         * codomain.
+         */
+        private int[][] getBoundaries(final DifferentialBuilder builder, final FilteredGroup codomain) {
+            final int[][][] parts = IntStream.range(0, groups.length).parallel()
+                    .mapToObj(k -> builder.getBarNatanBoundaries(groups[k], codomain::indexOf)).toArray(int[][][]::new);
+
+            final int[][] boundaries = new int[getSize()][];
+            for (int k = 0; k < parts.length; k++) {
+                System.arraycopy(parts[k], 0, boundaries, offsets[k], parts[k].length);
+            }
+            return boundaries;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package khovalink.homology;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Class storing, for every resolution of a link, its number of circles and the
+ * circle going through each position of the link code.
+ * <p>
+ * The atlas is calculated once per link, in parallel over ranges of
+ * resolutions visited in Gray-code order, and kept in primitive arrays : one byte per resolution for the circles numbers and one byte per
+ * position and resolution for the labels, outside of the java heap when it
+ * gets large, or in a scratch file when one is given.
+ *
+ * @author flo
+ */
+final class ResolutionAtlas {
+
+    /**
+     * Maximal size of the labels kept on the java heap (64 MB).
+     */
+    static final long HEAP_LIMIT = 1L << 26;
+
+    /**
+     * Maximal number of crossings : the labels of all the resolutions are
+     * indexed by an {@code int}, one byte per position and resolution.
+     */
+    static final int MAX_CROSSINGS = 24;
+
+    private final int positionNbr;
+
+    private final byte[] circlesNbr;
+    private final ByteBuffer labels;
+
+    /**
+     * Creates the atlas of all the resolutions of a link.
+     *
+     * @param resolution The resolutions of the link.
+     * @param crossingNbr The number of crossings of the link.
+     */
+    ResolutionAtlas(final LinkResolution resolution, final int crossingNbr) {
+        this(resolution, crossingNbr, null);
+    }
+
+    /**
+     * Creates the atlas of all the resolutions of a link, its labels being
+     * written in a scratch file if they are large.
+     *
+     * @param resolution The resolutions of the link.
+     * @param crossingNbr The number of crossings of the link.
+     * @param storage The scratch file, or {@code null} to keep the labels in
+     * memory.
+     *
+     * @throws IllegalArgumentException If the link has more than
+     * {@link #MAX_CROSSINGS} crossings.
+     */
+    ResolutionAtlas(final LinkResolution resolution, final int crossingNbr, final ScratchStorage storage) {
+        if (crossingNbr > MAX_CROSSINGS) {
+            throw new IllegalArgumentException("The resolutions of " + crossingNbr + " crossings can't be indexed (at most " + MAX_CROSSINGS + ").");
+        }
+
+        final int resolNbr = 1 << crossingNbr;
+        positionNbr = 4 * crossingNbr;
+
+        circlesNbr = new byte[resolNbr];
+        final long labelsSize = (long) positionNbr * resolNbr;
+        if (storage != null && labelsSize >= ScratchStorage.MIN_SPILL_SIZE) {
+            labels = storage.allocate(labelsSize);
+        } else {
+            labels = labelsSize > HEAP_LIMIT ? ByteBuffer.allocateDirect(Math.toIntExact(labelsSize)) : ByteBuffer.allocate((int) labelsSize);
+        }
+
+        final int rangeNbr = (resolNbr + LinkResolution.GRAY_RANGE_SIZE - 1) / LinkResolution.GRAY_RANGE_SIZE;
+        IntStream.range(0, rangeNbr).parallel().forEach(range -> {
+            final int from = range * LinkResolution.GRAY_RANGE_SIZE;
+            final LinkResolution.GrayWalk walk = resolution.startGrayWalk(from);
+            final int[] resolLabels = new int[positionNbr];
+            final byte[] resolBytes = new byte[positionNbr];
+            final ByteBuffer target = labels.duplicate();
+            for (int index = from; index < Math.min(resolNbr, from + LinkResolution.GRAY_RANGE_SIZE); index++) {
+                if (index > from) {
+                    walk.next();
+                }
+                final int resol = walk.getResol();
+                walk.fillLabels(resolLabels);
+                for (int pos = 0; pos < positionNbr; pos++) {
+                    resolBytes[pos] = (byte) resolLabels[pos];
+                }
+                target.position(resol * positionNbr);
+                target.put(resolBytes);
+                circlesNbr[resol] = (byte) (walk.getCircleNbr() + resolution.getUnlinkedNbr());
+            }
+        });
+    }
+
+    /**
+     * Returns the number of circles of a resolution.
+     *
+     * @param resol The resolution number.
+     *
+     * @return The number of circles.
+     */
+    int getCirclesNbr(final int resol) {
+        return circlesNbr[resol];
+    }
+
+    /**
+     * Returns the circle going through a position in a resolution (non empty
+     * circles are numbered by their smallest position).
+     *
+     * @param resol The resolution number.
+     * @param pos The position in the link code.
+     *
+     * @return The circle's number.
+     */
+    int getLabel(final int resol, final int pos) {
+        return labels.get(resol * positionNbr + pos);
+    }
+
+    /**
+     * Tells if the labels are stored outside of the java heap.
+     *
+     * @return {@code true} if the labels are off-heap.
+     */
+    boolean isOffHeap() {
+        return labels.isDirect();
+    }
+
+    /**
+     * Returns the number of bytes used by the atlas.
+     *
+     * @return The storage size in bytes.
+     */
+    long getByteSize() {
+        return circlesNbr.length + (long) labels.capacity();
+    }
+}
@@ -0,0 +1,134 @@
+package khovalink.homology;
+
+import java.util.stream.IntStream;
+import khovalink.persistence.Link;
+
+/**
+ * Class counting the resolutions of a link by number of 1-smoothings and
+ * number of circles.
+ * <p>
+ * The resolutions are split in ranges visited in parallel in Gray-code order,
+ * each worker filling its own primitive table : the circles are followed from
+ * one resolution to the next and nothing is allocated per resolution.
+ *
+ * @author flo
+ */
+final class ResolutionCensus {
+
+    /**
+     * Maximal number of crossings : the resolutions are numbered by an
+     * {@code int}.
+     */
+    static final int MAX_CROSSINGS = 30;
+
+    private final int crossingNbr;
+    private final long[][] counts;
+
+    /**
+     * Counts the resolutions of a link (with at most 30 crossings).
+     *
+     * @param link The link.
+     */
+    ResolutionCensus(final Link link) {
+        this(link, Cancellation.NONE);
+    }
+
+    /**
+     * Counts the resolutions of a link (with at most 30 crossings), the
+     * workers checking if they must stop before each range.
+     *
+     * @param link The link.
+     * @param cancellation The checks stopping the counting.
+     *
+     * @throws IllegalArgumentException If the link has more than
+     * {@link #MAX_CROSSINGS} crossings.
+     */
+    ResolutionCensus(final Link link, final Cancellation cancellation) {
+        if (link.getNbCross() > MAX_CROSSINGS) {
+            throw new IllegalArgumentException("The resolutions of " + link.getNbCross() + " crossings can't be counted (at most " + MAX_CROSSINGS + ").");
+        }
+        final LinkResolution resolution = new LinkResolution(link);
+        final int unlinkedNbr = resolution.getUnlinkedNbr();
+        crossingNbr = link.getNbCross();
+
+        final int resolNbr = 1 << crossingNbr;
+        final int rangeNbr = (resolNbr + LinkResolution.GRAY_RANGE_SIZE - 1) / LinkResolution.GRAY_RANGE_SIZE;
+        counts = IntStream.range(0, rangeNbr).parallel().collect(
+                () -> new Counter(crossingNbr, 2 * crossingNbr + 1 + unlinkedNbr),
+                (counter, range) -> {
+                    cancellation.check();
+                    final int from = range * LinkResolution.GRAY_RANGE_SIZE;
+                    final LinkResolution.GrayWalk walk = resolution.startGrayWalk(from);
+                    for (int index = from; index < Math.min(resolNbr, from + LinkResolution.GRAY_RANGE_SIZE); index++) {
+                        if (index > from) {
+                            walk.next();
+                        }
+                        counter.counts[Integer.bitCount(walk.getResol())][walk.getCircleNbr() + unlinkedNbr]++;
+                    }
+                },
+                Counter::merge).counts;
+    }
+
+    /**
+     * Returns the number of crossings of the link.
+     *
+     * @return The number of crossings.
+     */
+    int getCrossingNbr() {
+        return crossingNbr;
+    }
+
+    /**
+     * Returns the number of circles above which no resolution is counted.
+     *
+     * @return The maximal number of circles.
+     */
+    int getMaxCircles() {
+        return counts[0].length - 1;
+    }
+
+    /**
+     * Returns the number of resolutions having some 1-smoothings and circles.
+     *
+     * @param height The number of 1-smoothings.
+     * @param circleNbr The number of circles (including the unlinked ones).
+     *
+     * @return The number of resolutions.
+     */
+    long getCount(final int height, final int circleNbr) {
+        return counts[height][circleNbr];
+    }
+
+    /**
+     * Fills the binomial coefficients {@code C(n, m)}.
+     *
+     * @param binomials The array receiving the coefficients.
+     * @param n The number of elements.
+     */
+    static void fillBinomials(final long[] binomials, final int n) {
+        binomials[0] = 1;
+        for (int m = 1; m <= n; m++) {
+            binomials[m] = binomials[m - 1] * (n - m + 1) / m;
+        }
+    }
+
+    /**
+     * Class counting the resolutions of the ranges given to one worker.
+     */
+    private static final class Counter {
+
+        private final long[][] counts;
+
+        private Counter(final int crossingNbr, final int maxCircles) {
+            counts = new long[crossingNbr + 1][maxCircles + 1];
+        }
+
+        private void merge(final Counter other) {
+            for (int height = 0; height < counts.length; height++) {
+                for (int circles = 0; circles < counts[height].length; circles++) {
+                    counts[height][circles] += other.counts[height][circles];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package khovalink.homology;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import khovalink.KhovaLog;
+import khovalink.persistence.CanonicalLink;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkSimplifier;
+
+/**
+ * Class storing the results of the homology calculations, so that a link
+ * already calculated is never calculated again.
+ * <p>
+ * Each result is a file named after the fingerprint of the canonical form of
+ * the link, the coefficients and the kind of homology (reduced or not), so
+ * that the same diagram entered with other numberings shares its result.
+ * Only the reduced homologies of knots are stored : the canonical form
+ * doesn't tell which component of a link is marked. The file holds the
+ * homology groups (and the Khovanov polynomial over the rationals) with the
+ * date and the duration of their calculation : the {@code BiGradedHomology}
+ * is built again from the groups when the result is read. When the files
+ * exceed the size of the cache, the least recently used ones are deleted :
+ * the last modification time of a file is its last use.
+ *
+ * @author flo
+ */
+public final class ResultCache {
+
+    /**
+     * Directory of the default cache, next to the links database.
+     */
+    public static final File DIRECTORY = new File("ResultDB");
+
+    /**
+     * Size of the default cache.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final String EXTENSION = ".result";
+
+    private static ResultCache instance;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Sizes of the files by key, from the least recently used.
+     */
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    /**
+     * Creates a new {@code ResultCache}, reading the results already stored
+     * in its directory.
+     *
+     * @param directory The directory of the results.
+     * @param maxBytes The maximal size of the results.
+     *
+     * @throws IOException If the directory can't be read.
+     */
+    public ResultCache(final File directory, final long maxBytes) throws IOException {
+        this.directory = directory.toPath();
+        this.maxBytes = maxBytes;
+
+        if (Files.isDirectory(this.directory)) {
+            try (final Stream<Path> files = Files.list(this.directory)) {
+                for (final Path file : (Iterable<Path>) files.filter(fil -> fil.getFileName().toString().endsWith(EXTENSION))
+                        .sorted(Comparator.comparing(fil -> fil.toFile().lastModified()))::iterator) {
+                    final String name = file.getFileName().toString();
+                    final long size = Files.size(file);
+                    sizes.put(name.substring(0, name.length() - EXTENSION.length()), size);
+                    totalBytes += size;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the default cache.
+     *
+     * @return The {@code ResultCache} of {@link #DIRECTORY}.
+     *
+     * @throws IOException If the directory can't be read.
+     */
+    public static synchronized ResultCache getInstance() throws IOException {
+        return instance == null ? instance = new ResultCache(DIRECTORY, DEFAULT_MAX_BYTES) : instance;
+    }
+
+    /**
+     * Returns the number of results stored.
+     *
+     * @return The number of results.
+     */
+    public synchronized int getResultNbr() {
+        return sizes.size();
+    }
+
+    /**
+     * Returns the size of the results stored.
+     *
+     * @return The number of bytes.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Deletes all the results.
+     *
+     * @throws IOException If a file can't be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        for (final String key : sizes.keySet()) {
+            Files.deleteIfExists(getFile(key));
+        }
+        sizes.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Tells if the result of a calculation is stored. The results are stored
+     * under the link simplified by Reidemeister moves, as calculated by
+     * {@code LinkHomology}.
+     *
+     * @param link The link, as entered.
+     * @param coefficients The coefficients of the homology.
+     *
+     * @return {@code true} if a result is stored with the key of the link.
+     */
+    public boolean contains(final Link link, final LinkHomology.Coefficients coefficients) {
+        final String key = getKey(new CanonicalLink(new LinkSimplifier(link).getLink()), coefficients, false);
+        synchronized (this) {
+            return sizes.containsKey(key);
+        }
+    }
+
+    /**
+     * Finds the result of a calculation.
+     *
+     * @param canonical The canonical form of the link.
+     * @param coefficients The coefficients of the homology.
+     * @param reduced {@code true} for the reduced homology of a knot.
+     *
+     * @return The {@code Result}, or {@code null} if it isn't stored or can't
+     * be read.
+     */
+    synchronized Result get(final CanonicalLink canonical, final LinkHomology.Coefficients coefficients, final boolean reduced) {
+        final String key = getKey(canonical, coefficients, reduced);
+        if (sizes.get(key) == null) {
+            return null;
+        }
+
+        final Path file = getFile(key);
+        try (final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final Result result = (Result) ois.readObject();
+            if (!Arrays.deepEquals(result.gauss, canonical.getGauss()) || !Arrays.equals(result.signs, canonical.getSigns())) {
+                return null;
+            }
+
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return result;
+        } catch (final IOException | ClassNotFoundException | ClassCastException ex) {
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the result of a calculation, then deletes the least recently
+     * used results until the cache fits in its size. The result is written to
+     * a temporary file and then moved in place, so that a killed calculation
+     * never leaves a truncated result.
+     *
+     * @param canonical The canonical form of the link.
+     * @param coefficients The coefficients of the homology.
+     * @param reduced {@code true} for the reduced homology of a knot.
+     * @param groups The homology groups.
+     * @param polynomial The Khovanov polynomial, or {@code null}.
+     * @param time The duration of the calculation.
+     */
+    synchronized void put(final CanonicalLink canonical, final LinkHomology.Coefficients coefficients, final boolean reduced, final BiGradedGroups groups,
+            final KhovanovPolynomial polynomial, final Duration time) {
+        final String key = getKey(canonical, coefficients, reduced);
+        try {
+            Files.createDirectories(directory);
+            final Path tmp = Files.createTempFile(directory, key, ".tmp");
+            try {
+                try (final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    oos.writeObject(new Result(canonical, groups, polynomial, time));
+                }
+                Files.move(tmp, getFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            final long size = Files.size(getFile(key));
+            final Long previous = sizes.put(key, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+
+            final Iterator<Map.Entry<String, Long>> oldest = sizes.entrySet().iterator();
+            while (totalBytes > maxBytes && sizes.size() > 1) {
+                final Map.Entry<String, Long> entry = oldest.next();
+                Files.deleteIfExists(getFile(entry.getKey()));
+                totalBytes -= entry.getValue();
+                oldest.remove();
+            }
+        } catch (final IOException ex) {
+            KhovaLog.addLog(ex);
+        }
+    }
+
+    /**
+     * Forgets an unreadable result.
+     *
+     * @param key The key of the result.
+     */
+    private void remove(final String key) {
+        try {
+            Files.deleteIfExists(getFile(key));
+        } catch (final IOException ex) {
+            KhovaLog.addLog(ex);
+        }
+        totalBytes -= sizes.remove(key);
+    }
+
+    private Path getFile(final String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    /**
+     * Calculates the key of a calculation.
+     *
+     * @param canonical The canonical form of the link.
+     * @param coefficients The coefficients of the homology.
+     * @param reduced {@code true} for the reduced homology.
+     *
+     * @return The hexadecimal fingerprint of the canonical form, followed by
+     * the coefficients and the kind of homology.
+     */
+    private static String getKey(final CanonicalLink canonical, final LinkHomology.Coefficients coefficients, final boolean reduced) {
+        return String.format("%016x-%s%s", canonical.getFingerprint(), coefficients.name().toLowerCase(), reduced ? "-reduced" : "");
+    }
+
+    /**
+     * Class representing a stored result : the canonical form of the link it
+     * belongs to, the homology groups and the calculation which gave them.
+     */
+    static final class Result implements Serializable {
+
+        private static final long serialVersionUID = 3186427059184736521L;
+
+        private final int[][] gauss;
+        private final boolean[] signs;
+        private final BiGradedGroups groups;
+        private final KhovanovPolynomial polynomial;
+        private final Instant date;
+        private final Duration time;
+
+        private Result(final CanonicalLink canonical, final BiGradedGroups groups, final KhovanovPolynomial polynomial, final Duration time) {
+            gauss = canonical.getGauss();
+            signs = canonical.getSigns();
+            this.groups = groups;
+            this.polynomial = polynomial;
+            this.time = time;
+            date = Instant.now();
+        }
+
+        BiGradedGroups getGroups() {
+            return groups;
+        }
+
+        KhovanovPolynomial getPolynomial() {
+            return polynomial;
+        }
+
+        Instant getDate() {
+            return date;
+        }
+
+        Duration getTime() {
+            return time;
+        }
+    }
+}
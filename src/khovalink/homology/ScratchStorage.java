@@ -0,0 +1,135 @@
+package khovalink.homology;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class representing a scratch file in which the large tables of a
+ * calculation are written instead of being kept on the java heap.
+ * <p>
+ * Each table is a region of the file mapped in memory with
+ * {@link FileChannel#map}, so it is read back by the operating system only
+ * when it is needed. The file is deleted when the storage is closed (and, on
+ * some systems, once its regions are no longer mapped).
+ *
+ * @author flo
+ */
+final class ScratchStorage implements AutoCloseable {
+
+    /**
+     * Minimal size of a matrix written to the file (64 kB) : smaller ones stay
+     * on the java heap.
+     */
+    static final long MIN_SPILL_SIZE = 1L << 16;
+
+    private final Path file;
+    private final FileChannel channel;
+
+    private long size = 0;
+
+    /**
+     * Creates a new scratch file.
+     *
+     * @param directory The directory of the scratch file.
+     *
+     * @throws IOException If the file can't be created.
+     */
+    ScratchStorage(final Path directory) throws IOException {
+        file = Files.createTempFile(directory, "khovalink", ".scratch");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Maps a new region at the end of the file.
+     *
+     * @param byteNbr The size of the region (less than 2 GB).
+     *
+     * @return The region, in native byte order.
+     *
+     * @throws UncheckedIOException If the file can't be extended.
+     */
+    synchronized ByteBuffer allocate(final long byteNbr) {
+        try {
+            final ByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, size, byteNbr).order(ByteOrder.nativeOrder());
+            size += byteNbr;
+
+            return region;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes a matrix to the file if it is large enough, in compressed sparse
+     * row format.
+     *
+     * @param matrix The matrix.
+     *
+     * @return The same matrix, reading its entries from the file, or the
+     * matrix itself if it is small.
+     *
+     * @throws UncheckedIOException If the file can't be extended.
+     */
+    SparseMatrix spill(final SparseMatrix matrix) {
+        if (matrix.getByteSize() < MIN_SPILL_SIZE) {
+            return matrix;
+        }
+
+        final int rowNbr = matrix.getRowNbr(), entryNbr = matrix.getEntryNbr();
+        final IntBuffer region = allocate(matrix.getByteSize()).asIntBuffer();
+        for (int r = 0; r <= rowNbr; r++) {
+            region.put(matrix.getRowStart(r));
+        }
+        for (int k = 0; k < entryNbr; k++) {
+            region.put(matrix.getColIndex(k));
+        }
+        for (int k = 0; k < entryNbr; k++) {
+            region.put(matrix.getValue(k));
+        }
+
+        return new SparseMatrix(rowNbr, matrix.getColNbr(), slice(region, 0, rowNbr + 1),
+                slice(region, rowNbr + 1, entryNbr), slice(region, rowNbr + 1 + entryNbr, entryNbr));
+    }
+
+    /**
+     * Returns the size of the file.
+     *
+     * @return The number of bytes written.
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the scratch file.
+     *
+     * @return The path of the file.
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Closes and deletes the scratch file.
+     *
+     * @throws IOException If the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static IntBuffer slice(final IntBuffer buffer, final int from, final int length) {
+        final IntBuffer copy = buffer.duplicate();
+        copy.limit(from + length).position(from);
+
+        return copy.slice();
+    }
+}
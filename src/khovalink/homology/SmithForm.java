@@ -0,0 +1,198 @@
+package khovalink.homology;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Class calculating the rank and the torsion coefficients (invariant factors
+ * greater than one) of the Smith normal form of a {@code SparseMatrix}.
+ * <p>
+ * Unit entries are eliminated first directly on the sparse rows, then the
+ * entries dividing their whole row and column, only the remaining rows
+ * (usually very few) are turned into a dense matrix.
+ *
+ * @author flo
+ */
+final class SmithForm {
+
+    private static final int[] NO_TORSION = new int[0];
+
+    private final int rank;
+    private final int[] torsion;
+
+    /**
+     * Calculates the Smith normal form of a matrix.
+     *
+     * @param matrix The matrix.
+     * @param cancellation The checks stopping the calculation.
+     */
+    SmithForm(final SparseMatrix matrix, final Cancellation cancellation) {
+        final SparseElimination elim = new SparseElimination(matrix, cancellation);
+        elim.eliminateUnits();
+        final ArrayList<Integer> tors = elim.eliminateDivisors();
+
+        final ArrayList<BigInteger> factors = denseSmith(elim.getResidual());
+        for (final BigInteger factor : factors) {
+            if (!factor.equals(BigInteger.ONE)) {
+                tors.add(factor.intValueExact());
+            }
+        }
+
+        rank = elim.getRank() + factors.size();
+        torsion = tors.isEmpty() ? NO_TORSION : invariantFactors(tors);
+    }
+
+    /**
+     * Returns the rank of the matrix.
+     *
+     * @return The rank.
+     */
+    int getRank() {
+        return rank;
+    }
+
+    /**
+     * Returns the invariant factors greater than one, in increasing order.
+     *
+     * @return The torsion coefficients.
+     */
+    int[] getTorsion() {
+        return torsion.clone();
+    }
+
+    /**
+     * Calculates the non zero invariant factors of a small dense matrix.
+     *
+     * @param rows The rows of the matrix.
+     *
+     * @return The non zero invariant factors (positive).
+     */
+    private static ArrayList<BigInteger> denseSmith(final BigInteger[][] rows) {
+        final ArrayList<BigInteger> factors = new ArrayList<>();
+        if (rows.length == 0) {
+            return factors;
+        }
+
+        final BigInteger[][] a = rows;
+        final int rowNbr = a.length, colNbr = a[0].length;
+
+        for (int t = 0; t < Math.min(rowNbr, colNbr); t++) {
+            int pRow = -1, pCol = -1;
+            for (int r = t; r < rowNbr; r++) {
+                for (int c = t; c < colNbr; c++) {
+                    if (a[r][c].signum() != 0 && (pRow == -1 || a[r][c].abs().compareTo(a[pRow][pCol].abs()) < 0)) {
+                        pRow = r;
+                        pCol = c;
+                    }
+                }
+            }
+            if (pRow == -1) {
+                break;
+            }
+            swapRows(a, t, pRow);
+            swapCols(a, t, pCol);
+
+            boolean reduced = false;
+            while (!reduced) {
+                reduced = true;
+                for (int r = t + 1; r < rowNbr; r++) {
+                    if (a[r][t].signum() != 0) {
+                        final BigInteger q = a[r][t].divide(a[t][t]);
+                        for (int c = t; c < colNbr; c++) {
+                            a[r][c] = a[r][c].subtract(q.multiply(a[t][c]));
+                        }
+                        if (a[r][t].signum() != 0) {
+                            swapRows(a, t, r);
+                            reduced = false;
+                        }
+                    }
+                }
+                for (int c = t + 1; c < colNbr; c++) {
+                    if (a[t][c].signum() != 0) {
+                        final BigInteger q = a[t][c].divide(a[t][t]);
+                        for (int r = t; r < rowNbr; r++) {
+                            a[r][c] = a[r][c].subtract(q.multiply(a[r][t]));
+                        }
+                        if (a[t][c].signum() != 0) {
+                            swapCols(a, t, c);
+                            reduced = false;
+                        }
+                    }
+                }
+                if (reduced) {
+                    //The pivot must divide every remaining entry.
+                    search:
+                    for (int r = t + 1; r < rowNbr; r++) {
+                        for (int c = t + 1; c < colNbr; c++) {
+                            if (a[r][c].mod(a[t][t].abs()).signum() != 0) {
+                                for (int k = t; k < colNbr; k++) {
+                                    a[t][k] = a[t][k].add(a[r][k]);
+                                }
+                                reduced = false;
+                                break search;
+                            }
+                        }
+                    }
+                }
+            }
+            factors.add(a[t][t].abs());
+        }
+
+        return factors;
+    }
+
+    /**
+     * Turns the orders of a direct sum of cyclic groups into its invariant
+     * factors, by gathering the prime powers of the orders.
+     *
+     * @param orders The orders of the cyclic groups (greater than one).
+     *
+     * @return The invariant factors, in increasing order.
+     */
+    private static int[] invariantFactors(final ArrayList<Integer> orders) {
+        final TreeMap<Integer, ArrayList<Integer>> primePowers = new TreeMap<>();
+        for (final int order : orders) {
+            int rest = order;
+            for (int p = 2; rest > 1; p++) {
+                if (p * p > rest) {
+                    p = rest;
+                }
+                int power = 1;
+                while (rest % p == 0) {
+                    rest /= p;
+                    power *= p;
+                }
+                if (power > 1) {
+                    primePowers.computeIfAbsent(p, k -> new ArrayList<>()).add(power);
+                }
+            }
+        }
+
+        final int[] factors = new int[orders.size()];
+        Arrays.fill(factors, 1);
+        for (final ArrayList<Integer> powers : primePowers.values()) {
+            powers.sort(null);
+            for (int k = 0; k < powers.size(); k++) {
+                factors[factors.length - powers.size() + k] *= powers.get(k);
+            }
+        }
+
+        return Arrays.stream(factors).filter(factor -> factor > 1).toArray();
+    }
+
+    private static void swapRows(final BigInteger[][] a, final int r1, final int r2) {
+        final BigInteger[] tmp = a[r1];
+        a[r1] = a[r2];
+        a[r2] = tmp;
+    }
+
+    private static void swapCols(final BigInteger[][] a, final int c1, final int c2) {
+        for (final BigInteger[] row : a) {
+            final BigInteger tmp = row[c1];
+            row[c1] = row[c2];
+            row[c2] = tmp;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package khovalink.homology;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import maths.exceptions.MathsArgumentException;
+import maths.homology.BiGradedHomology;
+import maths.homology.DifferentialBiComplex;
+import maths.homology.SNFCalculator;
+
+/**
+ * Class representing a differential bicomplex whose differentials are stored as
+ * {@code SparseMatrix}.
+ * <p>
+ * Quantum gradings whose matrices stay small are calculated with dense
+ * matrices as before, larger ones never get a dense form : their homology is
+ * calculated from the sparse Smith normal forms of their differentials.
+ * <p>
+ * The differentials of a whole quantum grading can also be set at once and
+ * reduced immediately : only the reduced complex is kept, each quantum grading
+ * being released before the next ones are built.
+ *
+ * @author flo
+ */
+final class SparseBiComplex {
+
+    /**
+     * Maximal number of entries of a dense matrix (4 MB).
+     */
+    static final long DENSE_LIMIT = 1L << 20;
+
+    private final Map<Integer, Map<Integer, SparseMatrix>> complex = new ConcurrentHashMap<>();
+    private final Cancellation cancellation;
+
+    /**
+     * Creates an empty {@code SparseBiComplex}.
+     *
+     * @param cancellation The checks stopping the reductions and the
+     * homology calculations.
+     */
+    SparseBiComplex(final Cancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Sets a differential.
+     *
+     * @param iGrad The homological grading of the differential's domain.
+     * @param jGrad The quantum grading.
+     * @param diff The differential.
+     */
+    void setijDiff(final int iGrad, final int jGrad, final SparseMatrix diff) {
+        complex.computeIfAbsent(jGrad, j -> new ConcurrentHashMap<>()).put(iGrad, diff);
+    }
+
+    /**
+     * Returns the quantum gradings.
+     *
+     * @return The set of quantum gradings.
+     */
+    Set<Integer> getjGrads() {
+        return complex.keySet();
+    }
+
+    /**
+     * Returns the differentials of a quantum grading.
+     *
+     * @param jGrad The quantum grading.
+     *
+     * @return The differentials, by homological grading of their domain (none
+     * if the quantum grading is empty or reduced to zero).
+     */
+    Map<Integer, SparseMatrix> getjComplex(final int jGrad) {
+        return complex.getOrDefault(jGrad, Collections.emptyMap());
+    }
+
+    /**
+     * Sets all the differentials of a quantum grading and reduces them by
+     * Gaussian elimination : only the reduced differentials are kept, the
+     * given ones can be released.
+     *
+     * @param jGrad The quantum grading.
+     * @param jComp The differentials, by homological grading of their domain.
+     *
+     * @return For each homological grading, the size of the chain group before
+     * and after the reduction.
+     */
+    Map<Integer, int[]> setjComplex(final int jGrad, final Map<Integer, SparseMatrix> jComp) {
+        final GaussianReduction reduction = new GaussianReduction(jComp, cancellation);
+        final Map<Integer, SparseMatrix> reduced = reduction.getDifferentials();
+        if (!reduced.isEmpty()) {
+            complex.put(jGrad, new ConcurrentHashMap<>(reduced));
+        }
+
+        return reduction.getSizes();
+    }
+
+    /**
+     * Calculates the homology of the complex.
+     *
+     * @return The {@code BiGradedHomology}.
+     *
+     * @throws MathsArgumentException If a matrix can't be created or if the
+     * homology can't be calculated.
+     */
+    BiGradedHomology getHomology() throws MathsArgumentException {
+        return getHomology(DENSE_LIMIT);
+    }
+
+    /**
+     * Calculates the homology of the complex, with a given limit for the dense
+     * calculation.
+     *
+     * @param denseLimit The maximal number of entries of a dense matrix (0 to
+     * always use the sparse Smith normal forms).
+     *
+     * @return The {@code BiGradedHomology}.
+     *
+     * @throws MathsArgumentException If a matrix can't be created or if the
+     * homology can't be calculated.
+     */
+    BiGradedHomology getHomology(final long denseLimit) throws MathsArgumentException {
+        final DifferentialBiComplex biComplex = new DifferentialBiComplex();
+        final BiGradedGroups groups = new BiGradedGroups();
+
+        for (final int jGrad : complex.keySet()) {
+            cancellation.check();
+            final Map<Integer, SparseMatrix> jComp = complex.get(jGrad);
+
+            if (isDense(jComp, denseLimit)) {
+                for (final int iGrad : jComp.keySet()) {
+                    biComplex.setijDiff(iGrad, jGrad, jComp.get(iGrad).toIntegerMatrix());
+                }
+            } else {
+                setjGroups(groups, jGrad, jComp);
+            }
+        }
+        groups.fillModel(biComplex);
+
+        return biComplex.getHomology(new SNFCalculator());
+    }
+
+    /**
+     * Calculates the homology groups of the complex from the sparse Smith
+     * normal forms of all its differentials.
+     *
+     * @return The {@code BiGradedGroups}.
+     */
+    BiGradedGroups getGroups() {
+        final BiGradedGroups groups = new BiGradedGroups();
+        for (final int jGrad : complex.keySet()) {
+            cancellation.check();
+            setjGroups(groups, jGrad, complex.get(jGrad));
+        }
+
+        return groups;
+    }
+
+    /**
+     * Calculates the homology groups of the complex with coefficients in Z/2.
+     *
+     * @return The {@code BiGradedGroups}, each group being a sum of Z/2.
+     */
+    BiGradedGroups getMod2Groups() {
+        final BiGradedGroups groups = new BiGradedGroups();
+        complex.keySet().parallelStream().forEach(jGrad -> {
+            final Map<Integer, int[]> dimRanks = new HashMap<>();
+            complex.get(jGrad).forEach((iGrad, diff) -> dimRanks.put(iGrad, new int[]{diff.getColNbr(), BitMatrix.reduce(diff).getRank(cancellation)}));
+            groups.setjMod2Groups(jGrad, dimRanks);
+        });
+
+        return groups;
+    }
+
+    /**
+     * Calculates the Khovanov polynomial of the complex over the rationals :
+     * only the ranks of the differentials are needed, they are calculated
+     * modulo a large prime.
+     *
+     * @return The {@code KhovanovPolynomial}.
+     */
+    KhovanovPolynomial getRationalPolynomial() {
+        final KhovanovPolynomial polynomial = new KhovanovPolynomial();
+        complex.keySet().parallelStream().forEach(jGrad -> {
+            final Map<Integer, SparseMatrix> jComp = complex.get(jGrad);
+            final Map<Integer, Integer> ranks = new HashMap<>();
+            jComp.forEach((iGrad, diff) -> ranks.put(iGrad, new ModularElimination(diff, cancellation).getRank()));
+
+            for (final int iGrad : jComp.keySet()) {
+                polynomial.setCoefficient(iGrad, jGrad, jComp.get(iGrad).getColNbr() - ranks.get(iGrad) - ranks.getOrDefault(iGrad - 1, 0));
+            }
+        });
+
+        return polynomial;
+    }
+
+    /**
+     * Tells if all differentials of a quantum grading are small enough to be
+     * dense.
+     *
+     * @param jComp The differentials of the quantum grading.
+     * @param denseLimit The maximal number of entries of a dense matrix.
+     *
+     * @return {@code true} if the quantum grading can be calculated densely.
+     */
+    private static boolean isDense(final Map<Integer, SparseMatrix> jComp, final long denseLimit) {
+        return jComp.values().stream().allMatch(diff -> (long) diff.getRowNbr() * diff.getColNbr() <= denseLimit);
+    }
+
+    /**
+     * Calculates the groups of a quantum grading from the Smith normal forms of
+     * its differentials.
+     *
+     * @param groups The groups to fill.
+     * @param jGrad The quantum grading.
+     * @param jComp The differentials of the quantum grading.
+     */
+    private void setjGroups(final BiGradedGroups groups, final int jGrad, final Map<Integer, SparseMatrix> jComp) {
+        final Map<Integer, SmithForm> forms = new ConcurrentHashMap<>();
+        jComp.keySet().parallelStream().forEach(iGrad -> forms.put(iGrad, new SmithForm(jComp.get(iGrad), cancellation)));
+
+        for (final int iGrad : jComp.keySet()) {
+            final SmithForm prev = forms.get(iGrad - 1);
+            final int prevRank = prev == null ? 0 : prev.getRank();
+            final int free = jComp.get(iGrad).getColNbr() - forms.get(iGrad).getRank() - prevRank;
+
+            groups.setijGroup(iGrad, jGrad, free, prev == null ? new int[0] : prev.getTorsion());
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package khovalink.homology;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Class eliminating the unit and dividing entries of a sparse matrix with row
+ * operations, the pivot row and column being dropped after each step.
+ * <p>
+ * Eliminating a unit entry of a differential is also a Gaussian elimination of
+ * the chain complex : the pivot row and column are the two cancelled
+ * generators, and the remaining rows and columns give the new differential.
+ *
+ * @author flo
+ */
+final class SparseElimination {
+
+    private final int[][] rowCols;
+    private final int[][] rowVals;
+    private final int[] rowLen;
+    private final boolean[] rowAlive;
+    private final boolean[] rowPivot;
+
+    private final int[][] colRows;
+    private final int[] colLen;
+    private final boolean[] colPivot;
+
+    private final int colNbr;
+    private final Cancellation cancellation;
+
+    private int rank = 0;
+
+    /**
+     * Loads a matrix.
+     *
+     * @param matrix The matrix.
+     * @param cancellation The checks stopping the calculation.
+     */
+    SparseElimination(final SparseMatrix matrix, final Cancellation cancellation) {
+        final int rowNbr = matrix.getRowNbr();
+        colNbr = matrix.getColNbr();
+        this.cancellation = cancellation;
+
+        rowCols = new int[rowNbr][];
+        rowVals = new int[rowNbr][];
+        rowLen = new int[rowNbr];
+        rowAlive = new boolean[rowNbr];
+        rowPivot = new boolean[rowNbr];
+        colRows = new int[colNbr][];
+        colLen = new int[colNbr];
+        colPivot = new boolean[colNbr];
+
+        for (int r = 0; r < rowNbr; r++) {
+            final int from = matrix.getRowStart(r), to = matrix.getRowStart(r + 1);
+            rowCols[r] = new int[to - from];
+            rowVals[r] = new int[to - from];
+            for (int k = from; k < to; k++) {
+                rowCols[r][k - from] = matrix.getColIndex(k);
+                rowVals[r][k - from] = matrix.getValue(k);
+                addToCol(matrix.getColIndex(k), r);
+            }
+            rowLen[r] = to - from;
+            rowAlive[r] = rowLen[r] > 0;
+        }
+    }
+
+    /**
+     * Eliminates unit entries, column after column, choosing each time the
+     * shortest row to limit fill-in, until no unit entry remains.
+     */
+    void eliminateUnits() {
+        boolean found = true;
+        while (found) {
+            found = false;
+            for (int col = 0; col < colNbr; col++) {
+                cancellation.check();
+                int pivotRow = -1;
+                for (int k = 0; k < colLen[col]; k++) {
+                    final int row = colRows[col][k];
+                    if (rowAlive[row] && Math.abs(valueAt(row, col)) == 1 && (pivotRow == -1 || rowLen[row] < rowLen[pivotRow])) {
+                        pivotRow = row;
+                    }
+                }
+                if (pivotRow != -1) {
+                    pivot(pivotRow, col);
+                    found = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Eliminates the entries dividing all the other entries of their row and
+     * of their column : each one is an invariant factor of its own, its row
+     * is dropped once its column is cleared.
+     *
+     * @return The absolute values of the pivots greater than one.
+     */
+    ArrayList<Integer> eliminateDivisors() {
+        final ArrayList<Integer> factors = new ArrayList<>();
+
+        boolean found = true;
+        while (found) {
+            found = false;
+            for (int col = 0; col < colNbr; col++) {
+                cancellation.check();
+                int pivotRow = -1, pivot = 0;
+                for (int k = 0; k < colLen[col]; k++) {
+                    final int row = colRows[col][k];
+                    final int val = rowAlive[row] ? valueAt(row, col) : 0;
+                    if (val != 0 && (pivotRow == -1 || Math.abs(val) < Math.abs(pivot))) {
+                        pivotRow = row;
+                        pivot = val;
+                    }
+                }
+                if (pivotRow != -1 && dividesColumn(col, pivot) && dividesRow(pivotRow, pivot)) {
+                    for (int k = 0; k < colLen[col]; k++) {
+                        final int row = colRows[col][k];
+                        if (row != pivotRow && rowAlive[row]) {
+                            final int val = valueAt(row, col);
+                            if (val != 0) {
+                                addRow(row, pivotRow, -val / pivot);
+                            }
+                        }
+                    }
+
+                    rowAlive[pivotRow] = false;
+                    rowPivot[pivotRow] = true;
+                    colLen[col] = 0;
+                    colPivot[col] = true;
+                    rank++;
+                    if (Math.abs(pivot) > 1) {
+                        factors.add(Math.abs(pivot));
+                    }
+                    found = true;
+                }
+            }
+        }
+
+        return factors;
+    }
+
+    /**
+     * Returns the rank found by the sparse elimination.
+     *
+     * @return The number of eliminated pivots.
+     */
+    int getRank() {
+        return rank;
+    }
+
+    /**
+     * Returns the remaining non zero rows as a dense matrix restricted to
+     * its non zero columns.
+     *
+     * @return The residual matrix.
+     */
+    BigInteger[][] getResidual() {
+        final int[] newCol = new int[colNbr];
+        Arrays.fill(newCol, -1);
+        int cols = 0, rows = 0;
+        for (int r = 0; r < rowLen.length; r++) {
+            if (rowAlive[r] && rowLen[r] > 0) {
+                rows++;
+                for (int k = 0; k < rowLen[r]; k++) {
+                    if (newCol[rowCols[r][k]] == -1) {
+                        newCol[rowCols[r][k]] = cols++;
+                    }
+                }
+            }
+        }
+
+        final BigInteger[][] residual = new BigInteger[rows][cols];
+        int row = 0;
+        for (int r = 0; r < rowLen.length; r++) {
+            if (rowAlive[r] && rowLen[r] > 0) {
+                Arrays.fill(residual[row], BigInteger.ZERO);
+                for (int k = 0; k < rowLen[r]; k++) {
+                    residual[row][newCol[rowCols[r][k]]] = BigInteger.valueOf(rowVals[r][k]);
+                }
+                row++;
+            }
+        }
+
+        return residual;
+    }
+
+    /**
+     * Tells if a row was used as a pivot.
+     *
+     * @param row The row.
+     *
+     * @return {@code true} if the row was dropped.
+     */
+    boolean isPivotRow(final int row) {
+        return rowPivot[row];
+    }
+
+    /**
+     * Tells if a column was used as a pivot.
+     *
+     * @param col The column.
+     *
+     * @return {@code true} if the column was dropped.
+     */
+    boolean isPivotCol(final int col) {
+        return colPivot[col];
+    }
+
+    /**
+     * Returns the matrix made of the rows and columns which weren't used as
+     * pivots, in their original order.
+     *
+     * @return The reduced matrix.
+     */
+    SparseMatrix getReducedMatrix() {
+        final int[] newCol = new int[colNbr];
+        int cols = 0;
+        for (int c = 0; c < colNbr; c++) {
+            newCol[c] = colPivot[c] ? -1 : cols++;
+        }
+
+        final SparseMatrix.EntryList entries = new SparseMatrix.EntryList();
+        int rows = 0;
+        for (int r = 0; r < rowLen.length; r++) {
+            if (!rowPivot[r]) {
+                for (int k = 0; k < rowLen[r]; k++) {
+                    entries.add(rows, newCol[rowCols[r][k]], rowVals[r][k]);
+                }
+                rows++;
+            }
+        }
+
+        return entries.toMatrix(rows, cols);
+    }
+
+    /**
+     * Clears the column of a unit pivot with row operations then drops the
+     * pivot row.
+     *
+     * @param pivotRow The pivot row.
+     * @param col The pivot column.
+     */
+    private void pivot(final int pivotRow, final int col) {
+        final int unit = valueAt(pivotRow, col);
+
+        for (int k = 0; k < colLen[col]; k++) {
+            final int row = colRows[col][k];
+            if (row != pivotRow && rowAlive[row]) {
+                final int val = valueAt(row, col);
+                if (val != 0) {
+                    addRow(row, pivotRow, -val * unit);
+                }
+            }
+        }
+
+        rowAlive[pivotRow] = false;
+        rowPivot[pivotRow] = true;
+        colLen[col] = 0;
+        colPivot[col] = true;
+        rank++;
+    }
+
+    /**
+     * Adds a multiple of a row to another one.
+     *
+     * @param target The modified row.
+     * @param source The added row.
+     * @param factor The multiple.
+     */
+    private void addRow(final int target, final int source, final int factor) {
+        final int[] tCols = rowCols[target], tVals = rowVals[target];
+        final int[] sCols = rowCols[source], sVals = rowVals[source];
+        final int tLen = rowLen[target], sLen = rowLen[source];
+        final int[] nCols = new int[tLen + sLen], nVals = new int[tLen + sLen];
+
+        int t = 0, s = 0, n = 0;
+        while (t < tLen || s < sLen) {
+            if (s == sLen || (t < tLen && tCols[t] < sCols[s])) {
+                nCols[n] = tCols[t];
+                nVals[n++] = tVals[t++];
+            } else if (t == tLen || sCols[s] < tCols[t]) {
+                nCols[n] = sCols[s];
+                nVals[n++] = Math.multiplyExact(factor, sVals[s]);
+                addToCol(sCols[s++], target);
+            } else {
+                final int val = Math.addExact(tVals[t], Math.multiplyExact(factor, sVals[s]));
+                if (val != 0) {
+                    nCols[n] = tCols[t];
+                    nVals[n++] = val;
+                }
+                t++;
+                s++;
+            }
+        }
+
+        rowCols[target] = nCols;
+        rowVals[target] = nVals;
+        rowLen[target] = n;
+    }
+
+    private boolean dividesColumn(final int col, final int pivot) {
+        for (int k = 0; k < colLen[col]; k++) {
+            final int row = colRows[col][k];
+            if (rowAlive[row] && valueAt(row, col) % pivot != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean dividesRow(final int row, final int pivot) {
+        for (int k = 0; k < rowLen[row]; k++) {
+            if (rowVals[row][k] % pivot != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns an entry of a row (zero if absent).
+     *
+     * @param row The row.
+     * @param col The column.
+     *
+     * @return The value.
+     */
+    private int valueAt(final int row, final int col) {
+        final int k = Arrays.binarySearch(rowCols[row], 0, rowLen[row], col);
+        return k < 0 ? 0 : rowVals[row][k];
+    }
+
+    /**
+     * Registers a row in a column's list (duplicates and stale rows are
+     * filtered when reading).
+     *
+     * @param col The column.
+     * @param row The row.
+     */
+    private void addToCol(final int col, final int row) {
+        if (colRows[col] == null) {
+            colRows[col] = new int[4];
+        } else if (colLen[col] == colRows[col].length) {
+            colRows[col] = Arrays.copyOf(colRows[col], 2 * colLen[col]);
+        }
+        colRows[col][colLen[col]++] = row;
+    }
+}
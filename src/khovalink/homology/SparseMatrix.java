@@ -0,0 +1,335 @@
+package khovalink.homology;
+
+import java.io.Serializable;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import maths.exceptions.MathsArgumentException;
+import maths.matrix.IntegerMatrix;
+
+/**
+ * Class representing an integer matrix in compressed sparse row format : only
+ * the non zero entries are stored, row by row, with their column index.
+ * <p>
+ * The three tables are {@code IntBuffer}, wrapping arrays on the java heap or
+ * mapped from a {@code ScratchStorage}. A matrix is serialized as its three
+ * tables copied to arrays, whatever its buffers.
+ *
+ * @author flo
+ */
+final class SparseMatrix implements Serializable {
+
+    private static final long serialVersionUID = 6160462911474850253L;
+
+    private final int rowNbr;
+    private final int colNbr;
+
+    private final IntBuffer rowStart;
+    private final IntBuffer colIndex;
+    private final IntBuffer values;
+
+    /**
+     * Creates a new {@code SparseMatrix} from its entries given in coordinate
+     * format (the same position must not appear twice).
+     *
+     * @param rowNbr The number of rows.
+     * @param colNbr The number of columns.
+     * @param rows The rows of the entries.
+     * @param cols The columns of the entries.
+     * @param vals The values of the entries.
+     * @param entryNbr The number of entries to read in the three arrays.
+     */
+    SparseMatrix(final int rowNbr, final int colNbr, final int[] rows, final int[] cols, final int[] vals, final int entryNbr) {
+        this.rowNbr = rowNbr;
+        this.colNbr = colNbr;
+
+        final int[] starts = new int[rowNbr + 1];
+        for (int k = 0; k < entryNbr; k++) {
+            starts[rows[k] + 1]++;
+        }
+        for (int r = 0; r < rowNbr; r++) {
+            starts[r + 1] += starts[r];
+        }
+
+        final int[] indices = new int[entryNbr];
+        final int[] entries = new int[entryNbr];
+        final int[] fill = Arrays.copyOf(starts, rowNbr);
+        for (int k = 0; k < entryNbr; k++) {
+            final int pos = fill[rows[k]]++;
+            indices[pos] = cols[k];
+            entries[pos] = vals[k];
+        }
+
+        for (int r = 0; r < rowNbr; r++) {
+            sortRow(indices, entries, starts[r], starts[r + 1]);
+        }
+
+        rowStart = IntBuffer.wrap(starts);
+        colIndex = IntBuffer.wrap(indices);
+        values = IntBuffer.wrap(entries);
+    }
+
+    /**
+     * Creates a new {@code SparseMatrix} from its tables in compressed sparse
+     * row format.
+     *
+     * @param rowNbr The number of rows.
+     * @param colNbr The number of columns.
+     * @param rowStart The index of the first entry of each row, and the
+     * number of entries.
+     * @param colIndex The columns of the entries, sorted in each row.
+     * @param values The values of the entries.
+     */
+    SparseMatrix(final int rowNbr, final int colNbr, final IntBuffer rowStart, final IntBuffer colIndex, final IntBuffer values) {
+        this.rowNbr = rowNbr;
+        this.colNbr = colNbr;
+        this.rowStart = rowStart;
+        this.colIndex = colIndex;
+        this.values = values;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return The number of rows.
+     */
+    int getRowNbr() {
+        return rowNbr;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return The number of columns.
+     */
+    int getColNbr() {
+        return colNbr;
+    }
+
+    /**
+     * Returns the number of non zero entries.
+     *
+     * @return The number of stored entries.
+     */
+    int getEntryNbr() {
+        return values.limit();
+    }
+
+    /**
+     * Returns the index of the first entry of a row in {@link #getColIndex}
+     * and {@link #getValue} (the row ends where the next one starts).
+     *
+     * @param row The row.
+     *
+     * @return The index of the row's first entry.
+     */
+    int getRowStart(final int row) {
+        return rowStart.get(row);
+    }
+
+    /**
+     * Returns the column of an entry.
+     *
+     * @param entry The entry index.
+     *
+     * @return The entry's column.
+     */
+    int getColIndex(final int entry) {
+        return colIndex.get(entry);
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * @param entry The entry index.
+     *
+     * @return The entry's value.
+     */
+    int getValue(final int entry) {
+        return values.get(entry);
+    }
+
+    /**
+     * Returns the number of bytes used by the arrays of this matrix.
+     *
+     * @return The storage size in bytes.
+     */
+    long getByteSize() {
+        return 4L * (rowStart.limit() + colIndex.limit() + values.limit());
+    }
+
+    /**
+     * Tells if the entries are read from a scratch file.
+     *
+     * @return {@code true} if the tables aren't on the java heap.
+     */
+    boolean isMapped() {
+        return values.isDirect();
+    }
+
+    /**
+     * Returns the number of bytes a dense {@code int} array of the same size
+     * would use.
+     *
+     * @return The dense storage size in bytes.
+     */
+    long getDenseByteSize() {
+        return 4L * rowNbr * colNbr;
+    }
+
+    /**
+     * Returns the submatrix made of some rows and columns.
+     *
+     * @param keptRows The rows to keep.
+     * @param keptCols The columns to keep.
+     *
+     * @return The submatrix, rows and columns staying in the same order.
+     */
+    SparseMatrix getSubMatrix(final boolean[] keptRows, final boolean[] keptCols) {
+        final int[] newCol = new int[colNbr];
+        int cols = 0;
+        for (int c = 0; c < colNbr; c++) {
+            newCol[c] = keptCols[c] ? cols++ : -1;
+        }
+
+        final EntryList entries = new EntryList();
+        int rows = 0;
+        for (int r = 0; r < rowNbr; r++) {
+            if (keptRows[r]) {
+                for (int k = rowStart.get(r); k < rowStart.get(r + 1); k++) {
+                    if (newCol[colIndex.get(k)] != -1) {
+                        entries.add(rows, newCol[colIndex.get(k)], values.get(k));
+                    }
+                }
+                rows++;
+            }
+        }
+
+        return entries.toMatrix(rows, cols);
+    }
+
+    /**
+     * Turns this matrix in a dense {@code IntegerMatrix}. A matrix without rows
+     * (a map to the null group) is given as an empty matrix with one row.
+     *
+     * @return The {@code IntegerMatrix}.
+     *
+     * @throws MathsArgumentException If the matrix can't be created.
+     */
+    IntegerMatrix toIntegerMatrix() throws MathsArgumentException {
+        if (rowNbr == 0) {
+            return IntegerMatrix.getEmpty(1, colNbr);
+        }
+
+        final int[][] dense = new int[rowNbr][colNbr];
+        for (int r = 0; r < rowNbr; r++) {
+            for (int k = rowStart.get(r); k < rowStart.get(r + 1); k++) {
+                dense[r][colIndex.get(k)] = values.get(k);
+            }
+        }
+
+        return new IntegerMatrix(dense);
+    }
+
+    /**
+     * Class collecting the entries of a matrix in coordinate format before
+     * compressing them.
+     */
+    static final class EntryList {
+
+        private int[] rows = new int[16];
+        private int[] cols = new int[16];
+        private int[] vals = new int[16];
+        private int entryNbr = 0;
+
+        /**
+         * Adds an entry.
+         *
+         * @param row The entry's row.
+         * @param col The entry's column.
+         * @param val The entry's value.
+         */
+        void add(final int row, final int col, final int val) {
+            if (entryNbr == rows.length) {
+                rows = Arrays.copyOf(rows, 2 * entryNbr);
+                cols = Arrays.copyOf(cols, 2 * entryNbr);
+                vals = Arrays.copyOf(vals, 2 * entryNbr);
+            }
+            rows[entryNbr] = row;
+            cols[entryNbr] = col;
+            vals[entryNbr++] = val;
+        }
+
+        /**
+         * Creates the {@code SparseMatrix} of the collected entries.
+         *
+         * @param rowNbr The number of rows.
+         * @param colNbr The number of columns.
+         *
+         * @return The matrix.
+         */
+        SparseMatrix toMatrix(final int rowNbr, final int colNbr) {
+            return new SparseMatrix(rowNbr, colNbr, rows, cols, vals, entryNbr);
+        }
+    }
+
+    private Object writeReplace() {
+        return new SerialForm(this);
+    }
+
+    /**
+     * Class representing the serialized form of a {@code SparseMatrix}.
+     */
+    private static final class SerialForm implements Serializable {
+
+        private static final long serialVersionUID = -4312776260181446870L;
+
+        private final int rowNbr;
+        private final int colNbr;
+        private final int[] rowStart;
+        private final int[] colIndex;
+        private final int[] values;
+
+        private SerialForm(final SparseMatrix matrix) {
+            rowNbr = matrix.rowNbr;
+            colNbr = matrix.colNbr;
+            rowStart = toArray(matrix.rowStart);
+            colIndex = toArray(matrix.colIndex);
+            values = toArray(matrix.values);
+        }
+
+        private Object readResolve() {
+            return new SparseMatrix(rowNbr, colNbr, IntBuffer.wrap(rowStart), IntBuffer.wrap(colIndex), IntBuffer.wrap(values));
+        }
+
+        private static int[] toArray(final IntBuffer buffer) {
+            final int[] array = new int[buffer.limit()];
+            for (int k = 0; k < array.length; k++) {
+                array[k] = buffer.get(k);
+            }
+            return array;
+        }
+    }
+
+    /**
+     * Sorts the entries of a row by column index (rows are short, an insertion
+     * sort is enough).
+     *
+     * @param colIndex The columns of the entries.
+     * @param values The values of the entries.
+     * @param from The first entry of the row.
+     * @param to The entry after the last one.
+     */
+    private static void sortRow(final int[] colIndex, final int[] values, final int from, final int to) {
+        for (int k = from + 1; k < to; k++) {
+            final int col = colIndex[k], val = values[k];
+            int l = k - 1;
+            while (l >= from && colIndex[l] > col) {
+                colIndex[l + 1] = colIndex[l];
+                values[l + 1] = values[l];
+                l--;
+            }
+            colIndex[l + 1] = col;
+            values[l + 1] = val;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package khovalink.homology;
+
+/**
+ * Class representing a surface obtained by gluing pieces (disks) along
+ * intervals of their boundaries, with the boundary cycles of the result.
+ * <p>
+ * Once the components are known, a choice of dotted pieces is turned into
+ * cobordisms in normal form : a component of genus {@code g} with {@code d}
+ * dots is zero if {@code g + d > 1}, is {@code 2^g} times its disks all
+ * dotted if {@code g + d = 1}, and is the sum of its disks all dotted but one
+ * otherwise (neck cutting).
+ *
+ * @author flo
+ */
+final class SurfacePlan {
+
+    private final long[] compPieces;
+    private final long[] compCycles;
+    private final int[] compGenus;
+
+    private final int[] freeComps;
+
+    /**
+     * Creates the plan of a surface.
+     *
+     * @param pieceNbr The number of pieces (at most 64).
+     * @param gluings The pairs of pieces glued along an interval.
+     * @param gluingNbr The number of gluings.
+     * @param cyclePieces A piece containing each boundary cycle (at most 64).
+     */
+    SurfacePlan(final int pieceNbr, final int[] gluings, final int gluingNbr, final int[] cyclePieces) {
+        final int[] parent = new int[pieceNbr];
+        for (int p = 0; p < pieceNbr; p++) {
+            parent[p] = p;
+        }
+        for (int k = 0; k < gluingNbr; k++) {
+            final int root1 = find(parent, gluings[2 * k]), root2 = find(parent, gluings[2 * k + 1]);
+            parent[root1] = root2;
+        }
+
+        final int[] comp = new int[pieceNbr];
+        int compNbr = 0;
+        for (int p = 0; p < pieceNbr; p++) {
+            if (find(parent, p) == p) {
+                comp[p] = compNbr++;
+            }
+        }
+
+        compPieces = new long[compNbr];
+        compCycles = new long[compNbr];
+        compGenus = new int[compNbr];
+        final int[] euler = new int[compNbr];
+        for (int p = 0; p < pieceNbr; p++) {
+            final int c = comp[find(parent, p)];
+            compPieces[c] |= 1L << p;
+            euler[c]++;
+        }
+        for (int k = 0; k < gluingNbr; k++) {
+            euler[comp[find(parent, gluings[2 * k])]]--;
+        }
+        for (int cycle = 0; cycle < cyclePieces.length; cycle++) {
+            compCycles[comp[find(parent, cyclePieces[cycle])]] |= 1L << cycle;
+        }
+        for (int c = 0; c < compNbr; c++) {
+            compGenus[c] = (2 - euler[c] - Long.bitCount(compCycles[c])) / 2;
+        }
+
+        freeComps = new int[compNbr];
+    }
+
+    /**
+     * Turns the surface with some dotted pieces in normal form and adds the
+     * result to a cobordism.
+     *
+     * @param pieceDots The mask of the dotted pieces.
+     * @param coef The coefficient of the surface.
+     * @param result The cobordism to which add the terms (over the boundary
+     * cycles).
+     */
+    void reduce(final long pieceDots, final int coef, final Cobordism result) {
+        int value = coef, freeNbr = 0;
+        long fixedDots = 0;
+
+        for (int c = 0; c < compPieces.length; c++) {
+            final int weight = Long.bitCount(pieceDots & compPieces[c]) + compGenus[c];
+            if (weight > 1 || (weight == 0 && compCycles[c] == 0)) {
+                return;
+            }
+
+            if (weight == 1) {
+                value = Math.multiplyExact(value, 1 << compGenus[c]);
+                fixedDots |= compCycles[c];
+            } else {
+                freeComps[freeNbr++] = c;
+            }
+        }
+
+        expand(fixedDots, value, freeNbr, 0, result);
+    }
+
+    /**
+     * Adds all the choices of an undotted disk in each component without dot.
+     *
+     * @param dots The dots already chosen.
+     * @param coef The coefficient of the terms.
+     * @param freeNbr The number of components without dot.
+     * @param index The next component to treat.
+     * @param result The cobordism to which add the terms.
+     */
+    private void expand(final long dots, final int coef, final int freeNbr, final int index, final Cobordism result) {
+        if (index == freeNbr) {
+            result.add(dots, coef);
+            return;
+        }
+
+        final long cycles = compCycles[freeComps[index]];
+        for (long rest = cycles; rest != 0; rest &= rest - 1) {
+            expand(dots | (cycles & ~Long.lowestOneBit(rest)), coef, freeNbr, index + 1, result);
+        }
+    }
+
+    private static int find(final int[] parent, final int piece) {
+        int root = piece;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        return root;
+    }
+}
@@ -0,0 +1,1016 @@
+package khovalink.homology;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Class representing the Khovanov complex of a planar tangle in the dotted
+ * cobordisms category (Bar-Natan).
+ * <p>
+ * Objects are crossingless matchings of the boundary points (the edges of the
+ * link diagram leaving the tangle) with a quantum shift, morphisms are
+ * {@code Cobordism}. Crossings are added one at a time : the complex is
+ * tensored with the complex of the crossing, closed circles are removed by
+ * delooping and every isomorphism of the differential is cancelled by
+ * Gaussian elimination, which keeps the complex small. The complex is
+ * serializable, so that the tangle can be checkpointed between two crossings.
+ *
+ * @author flo
+ */
+final class TangleComplex implements Serializable {
+
+    private static final long serialVersionUID = -7008291584925766401L;
+
+    /**
+     * Maximal number of boundary points (cycles are stored in {@code long}
+     * masks).
+     */
+    static final int MAX_BOUNDARY = 64;
+
+    /**
+     * Maximal number of matchings (three ids are packed in the {@code long}
+     * keys of the composition plans).
+     */
+    private static final int MAX_MATCHINGS = 1 << 21;
+
+    private static final int[][] SMOOTHINGS = {{3, 2, 1, 0}, {1, 0, 3, 2}};
+
+    private int[] boundary = new int[0];
+    private final TreeSet<Integer> degrees = new TreeSet<>();
+    private HashMap<Integer, Level> levels = new HashMap<>();
+
+    private final ArrayList<int[]> matchings = new ArrayList<>();
+    private final HashMap<MatchingKey, Integer> matchingIds = new HashMap<>();
+    private transient HashMap<Long, SurfacePlan> composePlans = new HashMap<>();
+
+    /**
+     * Creates the complex of the empty tangle together with some circles.
+     *
+     * @param unlinkedNbr The number of circles.
+     */
+    TangleComplex(final int unlinkedNbr) {
+        final int empty = internMatching(new int[0]);
+        final Level level = new Level();
+        for (int k = 0; k <= unlinkedNbr; k++) {
+            for (int l = 0; l < GeneratorsGroup.binomial(unlinkedNbr, k); l++) {
+                level.addObject(empty, unlinkedNbr - 2 * k);
+            }
+        }
+
+        levels.put(0, level);
+        degrees.add(0);
+    }
+
+    /**
+     * Returns the edges at the boundary of the tangle.
+     *
+     * @return The boundary edges, sorted.
+     */
+    int[] getBoundary() {
+        return boundary.clone();
+    }
+
+    /**
+     * Returns the number of objects of the complex.
+     *
+     * @return The number of objects.
+     */
+    int getObjectNbr() {
+        return levels.values().stream().mapToInt(Level::getAliveNbr).sum();
+    }
+
+    /**
+     * Adds a crossing to the tangle then simplifies the complex.
+     *
+     * @param portEdges The edges of the four positions of the crossing.
+     * @param positive {@code true} if the crossing is positive.
+     * @param cancellation The checks stopping the calculation.
+     */
+    void addCrossing(final int[] portEdges, final boolean positive, final Cancellation cancellation) {
+        final Step step = new Step(portEdges, positive);
+
+        final HashMap<Integer, Level> newLevels = new HashMap<>();
+        final HashMap<Integer, int[][]> newIds = new HashMap<>();
+
+        //Objects : each object gives its 0-smoothing and its 1-smoothing, delooped.
+        for (final int h : degrees) {
+            final Level level = levels.get(h);
+            final int[][] ids = new int[2 * level.size][];
+            for (int x = 0; x < level.size; x++) {
+                cancellation.check();
+                if (level.alive[x]) {
+                    for (int k = 0; k < 2; k++) {
+                        final Glued glued = step.glue(level.matching[x], k);
+                        final Level target = newLevels.computeIfAbsent(h + k, d -> new Level());
+                        ids[2 * x + k] = new int[1 << glued.loops.length];
+                        for (int loops = 0; loops < ids[2 * x + k].length; loops++) {
+                            final int shift = glued.loops.length - 2 * Integer.bitCount(loops);
+                            ids[2 * x + k][loops] = target.addObject(glued.matching, level.qGrad[x] + k + shift);
+                        }
+                    }
+                }
+            }
+            newIds.put(h, ids);
+        }
+
+        //Differentials : old differentials with identities, and saddles with signs.
+        for (final int h : degrees) {
+            final Level level = levels.get(h);
+            final int[][] ids = newIds.get(h), nextIds = newIds.get(h + 1);
+            for (int x = 0; x < level.size; x++) {
+                cancellation.check();
+                if (!level.alive[x]) {
+                    continue;
+                }
+                for (final Map.Entry<Integer, Cobordism> entry : level.out.get(x).entrySet()) {
+                    final int y = entry.getKey();
+                    for (int k = 0; k < 2; k++) {
+                        step.addTensor(newLevels.get(h + k), newLevels.get(h + 1 + k), ids[2 * x + k], nextIds[2 * y + k],
+                                level.matching[x], levels.get(h + 1).matching[y], k, k, entry.getValue(), 1);
+                    }
+                }
+
+                step.addTensor(newLevels.get(h), newLevels.get(h + 1), ids[2 * x], ids[2 * x + 1],
+                        level.matching[x], level.matching[x], 0, 1, new Cobordism(0, 1), h % 2 == 0 ? 1 : -1);
+            }
+        }
+
+        boundary = step.newBoundary;
+        levels = newLevels;
+        degrees.clear();
+        degrees.addAll(newLevels.keySet());
+        renumberMatchings();
+
+        eliminate(cancellation);
+    }
+
+    /**
+     * Creates the complexes of integers left once the tangle is closed : one
+     * differential for each homological grading and each quantum shift. The
+     * tangle has no boundary point, or the two ends of the cut edge of the
+     * reduced homology : the arcs are closed with their marked point labelled
+     * {@code x}, which drops the dotted cobordisms.
+     *
+     * @param biComplex The complex to fill.
+     * @param iShift The shift of the homological gradings.
+     * @param jShift The shift of the quantum gradings.
+     */
+    void fillBiComplex(final SparseBiComplex biComplex, final int iShift, final int jShift) {
+        final HashMap<Integer, int[]> indices = new HashMap<>();
+        final HashMap<Integer, HashMap<Integer, Integer>> sizes = new HashMap<>();
+
+        for (final int h : degrees) {
+            final Level level = levels.get(h);
+            final int[] index = new int[level.size];
+            final HashMap<Integer, Integer> hSizes = new HashMap<>();
+            for (int x = 0; x < level.size; x++) {
+                if (level.alive[x]) {
+                    index[x] = hSizes.merge(level.qGrad[x], 1, Integer::sum) - 1;
+                }
+            }
+            indices.put(h, index);
+            sizes.put(h, hSizes);
+        }
+
+        for (final int h : degrees) {
+            final Level level = levels.get(h);
+            final int[] index = indices.get(h);
+            final HashMap<Integer, SparseMatrix.EntryList> diffs = new HashMap<>();
+            for (int x = 0; x < level.size; x++) {
+                if (level.alive[x]) {
+                    final SparseMatrix.EntryList diff = diffs.computeIfAbsent(level.qGrad[x], q -> new SparseMatrix.EntryList());
+                    for (final Map.Entry<Integer, Cobordism> entry : level.out.get(x).entrySet()) {
+                        final int coef = entry.getValue().getUndottedCoef();
+                        if (coef != 0) {
+                            diff.add(indices.get(h + 1)[entry.getKey()], index[x], coef);
+                        }
+                    }
+                }
+            }
+
+            for (final int q : sizes.get(h).keySet()) {
+                final HashMap<Integer, Integer> nextSizes = sizes.get(h + 1);
+                final int rowNbr = nextSizes == null ? 0 : nextSizes.getOrDefault(q, 0);
+                biComplex.setijDiff(h + iShift, q + jShift, diffs.get(q).toMatrix(rowNbr, sizes.get(h).get(q)));
+            }
+        }
+    }
+
+    /**
+     * Cancels the isomorphisms of the differential (Gaussian elimination) until
+     * none remains, the ones creating the fewest new arrows first. When no
+     * arrow is invertible, arrows between isomorphic objects whose multiples of
+     * the identity are coprime are turned into an isomorphism by changes of
+     * basis (Euclid's algorithm).
+     *
+     * @param cancellation The checks stopping the calculation.
+     */
+    private void eliminate(final Cancellation cancellation) {
+        long limit = 0;
+        while (true) {
+            long minSkipped = Long.MAX_VALUE;
+            boolean found = false;
+            for (final int h : degrees) {
+                final Level level = levels.get(h), next = levels.get(h + 1);
+                if (next == null) {
+                    continue;
+                }
+
+                for (int x = 0; x < level.size; x++) {
+                    cancellation.check();
+                    for (final Map.Entry<Integer, Cobordism> entry : level.out.get(x).entrySet()) {
+                        final int y = entry.getKey();
+                        final int sign = entry.getValue().getIdentitySign();
+                        if (sign != 0 && level.matching[x] == next.matching[y] && level.qGrad[x] == next.qGrad[y]) {
+                            final long cost = (long) (level.out.get(x).size() - 1) * (next.in.get(y).size() - 1);
+                            if (cost <= limit) {
+                                cancel(h, x, y, sign);
+                                found = true;
+                                break;
+                            }
+                            minSkipped = Math.min(minSkipped, cost);
+                        }
+                    }
+                }
+            }
+
+            if (!found && minSkipped != Long.MAX_VALUE) {
+                limit = minSkipped;
+            } else if (!found && !combineObjects()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Looks for an object whose arrows from (or to) isomorphic objects are
+     * coprime multiples of the identity and combines these objects until one of
+     * the arrows is invertible.
+     *
+     * @return {@code true} if an invertible arrow was created.
+     */
+    private boolean combineObjects() {
+        for (final int h : degrees) {
+            final Level level = levels.get(h), next = levels.get(h + 1);
+            if (next == null) {
+                continue;
+            }
+
+            for (int y = 0; y < next.size; y++) {
+                if (next.alive[y] && isCoprime(next.in.get(y), level, next.matching[y], next.qGrad[y])) {
+                    while (!hasUnit(next.in.get(y), level, next.matching[y], next.qGrad[y])) {
+                        final int[] pair = getEuclidPair(next.in.get(y), level, next.matching[y], next.qGrad[y]);
+                        combineSources(h, pair[0], pair[1], pair[2]);
+                    }
+                    return true;
+                }
+            }
+
+            for (int x = 0; x < level.size; x++) {
+                if (level.alive[x] && isCoprime(level.out.get(x), next, level.matching[x], level.qGrad[x])) {
+                    while (!hasUnit(level.out.get(x), next, level.matching[x], level.qGrad[x])) {
+                        final int[] pair = getEuclidPair(level.out.get(x), next, level.matching[x], level.qGrad[x]);
+                        combineTargets(h + 1, pair[0], pair[1], pair[2]);
+                    }
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Tells if the arrows between an object and the objects isomorphic to it
+     * are multiples of the identity with no common divisor (and are at least
+     * two).
+     *
+     * @param arrows The arrows of the object.
+     * @param others The level of the other ends of the arrows.
+     * @param matching The matching of the object.
+     * @param q The quantum shift of the object.
+     *
+     * @return {@code true} if the multiples are coprime.
+     */
+    private static boolean isCoprime(final HashMap<Integer, Cobordism> arrows, final Level others, final int matching, final int q) {
+        int gcd = 0, nbr = 0;
+        for (final Map.Entry<Integer, Cobordism> entry : arrows.entrySet()) {
+            final int coef = getCoef(entry, others, matching, q);
+            if (coef != 0) {
+                gcd = gcd(gcd, coef);
+                nbr++;
+            }
+        }
+
+        return nbr > 1 && gcd == 1;
+    }
+
+    private static boolean hasUnit(final HashMap<Integer, Cobordism> arrows, final Level others, final int matching, final int q) {
+        return arrows.entrySet().stream().anyMatch(entry -> Math.abs(getCoef(entry, others, matching, q)) == 1);
+    }
+
+    /**
+     * Chooses a step of Euclid's algorithm : the object whose multiple is the
+     * smallest and another one whose multiple is reduced by it.
+     *
+     * @param arrows The arrows of the object.
+     * @param others The level of the other ends of the arrows.
+     * @param matching The matching of the object.
+     * @param q The quantum shift of the object.
+     *
+     * @return The other end with the largest multiple, the one with the
+     * smallest and the quotient.
+     */
+    private static int[] getEuclidPair(final HashMap<Integer, Cobordism> arrows, final Level others, final int matching, final int q) {
+        int small = -1, smallCoef = 0, large = -1, largeCoef = 0;
+        for (final Map.Entry<Integer, Cobordism> entry : arrows.entrySet()) {
+            final int coef = getCoef(entry, others, matching, q);
+            if (coef == 0) {
+                continue;
+            }
+            if (small == -1 || Math.abs(coef) < Math.abs(smallCoef)) {
+                large = small;
+                largeCoef = smallCoef;
+                small = entry.getKey();
+                smallCoef = coef;
+            } else if (large == -1 || Math.abs(coef) > Math.abs(largeCoef)) {
+                large = entry.getKey();
+                largeCoef = coef;
+            }
+        }
+
+        return new int[]{large, small, largeCoef / smallCoef};
+    }
+
+    private static int gcd(final int a, final int b) {
+        return b == 0 ? Math.abs(a) : gcd(b, a % b);
+    }
+
+    private static int getCoef(final Map.Entry<Integer, Cobordism> entry, final Level others, final int matching, final int q) {
+        final int other = entry.getKey();
+        return others.matching[other] == matching && others.qGrad[other] == q ? entry.getValue().getIdentityCoef() : 0;
+    }
+
+    /**
+     * Changes the basis of a grading : {@code x} is replaced by {@code x -
+     * factor * x1}, both objects being isomorphic.
+     *
+     * @param h The homological grading.
+     * @param x The replaced object.
+     * @param x1 The other object.
+     * @param factor The multiple of {@code x1}.
+     */
+    private void combineSources(final int h, final int x, final int x1, final int factor) {
+        final Level level = levels.get(h);
+        for (final Map.Entry<Integer, Cobordism> entry : new ArrayList<>(level.out.get(x1).entrySet())) {
+            addEntry(h, x, entry.getKey(), entry.getValue(), -factor);
+        }
+        for (final Map.Entry<Integer, Cobordism> entry : new ArrayList<>(level.in.get(x).entrySet())) {
+            addEntry(h - 1, entry.getKey(), x1, entry.getValue(), factor);
+        }
+    }
+
+    /**
+     * Changes the basis of a grading : {@code y1} is replaced by {@code y1 +
+     * factor * y}, both objects being isomorphic, so that the arrows to
+     * {@code y} lose {@code factor} times their arrows to {@code y1}.
+     *
+     * @param h The homological grading.
+     * @param y The object whose incoming arrows are reduced.
+     * @param y1 The replaced object.
+     * @param factor The multiple of {@code y}.
+     */
+    private void combineTargets(final int h, final int y, final int y1, final int factor) {
+        final Level level = levels.get(h);
+        for (final Map.Entry<Integer, Cobordism> entry : new ArrayList<>(level.out.get(y).entrySet())) {
+            addEntry(h, y1, entry.getKey(), entry.getValue(), factor);
+        }
+        for (final Map.Entry<Integer, Cobordism> entry : new ArrayList<>(level.in.get(y1).entrySet())) {
+            addEntry(h - 1, entry.getKey(), y, entry.getValue(), -factor);
+        }
+    }
+
+    /**
+     * Cancels an isomorphism {@code x -> y} : every path {@code z -> y}, {@code x
+     * -> w} gives a new arrow {@code z -> w} then {@code x} and {@code y} are
+     * removed.
+     *
+     * @param h The homological grading of {@code x}.
+     * @param x The source of the isomorphism.
+     * @param y The target of the isomorphism.
+     * @param sign The sign of the isomorphism.
+     */
+    private void cancel(final int h, final int x, final int y, final int sign) {
+        final Level level = levels.get(h), next = levels.get(h + 1);
+        final int middle = level.matching[x];
+
+        final ArrayList<Map.Entry<Integer, Cobordism>> toY = new ArrayList<>(next.in.get(y).entrySet());
+        final ArrayList<Map.Entry<Integer, Cobordism>> fromX = new ArrayList<>(level.out.get(x).entrySet());
+
+        for (final Map.Entry<Integer, Cobordism> zEntry : toY) {
+            final int z = zEntry.getKey();
+            if (z == x) {
+                continue;
+            }
+            for (final Map.Entry<Integer, Cobordism> wEntry : fromX) {
+                final int w = wEntry.getKey();
+                if (w == y) {
+                    continue;
+                }
+                final Cobordism path = compose(level.matching[z], middle, next.matching[w], zEntry.getValue(), wEntry.getValue());
+                addEntry(h, z, w, path, -sign);
+            }
+        }
+
+        removeObject(h, x);
+        removeObject(h + 1, y);
+    }
+
+    /**
+     * Adds a multiple of a cobordism to an arrow of the differential.
+     *
+     * @param h The homological grading of the source.
+     * @param x The source.
+     * @param y The target.
+     * @param cob The cobordism.
+     * @param factor The multiple.
+     */
+    private void addEntry(final int h, final int x, final int y, final Cobordism cob, final int factor) {
+        final Level level = levels.get(h), next = levels.get(h + 1);
+        Cobordism entry = level.out.get(x).get(y);
+        if (entry == null) {
+            entry = new Cobordism();
+            level.out.get(x).put(y, entry);
+            next.in.get(y).put(x, entry);
+        }
+
+        entry.add(cob, factor);
+        if (entry.isZero()) {
+            level.out.get(x).remove(y);
+            next.in.get(y).remove(x);
+        }
+    }
+
+    /**
+     * Removes an object and its arrows.
+     *
+     * @param h The homological grading of the object.
+     * @param x The object.
+     */
+    private void removeObject(final int h, final int x) {
+        final Level level = levels.get(h), prev = levels.get(h - 1), next = levels.get(h + 1);
+        for (final int y : level.out.get(x).keySet()) {
+            next.in.get(y).remove(x);
+        }
+        for (final int z : level.in.get(x).keySet()) {
+            prev.out.get(z).remove(x);
+        }
+
+        level.out.get(x).clear();
+        level.in.get(x).clear();
+        level.alive[x] = false;
+    }
+
+    /**
+     * Composes two cobordisms {@code X -> Y -> Z}.
+     *
+     * @param matchingX The source.
+     * @param matchingY The middle tangle.
+     * @param matchingZ The target.
+     * @param first The cobordism {@code X -> Y}.
+     * @param second The cobordism {@code Y -> Z}.
+     *
+     * @return The composed cobordism {@code X -> Z}.
+     */
+    private Cobordism compose(final int matchingX, final int matchingY, final int matchingZ, final Cobordism first, final Cobordism second) {
+        final long key = ((long) matchingX << 42) | ((long) matchingY << 21) | matchingZ;
+        SurfacePlan plan = composePlans.get(key);
+        final int[] cyclesXY = getCycles(matchings.get(matchingX), matchings.get(matchingY));
+        final int shift = cycleNbr(cyclesXY);
+
+        if (plan == null) {
+            final int[] x = matchings.get(matchingX), y = matchings.get(matchingY), z = matchings.get(matchingZ);
+            final int[] cyclesYZ = getCycles(y, z), cyclesXZ = getCycles(x, z);
+
+            final int[] gluings = new int[y.length];
+            int gluingNbr = 0;
+            for (int a = 0; a < y.length; a++) {
+                if (a < y[a]) {
+                    gluings[2 * gluingNbr] = cyclesXY[a];
+                    gluings[2 * gluingNbr++ + 1] = shift + cyclesYZ[a];
+                }
+            }
+
+            final int[] cyclePieces = new int[cycleNbr(cyclesXZ)];
+            for (int a = x.length - 1; a >= 0; a--) {
+                cyclePieces[cyclesXZ[a]] = cyclesXY[a];
+            }
+
+            plan = new SurfacePlan(shift + cycleNbr(cyclesYZ), gluings, gluingNbr, cyclePieces);
+            composePlans.put(key, plan);
+        }
+
+        final Cobordism result = new Cobordism();
+        for (int k = 0; k < first.getTermNbr(); k++) {
+            for (int l = 0; l < second.getTermNbr(); l++) {
+                plan.reduce(first.getDots(k) | second.getDots(l) << shift, Math.multiplyExact(first.getCoef(k), second.getCoef(l)), result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gives an id to a matching.
+     *
+     * @param matching The matching.
+     *
+     * @return The matching's id.
+     *
+     * @throws IllegalStateException If there are too many matchings.
+     */
+    private int internMatching(final int[] matching) {
+        return matchingIds.computeIfAbsent(new MatchingKey(matching), key -> {
+            if (matchings.size() >= MAX_MATCHINGS) {
+                throw new IllegalStateException("More than " + MAX_MATCHINGS + " crossingless matchings of the boundary.");
+            }
+            matchings.add(matching);
+            return matchings.size() - 1;
+        });
+    }
+
+    /**
+     * Keeps only the matchings of the current boundary and clears the cached
+     * plans.
+     */
+    private void renumberMatchings() {
+        final HashMap<Integer, Integer> newIds = new HashMap<>();
+        final ArrayList<int[]> oldMatchings = new ArrayList<>(matchings);
+        matchings.clear();
+        matchingIds.clear();
+        composePlans.clear();
+
+        for (final Level level : levels.values()) {
+            for (int x = 0; x < level.size; x++) {
+                level.matching[x] = newIds.computeIfAbsent(level.matching[x], id -> internMatching(oldMatchings.get(id)));
+            }
+        }
+    }
+
+    /**
+     * Numbers the cycles of the union of two matchings by their smallest
+     * point.
+     *
+     * @param x The first matching.
+     * @param y The second matching.
+     *
+     * @return The cycle of each point.
+     */
+    static int[] getCycles(final int[] x, final int[] y) {
+        final int[] cycles = new int[x.length];
+        Arrays.fill(cycles, -1);
+
+        int cycleNbr = 0;
+        for (int start = 0; start < x.length; start++) {
+            if (cycles[start] == -1) {
+                int a = start;
+                do {
+                    cycles[a] = cycleNbr;
+                    cycles[x[a]] = cycleNbr;
+                    a = y[x[a]];
+                } while (a != start);
+                cycleNbr++;
+            }
+        }
+
+        return cycles;
+    }
+
+    private static int cycleNbr(final int[] cycles) {
+        int max = -1;
+        for (final int cycle : cycles) {
+            max = Math.max(max, cycle);
+        }
+        return max + 1;
+    }
+
+    private void readObject(final ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        composePlans = new HashMap<>();
+    }
+
+    /**
+     * Inner class representing the objects of one homological grading and the
+     * arrows going out of them and into them.
+     */
+    private static final class Level implements Serializable {
+
+        private static final long serialVersionUID = 4419950633432453297L;
+
+        private int[] matching = new int[8];
+        private int[] qGrad = new int[8];
+        private boolean[] alive = new boolean[8];
+        private int size = 0;
+
+        private final ArrayList<HashMap<Integer, Cobordism>> out = new ArrayList<>();
+        private final ArrayList<HashMap<Integer, Cobordism>> in = new ArrayList<>();
+
+        /**
+         * Adds an object.
+         *
+         * @param matchingId The matching of the object.
+         * @param q The quantum shift of the object.
+         *
+         * @return The object's index.
+         */
+        int addObject(final int matchingId, final int q) {
+            if (size == matching.length) {
+                matching = Arrays.copyOf(matching, 2 * size);
+                qGrad = Arrays.copyOf(qGrad, 2 * size);
+                alive = Arrays.copyOf(alive, 2 * size);
+            }
+            matching[size] = matchingId;
+            qGrad[size] = q;
+            alive[size] = true;
+            out.add(new HashMap<>());
+            in.add(new HashMap<>());
+
+            return size++;
+        }
+
+        /**
+         * Returns the number of objects not removed.
+         *
+         * @return The number of objects.
+         */
+        int getAliveNbr() {
+            int nbr = 0;
+            for (int x = 0; x < size; x++) {
+                if (alive[x]) {
+                    nbr++;
+                }
+            }
+            return nbr;
+        }
+    }
+
+    /**
+     * Inner class representing a matching of the new boundary obtained by
+     * gluing a matching of the old boundary with a smoothing of the crossing,
+     * together with its closed circles.
+     * <p>
+     * Arcs are coded by the point they start from : an old boundary point
+     * {@code a >= 0} or a position {@code p} of the crossing coded
+     * {@code -1 - p}.
+     */
+    private static final class Glued {
+
+        private final int matching;
+        private final int[] firstArcs;
+        private final int[] loops;
+
+        /**
+         * Creates a new {@code Glued}.
+         *
+         * @param matching The id of the matching of the new boundary.
+         * @param firstArcs The first arc of the strand leaving each new point.
+         * @param loops An arc of each closed circle.
+         */
+        Glued(final int matching, final int[] firstArcs, final int[] loops) {
+            this.matching = matching;
+            this.firstArcs = firstArcs;
+            this.loops = loops;
+        }
+    }
+
+    /**
+     * Inner class gathering what is needed to tensor the complex with one
+     * crossing.
+     */
+    private final class Step {
+
+        private final int[] newBoundary;
+        private final int[][] smoothings = new int[2][];
+
+        private final int[] oldToNew;
+        private final int[] oldToPort;
+        private final int[] newToOld;
+        private final int[] newToPort;
+        private final int[] portToOld = new int[4];
+        private final int[] portToNew = new int[4];
+        private final int[] portPartner = new int[4];
+
+        private final HashMap<Long, Glued> glued = new HashMap<>();
+        private final HashMap<Long, SurfacePlan> plans = new HashMap<>();
+
+        /**
+         * Prepares the gluing of a crossing.
+         *
+         * @param portEdges The edges of the four positions of the crossing.
+         * @param positive {@code true} if the crossing is positive.
+         */
+        Step(final int[] portEdges, final boolean positive) {
+            smoothings[0] = SMOOTHINGS[positive ? 1 : 0];
+            smoothings[1] = SMOOTHINGS[positive ? 0 : 1];
+
+            final TreeSet<Integer> newEdges = new TreeSet<>();
+            for (final int edge : boundary) {
+                newEdges.add(edge);
+            }
+            for (int p = 0; p < 4; p++) {
+                portPartner[p] = -1;
+                for (int p2 = 0; p2 < 4; p2++) {
+                    if (p2 != p && portEdges[p2] == portEdges[p]) {
+                        portPartner[p] = p2;
+                    }
+                }
+                if (portPartner[p] == -1 && !newEdges.remove(portEdges[p])) {
+                    newEdges.add(portEdges[p]);
+                }
+            }
+            newBoundary = newEdges.stream().mapToInt(Integer::intValue).toArray();
+
+            oldToNew = new int[boundary.length];
+            oldToPort = new int[boundary.length];
+            newToOld = new int[newBoundary.length];
+            newToPort = new int[newBoundary.length];
+            Arrays.fill(newToOld, -1);
+            Arrays.fill(newToPort, -1);
+            for (int a = 0; a < boundary.length; a++) {
+                oldToNew[a] = Arrays.binarySearch(newBoundary, boundary[a]);
+                oldToPort[a] = -1;
+                if (oldToNew[a] < 0) {
+                    oldToNew[a] = -1;
+                } else {
+                    newToOld[oldToNew[a]] = a;
+                }
+            }
+            for (int p = 0; p < 4; p++) {
+                portToOld[p] = -1;
+                portToNew[p] = -1;
+                if (portPartner[p] == -1) {
+                    final int a = Arrays.binarySearch(boundary, portEdges[p]);
+                    if (a >= 0) {
+                        portToOld[p] = a;
+                        oldToPort[a] = p;
+                    } else {
+                        portToNew[p] = Arrays.binarySearch(newBoundary, portEdges[p]);
+                        newToPort[portToNew[p]] = p;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Glues a matching of the old boundary with a smoothing of the
+         * crossing.
+         *
+         * @param matchingId The old matching.
+         * @param k The smoothing (0 or 1).
+         *
+         * @return The new matching and its circles.
+         */
+        Glued glue(final int matchingId, final int k) {
+            final long key = (long) matchingId << 1 | k;
+            Glued result = glued.get(key);
+            if (result != null) {
+                return result;
+            }
+
+            final int[] old = matchings.get(matchingId), smoothing = smoothings[k];
+            final boolean[] oldSeen = new boolean[old.length], portSeen = new boolean[4];
+            final int[] matching = new int[newBoundary.length], firstArcs = new int[newBoundary.length];
+            Arrays.fill(matching, -1);
+
+            final int[] end = new int[2];
+            for (int t = 0; t < newBoundary.length; t++) {
+                if (matching[t] == -1) {
+                    firstArcs[t] = newToOld[t] >= 0 ? newToOld[t] : -1 - newToPort[t];
+                    walk(old, smoothing, firstArcs[t], oldSeen, portSeen, end);
+                    matching[t] = end[0];
+                    matching[end[0]] = t;
+                    firstArcs[end[0]] = reverse(old, smoothing, end[1]);
+                }
+            }
+
+            final ArrayList<Integer> loops = new ArrayList<>();
+            for (int a = 0; a < old.length; a++) {
+                if (!oldSeen[a]) {
+                    loops.add(a);
+                    walk(old, smoothing, a, oldSeen, portSeen, end);
+                }
+            }
+            for (int p = 0; p < 4; p++) {
+                if (!portSeen[p]) {
+                    loops.add(-1 - p);
+                    walk(old, smoothing, -1 - p, oldSeen, portSeen, end);
+                }
+            }
+
+            result = new Glued(internMatching(matching), firstArcs, loops.stream().mapToInt(Integer::intValue).toArray());
+            glued.put(key, result);
+            return result;
+        }
+
+        /**
+         * Follows a strand until it reaches a new boundary point or comes back
+         * to its first arc.
+         *
+         * @param old The old matching.
+         * @param smoothing The smoothing of the crossing.
+         * @param start The first arc.
+         * @param oldSeen The old points already visited.
+         * @param portSeen The positions already visited.
+         * @param end Receives the new boundary point reached (-1 for a circle)
+         * and the last arc.
+         */
+        private void walk(final int[] old, final int[] smoothing, final int start, final boolean[] oldSeen, final boolean[] portSeen, final int[] end) {
+            int arc = start;
+            while (true) {
+                final int next;
+                if (arc >= 0) {
+                    oldSeen[arc] = true;
+                    oldSeen[old[arc]] = true;
+                    final int a = old[arc];
+                    if (oldToNew[a] >= 0) {
+                        end[0] = oldToNew[a];
+                        end[1] = arc;
+                        return;
+                    }
+                    next = -1 - oldToPort[a];
+                } else {
+                    final int p = -1 - arc;
+                    portSeen[p] = true;
+                    portSeen[smoothing[p]] = true;
+                    final int p2 = smoothing[p];
+                    if (portToNew[p2] >= 0) {
+                        end[0] = portToNew[p2];
+                        end[1] = arc;
+                        return;
+                    }
+                    next = portToOld[p2] >= 0 ? portToOld[p2] : -1 - portPartner[p2];
+                }
+
+                if (next == start) {
+                    end[0] = -1;
+                    end[1] = arc;
+                    return;
+                }
+                arc = next;
+            }
+        }
+
+        /**
+         * Gives the code of an arc travelled the other way.
+         *
+         * @param old The old matching.
+         * @param smoothing The smoothing of the crossing.
+         * @param arc The arc.
+         *
+         * @return The code of the same arc from its other end.
+         */
+        private int reverse(final int[] old, final int[] smoothing, final int arc) {
+            return arc >= 0 ? old[arc] : -1 - smoothing[-1 - arc];
+        }
+
+        /**
+         * Adds to the new complex the tensor product of an old cobordism with a
+         * cobordism of the crossing (identity or saddle), delooped.
+         *
+         * @param sourceLevel The new level of the source objects.
+         * @param targetLevel The new level of the target objects.
+         * @param sources The new objects coming from the old source.
+         * @param targets The new objects coming from the old target.
+         * @param matchingA The old source matching.
+         * @param matchingB The old target matching.
+         * @param kx The smoothing of the source.
+         * @param ky The smoothing of the target.
+         * @param cob The old cobordism.
+         * @param sign The sign of the arrows.
+         */
+        void addTensor(final Level sourceLevel, final Level targetLevel, final int[] sources, final int[] targets,
+                final int matchingA, final int matchingB, final int kx, final int ky, final Cobordism cob, final int sign) {
+            final Glued gluedX = glue(matchingA, kx), gluedY = glue(matchingB, ky);
+            final SurfacePlan plan = getPlan(matchingA, matchingB, kx, ky, gluedX, gluedY);
+            final int cycleNbr = cycleNbr(getCycles(matchings.get(gluedX.matching), matchings.get(gluedY.matching)));
+            final int xLoops = gluedX.loops.length, yLoops = gluedY.loops.length;
+
+            final Cobordism reduced = new Cobordism();
+            for (int t = 0; t < cob.getTermNbr(); t++) {
+                plan.reduce(cob.getDots(t), Math.multiplyExact(sign, cob.getCoef(t)), reduced);
+            }
+
+            //A circle of the source is undotted in the +1 summand, a circle of the target is dotted in the -1 summand.
+            final HashMap<Long, Cobordism> parts = new HashMap<>();
+            for (int t = 0; t < reduced.getTermNbr(); t++) {
+                final long dots = reduced.getDots(t);
+                final int beta = (int) (~dots >>> cycleNbr) & ((1 << xLoops) - 1);
+                final int gamma = (int) (dots >>> (cycleNbr + xLoops)) & ((1 << yLoops) - 1);
+                parts.computeIfAbsent((long) beta << 32 | gamma, b -> new Cobordism())
+                        .add(dots & ((1L << cycleNbr) - 1), reduced.getCoef(t));
+            }
+
+            for (final Map.Entry<Long, Cobordism> part : parts.entrySet()) {
+                if (!part.getValue().isZero()) {
+                    final int x = sources[(int) (part.getKey() >>> 32)], y = targets[part.getKey().intValue()];
+                    sourceLevel.out.get(x).put(y, part.getValue());
+                    targetLevel.in.get(y).put(x, part.getValue());
+                }
+            }
+        }
+
+        /**
+         * Returns the surface of the tensor product of a cobordism
+         * {@code A -> B} with a cobordism of the crossing.
+         *
+         * @param matchingA The old source.
+         * @param matchingB The old target.
+         * @param kx The smoothing of the source.
+         * @param ky The smoothing of the target.
+         * @param gluedX The new source.
+         * @param gluedY The new target.
+         *
+         * @return The plan of the surface.
+         */
+        private SurfacePlan getPlan(final int matchingA, final int matchingB, final int kx, final int ky, final Glued gluedX, final Glued gluedY) {
+            final long key = ((long) matchingA << 33) | ((long) matchingB << 2) | (kx << 1) | ky;
+            SurfacePlan plan = plans.get(key);
+            if (plan != null) {
+                return plan;
+            }
+
+            final int[] cyclesAB = getCycles(matchings.get(matchingA), matchings.get(matchingB));
+            final int oldNbr = cycleNbr(cyclesAB);
+            final boolean saddle = kx != ky;
+            final int[] crossPiece = new int[4];
+            for (int p = 0; p < 4; p++) {
+                crossPiece[p] = oldNbr + (saddle || p == 0 || smoothings[kx][0] == p ? 0 : 1);
+            }
+
+            final int[] gluings = new int[16];
+            int gluingNbr = 0;
+            for (int p = 0; p < 4; p++) {
+                if (portToOld[p] >= 0) {
+                    gluings[2 * gluingNbr] = cyclesAB[portToOld[p]];
+                    gluings[2 * gluingNbr++ + 1] = crossPiece[p];
+                } else if (portPartner[p] > p) {
+                    gluings[2 * gluingNbr] = crossPiece[p];
+                    gluings[2 * gluingNbr++ + 1] = crossPiece[portPartner[p]];
+                }
+            }
+
+            final int[] cyclesXY = getCycles(matchings.get(gluedX.matching), matchings.get(gluedY.matching));
+            final int cycleNbr = cycleNbr(cyclesXY);
+            final int[] cyclePieces = new int[cycleNbr + gluedX.loops.length + gluedY.loops.length];
+            for (int t = newBoundary.length - 1; t >= 0; t--) {
+                cyclePieces[cyclesXY[t]] = getPiece(gluedX.firstArcs[t], cyclesAB, crossPiece);
+            }
+            for (int l = 0; l < gluedX.loops.length; l++) {
+                cyclePieces[cycleNbr + l] = getPiece(gluedX.loops[l], cyclesAB, crossPiece);
+            }
+            for (int l = 0; l < gluedY.loops.length; l++) {
+                cyclePieces[cycleNbr + gluedX.loops.length + l] = getPiece(gluedY.loops[l], cyclesAB, crossPiece);
+            }
+
+            plan = new SurfacePlan(oldNbr + (saddle ? 1 : 2), gluings, gluingNbr, cyclePieces);
+            plans.put(key, plan);
+            return plan;
+        }
+
+        private int getPiece(final int arc, final int[] cyclesAB, final int[] crossPiece) {
+            return arc >= 0 ? cyclesAB[arc] : crossPiece[-1 - arc];
+        }
+    }
+
+    /**
+     * Inner class used as a key to compare matchings by content.
+     */
+    private static final class MatchingKey implements Serializable {
+
+        private static final long serialVersionUID = -5139880364107427651L;
+
+        private final int[] matching;
+        private final int hash;
+
+        MatchingKey(final int[] matching) {
+            this.matching = matching;
+            hash = Arrays.hashCode(matching);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof MatchingKey && Arrays.equals(matching, ((MatchingKey) obj).matching);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package khovalink.homology;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.TreeSet;
+import khovalink.persistence.Link;
+import maths.exceptions.MathsArgumentException;
+import maths.homology.BiGradedHomology;
+
+/**
+ * Class calculating the Khovanov homology of a link by adding its crossings
+ * one at a time to a planar tangle (Bar-Natan's local algorithm).
+ * <p>
+ * The crossings are added in an order keeping the boundary of the tangle
+ * small : each time, the crossing sharing the most edges with the current
+ * tangle is chosen. The memory used only depends on the size of the
+ * simplified complexes, not on the number of resolutions. The state between
+ * two crossings is serializable, to be saved in a {@code Checkpoint}.
+ * <p>
+ * For the reduced homology, the edge of the marked point is cut : its two
+ * ends stay on the boundary until the end, leaving a complex of arcs. Closing
+ * the arc with its marked point labelled {@code x} only keeps the cobordisms
+ * without dot, the arc giving one generator of the quantum grading of its
+ * shift.
+ *
+ * @author flo
+ */
+final class TangleHomology implements Serializable {
+
+    private static final long serialVersionUID = 2617449630213542950L;
+
+    private final boolean[] signs;
+    private final int[] edges;
+    private final int[] order;
+    private final int maxBoundary;
+
+    private final int negCross;
+    private final int posCross;
+
+    private final TangleComplex complex;
+    private int addedNbr = 0;
+
+    /**
+     * Creates a new {@code TangleHomology} and chooses the order of the
+     * crossings.
+     *
+     * @param link The link.
+     */
+    TangleHomology(final Link link) {
+        this(link, -1);
+    }
+
+    /**
+     * Creates a new {@code TangleHomology} of the reduced homology and
+     * chooses the order of the crossings.
+     *
+     * @param link The link.
+     * @param markedComponent The component of the marked point, or -1 for
+     * the unreduced homology.
+     */
+    TangleHomology(final Link link, final int markedComponent) {
+        final int[] linkCode = link.getCode();
+        final int crossingNbr = link.getNbCross();
+        signs = link.getSigns();
+
+        edges = new int[linkCode.length];
+        for (int pos = 0; pos < linkCode.length; pos++) {
+            edges[pos] = Math.min(pos, linkCode[pos]);
+        }
+        final int marked = LinkHomology.getMarkedPosition(link, markedComponent);
+        if (marked >= 0) {
+            //The larger end of an edge is never the smaller end of another one.
+            final int end = Math.max(marked, linkCode[marked]);
+            edges[end] = end;
+        }
+
+        int x = 0, y = 0, unlinkedNbr = 0;
+        for (final boolean sgn : signs) {
+            if (sgn) {
+                y++;
+            } else {
+                x++;
+            }
+        }
+        final int[][] gauss = link.getGauss();
+        for (int compo = 0; compo < gauss.length; compo++) {
+            //A marked component without crossing is closed with its only generator.
+            if (gauss[compo].length == 0 && compo != markedComponent) {
+                unlinkedNbr++;
+            }
+        }
+        negCross = x;
+        posCross = y;
+
+        order = new int[crossingNbr];
+        final boolean[] added = new boolean[crossingNbr];
+        final TreeSet<Integer> boundary = new TreeSet<>();
+        int max = 0;
+        for (int k = 0; k < crossingNbr; k++) {
+            int best = -1, bestGrowth = Integer.MAX_VALUE;
+            for (int c = 0; c < crossingNbr; c++) {
+                if (!added[c]) {
+                    int growth = 0;
+                    for (int p = 4 * c; p < 4 * c + 4; p++) {
+                        growth += boundary.contains(edges[p]) ? -1 : 1;
+                    }
+                    if (growth < bestGrowth) {
+                        best = c;
+                        bestGrowth = growth;
+                    }
+                }
+            }
+
+            order[k] = best;
+            added[best] = true;
+            for (int p = 4 * best; p < 4 * best + 4; p++) {
+                if (!boundary.remove(edges[p])) {
+                    boundary.add(edges[p]);
+                }
+            }
+            max = Math.max(max, boundary.size());
+        }
+        maxBoundary = max;
+
+        complex = new TangleComplex(unlinkedNbr);
+    }
+
+    /**
+     * Returns the largest number of boundary points the tangle will have.
+     *
+     * @return The maximal boundary size.
+     */
+    int getMaxBoundary() {
+        return maxBoundary;
+    }
+
+    /**
+     * Tells if some crossings remain to be added.
+     *
+     * @return {@code true} if the tangle isn't the whole link yet.
+     */
+    boolean hasNextCrossing() {
+        return addedNbr < order.length;
+    }
+
+    /**
+     * Adds the next crossing to the tangle and simplifies its complex. If the
+     * calculation is stopped meanwhile, the tangle can't be used anymore.
+     *
+     * @param cancellation The checks stopping the calculation.
+     */
+    void addNextCrossing(final Cancellation cancellation) {
+        final int c = order[addedNbr++];
+        complex.addCrossing(Arrays.copyOfRange(edges, 4 * c, 4 * c + 4), signs[c], cancellation);
+    }
+
+    /**
+     * Returns the number of crossings already added.
+     *
+     * @return The number of crossings.
+     */
+    int getAddedNbr() {
+        return addedNbr;
+    }
+
+    /**
+     * Returns the number of objects of the current complex.
+     *
+     * @return The number of objects.
+     */
+    int getObjectNbr() {
+        return complex.getObjectNbr();
+    }
+
+    /**
+     * Calculates the homology once all the crossings are added. The complex
+     * being simplified, its differentials have no invertible entry left and
+     * are always reduced in sparse form.
+     *
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedHomology}.
+     *
+     * @throws MathsArgumentException If the homology can't be calculated.
+     */
+    BiGradedHomology getHomology(final Cancellation cancellation) throws MathsArgumentException {
+        return getGroups(cancellation).getHomology();
+    }
+
+    /**
+     * Calculates the homology groups once all the crossings are added.
+     *
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedGroups}.
+     */
+    BiGradedGroups getGroups(final Cancellation cancellation) {
+        final SparseBiComplex biComplex = new SparseBiComplex(cancellation);
+        complex.fillBiComplex(biComplex, -negCross, posCross - 2 * negCross);
+
+        return biComplex.getGroups();
+    }
+
+    /**
+     * Calculates the homology with coefficients in Z/2 once all the crossings
+     * are added.
+     *
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedHomology}, each group being a sum of Z/2.
+     *
+     * @throws MathsArgumentException If the homology can't be calculated.
+     */
+    BiGradedHomology getMod2Homology(final Cancellation cancellation) throws MathsArgumentException {
+        return getMod2Groups(cancellation).getHomology();
+    }
+
+    /**
+     * Calculates the homology groups with coefficients in Z/2 once all the
+     * crossings are added.
+     *
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code BiGradedGroups}, each group being a sum of Z/2.
+     */
+    BiGradedGroups getMod2Groups(final Cancellation cancellation) {
+        final SparseBiComplex biComplex = new SparseBiComplex(cancellation);
+        complex.fillBiComplex(biComplex, -negCross, posCross - 2 * negCross);
+
+        return biComplex.getMod2Groups();
+    }
+
+    /**
+     * Calculates the Khovanov polynomial over the rationals once all the
+     * crossings are added.
+     *
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The {@code KhovanovPolynomial}.
+     */
+    KhovanovPolynomial getRationalPolynomial(final Cancellation cancellation) {
+        final SparseBiComplex biComplex = new SparseBiComplex(cancellation);
+        complex.fillBiComplex(biComplex, -negCross, posCross - 2 * negCross);
+
+        return biComplex.getRationalPolynomial();
+    }
+}
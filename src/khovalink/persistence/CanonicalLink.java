@@ -0,0 +1,465 @@
+package khovalink.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class representing the canonical form of a link diagram : the same diagram
+ * entered with its crossings numbered in another order, its components in
+ * another order or starting at other crossings has the same canonical form.
+ * <p>
+ * Each component of the Gauss code is written as a block : its length, then
+ * one token by crossing met, made of the crossing number, the passage (over
+ * or under) and the sign. The crossings are numbered in the order they are
+ * met. The components without crossing come first, then the split pieces of
+ * the link (the components linked by their crossings), each one written on
+ * its own and the pieces sorted by their blocks. A piece is written as the
+ * lexicographically smallest sequence of blocks : each block is the smallest
+ * one among the components left meeting a component already written and
+ * their starting crossings, the crossings already numbered keeping their
+ * numbers. Choices giving the same block are all followed until a later block
+ * separates them, the choices leaving the same numbers on the components left
+ * being followed once.
+ *
+ * @author flo
+ */
+public final class CanonicalLink {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int[][] gauss;
+    private final boolean[] signs;
+    private final int[] components;
+    private final long fingerprint;
+
+    /**
+     * Creates the canonical form of a link.
+     *
+     * @param link The link.
+     */
+    public CanonicalLink(final Link link) {
+        this(link.getGauss(), link.getSigns());
+    }
+
+    /**
+     * Creates the canonical form of a Gauss code.
+     *
+     * @param gauss The Gauss code, the crossings being numbered from 1.
+     * @param signs The signs of the crossings.
+     */
+    public CanonicalLink(final int[][] gauss, final boolean[] signs) {
+        final int[] roots = new int[gauss.length];
+        final int[] firstCompos = new int[signs.length];
+        Arrays.fill(firstCompos, -1);
+        for (int compo = 0; compo < gauss.length; compo++) {
+            roots[compo] = compo;
+            for (final int signed : gauss[compo]) {
+                final int cross = Math.abs(signed) - 1;
+                if (firstCompos[cross] < 0) {
+                    firstCompos[cross] = compo;
+                } else {
+                    roots[findRoot(roots, compo)] = findRoot(roots, firstCompos[cross]);
+                }
+            }
+        }
+
+        int emptyNbr = 0;
+        final Map<Integer, List<Integer>> pieceCompos = new LinkedHashMap<>();
+        for (int compo = 0; compo < gauss.length; compo++) {
+            if (gauss[compo].length == 0) {
+                emptyNbr++;
+            } else {
+                pieceCompos.computeIfAbsent(findRoot(roots, compo), root -> new ArrayList<>()).add(compo);
+            }
+        }
+        final List<Piece> pieces = new ArrayList<>();
+        for (final List<Integer> compos : pieceCompos.values()) {
+            pieces.add(new Piece(gauss, signs, compos));
+        }
+        pieces.sort(null);
+
+        this.gauss = new int[gauss.length][];
+        this.signs = new boolean[signs.length];
+        components = new int[gauss.length];
+        for (int compo = 0; compo < emptyNbr; compo++) {
+            this.gauss[compo] = new int[0];
+        }
+
+        long hash = GOLDEN_GAMMA * (gauss.length + 1);
+        int row = emptyNbr, offset = 0;
+        for (final Piece piece : pieces) {
+            for (int step = 0; step < piece.blocks.length; step++) {
+                final int[] block = piece.blocks[step];
+                hash = (hash ^ block[0]) * GOLDEN_GAMMA;
+                hash ^= hash >>> 29;
+
+                final int[] compo = new int[block.length - 1];
+                for (int k = 0; k < compo.length; k++) {
+                    final int token = block[k + 1] + (offset << 2);
+                    hash = (hash ^ token) * GOLDEN_GAMMA;
+                    hash ^= hash >>> 29;
+                    compo[k] = (token & 2) == 0 ? token >> 2 : -(token >> 2);
+                    this.signs[(token >> 2) - 1] = (token & 1) == 0;
+                }
+                components[piece.compos[step]] = row;
+                this.gauss[row++] = compo;
+            }
+            offset += piece.crossingNbr;
+        }
+        fingerprint = mix(hash);
+    }
+
+    private static int findRoot(final int[] roots, int compo) {
+        while (roots[compo] != compo) {
+            compo = roots[compo] = roots[roots[compo]];
+        }
+        return compo;
+    }
+
+    /**
+     * Returns a copy of the canonical Gauss code.
+     *
+     * @return The Gauss code.
+     */
+    public int[][] getGauss() {
+        final int[][] copy = new int[gauss.length][];
+        for (int compo = 0; compo < gauss.length; compo++) {
+            copy[compo] = gauss[compo].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the signs of the canonical crossings.
+     *
+     * @return The signs.
+     */
+    public boolean[] getSigns() {
+        return signs.clone();
+    }
+
+    /**
+     * Returns the place of a component of the link in the canonical Gauss
+     * code. The components without crossing can be exchanged : they are all
+     * sent to the first one.
+     *
+     * @param compo The index of the component in the Gauss code of the link.
+     *
+     * @return The index of the component in the canonical Gauss code.
+     */
+    public int getComponent(final int compo) {
+        return components[compo];
+    }
+
+    /**
+     * Returns a 64 bits hash of the canonical form : two diagrams with the
+     * same canonical form have the same fingerprint.
+     *
+     * @return The fingerprint.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CanonicalLink)) {
+            return false;
+        }
+
+        final CanonicalLink other = (CanonicalLink) obj;
+        return fingerprint == other.fingerprint && Arrays.equals(signs, other.signs) && Arrays.deepEquals(gauss, other.gauss);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fingerprint);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder description = new StringBuilder();
+        for (final int[] compo : gauss) {
+            description.append('[');
+            for (final int cross : compo) {
+                description.append(cross > 0 ? "+" : "").append(cross);
+            }
+            description.append(']');
+        }
+        description.append(' ');
+        for (final boolean sgn : signs) {
+            description.append(sgn ? '+' : '-');
+        }
+        return description.toString();
+    }
+
+    /**
+     * Scrambles the bits of a hash (finalizer of SplitMix64).
+     *
+     * @param hash The hash.
+     *
+     * @return The scrambled hash.
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Inner class representing the canonical blocks of a split piece, its
+     * crossings being numbered from 1, and the components they come from.
+     */
+    private static final class Piece implements Comparable<Piece> {
+
+        private final int[][] blocks;
+        private final int[] compos;
+        private final int crossingNbr;
+
+        /**
+         * Writes the canonical blocks of a split piece.
+         *
+         * @param gauss The Gauss code of the link.
+         * @param signs The signs of the crossings of the link.
+         * @param pieceCompos The components of the piece.
+         */
+        private Piece(final int[][] gauss, final boolean[] signs, final List<Integer> pieceCompos) {
+            final int compoNbr = pieceCompos.size();
+            final int[] numbers = new int[signs.length];
+            final int[][] pieceGauss = new int[compoNbr][];
+            final List<int[]> passages = new ArrayList<>();
+            final List<Boolean> pieceSigns = new ArrayList<>();
+            for (int k = 0; k < compoNbr; k++) {
+                final int[] compo = gauss[pieceCompos.get(k)];
+                pieceGauss[k] = new int[compo.length];
+                for (int n = 0; n < compo.length; n++) {
+                    final int cross = Math.abs(compo[n]) - 1;
+                    if (numbers[cross] == 0) {
+                        numbers[cross] = passages.size() + 1;
+                        passages.add(new int[]{k, k});
+                        pieceSigns.add(signs[cross]);
+                    } else {
+                        passages.get(numbers[cross] - 1)[1] = k;
+                    }
+                    pieceGauss[k][n] = Integer.signum(compo[n]) * numbers[cross];
+                }
+            }
+            crossingNbr = passages.size();
+            final boolean[] localSigns = new boolean[crossingNbr];
+            for (int cross = 0; cross < crossingNbr; cross++) {
+                localSigns[cross] = pieceSigns.get(cross);
+            }
+            final int[][] crossCompos = passages.toArray(new int[crossingNbr][]);
+
+            Set<State> states = new LinkedHashSet<>();
+            states.add(new State(crossingNbr, compoNbr));
+            blocks = new int[compoNbr][];
+            for (int step = 0; step < compoNbr; step++) {
+                final Set<State> next = new LinkedHashSet<>();
+                int[] best = null;
+                for (final State state : states) {
+                    for (int k = 0; k < compoNbr; k++) {
+                        if (state.used[k] || step > 0 && !state.meets(pieceGauss[k])) {
+                            continue;
+                        }
+
+                        final int[] compo = pieceGauss[k];
+                        final int[] block = new int[compo.length + 1];
+                        for (int rot = 0; rot < compo.length; rot++) {
+                            final int cmp = state.encode(compo, rot, localSigns, block, best);
+                            if (cmp < 0) {
+                                best = block.clone();
+                                next.clear();
+                            }
+                            if (cmp <= 0) {
+                                next.add(state.next(compo, rot, k, step, crossCompos));
+                            }
+                        }
+                    }
+                }
+                blocks[step] = best;
+                states = next;
+            }
+
+            final int[] order = states.iterator().next().order;
+            compos = new int[compoNbr];
+            for (int step = 0; step < compoNbr; step++) {
+                compos[step] = pieceCompos.get(order[step]);
+            }
+        }
+
+        @Override
+        public int compareTo(final Piece other) {
+            for (int step = 0; step < blocks.length && step < other.blocks.length; step++) {
+                final int[] block = blocks[step], otherBlock = other.blocks[step];
+                for (int k = 0; k < block.length && k < otherBlock.length; k++) {
+                    if (block[k] != otherBlock[k]) {
+                        return Integer.compare(block[k], otherBlock[k]);
+                    }
+                }
+            }
+            return Integer.compare(blocks.length, other.blocks.length);
+        }
+    }
+
+    /**
+     * Inner class representing the numbering reached after some blocks : the
+     * new number of each crossing met by a component left (0 if not met yet),
+     * the components used and their order.
+     */
+    private static final class State {
+
+        private final int[] labels;
+        private final boolean[] used;
+        private final int[] order;
+        private final int labelNbr;
+
+        private State(final int crossingNbr, final int compoNbr) {
+            labels = new int[crossingNbr];
+            used = new boolean[compoNbr];
+            order = new int[compoNbr];
+            labelNbr = 0;
+        }
+
+        private State(final int[] labels, final boolean[] used, final int[] order, final int labelNbr) {
+            this.labels = labels;
+            this.used = used;
+            this.order = order;
+            this.labelNbr = labelNbr;
+        }
+
+        /**
+         * Tells if a component meets a component already written.
+         *
+         * @param compo The component of the Gauss code.
+         *
+         * @return {@code true} if one of its crossings is numbered.
+         */
+        private boolean meets(final int[] compo) {
+            for (final int signed : compo) {
+                if (labels[Math.abs(signed) - 1] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Writes the block of a component, stopping as soon as it is larger
+         * than the best block.
+         *
+         * @param compo The component of the Gauss code.
+         * @param rot The index of the first crossing.
+         * @param signs The signs of the crossings.
+         * @param block The array receiving the block.
+         * @param best The best block found, or {@code null}.
+         *
+         * @return A negative number, zero or a positive number as the block is
+         * smaller, equal or larger than the best one.
+         */
+        private int encode(final int[] compo, final int rot, final boolean[] signs, final int[] block, final int[] best) {
+            block[0] = compo.length;
+            if (best != null && block[0] > best[0]) {
+                return 1;
+            }
+
+            int next = labelNbr;
+            boolean smaller = best == null || block[0] < best[0];
+            for (int k = 0; k < compo.length; k++) {
+                final int signed = compo[(rot + k) % compo.length];
+                final int cross = Math.abs(signed) - 1;
+                int label = labels[cross];
+                if (label == 0) {
+                    label = -(++next);
+                    labels[cross] = label;
+                }
+                block[k + 1] = (Math.abs(label) << 2) | (signed < 0 ? 2 : 0) | (signs[cross] ? 0 : 1);
+
+                if (!smaller && block[k + 1] != best[k + 1]) {
+                    if (block[k + 1] > best[k + 1]) {
+                        reset(compo);
+                        return 1;
+                    }
+                    smaller = true;
+                }
+            }
+            reset(compo);
+
+            return smaller ? -1 : 0;
+        }
+
+        /**
+         * Forgets the numbers given while writing a block.
+         *
+         * @param compo The component of the Gauss code.
+         */
+        private void reset(final int[] compo) {
+            for (final int signed : compo) {
+                final int cross = Math.abs(signed) - 1;
+                if (labels[cross] < 0) {
+                    labels[cross] = 0;
+                }
+            }
+        }
+
+        /**
+         * Creates the state reached by writing a block. The numbers of the
+         * crossings between components written are forgotten : they are
+         * never met again, and forgetting them merges the states with the
+         * same future.
+         *
+         * @param compo The component of the Gauss code.
+         * @param rot The index of the first crossing.
+         * @param index The index of the component.
+         * @param step The number of components already written.
+         * @param crossCompos The components of the two passages of each
+         * crossing.
+         *
+         * @return The new {@code State}.
+         */
+        private State next(final int[] compo, final int rot, final int index, final int step, final int[][] crossCompos) {
+            final int[] newLabels = labels.clone();
+            int newLabelNbr = labelNbr;
+            for (int k = 0; k < compo.length; k++) {
+                final int cross = Math.abs(compo[(rot + k) % compo.length]) - 1;
+                if (newLabels[cross] == 0) {
+                    newLabels[cross] = ++newLabelNbr;
+                }
+            }
+            final boolean[] newUsed = used.clone();
+            newUsed[index] = true;
+            for (final int signed : compo) {
+                final int cross = Math.abs(signed) - 1;
+                if (newUsed[crossCompos[cross][0]] && newUsed[crossCompos[cross][1]]) {
+                    newLabels[cross] = 0;
+                }
+            }
+            final int[] newOrder = order.clone();
+            newOrder[step] = index;
+            return new State(newLabels, newUsed, newOrder, newLabelNbr);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof State)) {
+                return false;
+            }
+
+            final State other = (State) obj;
+            return Arrays.equals(labels, other.labels) && Arrays.equals(used, other.used);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(labels) + Arrays.hashCode(used);
+        }
+    }
+}
@@ -106,8 +106,6 @@ public class LinkDAO {
      * @throws IOException If an error occurs when reading the link.
      */
     public Link find(final String name) throws ClassNotFoundException, FileNotFoundException, IOException {
-        final Link link;
-
         if (!exists()) {
             throw new FileNotFoundException("The database doesn't exists.");
         }
@@ -120,13 +118,26 @@ public class LinkDAO {
             throw new FileNotFoundException("Can't find the file \"" + name + ".link\" in database.");
         }
 
+        return read(file.get());
+    }
+
+    /**
+     * Reads a link from a file, in the database or not.
+     *
+     * @param file The file of the link.
+     *
+     * @return The link.
+     *
+     * @throws ClassNotFoundException If the class {@code Link} cannot be found.
+     * @throws FileNotFoundException If the file doesn't exist.
+     * @throws IOException If an error occurs when reading the link.
+     */
+    public static Link read(final File file) throws ClassNotFoundException, FileNotFoundException, IOException {
         try (final ObjectInputStream ois = new ObjectInputStream(
                 new BufferedInputStream(
-                        new FileInputStream(file.get())))) {
-            link = (Link) ois.readObject();
+                        new FileInputStream(file)))) {
+            return (Link) ois.readObject();
         }
-
-        return link;
     }
 
     /**
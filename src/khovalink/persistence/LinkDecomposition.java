@@ -0,0 +1,334 @@
+package khovalink.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class splitting a link diagram into smaller diagrams : its split pieces,
+ * and optionally the factors of the connected sums of each piece.
+ * <p>
+ * Two components sharing a crossing are in the same piece. A connected sum is
+ * an interval of a component whose crossings are only met on this interval
+ * and on whole other components : a circle crossing the diagram at both ends
+ * of the interval separates them from the rest. Each side is closed into a
+ * factor, and the factors are cut again until no interval is left. The
+ * components without crossing join the first factor of the first piece.
+ * When the connected sums aren't cut, every component of the link stays whole
+ * in one piece, where it can be found again (for the marked point of the
+ * reduced homology).
+ *
+ * @author flo
+ */
+public final class LinkDecomposition {
+
+    private final Link link;
+    private final boolean[] signs;
+    private final List<List<Link>> pieces = new ArrayList<>();
+    private final int[][] positions;
+
+    /**
+     * Decomposes a link.
+     *
+     * @param link The link.
+     * @param sums {@code true} to cut the pieces into the factors of their
+     * connected sums.
+     */
+    public LinkDecomposition(final Link link, final boolean sums) {
+        this.link = link;
+        signs = link.getSigns();
+
+        final int[][] gauss = link.getGauss();
+        positions = sums ? null : new int[gauss.length][];
+        final List<int[]> unlinked = new ArrayList<>();
+        final List<int[]> linked = new ArrayList<>();
+        for (final int[] compo : gauss) {
+            (compo.length == 0 ? unlinked : linked).add(compo);
+        }
+
+        for (final List<int[]> piece : split(linked)) {
+            final List<List<int[]>> factors = new ArrayList<>();
+            if (sums) {
+                factorize(piece, factors);
+            } else {
+                factors.add(piece);
+            }
+            if (pieces.isEmpty()) {
+                factors.get(0).addAll(unlinked);
+            }
+            if (!sums) {
+                locate(gauss, factors.get(0));
+            }
+
+            final List<Link> links = new ArrayList<>(factors.size());
+            for (final List<int[]> factor : factors) {
+                links.add(makeLink(factor));
+            }
+            pieces.add(Collections.unmodifiableList(links));
+        }
+    }
+
+    /**
+     * Returns the link given to the decomposition.
+     *
+     * @return The {@code Link}.
+     */
+    public Link getLink() {
+        return link;
+    }
+
+    /**
+     * Returns the split pieces of the link, each one given by the factors of
+     * its connected sums (a single factor if the sums aren't cut).
+     *
+     * @return The pieces, empty if the link has no crossing.
+     */
+    public List<List<Link>> getPieces() {
+        return Collections.unmodifiableList(pieces);
+    }
+
+    /**
+     * Returns where a component of the link is, the connected sums not being
+     * cut.
+     *
+     * @param component The index of the component in the Gauss code.
+     *
+     * @return The index of its piece and its index among the components of
+     * the piece.
+     *
+     * @throws IllegalStateException If the connected sums are cut : a
+     * component can be shared by several factors.
+     */
+    public int[] getPosition(final int component) {
+        if (positions == null) {
+            throw new IllegalStateException("The components are cut by the connected sums.");
+        }
+        return positions[component].clone();
+    }
+
+    /**
+     * Tells if the link is made of several pieces or factors.
+     *
+     * @return {@code true} if the link is decomposed.
+     */
+    public boolean isDecomposed() {
+        return pieces.size() > 1 || pieces.size() == 1 && pieces.get(0).size() > 1;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder description = new StringBuilder();
+        for (final List<Link> piece : pieces) {
+            description.append(description.length() == 0 ? "" : " + ").append('(');
+            for (int k = 0; k < piece.size(); k++) {
+                description.append(k == 0 ? "" : " # ").append(piece.get(k).getNbCross());
+            }
+            description.append(')');
+        }
+        return description.append(" crossings").toString();
+    }
+
+    /**
+     * Records the position of the components of the piece being added.
+     *
+     * @param gauss The components of the link.
+     * @param piece The components of the piece, the ones of the link.
+     */
+    private void locate(final int[][] gauss, final List<int[]> piece) {
+        for (int k = 0; k < piece.size(); k++) {
+            for (int c = 0; c < gauss.length; c++) {
+                //Components without crossing may share the same empty array.
+                if (gauss[c] == piece.get(k) && positions[c] == null) {
+                    positions[c] = new int[]{pieces.size(), k};
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups the components sharing crossings.
+     *
+     * @param compos The components, each one having crossings.
+     *
+     * @return The pieces.
+     */
+    private List<List<int[]>> split(final List<int[]> compos) {
+        final int[] parents = new int[compos.size()];
+        final int[] owners = new int[signs.length + 1];
+        Arrays.fill(owners, -1);
+        for (int c = 0; c < parents.length; c++) {
+            parents[c] = c;
+            for (final int signed : compos.get(c)) {
+                final int owner = owners[Math.abs(signed)];
+                if (owner < 0) {
+                    owners[Math.abs(signed)] = c;
+                } else {
+                    parents[find(parents, c)] = find(parents, owner);
+                }
+            }
+        }
+
+        final List<List<int[]>> split = new ArrayList<>();
+        final int[] indexes = new int[parents.length];
+        for (int c = 0; c < parents.length; c++) {
+            final int root = find(parents, c);
+            if (root == c) {
+                indexes[c] = split.size();
+                split.add(new ArrayList<>());
+            }
+            split.get(indexes[root]).add(compos.get(c));
+        }
+        return split;
+    }
+
+    private static int find(final int[] parents, int c) {
+        while (parents[c] != c) {
+            c = parents[c] = parents[parents[c]];
+        }
+        return c;
+    }
+
+    /**
+     * Cuts a piece into the factors of its connected sums.
+     *
+     * @param piece The components of the piece.
+     * @param factors The list receiving the factors.
+     */
+    private void factorize(final List<int[]> piece, final List<List<int[]>> factors) {
+        for (int c = 0; c < piece.size(); c++) {
+            final int[] compo = piece.get(c);
+            for (int length = 1; length < compo.length; length++) {
+                for (int start = 0; start < compo.length; start++) {
+                    final boolean[] inside = getInside(piece, c, start, length);
+                    if (inside != null) {
+                        final List<int[]> first = new ArrayList<>();
+                        final List<int[]> second = new ArrayList<>();
+                        for (int d = 0; d < piece.size(); d++) {
+                            if (d == c) {
+                                first.add(rotate(compo, start, length));
+                                second.add(rotate(compo, start + length, compo.length - length));
+                            } else {
+                                (inside[d] ? first : second).add(piece.get(d));
+                            }
+                        }
+                        factorize(first, factors);
+                        factorize(second, factors);
+                        return;
+                    }
+                }
+            }
+        }
+        factors.add(piece);
+    }
+
+    /**
+     * Tells if an interval of a component is one side of a connected sum :
+     * the other components meeting its crossings are added to it, until the
+     * crossings of this side are only met inside the interval.
+     *
+     * @param piece The components of the piece.
+     * @param c The index of the component.
+     * @param start The index of the first crossing of the interval.
+     * @param length The number of crossings met along the interval.
+     *
+     * @return The components on the side of the interval, or {@code null} if
+     * a crossing of this side is met outside the interval.
+     */
+    private static boolean[] getInside(final List<int[]> piece, final int c, final int start, final int length) {
+        final int[] compo = piece.get(c);
+        final Set<Integer> crossings = new HashSet<>();
+        for (int k = 0; k < length; k++) {
+            crossings.add(Math.abs(compo[(start + k) % compo.length]));
+        }
+
+        final boolean[] inside = new boolean[piece.size()];
+        boolean added = true;
+        while (added) {
+            added = false;
+            for (int d = 0; d < piece.size(); d++) {
+                if (d != c && !inside[d] && meets(piece.get(d), crossings)) {
+                    inside[d] = true;
+                    added = true;
+                    for (final int signed : piece.get(d)) {
+                        crossings.add(Math.abs(signed));
+                    }
+                }
+            }
+        }
+
+        for (int k = length; k < compo.length; k++) {
+            if (crossings.contains(Math.abs(compo[(start + k) % compo.length]))) {
+                return null;
+            }
+        }
+        return inside;
+    }
+
+    private static boolean meets(final int[] compo, final Set<Integer> crossings) {
+        for (final int signed : compo) {
+            if (crossings.contains(Math.abs(signed))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closes an interval of a component.
+     *
+     * @param compo The component.
+     * @param start The index of the first crossing of the interval.
+     * @param length The number of crossings met along the interval.
+     *
+     * @return The crossings met along the interval.
+     */
+    private static int[] rotate(final int[] compo, final int start, final int length) {
+        final int[] closed = new int[length];
+        for (int k = 0; k < length; k++) {
+            closed[k] = compo[(start + k) % compo.length];
+        }
+        return closed;
+    }
+
+    /**
+     * Creates the link of a piece or a factor, its crossings being numbered
+     * from 1 in the order of their original numbers.
+     *
+     * @param compos The components.
+     *
+     * @return The {@code Link}.
+     */
+    private Link makeLink(final List<int[]> compos) {
+        final int[] numbers = new int[signs.length + 1];
+        for (final int[] compo : compos) {
+            for (final int signed : compo) {
+                numbers[Math.abs(signed)] = 1;
+            }
+        }
+        int crossingNbr = 0;
+        for (int cross = 1; cross <= signs.length; cross++) {
+            numbers[cross] = numbers[cross] == 0 ? 0 : ++crossingNbr;
+        }
+
+        final int[][] gauss = new int[compos.size()][];
+        final boolean[] newSigns = new boolean[crossingNbr];
+        for (int c = 0; c < gauss.length; c++) {
+            gauss[c] = new int[compos.get(c).length];
+            for (int k = 0; k < gauss[c].length; k++) {
+                final int signed = compos.get(c)[k];
+                gauss[c][k] = Integer.signum(signed) * numbers[Math.abs(signed)];
+                newSigns[numbers[Math.abs(signed)] - 1] = signs[Math.abs(signed) - 1];
+            }
+        }
+
+        try {
+            return LinkFactory.create(link.getName(), gauss, newSigns);
+        } catch (final LinkException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -13,7 +13,7 @@ import khovalink.gui.windows.canvas.LinkCurve;
 public class LinkFactory {
 
     private static final int MAX_LENGTH_NAME = 32;
-    private static final int MAX_CROSSINGS = 21;
+    private static final int MAX_CROSSINGS = 40;
 
     /**
      * Non instanciable class.
@@ -33,6 +33,24 @@ public class LinkFactory {
         return new Link(name, link.getNbCompo(), link.getNbCross(), link.getGauss(), link.getSigns(), link.getCode(), link.getGraphicalLink());
     }
 
+    /**
+     * Creates a new {@code Link} with the canonical form of another's Gauss
+     * code. Its crossings being numbered again, it has no graphical
+     * representation.
+     *
+     * @param name The link name.
+     * @param link A {@code Link} from wich copy informations.
+     *
+     * @return The created {@code Link}.
+     */
+    public static Link canonical(final String name, final Link link) {
+        final CanonicalLink canonical = new CanonicalLink(link);
+        final int[][] gauss = canonical.getGauss();
+        final boolean[] signs = canonical.getSigns();
+
+        return new Link(name, link.getNbCompo(), link.getNbCross(), gauss, signs, makeCode(gauss, signs), null);
+    }
+
     /**
      * Creates a new {@code Link}.
      *
@@ -0,0 +1,316 @@
+package khovalink.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class removing crossings of a link diagram with Reidemeister moves, working
+ * on the Gauss code and the signs.
+ * <p>
+ * A crossing met twice in a row along a component is a kink (R1), two
+ * crossings met in a row along a strand passing over both and along a strand
+ * passing under both form a bigon (R2) : both are removed until none is left.
+ * A triangle with a strand passing over (or under) its two crossings is then
+ * flipped (R3) if it creates a bigon, and the removals start again.
+ * <p>
+ * Each kink removed changes the writhe by its sign. The Khovanov homology is
+ * shifted by the numbers of positive and negative crossings, which absorb
+ * these changes : the simplified link has the same homology.
+ *
+ * @author flo
+ */
+public final class LinkSimplifier {
+
+    private final Link original;
+    private final Link link;
+
+    private final List<List<Integer>> gauss = new ArrayList<>();
+    private final boolean[] signs;
+
+    private int r1Nbr = 0;
+    private int r2Nbr = 0;
+    private int r3Nbr = 0;
+    private int writheChange = 0;
+
+    /**
+     * Simplifies a link.
+     *
+     * @param link The link.
+     */
+    public LinkSimplifier(final Link link) {
+        original = link;
+        signs = link.getSigns();
+        for (final int[] compo : link.getGauss()) {
+            final List<Integer> occurrences = new ArrayList<>(compo.length);
+            for (final int signed : compo) {
+                occurrences.add(signed);
+            }
+            gauss.add(occurrences);
+        }
+
+        do {
+            while (removeKink() || removeBigon()) {
+            }
+        } while (flipTriangle());
+
+        this.link = r1Nbr + r2Nbr == 0 ? link : makeLink();
+    }
+
+    /**
+     * Returns the link given to the simplifier.
+     *
+     * @return The original {@code Link}.
+     */
+    public Link getOriginal() {
+        return original;
+    }
+
+    /**
+     * Returns the simplified link, with its crossings numbered again in the
+     * order of their original numbers. The link is the original one if no
+     * crossing was removed.
+     *
+     * @return The simplified {@code Link}.
+     */
+    public Link getLink() {
+        return link;
+    }
+
+    /**
+     * Returns the number of kinks removed.
+     *
+     * @return The number of R1 moves.
+     */
+    public int getR1Nbr() {
+        return r1Nbr;
+    }
+
+    /**
+     * Returns the number of bigons removed.
+     *
+     * @return The number of R2 moves.
+     */
+    public int getR2Nbr() {
+        return r2Nbr;
+    }
+
+    /**
+     * Returns the number of triangles flipped.
+     *
+     * @return The number of R3 moves.
+     */
+    public int getR3Nbr() {
+        return r3Nbr;
+    }
+
+    /**
+     * Returns the change of the writhe : the opposite of the sum of the signs
+     * of the kinks removed, a bigon having a positive and a negative crossing.
+     *
+     * @return The writhe of the simplified link minus the writhe of the
+     * original one.
+     */
+    public int getWritheChange() {
+        return writheChange;
+    }
+
+    @Override
+    public String toString() {
+        return original.getNbCross() + " -> " + link.getNbCross() + " crossings (" + r1Nbr + " R1, " + r2Nbr + " R2, " + r3Nbr
+                + " R3 moves, writhe change " + writheChange + ")";
+    }
+
+    /**
+     * Removes a kink : a crossing met twice in a row.
+     *
+     * @return {@code true} if a kink was removed.
+     */
+    private boolean removeKink() {
+        for (final List<Integer> compo : gauss) {
+            for (int k = 0; k < compo.size(); k++) {
+                final int cross = Math.abs(compo.get(k));
+                if (compo.size() > 1 && Math.abs(compo.get((k + 1) % compo.size())) == cross) {
+                    remove(cross);
+                    writheChange -= signs[cross - 1] ? 1 : -1;
+                    r1Nbr++;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a bigon : two crossings of opposite signs met in a row along a
+     * strand passing over both, and along a strand passing under both.
+     *
+     * @return {@code true} if a bigon was removed.
+     */
+    private boolean removeBigon() {
+        final int[] bigon = findBigon();
+        if (bigon == null) {
+            return false;
+        }
+
+        remove(bigon[0]);
+        remove(bigon[1]);
+        r2Nbr++;
+        return true;
+    }
+
+    /**
+     * Finds a bigon.
+     *
+     * @return The two crossings of the bigon, or {@code null} if there is
+     * none.
+     */
+    private int[] findBigon() {
+        for (final List<Integer> compo : gauss) {
+            for (int k = 0; k < compo.size(); k++) {
+                final int first = compo.get(k);
+                final int second = compo.get((k + 1) % compo.size());
+                if (first > 0 && second > 0 && first != second && signs[first - 1] != signs[second - 1] && isUnderPair(first, second)) {
+                    return new int[]{first, second};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells if a strand passes under two crossings in a row, in any order.
+     *
+     * @param cross1 The first crossing.
+     * @param cross2 The second crossing.
+     *
+     * @return {@code true} if the under passages are consecutive.
+     */
+    private boolean isUnderPair(final int cross1, final int cross2) {
+        for (final List<Integer> compo : gauss) {
+            for (int k = 0; k < compo.size(); k++) {
+                final int first = compo.get(k);
+                final int second = compo.get((k + 1) % compo.size());
+                if (first == -cross1 && second == -cross2 || first == -cross2 && second == -cross1) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flips a triangle if a bigon appears : each of its three strands meets
+     * the two crossings of the triangle in the opposite order, one of them
+     * passing over (or under) both.
+     *
+     * @return {@code true} if a triangle was flipped.
+     */
+    private boolean flipTriangle() {
+        final List<int[]> pairs = new ArrayList<>();
+        for (int c = 0; c < gauss.size(); c++) {
+            final List<Integer> compo = gauss.get(c);
+            for (int k = 0; compo.size() > 2 && k < compo.size(); k++) {
+                pairs.add(new int[]{c, k});
+            }
+        }
+
+        for (final int[] pair1 : pairs) {
+            final int a = first(pair1);
+            final int b = second(pair1);
+            for (final int[] pair2 : pairs) {
+                if (first(pair2) != -b && second(pair2) != -b) {
+                    continue;
+                }
+                final int c = first(pair2) == -b ? second(pair2) : first(pair2);
+                //No strand passing over or under both its crossings : the triangle can't be flipped.
+                final boolean cyclic = Integer.signum(a) != Integer.signum(b) && Integer.signum(b) == Integer.signum(c);
+                if (Math.abs(c) == Math.abs(a) || Math.abs(c) == Math.abs(b) || cyclic) {
+                    continue;
+                }
+
+                for (final int[] pair3 : pairs) {
+                    if (first(pair3) == -c && second(pair3) == -a || first(pair3) == -a && second(pair3) == -c) {
+                        swap(pair1);
+                        swap(pair2);
+                        swap(pair3);
+                        if (findBigon() != null) {
+                            r3Nbr++;
+                            return true;
+                        }
+                        swap(pair3);
+                        swap(pair2);
+                        swap(pair1);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private int first(final int[] pair) {
+        return gauss.get(pair[0]).get(pair[1]);
+    }
+
+    private int second(final int[] pair) {
+        final List<Integer> compo = gauss.get(pair[0]);
+        return compo.get((pair[1] + 1) % compo.size());
+    }
+
+    /**
+     * Exchanges two consecutive passages of a strand.
+     *
+     * @param pair The component and the index of the first passage.
+     */
+    private void swap(final int[] pair) {
+        final List<Integer> compo = gauss.get(pair[0]);
+        final int next = (pair[1] + 1) % compo.size();
+        compo.set(next, compo.set(pair[1], compo.get(next)));
+    }
+
+    /**
+     * Removes both passages of a crossing.
+     *
+     * @param cross The crossing.
+     */
+    private void remove(final int cross) {
+        for (final List<Integer> compo : gauss) {
+            compo.remove((Integer) cross);
+            compo.remove((Integer) (-cross));
+        }
+    }
+
+    /**
+     * Creates the simplified link, the crossings left being numbered from 1.
+     *
+     * @return The {@code Link}.
+     */
+    private Link makeLink() {
+        final int[] numbers = new int[signs.length + 1];
+        int crossingNbr = 0;
+        for (int cross = 1; cross <= signs.length; cross++) {
+            for (final List<Integer> compo : gauss) {
+                if (compo.contains(cross)) {
+                    numbers[cross] = ++crossingNbr;
+                }
+            }
+        }
+
+        final int[][] newGauss = new int[gauss.size()][];
+        final boolean[] newSigns = new boolean[crossingNbr];
+        for (int c = 0; c < newGauss.length; c++) {
+            final List<Integer> compo = gauss.get(c);
+            newGauss[c] = new int[compo.size()];
+            for (int k = 0; k < compo.size(); k++) {
+                final int signed = compo.get(k);
+                newGauss[c][k] = Integer.signum(signed) * numbers[Math.abs(signed)];
+                newSigns[numbers[Math.abs(signed)] - 1] = signs[Math.abs(signed) - 1];
+            }
+        }
+
+        try {
+            return LinkFactory.create(original.getName(), newGauss, newSigns);
+        } catch (final LinkException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package khovalink.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class creating random link diagrams from a seed, as closures of random
+ * braids : the same seed always gives the same sequence of links.
+ * <p>
+ * The number of strands is drawn among the ones allowed by the number of
+ * crossings and of components, then the letters of the braid one by one,
+ * always keeping the number of cycles of its permutation (the number of
+ * components of the closure) within reach of the one asked for. A letter is
+ * never followed by its inverse unless a letter of a neighbour generator
+ * comes between them, even across the closure, and every generator is used
+ * at least twice : the braid can't be shortened by cancelling a letter and
+ * its inverse, and the diagram has no nugatory crossing and no split
+ * component. The closure of a braid whose generators {@code i} all have the
+ * sign {@code (-1)^i} (or its opposite) is alternating.
+ *
+ * @author flo
+ */
+public final class RandomLinkGenerator {
+
+    /**
+     * Number of braids drawn before giving up a number of crossings and of
+     * components.
+     */
+    private static final int MAX_ATTEMPTS = 10_000;
+
+    /**
+     * Number of strands added at most to the number of components.
+     */
+    private static final int MAX_EXTRA_STRANDS = 3;
+
+    private final Random random;
+    private int linkNbr = 0;
+
+    /**
+     * Creates a new {@code RandomLinkGenerator}.
+     *
+     * @param seed The seed of the random numbers.
+     */
+    public RandomLinkGenerator(final long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Creates the next random link.
+     *
+     * @param crossingNbr The number of crossings.
+     * @param compoNbr The number of components.
+     * @param alternating {@code true} for an alternating diagram.
+     *
+     * @return The {@code Link}, named after its numbers of crossings and of
+     * components and its index in the sequence.
+     *
+     * @throws IllegalArgumentException If no braid has these numbers of
+     * crossings and of components.
+     */
+    public Link next(final int crossingNbr, final int compoNbr, final boolean alternating) {
+        final List<Integer> strandNbrs = new ArrayList<>();
+        for (int strandNbr = Math.max(2, compoNbr); strandNbr <= Math.max(2, compoNbr) + MAX_EXTRA_STRANDS; strandNbr++) {
+            //The sign of the permutation of the braid is the parity of its number of crossings.
+            if ((strandNbr - compoNbr - crossingNbr) % 2 == 0 && 2 * (strandNbr - 1) <= crossingNbr) {
+                strandNbrs.add(strandNbr);
+            }
+        }
+        if (compoNbr < 1 || strandNbrs.isEmpty()) {
+            throw new IllegalArgumentException("No braid has " + crossingNbr + " crossings and " + compoNbr + " components.");
+        }
+
+        final String name = "random_" + crossingNbr + (alternating ? "a" : "n") + compoNbr + "_" + ++linkNbr;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            final int strandNbr = strandNbrs.get(random.nextInt(strandNbrs.size()));
+            final int[] word = nextWord(strandNbr, crossingNbr, compoNbr, alternating);
+            if (word != null) {
+                try {
+                    return closeBraid(name, strandNbr, word);
+                } catch (final LinkException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        }
+        throw new IllegalArgumentException("No braid found with " + crossingNbr + " crossings and " + compoNbr + " components.");
+    }
+
+    /**
+     * Draws the letters of a braid.
+     *
+     * @param strandNbr The number of strands.
+     * @param crossingNbr The number of letters.
+     * @param compoNbr The number of cycles of the permutation.
+     * @param alternating {@code true} to give each generator its sign in an
+     * alternating diagram.
+     *
+     * @return The letters, or {@code null} if the braid drawn doesn't fit.
+     */
+    private int[] nextWord(final int strandNbr, final int crossingNbr, final int compoNbr, final boolean alternating) {
+        final int[] word = new int[crossingNbr];
+        final int[] uses = new int[strandNbr];
+        final int[] lasts = new int[strandNbr + 1];
+        final int[] perm = new int[strandNbr];
+        for (int strand = 0; strand < strandNbr; strand++) {
+            perm[strand] = strand;
+        }
+        final int parity = random.nextBoolean() ? 0 : 1;
+
+        int cycleNbr = strandNbr;
+        for (int k = 0; k < crossingNbr; k++) {
+            final List<Integer> letters = new ArrayList<>();
+            for (int gen = 1; gen < strandNbr; gen++) {
+                //A letter merges two cycles of the permutation or splits one.
+                final int nextCycleNbr = cycleNbr + (getCycle(perm, gen - 1) == getCycle(perm, gen) ? 1 : -1);
+                if (Math.abs(nextCycleNbr - compoNbr) <= crossingNbr - k - 1) {
+                    for (final int letter : new int[]{gen, -gen}) {
+                        final boolean alternate = (gen + parity) % 2 == 0 ? letter > 0 : letter < 0;
+                        final boolean inverse = letter == -lasts[gen];
+                        if ((!alternating || alternate) && !inverse) {
+                            letters.add(letter);
+                        }
+                    }
+                }
+            }
+            if (letters.isEmpty()) {
+                return null;
+            }
+
+            word[k] = letters.get(random.nextInt(letters.size()));
+            final int gen = Math.abs(word[k]);
+            cycleNbr += getCycle(perm, gen - 1) == getCycle(perm, gen) ? 1 : -1;
+            final int swap = perm[gen - 1];
+            perm[gen - 1] = perm[gen];
+            perm[gen] = swap;
+            uses[gen]++;
+            lasts[gen] = word[k];
+            lasts[gen - 1] = 0;
+            lasts[gen + 1] = 0;
+        }
+
+        for (int gen = 1; gen < strandNbr; gen++) {
+            if (uses[gen] < 2 || isCancelling(word, gen)) {
+                return null;
+            }
+        }
+        return word;
+    }
+
+    /**
+     * Tells if the last letter of a generator and its first one cancel across
+     * the closure : they are inverse and no letter of a neighbour generator
+     * comes after the first one or before the last one.
+     *
+     * @param word The letters of the braid.
+     * @param gen The generator.
+     *
+     * @return {@code true} if the letters cancel.
+     */
+    private static boolean isCancelling(final int[] word, final int gen) {
+        int first = 0, last = 0;
+        for (final int letter : word) {
+            if (Math.abs(Math.abs(letter) - gen) <= 1) {
+                first = first == 0 ? letter : first;
+                last = letter;
+            }
+        }
+        return first == -last && Math.abs(first) == gen;
+    }
+
+    /**
+     * Returns the smallest strand of the cycle of a permutation going through
+     * a strand.
+     *
+     * @param perm The permutation.
+     * @param strand The strand.
+     *
+     * @return The smallest strand of the cycle.
+     */
+    private static int getCycle(final int[] perm, final int strand) {
+        int smallest = strand;
+        for (int next = perm[strand]; next != strand; next = perm[next]) {
+            smallest = Math.min(smallest, next);
+        }
+        return smallest;
+    }
+
+    /**
+     * Creates the closure of a braid, the crossing {@code k} being the letter
+     * {@code k} of the word : the generator {@code i} crosses the strands
+     * {@code i} and {@code i + 1}, the left one passing over it and the
+     * crossing being positive, and {@code -i} is its inverse.
+     *
+     * @param name The name of the link.
+     * @param strandNbr The number of strands.
+     * @param word The letters of the braid, from 1 to {@code strandNbr - 1}
+     * or their opposites.
+     *
+     * @return The {@code Link}.
+     *
+     * @throws LinkException If the closure isn't a valid link.
+     */
+    public static Link closeBraid(final String name, final int strandNbr, final int... word) throws LinkException {
+        final List<int[]> compos = new ArrayList<>();
+        final boolean[] visited = new boolean[strandNbr];
+        for (int start = 0; start < strandNbr; start++) {
+            if (visited[start]) {
+                continue;
+            }
+
+            //The component is followed through the word until it comes back to its first strand.
+            final List<Integer> compo = new ArrayList<>();
+            int strand = start;
+            do {
+                visited[strand] = true;
+                for (int k = 0; k < word.length; k++) {
+                    final int left = Math.abs(word[k]) - 1;
+                    if (strand == left || strand == left + 1) {
+                        compo.add((strand == left) == (word[k] > 0) ? k + 1 : -k - 1);
+                        strand = strand == left ? left + 1 : left;
+                    }
+                }
+            } while (strand != start);
+            compos.add(compo.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        final boolean[] signs = new boolean[word.length];
+        for (int k = 0; k < word.length; k++) {
+            signs[k] = word[k] > 0;
+        }
+        return LinkFactory.create(name, compos.toArray(new int[0][]), signs);
+    }
+}
@@ -0,0 +1,149 @@
+package khovalink;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import khovalink.homology.CalculationBudget;
+import khovalink.homology.HeadlessHomology;
+import khovalink.homology.LinkHomology;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.LinkFactory;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+/**
+ * Class testing the batch calculations on link files : the links with the
+ * same canonical form share their calculation only when their reduced
+ * homologies are marked on the same component.
+ *
+ * @author flo
+ */
+public class KhovaBatchTest {
+
+    private static final Pattern FIELD = Pattern.compile("\"(\\w+)\": (?:\"((?:[^\"\\\\]|\\\\.)*)\"|([^,}]*))");
+
+    /**
+     * Creates the same diagram as another link, its components in the
+     * opposite order.
+     *
+     * @param name The name of the new link.
+     * @param link The link.
+     *
+     * @return The {@code Link}.
+     *
+     * @throws LinkException If the link can't be created.
+     */
+    private static Link reverseComponents(final String name, final Link link) throws LinkException {
+        final int[][] gauss = link.getGauss();
+        final int[][] reversed = new int[gauss.length][];
+        for (int compo = 0; compo < gauss.length; compo++) {
+            reversed[compo] = gauss[gauss.length - 1 - compo];
+        }
+        return LinkFactory.create(name, reversed, link.getSigns());
+    }
+
+    private static File write(final File directory, final Link link) throws IOException {
+        final File file = new File(directory, link.getName() + ".link");
+        try (final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+            oos.writeObject(link);
+        }
+        return file;
+    }
+
+    /**
+     * Runs a batch and reads its JSON lines.
+     *
+     * @param options The options of the batch, followed by the link files.
+     *
+     * @return The homology written for each link name.
+     *
+     * @throws IOException If the output can't be read.
+     */
+    private static Map<String, String> runBatch(final String... options) throws IOException {
+        final File output = File.createTempFile("batch", ".json");
+        try {
+            final String[] args = new String[options.length + 4];
+            System.arraycopy(new String[]{"-nocache", "-nocheckpoint", "-output", output.getPath()}, 0, args, 0, 4);
+            System.arraycopy(options, 0, args, 4, options.length);
+            KhovaBatch.main(args);
+
+            final Map<String, String> homologies = new HashMap<>();
+            for (final String line : Files.readAllLines(output.toPath(), StandardCharsets.UTF_8)) {
+                final Map<String, String> fields = new HashMap<>();
+                final Matcher matcher = FIELD.matcher(line);
+                while (matcher.find()) {
+                    fields.put(matcher.group(1), matcher.group(2) == null ? matcher.group(3) : unescape(matcher.group(2)));
+                }
+                assertEquals(line, "ok", fields.get("status"));
+                homologies.put(fields.get("name"), fields.get("homology"));
+            }
+            return homologies;
+        } finally {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    private static String unescape(final String text) {
+        final StringBuilder plain = new StringBuilder();
+        for (int k = 0; k < text.length(); k++) {
+            final char c = text.charAt(k);
+            if (c != '\\') {
+                plain.append(c);
+            } else if (text.charAt(++k) == 'u') {
+                plain.append((char) Integer.parseInt(text.substring(k + 1, k + 5), 16));
+                k += 4;
+            } else {
+                plain.append(text.charAt(k));
+            }
+        }
+        return plain.toString();
+    }
+
+    private static String calculateReduced(final Link link, final int component) {
+        final HeadlessHomology homology = new HeadlessHomology(link, LinkHomology.Coefficients.INTEGERS, null, CalculationBudget.UNLIMITED);
+        homology.setCache(null);
+        homology.setCheckpointDirectory(null);
+        homology.setMarkedComponent(component);
+        return homology.calculate().toString();
+    }
+
+    @Test
+    public void testMarkedComponents() throws LinkException, IOException {
+        //An unknot beside a knot : the reduced homology depends on the component marked.
+        final Link link = RandomLinkGenerator.closeBraid("diagram", 3, 2, -2, 2, 2, 2, -2, 2);
+        final Link reversed = reverseComponents("reversed", link);
+        assertFalse(calculateReduced(link, 0).equals(calculateReduced(link, 1)));
+
+        final File directory = Files.createTempDirectory("links").toFile();
+        try {
+            final String first = write(directory, link).getPath(), second = write(directory, reversed).getPath();
+
+            final Map<String, String> marked = runBatch("-marked", "0", first, second);
+            assertEquals(calculateReduced(link, 0), marked.get("diagram"));
+            assertEquals(calculateReduced(reversed, 0), marked.get("reversed"));
+            assertEquals(calculateReduced(link, 1), marked.get("reversed"));
+
+            final Map<String, String> reduced = runBatch("-reduced", first, second);
+            assertEquals(calculateReduced(link, LinkHomology.getDefaultComponent(link)), reduced.get("diagram"));
+            assertEquals(calculateReduced(reversed, LinkHomology.getDefaultComponent(reversed)), reduced.get("reversed"));
+
+            final Map<String, String> unreduced = runBatch(first, second);
+            assertEquals(unreduced.get("diagram"), unreduced.get("reversed"));
+        } finally {
+            for (final File file : directory.listFiles()) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(directory.toPath());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package khovalink.homology;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class testing the checkpoints : the pieces saved are found again by the
+ * next calculation of the same link, and a checkpoint is used by one
+ * calculation at a time.
+ *
+ * @author flo
+ */
+public class CheckpointTest {
+
+    private static final LinkHomology.Coefficients INTEGERS = LinkHomology.Coefficients.INTEGERS;
+
+    private Path base;
+    private Link link;
+
+    @Before
+    public void createBase() throws IOException, LinkException {
+        base = Files.createTempDirectory("checkpoints");
+        link = RandomLinkGenerator.closeBraid("T(2,10)", 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+    }
+
+    @After
+    public void deleteBase() throws IOException {
+        try (final Stream<Path> files = Files.walk(base)) {
+            for (final Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, INTEGERS, -1)) {
+            checkpoint.save("slice 4", new int[]{1, 2, 3});
+        }
+
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, INTEGERS, -1)) {
+            assertEquals(3, checkpoint.load("slice 4", int[].class).length);
+            assertNull(checkpoint.load("slice 6", int[].class));
+            assertNull(checkpoint.load("slice 4", String.class));
+            checkpoint.delete();
+        }
+
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, INTEGERS, -1)) {
+            assertNull(checkpoint.load("slice 4", int[].class));
+        }
+    }
+
+    @Test
+    public void testOtherCalculations() throws IOException {
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, INTEGERS, -1)) {
+            checkpoint.save("slice 4", new int[]{1, 2, 3});
+        }
+
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, LinkHomology.Coefficients.MOD_2, -1)) {
+            assertNull(checkpoint.load("slice 4", int[].class));
+        }
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, INTEGERS, 0)) {
+            assertNull(checkpoint.load("slice 4", int[].class));
+        }
+    }
+
+    @Test
+    public void testUnreadablePiece() throws IOException {
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, INTEGERS, -1)) {
+            checkpoint.save("slice 4", new int[]{1, 2, 3});
+        }
+        try (final Stream<Path> directories = Files.list(base)) {
+            for (final Path directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                Files.write(directory.resolve("slice 4"), new byte[]{1, 2, 3});
+            }
+        }
+
+        try (final Checkpoint checkpoint = Checkpoint.open(base, link, INTEGERS, -1)) {
+            assertNull(checkpoint.load("slice 4", int[].class));
+        }
+    }
+
+    @Test
+    public void testLockContention() throws IOException {
+        final Checkpoint first = Checkpoint.open(base, link, INTEGERS, -1);
+        assertNotNull(first);
+        try {
+            assertNull(Checkpoint.open(base, link, INTEGERS, -1));
+            assertNull(Checkpoint.open(new File(base.toFile(), ".").toPath(), link, INTEGERS, -1));
+            try (final Checkpoint other = Checkpoint.open(base, link, LinkHomology.Coefficients.MOD_2, -1)) {
+                assertNotNull(other);
+            }
+        } finally {
+            first.close();
+        }
+
+        try (final Checkpoint second = Checkpoint.open(base, link, INTEGERS, -1)) {
+            assertNotNull(second);
+        }
+        assertTrue(Files.exists(base.resolve(".lock")));
+    }
+}
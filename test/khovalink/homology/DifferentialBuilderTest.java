@@ -0,0 +1,97 @@
+package khovalink.homology;
+
+import java.util.HashMap;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Class testing the differentials of the cube of resolutions : each one
+ * composed with the next must vanish, for the unreduced and the reduced
+ * complexes.
+ *
+ * @author flo
+ */
+public class DifferentialBuilderTest {
+
+    /**
+     * Checks that the differentials of a link compose to zero.
+     *
+     * @param link The link.
+     * @param markedComponent The marked component of the reduced complex, or
+     * -1.
+     *
+     * @return The number of non zero entries of the differentials.
+     */
+    private static long assertSquareZero(final Link link, final int markedComponent) {
+        final int crossingNbr = link.getNbCross();
+        int negCross = 0;
+        for (final boolean sgn : link.getSigns()) {
+            negCross += sgn ? 0 : 1;
+        }
+
+        long entryNbr = 0;
+        try (final Cancellation cancellation = new Cancellation(() -> false, CalculationBudget.UNLIMITED)) {
+            final ResolutionAtlas atlas = new ResolutionAtlas(new LinkResolution(link), crossingNbr);
+            final GeneratorsChainComplex generators = new GeneratorsChainComplex(1 << crossingNbr, markedComponent >= 0);
+            generators.addResolutions(atlas, negCross, crossingNbr - negCross, resols -> {
+            });
+            final DifferentialBuilder builder = new DifferentialBuilder(atlas, crossingNbr, cancellation, LinkHomology.getMarkedPosition(link, markedComponent));
+
+            for (final int jGrad : generators.getjGrads()) {
+                final HashMap<Integer, GeneratorsGroup> jGens = generators.getjComplex(jGrad);
+                for (final int iGrad : jGens.keySet()) {
+                    final SparseMatrix diff = builder.getijDiff(jGens.get(iGrad), jGens.get(iGrad + 1));
+                    entryNbr += diff.getEntryNbr();
+                    if (jGens.containsKey(iGrad + 1)) {
+                        final SparseMatrix next = builder.getijDiff(jGens.get(iGrad + 1), jGens.get(iGrad + 2));
+                        assertTrue(link.getName() + " at (" + iGrad + ", " + jGrad + ")", isZeroProduct(next, diff));
+                    }
+                }
+            }
+        }
+        return entryNbr;
+    }
+
+    private static boolean isZeroProduct(final SparseMatrix left, final SparseMatrix right) {
+        for (int row = 0; row < left.getRowNbr(); row++) {
+            final long[] product = new long[right.getColNbr()];
+            for (int entry = left.getRowStart(row); entry < left.getRowStart(row + 1); entry++) {
+                final int middle = left.getColIndex(entry);
+                for (int next = right.getRowStart(middle); next < right.getRowStart(middle + 1); next++) {
+                    product[right.getColIndex(next)] += (long) left.getValue(entry) * right.getValue(next);
+                }
+            }
+            for (final long coef : product) {
+                if (coef != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testSquareZero() throws LinkException {
+        final Link[] links = {RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1), RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2),
+            RandomLinkGenerator.closeBraid("L6a4", 3, 1, -2, 1, -2, 1, -2), RandomLinkGenerator.closeBraid("8_19", 3, 1, 2, 1, 2, 1, 2, 1, 2)};
+        for (final Link link : links) {
+            for (int component = -1; component < link.getNbCompo(); component++) {
+                assertTrue(assertSquareZero(link, component) > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomLinks() {
+        final RandomLinkGenerator generator = new RandomLinkGenerator(811);
+        for (int test = 0; test < 20; test++) {
+            final Link link = generator.next(4 + test % 6, 1 + test % 3, test % 2 == 0);
+            for (int component = -1; component < link.getNbCompo(); component++) {
+                assertSquareZero(link, component);
+            }
+        }
+    }
+}
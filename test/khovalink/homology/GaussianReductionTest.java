@@ -0,0 +1,104 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Class testing the Gaussian elimination of the chain complexes : the
+ * homology of each quantum grading must be the same before and after the
+ * reduction, which must leave smaller chain groups.
+ *
+ * @author flo
+ */
+public class GaussianReductionTest {
+
+    /**
+     * Calculates the homology of a chain complex with Smith normal forms.
+     *
+     * @param dims The dimensions of the chain groups, by homological grading.
+     * @param diffs The differentials, by homological grading of their domain.
+     * @param cancellation The checks stopping the calculation.
+     *
+     * @return The free rank and the torsion of each homological grading.
+     */
+    private static Map<Integer, String> getHomology(final Map<Integer, Integer> dims, final Map<Integer, SparseMatrix> diffs,
+            final Cancellation cancellation) {
+        final Map<Integer, SmithForm> forms = new HashMap<>();
+        diffs.forEach((iGrad, diff) -> forms.put(iGrad, new SmithForm(diff, cancellation)));
+
+        final Map<Integer, String> homology = new TreeMap<>();
+        dims.forEach((iGrad, dim) -> {
+            final SmithForm form = forms.get(iGrad), prevForm = forms.get(iGrad - 1);
+            final int freeRank = dim - (form == null ? 0 : form.getRank()) - (prevForm == null ? 0 : prevForm.getRank());
+            final String torsion = prevForm == null ? "[]" : Arrays.toString(prevForm.getTorsion());
+            if (freeRank > 0 || !"[]".equals(torsion)) {
+                homology.put(iGrad, "Z^" + freeRank + " + " + torsion);
+            }
+        });
+        return homology;
+    }
+
+    private static void assertSameHomology(final Link link) {
+        final int crossingNbr = link.getNbCross();
+        int negCross = 0;
+        for (final boolean sgn : link.getSigns()) {
+            negCross += sgn ? 0 : 1;
+        }
+
+        try (final Cancellation cancellation = new Cancellation(() -> false, CalculationBudget.UNLIMITED)) {
+            final ResolutionAtlas atlas = new ResolutionAtlas(new LinkResolution(link), crossingNbr);
+            final GeneratorsChainComplex generators = new GeneratorsChainComplex(1 << crossingNbr, false);
+            generators.addResolutions(atlas, negCross, crossingNbr - negCross, resols -> {
+            });
+            final DifferentialBuilder builder = new DifferentialBuilder(atlas, crossingNbr, cancellation, -1);
+
+            long sizeBefore = 0, sizeAfter = 0;
+            for (final int jGrad : generators.getjGrads()) {
+                final HashMap<Integer, GeneratorsGroup> jGens = generators.getjComplex(jGrad);
+                final Map<Integer, SparseMatrix> diffs = new HashMap<>();
+                final Map<Integer, Integer> dims = new TreeMap<>();
+                for (final int iGrad : jGens.keySet()) {
+                    diffs.put(iGrad, builder.getijDiff(jGens.get(iGrad), jGens.get(iGrad + 1)));
+                    dims.put(iGrad, diffs.get(iGrad).getColNbr());
+                }
+
+                final GaussianReduction reduction = new GaussianReduction(diffs, cancellation);
+                final Map<Integer, Integer> reducedDims = new TreeMap<>();
+                reduction.getSizes().forEach((iGrad, sizes) -> reducedDims.put(iGrad, sizes[1]));
+                assertEquals(link.getName() + " at j = " + jGrad, getHomology(dims, diffs, cancellation),
+                        getHomology(reducedDims, reduction.getDifferentials(), cancellation));
+
+                for (final int iGrad : dims.keySet()) {
+                    assertEquals((int) dims.get(iGrad), reduction.getSizes().get(iGrad)[0]);
+                    sizeBefore += dims.get(iGrad);
+                    sizeAfter += reducedDims.get(iGrad);
+                }
+            }
+            assertTrue(link.getName(), sizeAfter < sizeBefore);
+        }
+    }
+
+    @Test
+    public void testKnownLinks() throws LinkException {
+        assertSameHomology(RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1));
+        assertSameHomology(RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2));
+        assertSameHomology(RandomLinkGenerator.closeBraid("L6a4", 3, 1, -2, 1, -2, 1, -2));
+        assertSameHomology(RandomLinkGenerator.closeBraid("8_19", 3, 1, 2, 1, 2, 1, 2, 1, 2));
+    }
+
+    @Test
+    public void testRandomLinks() {
+        final RandomLinkGenerator generator = new RandomLinkGenerator(811);
+        for (int test = 0; test < 20; test++) {
+            assertSameHomology(generator.next(4 + test % 6, 1 + test % 3, test % 2 == 0));
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package khovalink.homology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Class representing a table of bigraded abelian groups, written by hand from
+ * the known homologies or deduced from other tables by the universal
+ * coefficient and Kunneth theorems, to be compared with the groups calculated.
+ * <p>
+ * The groups over Z/2 are written as the repository stores them : each Z/2 is
+ * a torsion coefficient equal to 2.
+ *
+ * @author flo
+ */
+final class GroupTable {
+
+    /**
+     * Groups by homological then quantum grading : the free rank followed by
+     * the torsion coefficients.
+     */
+    private final TreeMap<Integer, TreeMap<Integer, List<Integer>>> groups = new TreeMap<>();
+
+    /**
+     * Reads calculated groups.
+     *
+     * @param calculated The {@code BiGradedGroups}.
+     *
+     * @return The {@code GroupTable}.
+     */
+    static GroupTable of(final BiGradedGroups calculated) {
+        final GroupTable table = new GroupTable();
+        for (final int jGrad : calculated.getjGrads()) {
+            for (final int iGrad : calculated.getiGrads(jGrad)) {
+                table.add(iGrad, jGrad, calculated.getFreeRank(iGrad, jGrad), calculated.getTorsion(iGrad, jGrad));
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Reads a calculated polynomial over the rationals.
+     *
+     * @param polynomial The {@code KhovanovPolynomial}.
+     *
+     * @return The {@code GroupTable} of free groups.
+     */
+    static GroupTable of(final KhovanovPolynomial polynomial) {
+        final GroupTable table = new GroupTable();
+        polynomial.getTerms().forEach((iGrad, iTerms) -> iTerms.forEach((jGrad, coef) -> table.add(iGrad, jGrad, coef, new int[0])));
+        return table;
+    }
+
+    /**
+     * Returns the homology of the unknot : Z in the gradings (0, -1) and
+     * (0, 1).
+     *
+     * @return The {@code GroupTable}.
+     */
+    static GroupTable unknot() {
+        return new GroupTable().free(0, -1).free(0, 1);
+    }
+
+    /**
+     * Returns the homology of the torus knot T(2, n), n being odd : Z in
+     * (0, n - 2) and (0, n), then for each k from 1 to (n - 1) / 2, Z in
+     * (2k, n + 4k - 2) and (2k + 1, n + 4k + 2) and Z/2 in (2k + 1, n + 4k).
+     *
+     * @param n The number of crossings.
+     *
+     * @return The {@code GroupTable}.
+     */
+    static GroupTable torusKnot(final int n) {
+        final GroupTable table = new GroupTable().free(0, n - 2).free(0, n);
+        for (int k = 1; 2 * k < n; k++) {
+            table.free(2 * k, n + 4 * k - 2).free(2 * k + 1, n + 4 * k + 2).torsion(2 * k + 1, n + 4 * k, 2);
+        }
+        return table;
+    }
+
+    /**
+     * Returns the reduced homology of the torus knot T(2, n), n being odd : Z
+     * in (0, n - 1) and in (k, n - 1 + 2k) for each k from 2 to n.
+     *
+     * @param n The number of crossings.
+     *
+     * @return The {@code GroupTable}.
+     */
+    static GroupTable reducedTorusKnot(final int n) {
+        final GroupTable table = new GroupTable().free(0, n - 1);
+        for (int k = 2; k <= n; k++) {
+            table.free(k, n - 1 + 2 * k);
+        }
+        return table;
+    }
+
+    /**
+     * Adds a Z to a bigrading.
+     *
+     * @param iGrad The homological grading.
+     * @param jGrad The quantum grading.
+     *
+     * @return This {@code GroupTable}.
+     */
+    GroupTable free(final int iGrad, final int jGrad) {
+        add(iGrad, jGrad, 1, new int[0]);
+        return this;
+    }
+
+    /**
+     * Adds a Z/t to a bigrading.
+     *
+     * @param iGrad The homological grading.
+     * @param jGrad The quantum grading.
+     * @param order The order t of the group.
+     *
+     * @return This {@code GroupTable}.
+     */
+    GroupTable torsion(final int iGrad, final int jGrad, final int order) {
+        add(iGrad, jGrad, 0, new int[]{order});
+        return this;
+    }
+
+    /**
+     * Calculates the homology with coefficients in Z/2 by the universal
+     * coefficient theorem : H^i(Z/2) = H^i (x) Z/2 + Tor(H^(i+1), Z/2).
+     *
+     * @return The {@code GroupTable} over Z/2.
+     */
+    GroupTable mod2() {
+        final GroupTable table = new GroupTable();
+        forEach((iGrad, jGrad, group) -> {
+            final int even = (int) group.stream().skip(1).filter(order -> order % 2 == 0).count();
+            table.add(iGrad, jGrad, 0, twos(group.get(0) + even));
+            table.add(iGrad - 1, jGrad, 0, twos(even));
+        });
+        return table;
+    }
+
+    /**
+     * Calculates the homology with rational coefficients : the torsion is
+     * dropped.
+     *
+     * @return The {@code GroupTable} of free groups.
+     */
+    GroupTable rationals() {
+        final GroupTable table = new GroupTable();
+        forEach((iGrad, jGrad, group) -> table.add(iGrad, jGrad, group.get(0), new int[0]));
+        return table;
+    }
+
+    /**
+     * Calculates the homology of the mirror image : the free part of H^(i,j)
+     * is the one of H^(-i,-j) and its torsion the one of H^(-i+1,-j).
+     *
+     * @return The {@code GroupTable} of the mirror.
+     */
+    GroupTable mirror() {
+        final GroupTable table = new GroupTable();
+        forEach((iGrad, jGrad, group) -> {
+            table.add(-iGrad, -jGrad, group.get(0), new int[0]);
+            table.add(-iGrad + 1, -jGrad, 0, group.subList(1, group.size()).stream().mapToInt(Integer::intValue).toArray());
+        });
+        return table;
+    }
+
+    /**
+     * Calculates the tensor product by the Kunneth formula over Z : H^i(C (x)
+     * D) is the sum of the H^a(C) (x) H^b(D) with a + b = i and of the
+     * Tor(H^a(C), H^b(D)) with a + b = i + 1, the quantum gradings adding up.
+     * Over Z/2 written as torsion, the Tor terms would be counted twice : use
+     * {@link #tensorMod2} instead.
+     *
+     * @param other The other {@code GroupTable}.
+     *
+     * @return The {@code GroupTable} of the tensor product.
+     */
+    GroupTable tensor(final GroupTable other) {
+        final GroupTable table = new GroupTable();
+        forEach((i1, j1, g1) -> other.forEach((i2, j2, g2) -> {
+            table.add(i1 + i2, j1 + j2, g1.get(0) * g2.get(0), new int[0]);
+            final List<Integer> tensor = new ArrayList<>(), tor = new ArrayList<>();
+            for (int a = 1; a < g1.size(); a++) {
+                tensor.addAll(Collections.nCopies(g2.get(0), g1.get(a)));
+                for (int b = 1; b < g2.size(); b++) {
+                    final int gcd = gcd(g1.get(a), g2.get(b));
+                    tensor.add(gcd);
+                    tor.add(gcd);
+                }
+            }
+            for (int b = 1; b < g2.size(); b++) {
+                tensor.addAll(Collections.nCopies(g1.get(0), g2.get(b)));
+            }
+            table.add(i1 + i2, j1 + j2, 0, tensor.stream().filter(order -> order > 1).mapToInt(Integer::intValue).toArray());
+            table.add(i1 + i2 - 1, j1 + j2, 0, tor.stream().filter(order -> order > 1).mapToInt(Integer::intValue).toArray());
+        }));
+        return table;
+    }
+
+    /**
+     * Calculates the tensor product of two tables over Z/2 : the dimensions
+     * multiply.
+     *
+     * @param other The other {@code GroupTable} over Z/2.
+     *
+     * @return The {@code GroupTable} of the tensor product over Z/2.
+     */
+    GroupTable tensorMod2(final GroupTable other) {
+        final GroupTable table = new GroupTable();
+        forEach((i1, j1, g1) -> other.forEach((i2, j2, g2) -> table.add(i1 + i2, j1 + j2, 0, twos((g1.size() - 1) * (g2.size() - 1)))));
+        return table;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof GroupTable && toString().equals(obj.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder("{");
+        forEach((iGrad, jGrad, group) -> {
+            text.append(text.length() == 1 ? "" : ", ").append('(').append(iGrad).append(',').append(jGrad).append(")=");
+            String sep = "";
+            if (group.get(0) > 0) {
+                text.append('Z').append(group.get(0) == 1 ? "" : "^" + group.get(0));
+                sep = "+";
+            }
+            for (int k = 1; k < group.size(); k++) {
+                text.append(sep).append("Z/").append(group.get(k));
+                sep = "+";
+            }
+        });
+        return text.append('}').toString();
+    }
+
+    private void add(final int iGrad, final int jGrad, final int freeRank, final int[] torsion) {
+        if (freeRank == 0 && torsion.length == 0) {
+            return;
+        }
+
+        final List<Integer> group = groups.computeIfAbsent(iGrad, i -> new TreeMap<>())
+                .computeIfAbsent(jGrad, j -> new ArrayList<>(Collections.singletonList(0)));
+        group.set(0, group.get(0) + freeRank);
+        for (final int order : torsion) {
+            group.add(order);
+        }
+        Collections.sort(group.subList(1, group.size()));
+    }
+
+    private void forEach(final GroupConsumer consumer) {
+        groups.forEach((iGrad, iGroups) -> iGroups.forEach((jGrad, group) -> consumer.accept(iGrad, jGrad, group)));
+    }
+
+    private static int[] twos(final int count) {
+        final int[] torsion = new int[count];
+        Arrays.fill(torsion, 2);
+        return torsion;
+    }
+
+    private static int gcd(final int a, final int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Interface receiving the groups of a table.
+     */
+    @FunctionalInterface
+    private interface GroupConsumer {
+
+        void accept(int iGrad, int jGrad, List<Integer> group);
+    }
+}
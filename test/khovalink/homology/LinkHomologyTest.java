@@ -0,0 +1,204 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * Class testing the calculations of {@code LinkHomology} against the known
+ * tables of homology, the cache and the checkpoints being left aside : the
+ * whole cube of resolutions below 12 crossings, the tangle algorithm above,
+ * the decomposition of split unions and connected sums, the reduced homology
+ * and the Rasmussen invariant.
+ *
+ * @author flo
+ */
+public class LinkHomologyTest {
+
+    /**
+     * Homology of the figure-eight knot.
+     */
+    private static final GroupTable FIGURE_EIGHT = new GroupTable().free(-2, -5).torsion(-1, -3, 2).free(-1, -1)
+            .free(0, -1).free(0, 1).free(1, 1).torsion(2, 3, 2).free(2, 5);
+
+    /**
+     * Reduced homology of the figure-eight knot.
+     */
+    private static final GroupTable REDUCED_FIGURE_EIGHT = new GroupTable().free(-2, -4).free(-1, -2).free(0, 0).free(1, 2).free(2, 4);
+
+    /**
+     * Homology of the positive Hopf link.
+     */
+    private static final GroupTable HOPF = new GroupTable().free(0, 0).free(0, 2).free(2, 4).free(2, 6);
+
+    private static Link trefoil() throws LinkException {
+        return RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1);
+    }
+
+    private static Link figureEight() throws LinkException {
+        return RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2);
+    }
+
+    private static Link torusKnot(final int n) throws LinkException {
+        final int[] word = new int[Math.abs(n)];
+        Arrays.fill(word, Integer.signum(n));
+        return RandomLinkGenerator.closeBraid("T(2," + n + ")", 2, word);
+    }
+
+    private static HeadlessHomology homology(final Link link, final LinkHomology.Coefficients coefficients) {
+        final HeadlessHomology homology = new HeadlessHomology(link, coefficients, null, CalculationBudget.UNLIMITED);
+        homology.setCache(null);
+        homology.setCheckpointDirectory(null);
+        return homology;
+    }
+
+    private static GroupTable calculate(final HeadlessHomology homology) {
+        if (homology.calculate() == null) {
+            throw new AssertionError("Calculation failed : " + homology.getLastLine());
+        }
+        return GroupTable.of(homology.getGroups());
+    }
+
+    private static GroupTable calculate(final Link link, final LinkHomology.Coefficients coefficients) {
+        return calculate(homology(link, coefficients));
+    }
+
+    private static GroupTable calculateReduced(final Link link, final LinkHomology.Coefficients coefficients, final int component) {
+        final HeadlessHomology homology = homology(link, coefficients);
+        homology.setMarkedComponent(component);
+        return calculate(homology);
+    }
+
+    private static Integer calculateRasmussen(final Link link) {
+        final HeadlessHomology homology = homology(link, LinkHomology.Coefficients.MOD_2);
+        homology.setRasmussen(true);
+        homology.calculate();
+        return homology.getRasmussenInvariant();
+    }
+
+    @Test
+    public void testTrefoil() throws LinkException {
+        final GroupTable expected = GroupTable.torusKnot(3);
+        assertEquals(expected, calculate(trefoil(), LinkHomology.Coefficients.INTEGERS));
+        assertEquals(expected.mod2(), calculate(trefoil(), LinkHomology.Coefficients.MOD_2));
+        assertEquals(expected.rationals(), calculate(trefoil(), LinkHomology.Coefficients.RATIONALS));
+    }
+
+    @Test
+    public void testMirrorTrefoil() throws LinkException {
+        final Link mirror = RandomLinkGenerator.closeBraid("3_1m", 2, -1, -1, -1);
+        final GroupTable expected = GroupTable.torusKnot(3).mirror();
+        assertEquals(expected, calculate(mirror, LinkHomology.Coefficients.INTEGERS));
+        assertEquals(expected.mod2(), calculate(mirror, LinkHomology.Coefficients.MOD_2));
+    }
+
+    @Test
+    public void testFigureEight() throws LinkException {
+        assertEquals(FIGURE_EIGHT, FIGURE_EIGHT.mirror());
+        assertEquals(FIGURE_EIGHT, calculate(figureEight(), LinkHomology.Coefficients.INTEGERS));
+        assertEquals(FIGURE_EIGHT.mod2(), calculate(figureEight(), LinkHomology.Coefficients.MOD_2));
+        assertEquals(FIGURE_EIGHT.rationals(), calculate(figureEight(), LinkHomology.Coefficients.RATIONALS));
+    }
+
+    @Test
+    public void testHopfLink() throws LinkException {
+        final Link hopf = RandomLinkGenerator.closeBraid("L2a1", 2, 1, 1);
+        assertEquals(HOPF, calculate(hopf, LinkHomology.Coefficients.INTEGERS));
+        assertEquals(HOPF.mod2(), calculate(hopf, LinkHomology.Coefficients.MOD_2));
+    }
+
+    @Test
+    public void testTorusKnotsOnCube() throws LinkException {
+        for (int n = 5; n < LinkHomology.TANGLE_MIN_CROSSINGS; n += 2) {
+            assertEquals("T(2," + n + ")", GroupTable.torusKnot(n), calculate(torusKnot(n), LinkHomology.Coefficients.INTEGERS));
+            assertEquals("T(2," + n + ") over Z/2", GroupTable.torusKnot(n).mod2(), calculate(torusKnot(n), LinkHomology.Coefficients.MOD_2));
+        }
+    }
+
+    @Test
+    public void testTorusKnotsOnTangle() throws LinkException {
+        for (final int n : new int[]{13, 21, 31}) {
+            assertEquals("T(2," + n + ")", GroupTable.torusKnot(n), calculate(torusKnot(n), LinkHomology.Coefficients.INTEGERS));
+            assertEquals("T(2," + n + ") over Q", GroupTable.torusKnot(n).rationals(), calculate(torusKnot(n), LinkHomology.Coefficients.RATIONALS));
+            assertEquals("T(2,-" + n + ")", GroupTable.torusKnot(n).mirror(), calculate(torusKnot(-n), LinkHomology.Coefficients.INTEGERS));
+        }
+    }
+
+    @Test
+    public void testSplitUnions() throws LinkException {
+        final Link trefoilAndUnknot = RandomLinkGenerator.closeBraid("3_1+0_1", 3, 1, 1, 1);
+        assertEquals(GroupTable.torusKnot(3).tensor(GroupTable.unknot()), calculate(trefoilAndUnknot, LinkHomology.Coefficients.INTEGERS));
+
+        final Link trefoilAndFigureEight = RandomLinkGenerator.closeBraid("3_1+4_1", 5, 1, 1, 1, 3, -4, 3, -4);
+        final GroupTable expected = GroupTable.torusKnot(3).tensor(FIGURE_EIGHT);
+        assertEquals(expected, calculate(trefoilAndFigureEight, LinkHomology.Coefficients.INTEGERS));
+        assertEquals(GroupTable.torusKnot(3).mod2().tensorMod2(FIGURE_EIGHT.mod2()), calculate(trefoilAndFigureEight, LinkHomology.Coefficients.MOD_2));
+        assertEquals(expected.rationals(), calculate(trefoilAndFigureEight, LinkHomology.Coefficients.RATIONALS));
+    }
+
+    @Test
+    public void testConnectedSums() throws LinkException {
+        final Link granny = RandomLinkGenerator.closeBraid("3_1#3_1", 3, 1, 1, 1, 2, 2, 2);
+        final Link square = RandomLinkGenerator.closeBraid("3_1#3_1m", 3, 1, 1, 1, -2, -2, -2);
+        final GroupTable reduced = GroupTable.reducedTorusKnot(3).mod2();
+        final GroupTable reducedMirror = GroupTable.reducedTorusKnot(3).mirror().mod2();
+
+        //Over Z/2, the homology of a connected sum is the product of the reduced ones times the one of the unknot.
+        final GroupTable grannyMod2 = reduced.tensorMod2(reduced).tensorMod2(GroupTable.unknot().mod2());
+        final GroupTable squareMod2 = reduced.tensorMod2(reducedMirror).tensorMod2(GroupTable.unknot().mod2());
+        assertEquals(grannyMod2, calculate(granny, LinkHomology.Coefficients.MOD_2));
+        assertEquals(squareMod2, calculate(square, LinkHomology.Coefficients.MOD_2));
+
+        //The integral homology must give them back by the universal coefficient theorem.
+        final GroupTable grannyIntegers = calculate(granny, LinkHomology.Coefficients.INTEGERS);
+        final GroupTable squareIntegers = calculate(square, LinkHomology.Coefficients.INTEGERS);
+        assertEquals(grannyMod2, grannyIntegers.mod2());
+        assertEquals(squareMod2, squareIntegers.mod2());
+        assertEquals(grannyIntegers.rationals(), calculate(granny, LinkHomology.Coefficients.RATIONALS));
+        assertEquals(squareIntegers.rationals(), calculate(square, LinkHomology.Coefficients.RATIONALS));
+        assertEquals(squareIntegers, squareIntegers.mirror());
+    }
+
+    @Test
+    public void testReducedKnots() throws LinkException {
+        for (final LinkHomology.Coefficients coefficients : LinkHomology.Coefficients.values()) {
+            final boolean mod2 = coefficients == LinkHomology.Coefficients.MOD_2;
+            for (final int n : new int[]{3, 5, 7, 13, 21}) {
+                final GroupTable expected = GroupTable.reducedTorusKnot(n);
+                assertEquals("T(2," + n + ") " + coefficients, mod2 ? expected.mod2() : expected, calculateReduced(torusKnot(n), coefficients, 0));
+            }
+            assertEquals(mod2 ? REDUCED_FIGURE_EIGHT.mod2() : REDUCED_FIGURE_EIGHT, calculateReduced(figureEight(), coefficients, 0));
+        }
+    }
+
+    @Test
+    public void testReducedLinks() throws LinkException {
+        final Link hopf = RandomLinkGenerator.closeBraid("L2a1", 2, 1, 1);
+        assertEquals(new GroupTable().free(0, 1).free(2, 5), calculateReduced(hopf, LinkHomology.Coefficients.INTEGERS, 0));
+
+        //Marked on the trefoil, the unknot multiplies the reduced homology ; marked on the unknot, the homology of the trefoil is left.
+        final Link trefoilAndUnknot = RandomLinkGenerator.closeBraid("3_1+0_1", 3, 1, 1, 1);
+        assertEquals(GroupTable.reducedTorusKnot(3).tensor(GroupTable.unknot()), calculateReduced(trefoilAndUnknot, LinkHomology.Coefficients.INTEGERS, 0));
+        assertEquals(GroupTable.torusKnot(3), calculateReduced(trefoilAndUnknot, LinkHomology.Coefficients.INTEGERS, 1));
+    }
+
+    @Test
+    public void testRasmussenInvariant() throws LinkException {
+        assertEquals(Integer.valueOf(0), calculateRasmussen(RandomLinkGenerator.closeBraid("0_1", 2, 1)));
+        assertEquals(Integer.valueOf(2), calculateRasmussen(trefoil()));
+        assertEquals(Integer.valueOf(-2), calculateRasmussen(RandomLinkGenerator.closeBraid("3_1m", 2, -1, -1, -1)));
+        assertEquals(Integer.valueOf(0), calculateRasmussen(figureEight()));
+        assertEquals(Integer.valueOf(4), calculateRasmussen(torusKnot(5)));
+        assertEquals(Integer.valueOf(6), calculateRasmussen(torusKnot(7)));
+        assertEquals(Integer.valueOf(-6), calculateRasmussen(torusKnot(-7)));
+        assertEquals(Integer.valueOf(2), calculateRasmussen(RandomLinkGenerator.closeBraid("5_2", 3, 1, 1, 1, 2, -1, 2)));
+        assertEquals(Integer.valueOf(6), calculateRasmussen(RandomLinkGenerator.closeBraid("8_19", 3, 1, 2, 1, 2, 1, 2, 1, 2)));
+        assertEquals(Integer.valueOf(4), calculateRasmussen(RandomLinkGenerator.closeBraid("3_1#3_1", 3, 1, 1, 1, 2, 2, 2)));
+        assertEquals(Integer.valueOf(0), calculateRasmussen(RandomLinkGenerator.closeBraid("3_1#3_1m", 3, 1, 1, 1, -2, -2, -2)));
+        assertNull(calculateRasmussen(RandomLinkGenerator.closeBraid("L2a1", 2, 1, 1)));
+    }
+}
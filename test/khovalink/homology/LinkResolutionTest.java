@@ -0,0 +1,78 @@
+package khovalink.homology;
+
+import java.util.Random;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Class testing the walks through the resolutions in Gray-code order : every
+ * resolution visited must have the circles found by walking along them.
+ *
+ * @author flo
+ */
+public class LinkResolutionTest {
+
+    /**
+     * Walks through a range of resolutions and compares each one with
+     * {@code labelCircles}.
+     *
+     * @param link The link.
+     * @param from The index in the Gray-code order of the first resolution.
+     * @param to The index following the last resolution.
+     */
+    private static void assertWalk(final Link link, final int from, final int to) {
+        final LinkResolution resolution = new LinkResolution(link);
+        final int[] expected = new int[link.getCode().length], labels = new int[expected.length];
+        final LinkResolution.GrayWalk walk = resolution.startGrayWalk(from);
+        for (int index = from; index < to; index++) {
+            if (index > from) {
+                walk.next();
+            }
+            final int resol = LinkResolution.getGrayResol(index);
+            assertEquals(link.getName(), resol, walk.getResol());
+            assertEquals(link.getName() + " " + resol, resolution.labelCircles(resol, expected), walk.getCircleNbr());
+            walk.fillLabels(labels);
+            assertArrayEquals(link.getName() + " " + resol, expected, labels);
+        }
+    }
+
+    @Test
+    public void testGrayOrder() {
+        for (int index = 1; index < 1 << 12; index++) {
+            assertEquals(1, Integer.bitCount(LinkResolution.getGrayResol(index) ^ LinkResolution.getGrayResol(index - 1)));
+        }
+    }
+
+    @Test
+    public void testKnownLinks() throws LinkException {
+        final Link[] links = {RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1), RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2),
+            RandomLinkGenerator.closeBraid("L2a1", 2, 1, 1), RandomLinkGenerator.closeBraid("3_1+O", 3, 1, 1, 1),
+            RandomLinkGenerator.closeBraid("T(4,3)", 4, 1, 2, 3, 1, 2, 3, 1, 2, 3)};
+        for (final Link link : links) {
+            assertWalk(link, 0, 1 << link.getNbCross());
+        }
+    }
+
+    @Test
+    public void testRandomLinks() throws LinkException {
+        final Random random = new Random(811);
+        for (int test = 0; test < 30; test++) {
+            final int strands = 2 + random.nextInt(4);
+            final int[] word = new int[6 + random.nextInt(9)];
+            for (int k = 0; k < word.length; k++) {
+                word[k] = (1 + random.nextInt(strands - 1)) * (random.nextBoolean() ? 1 : -1);
+            }
+            final Link link = RandomLinkGenerator.closeBraid("braid " + test, strands, word);
+
+            //Ranges starting anywhere, as the workers of the atlas and the census walk them.
+            final int resolNbr = 1 << link.getNbCross();
+            final int from = random.nextInt(resolNbr);
+            assertWalk(link, 0, resolNbr);
+            assertWalk(link, from, Math.min(resolNbr, from + LinkResolution.GRAY_RANGE_SIZE));
+        }
+    }
+}
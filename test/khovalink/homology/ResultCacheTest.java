@@ -0,0 +1,135 @@
+package khovalink.homology;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import khovalink.persistence.CanonicalLink;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Class testing the cache of results : the results are read back, the least
+ * recently used are deleted when the cache is full, and a result stored under
+ * the fingerprint of another diagram or unreadable is never returned.
+ *
+ * @author flo
+ */
+public class ResultCacheTest {
+
+    private static final LinkHomology.Coefficients INTEGERS = LinkHomology.Coefficients.INTEGERS;
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("results").toFile();
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        for (final File file : directory.listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory.toPath());
+    }
+
+    private static BiGradedGroups calculate(final Link link) {
+        final HeadlessHomology homology = new HeadlessHomology(link, INTEGERS, null, CalculationBudget.UNLIMITED);
+        homology.setCache(null);
+        homology.setCheckpointDirectory(null);
+        homology.calculate();
+        return homology.getGroups();
+    }
+
+    private static long put(final ResultCache cache, final CanonicalLink canonical, final BiGradedGroups groups) {
+        final long before = cache.getTotalBytes();
+        cache.put(canonical, INTEGERS, false, groups, null, Duration.ofSeconds(1));
+        return cache.getTotalBytes() - before;
+    }
+
+    private Path getFile(final CanonicalLink canonical) {
+        return directory.toPath().resolve(String.format("%016x-integers.result", canonical.getFingerprint()));
+    }
+
+    @Test
+    public void testReadBack() throws LinkException, IOException {
+        final Link trefoil = RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1);
+        final BiGradedGroups groups = calculate(trefoil);
+        final CanonicalLink canonical = new CanonicalLink(trefoil);
+        put(new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES), canonical, groups);
+
+        final ResultCache reopened = new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES);
+        assertEquals(1, reopened.getResultNbr());
+        assertEquals(GroupTable.of(groups), GroupTable.of(reopened.get(canonical, INTEGERS, false).getGroups()));
+        assertEquals(Duration.ofSeconds(1), reopened.get(canonical, INTEGERS, false).getTime());
+        assertNull(reopened.get(canonical, INTEGERS, true));
+        assertNull(reopened.get(canonical, LinkHomology.Coefficients.MOD_2, false));
+    }
+
+    @Test
+    public void testLeastRecentlyUsed() throws LinkException, IOException {
+        final Link[] links = {RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1), RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2),
+            RandomLinkGenerator.closeBraid("5_1", 2, 1, 1, 1, 1, 1)};
+        final CanonicalLink[] canonicals = new CanonicalLink[links.length];
+        final BiGradedGroups[] groups = new BiGradedGroups[links.length];
+        long totalBytes = 0;
+        final Path measured = Files.createTempDirectory("results");
+        final ResultCache measure = new ResultCache(measured.toFile(), ResultCache.DEFAULT_MAX_BYTES);
+        for (int k = 0; k < links.length; k++) {
+            canonicals[k] = new CanonicalLink(links[k]);
+            groups[k] = calculate(links[k]);
+            totalBytes += put(measure, canonicals[k], groups[k]);
+        }
+        measure.clear();
+        Files.delete(measured);
+
+        //The trefoil is used again before the last result : the figure-eight is the least recently used.
+        final ResultCache cache = new ResultCache(directory, totalBytes - 1);
+        put(cache, canonicals[0], groups[0]);
+        put(cache, canonicals[1], groups[1]);
+        assertNotNull(cache.get(canonicals[0], INTEGERS, false));
+        put(cache, canonicals[2], groups[2]);
+
+        assertEquals(2, cache.getResultNbr());
+        assertNull(cache.get(canonicals[1], INTEGERS, false));
+        assertNotNull(cache.get(canonicals[0], INTEGERS, false));
+        assertNotNull(cache.get(canonicals[2], INTEGERS, false));
+        assertEquals(2, new ResultCache(directory, totalBytes - 1).getResultNbr());
+    }
+
+    @Test
+    public void testFingerprintCollision() throws LinkException, IOException {
+        final Link trefoil = RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1);
+        final CanonicalLink canonical = new CanonicalLink(trefoil);
+        final CanonicalLink other = new CanonicalLink(RandomLinkGenerator.closeBraid("3_1m", 2, -1, -1, -1));
+        put(new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES), canonical, calculate(trefoil));
+
+        //The result of the trefoil found under the fingerprint of its mirror.
+        Files.copy(getFile(canonical), getFile(other));
+        final ResultCache cache = new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES);
+        assertNull(cache.get(other, INTEGERS, false));
+        assertNotNull(cache.get(canonical, INTEGERS, false));
+    }
+
+    @Test
+    public void testUnreadableResult() throws LinkException, IOException {
+        final Link trefoil = RandomLinkGenerator.closeBraid("3_1", 2, 1, 1, 1);
+        final CanonicalLink canonical = new CanonicalLink(trefoil);
+        put(new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES), canonical, calculate(trefoil));
+
+        Files.write(getFile(canonical), new byte[]{1, 2, 3});
+        final ResultCache cache = new ResultCache(directory, ResultCache.DEFAULT_MAX_BYTES);
+        assertNull(cache.get(canonical, INTEGERS, false));
+        assertEquals(0, cache.getResultNbr());
+        assertEquals(0, cache.getTotalBytes());
+    }
+}
@@ -0,0 +1,99 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Class testing the sparse Smith normal forms against matrices whose invariant
+ * factors are known : diagonal matrices hidden by unimodular row and column
+ * operations.
+ *
+ * @author flo
+ */
+public class SmithFormTest {
+
+    private static SparseMatrix toSparse(final int[][] dense) {
+        final int rowNbr = dense.length, colNbr = dense.length == 0 ? 0 : dense[0].length;
+        final int[] rows = new int[rowNbr * colNbr], cols = new int[rowNbr * colNbr], vals = new int[rowNbr * colNbr];
+        int entryNbr = 0;
+        for (int r = 0; r < rowNbr; r++) {
+            for (int c = 0; c < colNbr; c++) {
+                if (dense[r][c] != 0) {
+                    rows[entryNbr] = r;
+                    cols[entryNbr] = c;
+                    vals[entryNbr++] = dense[r][c];
+                }
+            }
+        }
+        return new SparseMatrix(rowNbr, colNbr, rows, cols, vals, entryNbr);
+    }
+
+    private static SmithForm smithForm(final int[][] dense) {
+        try (final Cancellation cancellation = new Cancellation(() -> false, CalculationBudget.UNLIMITED)) {
+            return new SmithForm(toSparse(dense), cancellation);
+        }
+    }
+
+    /**
+     * Creates a matrix with given invariant factors, mixed by random
+     * unimodular operations with small coefficients.
+     *
+     * @param rowNbr The number of rows.
+     * @param colNbr The number of columns.
+     * @param factors The invariant factors, each dividing the next.
+     * @param random The random generator.
+     *
+     * @return The matrix.
+     */
+    private static int[][] mixed(final int rowNbr, final int colNbr, final int[] factors, final Random random) {
+        final int[][] matrix = new int[rowNbr][colNbr];
+        for (int k = 0; k < factors.length; k++) {
+            matrix[k][k] = factors[k];
+        }
+        for (int step = 0; step < 3 * (rowNbr + colNbr); step++) {
+            final int coef = random.nextInt(3) - 1;
+            if (random.nextBoolean()) {
+                final int r1 = random.nextInt(rowNbr), r2 = random.nextInt(rowNbr);
+                for (int c = 0; r1 != r2 && c < colNbr; c++) {
+                    matrix[r1][c] += coef * matrix[r2][c];
+                }
+            } else {
+                final int c1 = random.nextInt(colNbr), c2 = random.nextInt(colNbr);
+                for (int r = 0; c1 != c2 && r < rowNbr; r++) {
+                    matrix[r][c1] += coef * matrix[r][c2];
+                }
+            }
+        }
+        return matrix;
+    }
+
+    @Test
+    public void testSmallMatrices() {
+        assertEquals(0, smithForm(new int[][]{{0, 0}, {0, 0}}).getRank());
+        assertArrayEquals(new int[0], smithForm(new int[][]{{1, 1}, {1, 2}}).getTorsion());
+        assertArrayEquals(new int[]{2}, smithForm(new int[][]{{1, 2}, {3, 4}}).getTorsion());
+        assertArrayEquals(new int[]{6}, smithForm(new int[][]{{2, 0}, {0, 3}}).getTorsion());
+        assertArrayEquals(new int[]{2, 4}, smithForm(new int[][]{{2, 4}, {6, 8}}).getTorsion());
+        assertArrayEquals(new int[]{2}, smithForm(new int[][]{{2, 2, 2}, {2, 2, 2}}).getTorsion());
+        assertEquals(1, smithForm(new int[][]{{2, 2, 2}, {2, 2, 2}}).getRank());
+    }
+
+    @Test
+    public void testMixedMatrices() {
+        final Random random = new Random(811);
+        final int[][] factors = {{1, 1, 2, 2, 4}, {1, 3, 3, 6}, {2, 2, 2, 2, 2, 2}, {1, 1, 1, 1, 1, 1, 1, 5}, {}};
+        for (final int[] expected : factors) {
+            for (int test = 0; test < 20; test++) {
+                final int rowNbr = expected.length + random.nextInt(4), colNbr = expected.length + random.nextInt(4);
+                final SmithForm form = smithForm(mixed(Math.max(rowNbr, 1), Math.max(colNbr, 1), expected, random));
+
+                final int[] torsion = Arrays.stream(expected).filter(factor -> factor > 1).toArray();
+                assertEquals(expected.length, form.getRank());
+                assertArrayEquals(Arrays.toString(expected), torsion, form.getTorsion());
+            }
+        }
+    }
+}
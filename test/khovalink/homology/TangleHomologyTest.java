@@ -0,0 +1,71 @@
+package khovalink.homology;
+
+import java.util.Arrays;
+import khovalink.persistence.Link;
+import khovalink.persistence.LinkException;
+import khovalink.persistence.RandomLinkGenerator;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Class testing the tangle algorithm on its own against the known tables,
+ * whatever the number of crossings : the links are added one crossing at a
+ * time, then the homology is calculated with the three coefficients.
+ *
+ * @author flo
+ */
+public class TangleHomologyTest {
+
+    private static TangleHomology addCrossings(final Link link, final int markedComponent, final Cancellation cancellation) {
+        final TangleHomology tangle = new TangleHomology(link, markedComponent);
+        while (tangle.hasNextCrossing()) {
+            tangle.addNextCrossing(cancellation);
+        }
+        return tangle;
+    }
+
+    private static void assertTables(final String name, final GroupTable expected, final Link link, final int markedComponent) {
+        try (final Cancellation cancellation = new Cancellation(() -> false, CalculationBudget.UNLIMITED)) {
+            assertEquals(name, expected, GroupTable.of(addCrossings(link, markedComponent, cancellation).getGroups(cancellation)));
+            assertEquals(name + " over Z/2", expected.mod2(), GroupTable.of(addCrossings(link, markedComponent, cancellation).getMod2Groups(cancellation)));
+            assertEquals(name + " over Q", expected.rationals(),
+                    GroupTable.of(addCrossings(link, markedComponent, cancellation).getRationalPolynomial(cancellation)));
+        }
+    }
+
+    private static Link torusKnot(final int n) throws LinkException {
+        final int[] word = new int[Math.abs(n)];
+        Arrays.fill(word, Integer.signum(n));
+        return RandomLinkGenerator.closeBraid("T(2," + n + ")", 2, word);
+    }
+
+    @Test
+    public void testTorusKnots() throws LinkException {
+        for (int n = 3; n <= 31; n += 2) {
+            assertTables("T(2," + n + ")", GroupTable.torusKnot(n), torusKnot(n), -1);
+            assertTables("T(2,-" + n + ")", GroupTable.torusKnot(n).mirror(), torusKnot(-n), -1);
+        }
+    }
+
+    @Test
+    public void testReducedTorusKnots() throws LinkException {
+        for (int n = 3; n <= 31; n += 2) {
+            assertTables("T(2," + n + ") reduced", GroupTable.reducedTorusKnot(n), torusKnot(n), 0);
+        }
+    }
+
+    @Test
+    public void testFigureEight() throws LinkException {
+        final Link figureEight = RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2);
+        assertTables("4_1", new GroupTable().free(-2, -5).torsion(-1, -3, 2).free(-1, -1).free(0, -1).free(0, 1).free(1, 1).torsion(2, 3, 2).free(2, 5),
+                figureEight, -1);
+        assertTables("4_1 reduced", new GroupTable().free(-2, -4).free(-1, -2).free(0, 0).free(1, 2).free(2, 4), figureEight, 0);
+    }
+
+    @Test
+    public void testHopfLink() throws LinkException {
+        final Link hopf = RandomLinkGenerator.closeBraid("L2a1", 2, 1, 1);
+        assertTables("L2a1", new GroupTable().free(0, 0).free(0, 2).free(2, 4).free(2, 6), hopf, -1);
+        assertTables("L2a1 reduced", new GroupTable().free(0, 1).free(2, 5), hopf, 1);
+    }
+}
@@ -0,0 +1,187 @@
+package khovalink.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+/**
+ * Class testing the canonical forms : the same diagram entered with its
+ * crossings renumbered, its components rotated or reordered must give the
+ * same canonical form, quickly even with many interchangeable components.
+ *
+ * @author flo
+ */
+public class CanonicalLinkTest {
+
+    /**
+     * Inner class representing a diagram entered in another way : its Gauss
+     * code, its signs, and the new place of each component of the original.
+     */
+    private static final class Scrambled {
+
+        private final int[][] gauss;
+        private final boolean[] signs;
+        private final int[] places;
+
+        /**
+         * Renumbers the crossings of a diagram, rotates its components and
+         * reorders them at random.
+         *
+         * @param gauss The Gauss code.
+         * @param signs The signs.
+         * @param random The random generator.
+         */
+        private Scrambled(final int[][] gauss, final boolean[] signs, final Random random) {
+            final List<Integer> numbers = new ArrayList<>();
+            for (int cross = 1; cross <= signs.length; cross++) {
+                numbers.add(cross);
+            }
+            Collections.shuffle(numbers, random);
+            final List<Integer> order = new ArrayList<>();
+            for (int compo = 0; compo < gauss.length; compo++) {
+                order.add(compo);
+            }
+            Collections.shuffle(order, random);
+
+            this.gauss = new int[gauss.length][];
+            this.signs = new boolean[signs.length];
+            places = new int[gauss.length];
+            for (int cross = 0; cross < signs.length; cross++) {
+                this.signs[numbers.get(cross) - 1] = signs[cross];
+            }
+            for (int place = 0; place < gauss.length; place++) {
+                final int[] compo = gauss[order.get(place)];
+                final int rot = compo.length == 0 ? 0 : random.nextInt(compo.length);
+                this.gauss[place] = new int[compo.length];
+                for (int k = 0; k < compo.length; k++) {
+                    final int signed = compo[(rot + k) % compo.length];
+                    this.gauss[place][k] = Integer.signum(signed) * numbers.get(Math.abs(signed) - 1);
+                }
+                places[order.get(place)] = place;
+            }
+        }
+    }
+
+    /**
+     * Creates the closure of a braid without the limits of the links.
+     *
+     * @param strandNbr The number of strands.
+     * @param word The braid word.
+     *
+     * @return The Gauss code followed by the signs.
+     */
+    private static Object[] closeBraid(final int strandNbr, final int... word) {
+        final List<List<Integer>> strands = new ArrayList<>();
+        final int[] positions = new int[strandNbr];
+        for (int strand = 0; strand < strandNbr; strand++) {
+            strands.add(new ArrayList<>());
+            positions[strand] = strand;
+        }
+        final boolean[] signs = new boolean[word.length];
+        for (int cross = 0; cross < word.length; cross++) {
+            final int gen = Math.abs(word[cross]) - 1;
+            int left = -1, right = -1;
+            for (int strand = 0; strand < strandNbr; strand++) {
+                if (positions[strand] == gen) {
+                    left = strand;
+                } else if (positions[strand] == gen + 1) {
+                    right = strand;
+                }
+            }
+            signs[cross] = word[cross] > 0;
+            strands.get(left).add(word[cross] > 0 ? cross + 1 : -(cross + 1));
+            strands.get(right).add(word[cross] > 0 ? -(cross + 1) : cross + 1);
+            positions[left] = gen + 1;
+            positions[right] = gen;
+        }
+
+        final List<int[]> gauss = new ArrayList<>();
+        final boolean[] done = new boolean[strandNbr];
+        for (int first = 0; first < strandNbr; first++) {
+            final List<Integer> compo = new ArrayList<>();
+            for (int strand = first; !done[strand]; strand = positions[strand]) {
+                done[strand] = true;
+                compo.addAll(strands.get(strand));
+            }
+            if (!compo.isEmpty() || strands.get(first).isEmpty() && positions[first] == first) {
+                gauss.add(compo.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return new Object[]{gauss.toArray(new int[gauss.size()][]), signs};
+    }
+
+    private static CanonicalLink canonical(final Object[] diagram) {
+        return new CanonicalLink((int[][]) diagram[0], (boolean[]) diagram[1]);
+    }
+
+    private static void assertInvariant(final String name, final Object[] diagram) {
+        final int[][] gauss = (int[][]) diagram[0];
+        final CanonicalLink canonical = canonical(diagram);
+        final Random random = new Random(811);
+        for (int test = 0; test < 50; test++) {
+            final Scrambled scrambled = new Scrambled(gauss, (boolean[]) diagram[1], random);
+            final CanonicalLink other = new CanonicalLink(scrambled.gauss, scrambled.signs);
+            assertEquals(name, canonical, other);
+            assertEquals(name, canonical.getFingerprint(), other.getFingerprint());
+            for (int compo = 0; compo < gauss.length; compo++) {
+                assertEquals(name, gauss[compo].length, canonical.getGauss()[canonical.getComponent(compo)].length);
+                assertEquals(name, gauss[compo].length, other.getGauss()[other.getComponent(scrambled.places[compo])].length);
+            }
+        }
+    }
+
+    @Test
+    public void testInvariance() {
+        assertInvariant("3_1", closeBraid(2, 1, 1, 1));
+        assertInvariant("4_1", closeBraid(3, 1, -2, 1, -2));
+        assertInvariant("8_19", closeBraid(3, 1, 2, 1, 2, 1, 2, 1, 2));
+        assertInvariant("L6a4", closeBraid(3, 1, -2, 1, -2, 1, -2));
+        assertInvariant("T(4,4)", closeBraid(4, 1, 2, 3, 1, 2, 3, 1, 2, 3, 1, 2, 3));
+        assertInvariant("3_1+4_1+O", closeBraid(6, 1, 1, 1, 3, -4, 3, -4));
+        assertInvariant("3_1#3_1m", closeBraid(3, 1, 1, 1, -2, -2, -2));
+    }
+
+    @Test
+    public void testDistinctDiagrams() {
+        final CanonicalLink trefoil = canonical(closeBraid(2, 1, 1, 1));
+        assertFalse(trefoil.equals(canonical(closeBraid(2, -1, -1, -1))));
+        assertFalse(trefoil.equals(canonical(closeBraid(3, 1, -2, 1, -2))));
+        assertFalse(canonical(closeBraid(3, 1, 1, 1, 2, 2, 2)).equals(canonical(closeBraid(3, 1, 1, 1, -2, -2, -2))));
+        assertFalse(canonical(closeBraid(4, 1, 1, 1, 3, 3, 3)).equals(canonical(closeBraid(4, 1, 1, 1, -3, -3, -3))));
+    }
+
+    @Test
+    public void testComponents() {
+        //The trefoil of the split union 3_1+4_1 is found wherever it is entered.
+        final Object[] diagram = closeBraid(5, 1, 1, 1, 3, -4, 3, -4);
+        final CanonicalLink canonical = canonical(diagram);
+        final int trefoil = canonical.getComponent(0);
+        final Random random = new Random(811);
+        for (int test = 0; test < 20; test++) {
+            final Scrambled scrambled = new Scrambled((int[][]) diagram[0], (boolean[]) diagram[1], random);
+            assertEquals(trefoil, new CanonicalLink(scrambled.gauss, scrambled.signs).getComponent(scrambled.places[0]));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testInterchangeableComponents() {
+        for (int trefoilNbr = 1; trefoilNbr <= 20; trefoilNbr++) {
+            final int[] word = new int[3 * trefoilNbr];
+            for (int k = 0; k < word.length; k++) {
+                word[k] = 2 * (k / 3) + 1;
+            }
+            assertInvariant(trefoilNbr + " trefoils", closeBraid(2 * trefoilNbr, word));
+        }
+        for (int n = 3; n <= 8; n++) {
+            final int[] word = new int[n * (n - 1)];
+            for (int k = 0; k < word.length; k++) {
+                word[k] = 1 + k % (n - 1);
+            }
+            assertInvariant("T(" + n + "," + n + ")", closeBraid(n, word));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package khovalink.persistence;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import khovalink.homology.JonesPolynomial;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Class testing the decomposition of links into split pieces and factors of
+ * connected sums : the Jones polynomial of a split union is the product of
+ * the unnormalized ones of its pieces, and the one of a connected sum the
+ * product of the normalized ones of its factors.
+ *
+ * @author flo
+ */
+public class LinkDecompositionTest {
+
+    private static Map<Integer, Long> multiply(final Map<Integer, Long> poly1, final Map<Integer, Long> poly2) {
+        final Map<Integer, Long> product = new TreeMap<>();
+        poly1.forEach((deg1, coef1) -> poly2.forEach((deg2, coef2) -> product.merge(deg1 + deg2, coef1 * coef2, Long::sum)));
+        product.values().removeIf(coef -> coef == 0);
+        return product;
+    }
+
+    private static Map<Integer, Long> getProduct(final Iterable<Link> links, final Function<JonesPolynomial, Map<Integer, Long>> polynomial) {
+        Map<Integer, Long> product = new TreeMap<>();
+        product.put(0, 1L);
+        for (final Link link : links) {
+            product = multiply(product, polynomial.apply(new JonesPolynomial(link)));
+        }
+        return product;
+    }
+
+    @Test
+    public void testSplitUnion() throws LinkException {
+        final Link link = RandomLinkGenerator.closeBraid("3_1+4_1+O", 6, 1, 1, 1, 3, -4, 3, -4);
+        final LinkDecomposition decomposition = new LinkDecomposition(link, false);
+        assertTrue(decomposition.isDecomposed());
+        assertEquals(2, decomposition.getPieces().size());
+        assertEquals(1, decomposition.getPieces().get(0).size());
+        assertEquals(1, decomposition.getPieces().get(1).size());
+
+        final Link first = decomposition.getPieces().get(0).get(0), second = decomposition.getPieces().get(1).get(0);
+        assertEquals(link.getNbCross(), first.getNbCross() + second.getNbCross());
+        assertEquals(link.getNbCompo(), first.getNbCompo() + second.getNbCompo());
+        for (int compo = 0; compo < link.getNbCompo(); compo++) {
+            final int[] position = decomposition.getPosition(compo);
+            final Link piece = decomposition.getPieces().get(position[0]).get(0);
+            assertEquals(link.getGauss()[compo].length, piece.getGauss()[position[1]].length);
+        }
+
+        assertEquals(new TreeMap<>(new JonesPolynomial(link).getUnnormalized()),
+                getProduct(Arrays.asList(first, second), JonesPolynomial::getUnnormalized));
+    }
+
+    @Test
+    public void testConnectedSums() throws LinkException {
+        final Link[] sums = {RandomLinkGenerator.closeBraid("3_1#3_1", 3, 1, 1, 1, 2, 2, 2),
+            RandomLinkGenerator.closeBraid("3_1#3_1m", 3, 1, 1, 1, -2, -2, -2),
+            RandomLinkGenerator.closeBraid("3_1#4_1", 4, 1, 1, 1, 2, -3, 2, -3)};
+        for (final Link link : sums) {
+            final LinkDecomposition decomposition = new LinkDecomposition(link, true);
+            assertEquals(link.getName(), 1, decomposition.getPieces().size());
+            assertEquals(link.getName(), 2, decomposition.getPieces().get(0).size());
+            assertEquals(link.getName(), new TreeMap<>(new JonesPolynomial(link).getNormalized()),
+                    getProduct(decomposition.getPieces().get(0), JonesPolynomial::getNormalized));
+
+            assertFalse(new LinkDecomposition(link, false).isDecomposed());
+        }
+    }
+
+    @Test
+    public void testPrimeKnots() throws LinkException {
+        assertFalse(new LinkDecomposition(RandomLinkGenerator.closeBraid("4_1", 3, 1, -2, 1, -2), true).isDecomposed());
+        assertFalse(new LinkDecomposition(RandomLinkGenerator.closeBraid("8_19", 3, 1, 2, 1, 2, 1, 2, 1, 2), true).isDecomposed());
+    }
+}
@@ -0,0 +1,54 @@
+package khovalink.persistence;
+
+import java.util.Random;
+import khovalink.homology.JonesPolynomial;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Class testing the Reidemeister moves of {@code LinkSimplifier} : the
+ * diagrams must lose their removable crossings and keep their Jones
+ * polynomial.
+ *
+ * @author flo
+ */
+public class LinkSimplifierTest {
+
+    private static void assertSameJones(final Link link, final LinkSimplifier simplifier) {
+        assertEquals(link.getName(), new JonesPolynomial(link).getNormalized(), new JonesPolynomial(simplifier.getLink()).getNormalized());
+    }
+
+    @Test
+    public void testKinkedTrefoil() throws LinkException {
+        final Link kinked = RandomLinkGenerator.closeBraid("3_1", 3, 1, 1, 1, 2);
+        final LinkSimplifier simplifier = new LinkSimplifier(kinked);
+        assertEquals(3, simplifier.getLink().getNbCross());
+        assertTrue(simplifier.getR1Nbr() >= 1);
+        assertSameJones(kinked, simplifier);
+    }
+
+    @Test
+    public void testUnknots() throws LinkException {
+        final Link bigon = RandomLinkGenerator.closeBraid("0_1", 2, 1, -1, 1);
+        final LinkSimplifier simplifier = new LinkSimplifier(bigon);
+        assertTrue(simplifier.getLink().getNbCross() <= 1);
+        assertSameJones(bigon, simplifier);
+    }
+
+    @Test
+    public void testRandomBraids() throws LinkException {
+        final Random random = new Random(811);
+        for (int test = 0; test < 30; test++) {
+            final int strands = 2 + random.nextInt(3);
+            final int[] word = new int[4 + random.nextInt(7)];
+            for (int k = 0; k < word.length; k++) {
+                word[k] = (1 + random.nextInt(strands - 1)) * (random.nextBoolean() ? 1 : -1);
+            }
+            final Link link = RandomLinkGenerator.closeBraid("braid " + test, strands, word);
+            final LinkSimplifier simplifier = new LinkSimplifier(link);
+            assertTrue(simplifier.getLink().getNbCross() <= link.getNbCross());
+            assertSameJones(link, simplifier);
+        }
+    }
+}